@@ -1,9 +1,146 @@
 package com.mediatower.backend.config;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Un pool borné par type de travail @Async : un SMTP lent ne peut plus bloquer la vérification des appareils.
+ * <p>
+ * Chaque tâche hérite du MDC et du SecurityContext de l'appelant. À l'arrêt, les tâches en file sont
+ * terminées (dans la limite de app.async.shutdown-await-seconds). Les métriques executor.active,
+ * executor.queued, executor.completed... sont publiées par Actuator avec le tag name=&lt;nom du bean&gt;.
+ */
 @Configuration
 @EnableAsync
-public class AsyncConfig {
-}
\ No newline at end of file
+public class AsyncConfig implements AsyncConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncConfig.class);
+
+    public static final String EMAIL_EXECUTOR = "emailExecutor";
+    public static final String DEVICE_EXECUTOR = "deviceExecutor";
+    public static final String IMAGE_EXECUTOR = "imageExecutor";
+    public static final String DEFAULT_EXECUTOR = "taskExecutor";
+
+    private final AsyncProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public AsyncConfig(AsyncProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Bean(name = EMAIL_EXECUTOR)
+    public ThreadPoolTaskExecutor emailExecutor() {
+        return buildExecutor(EMAIL_EXECUTOR, "email-", properties.getEmail());
+    }
+
+    @Bean(name = DEVICE_EXECUTOR)
+    public ThreadPoolTaskExecutor deviceExecutor() {
+        return buildExecutor(DEVICE_EXECUTOR, "device-", properties.getDevice());
+    }
+
+    @Bean(name = IMAGE_EXECUTOR)
+    public ThreadPoolTaskExecutor imageExecutor() {
+        return buildExecutor(IMAGE_EXECUTOR, "image-", properties.getImage());
+    }
+
+    @Bean(name = DEFAULT_EXECUTOR)
+    public ThreadPoolTaskExecutor taskExecutor() {
+        return buildExecutor(DEFAULT_EXECUTOR, "async-", properties.getFallback());
+    }
+
+    // Exécuteur des méthodes @Async sans qualificatif
+    @Override
+    public Executor getAsyncExecutor() {
+        return taskExecutor();
+    }
+
+    @Override
+    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+        return (ex, method, params) ->
+                logger.error("Uncaught exception in async method {}.{}: {}",
+                        method.getDeclaringClass().getSimpleName(), method.getName(), ex.getMessage(), ex);
+    }
+
+    private ThreadPoolTaskExecutor buildExecutor(String name, String threadPrefix, AsyncProperties.Pool pool) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(pool.getCoreSize());
+        executor.setMaxPoolSize(pool.getMaxSize());
+        executor.setQueueCapacity(pool.getQueueCapacity());
+        executor.setThreadNamePrefix(threadPrefix);
+        executor.setTaskDecorator(new ContextPropagatingDecorator());
+        executor.setRejectedExecutionHandler(rejectionHandler(name, pool.getRejectionPolicy()));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(properties.getShutdownAwaitSeconds());
+        return executor;
+    }
+
+    private RejectedExecutionHandler rejectionHandler(String name, AsyncProperties.RejectionPolicy policy) {
+        Counter rejected = Counter.builder("executor.rejected")
+                .tag("name", name)
+                .description("Tasks rejected because the pool and its queue were full")
+                .register(meterRegistry);
+        return (task, pool) -> {
+            rejected.increment();
+            if (policy == AsyncProperties.RejectionPolicy.CALLER_RUNS && !pool.isShutdown()) {
+                logger.warn("Executor {} saturated, running task on caller thread", name);
+                task.run();
+            } else {
+                logger.error("Executor {} saturated, task discarded (active={}, queued={})",
+                        name, pool.getActiveCount(), pool.getQueue().size());
+            }
+        };
+    }
+
+    /**
+     * Recopie le MDC et l'authentification de l'appelant dans le thread du pool, puis les retire après la tâche
+     * pour qu'ils ne fuient pas vers la tâche suivante.
+     */
+    private static class ContextPropagatingDecorator implements TaskDecorator {
+        @Override
+        public Runnable decorate(Runnable task) {
+            Map<String, String> mdc = MDC.getCopyOfContextMap();
+            SecurityContext callerContext = SecurityContextHolder.getContext();
+            return () -> {
+                Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+                SecurityContext previousContext = SecurityContextHolder.getContext();
+                try {
+                    if (mdc != null) {
+                        MDC.setContextMap(mdc);
+                    } else {
+                        MDC.clear();
+                    }
+                    // Nouveau contexte : l'appelant peut modifier le sien sans effet sur la tâche
+                    SecurityContext taskContext = SecurityContextHolder.createEmptyContext();
+                    taskContext.setAuthentication(callerContext.getAuthentication());
+                    SecurityContextHolder.setContext(taskContext);
+                    task.run();
+                } finally {
+                    if (previousMdc != null) {
+                        MDC.setContextMap(previousMdc);
+                    } else {
+                        MDC.clear();
+                    }
+                    SecurityContextHolder.setContext(previousContext);
+                }
+            };
+        }
+    }
+}
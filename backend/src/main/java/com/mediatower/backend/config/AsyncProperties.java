@@ -0,0 +1,49 @@
+package com.mediatower.backend.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Dimensionnement des pools @Async (voir {@link AsyncConfig}).
+ * Surchargeable via app.async.&lt;pool&gt;.core-size / .max-size / .queue-capacity / .rejection-policy.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.async")
+@Getter
+@Setter
+public class AsyncProperties {
+
+    // Envoi SMTP : lent et bloquant, isolé pour ne pas affamer le reste
+    private Pool email = new Pool(2, 4, 500, RejectionPolicy.CALLER_RUNS);
+    // Vérification des appareils à la connexion (alerte de sécurité : ne doit pas être perdue)
+    private Pool device = new Pool(2, 4, 1000, RejectionPolicy.CALLER_RUNS);
+    // Déclinaisons d'images : décodage gourmand en CPU et en mémoire, peu de threads ; saturé, l'appelant s'en charge
+    private Pool image = new Pool(2, 2, 200, RejectionPolicy.CALLER_RUNS);
+    // Toute autre méthode @Async sans exécuteur explicite
+    private Pool fallback = new Pool(2, 8, 500, RejectionPolicy.DISCARD);
+
+    // Délai laissé aux tâches en cours et en file à l'arrêt de l'application
+    private int shutdownAwaitSeconds = 30;
+
+    public enum RejectionPolicy {
+        // Exécute la tâche sur le thread appelant (aucune perte, ralentit l'appelant)
+        CALLER_RUNS,
+        // Abandonne la tâche en la journalisant et en la comptant (executor.rejected)
+        DISCARD
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Pool {
+        private int coreSize;
+        private int maxSize;
+        private int queueCapacity;
+        private RejectionPolicy rejectionPolicy;
+    }
+}
@@ -1,6 +1,7 @@
 package com.mediatower.backend.config;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
@@ -14,13 +15,21 @@ import java.util.concurrent.TimeUnit;
 public class CacheConfig {
 
     public static final String RESEND_VERIFICATION_CACHE = "resendVerificationAttempts";
+    public static final String PRODUCT_DETAIL_CACHE = "productDetails";
 
     @Bean
-    public CacheManager cacheManager() {
+    public CacheManager cacheManager(@Value("${app.product-cache.maximum-size:5000}") long productCacheSize,
+                                     @Value("${app.product-cache.ttl-minutes:30}") long productCacheTtlMinutes) {
         CaffeineCacheManager cacheManager = new CaffeineCacheManager();
         cacheManager.setCaffeine(Caffeine.newBuilder()
                 .expireAfterWrite(60, TimeUnit.MINUTES) // Le cache expire après 60 minutes
                 .maximumSize(10_000)); // Taille maximale du cache pour éviter la consommation excessive de mémoire
+        // Fiches produit (voir ProductDetailCache) : invalidées à chaque modification, le TTL n'est qu'un filet de sécurité
+        cacheManager.registerCustomCache(PRODUCT_DETAIL_CACHE, Caffeine.newBuilder()
+                .expireAfterWrite(productCacheTtlMinutes, TimeUnit.MINUTES)
+                .maximumSize(productCacheSize)
+                .recordStats()
+                .build());
         return cacheManager;
     }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.mediatower.backend.config;
+
+import com.mediatower.backend.service.CatalogAggregate;
+import com.mediatower.backend.service.CatalogVersions;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Cache HTTP d'un groupe de GET publics du catalogue : ETag et Last-Modified tirés de {@link CatalogVersions},
+ * 304 renvoyé avant le contrôleur (donc sans aucun accès à la base) quand le client a déjà la version courante.
+ */
+public class CatalogCacheInterceptor implements HandlerInterceptor {
+
+    private final CatalogVersions catalogVersions;
+    private final CatalogAggregate[] aggregates;
+    private final String cacheControl;
+
+    /**
+     * @param aggregates agrégats dont dépend le contenu des réponses (une modification de l'un d'eux change l'ETag)
+     */
+    public CatalogCacheInterceptor(CatalogVersions catalogVersions, String cacheControl, CatalogAggregate... aggregates) {
+        this.catalogVersions = catalogVersions;
+        this.cacheControl = cacheControl;
+        this.aggregates = aggregates;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            return true;
+        }
+        String etag = catalogVersions.etag(aggregates);
+        if (etag == null) {
+            return true; // Versions pas encore chargées (démarrage)
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        // Répond 304 si If-None-Match (ou If-Modified-Since) correspond, sinon ajoute ETag et Last-Modified
+        return !new ServletWebRequest(request, response).checkNotModified(etag, catalogVersions.lastModified(aggregates));
+    }
+}
@@ -0,0 +1,21 @@
+package com.mediatower.backend.config;
+
+import com.mediatower.backend.service.JdbcBucketProxyManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Rate limiting partagé entre les nœuds (app.rate-limit.mode=distributed).
+ * En mode 'local' (défaut), aucun bean n'est créé et chaque JVM garde ses propres buckets.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.rate-limit.mode", havingValue = "distributed")
+public class RateLimitConfig {
+
+    @Bean
+    public JdbcBucketProxyManager bucketProxyManager(JdbcTemplate jdbcTemplate) {
+        return new JdbcBucketProxyManager(jdbcTemplate);
+    }
+}
@@ -2,14 +2,40 @@
 
 package com.mediatower.backend.config;
 
+import com.mediatower.backend.service.CatalogVersions;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.time.Duration;
+
+import static com.mediatower.backend.service.CatalogAggregate.CATEGORIES;
+import static com.mediatower.backend.service.CatalogAggregate.PRODUCTS;
+import static com.mediatower.backend.service.CatalogAggregate.SERVICES;
+import static com.mediatower.backend.service.CatalogAggregate.SETTINGS;
+import static com.mediatower.backend.service.CatalogAggregate.TAGS;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private final CatalogVersions catalogVersions;
+    private final String catalogCacheControl;
+
+    public WebConfig(CatalogVersions catalogVersions,
+                     @Value("${app.catalog-cache.max-age-seconds:0}") long maxAgeSeconds,
+                     @Value("${app.catalog-cache.shared-max-age-seconds:0}") long sharedMaxAgeSeconds) {
+        this.catalogVersions = catalogVersions;
+        // max-age=0 : navigateurs et CDN gardent la réponse mais revalident à chaque fois (304 sans accès base)
+        this.catalogCacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds))
+                .sMaxAge(Duration.ofSeconds(sharedMaxAgeSeconds))
+                .cachePublic()
+                .getHeaderValue();
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         // CORRECTION : On rend la règle plus spécifique pour ne cibler que votre API.
@@ -28,4 +54,22 @@ public class WebConfig implements WebMvcConfigurer {
         registry.addResourceHandler("/uploads/**")
                 .addResourceLocations("file:./uploads/");
     }
-}
\ No newline at end of file
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Chaque groupe de routes publiques (voir PublicRoutes) avec les agrégats dont dépendent ses réponses.
+        // Les fiches produit portent le nom de la catégorie et les ids de tags ; les catégories, leur nombre de produits.
+        // /popular et /similar dépendent des ventes : pas de cache HTTP.
+        registry.addInterceptor(new CatalogCacheInterceptor(catalogVersions, catalogCacheControl, PRODUCTS, CATEGORIES, TAGS))
+                .addPathPatterns("/api/products", "/api/products/**")
+                .excludePathPatterns("/api/products/popular", "/api/products/*/similar");
+        registry.addInterceptor(new CatalogCacheInterceptor(catalogVersions, catalogCacheControl, CATEGORIES, PRODUCTS))
+                .addPathPatterns("/api/categories", "/api/categories/**");
+        registry.addInterceptor(new CatalogCacheInterceptor(catalogVersions, catalogCacheControl, TAGS))
+                .addPathPatterns("/api/tags", "/api/tags/**");
+        registry.addInterceptor(new CatalogCacheInterceptor(catalogVersions, catalogCacheControl, SERVICES))
+                .addPathPatterns("/api/services", "/api/services/**");
+        registry.addInterceptor(new CatalogCacheInterceptor(catalogVersions, catalogCacheControl, SETTINGS))
+                .addPathPatterns("/api/settings");
+    }
+}
@@ -1,6 +1,7 @@
 package com.mediatower.backend.controller;
 
 import com.mediatower.backend.dto.AuditLogDto;
+import com.mediatower.backend.dto.CursorPage;
 import com.mediatower.backend.service.AuditLogService;
 import com.mediatower.backend.service.UserService;
 import jakarta.servlet.http.HttpServletRequest;
@@ -36,4 +37,13 @@ public class AdminController {
         Page<AuditLogDto> logs = auditLogService.getAuditLogs(pageable);
         return ResponseEntity.ok(logs);
     }
+
+    // Pagination par curseur : à privilégier pour parcourir le journal en profondeur
+    @GetMapping("/audit-logs/scroll")
+    public ResponseEntity<CursorPage<AuditLogDto>> scrollAuditLogs(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ResponseEntity.ok(auditLogService.getAuditLogsAfterCursor(cursor, size, withTotal));
+    }
 }
\ No newline at end of file
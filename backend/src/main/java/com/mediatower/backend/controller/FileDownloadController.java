@@ -6,19 +6,25 @@ import com.mediatower.backend.repository.MediaRepository;
 import com.mediatower.backend.repository.UserProductAccessRepository;
 import com.mediatower.backend.repository.UserRepository;
 import com.mediatower.backend.service.FileStorageService;
+import com.mediatower.backend.service.ImageVariant;
+import com.mediatower.backend.service.ImageVariantService;
 import com.mediatower.backend.model.MediaType;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.util.UriUtils; // <-- AJOUTER CET IMPORT
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets; // <-- AJOUTER CET IMPORT
-import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/download")
@@ -28,31 +34,54 @@ public class FileDownloadController {
     private final MediaRepository mediaRepository;
     private final UserProductAccessRepository userProductAccessRepository;
     private final UserRepository userRepository;
+    private final ImageVariantService imageVariantService;
 
-    public FileDownloadController(FileStorageService fileStorageService, MediaRepository mediaRepository, UserProductAccessRepository userProductAccessRepository, UserRepository userRepository) {
+    public FileDownloadController(FileStorageService fileStorageService, MediaRepository mediaRepository, UserProductAccessRepository userProductAccessRepository, UserRepository userRepository, ImageVariantService imageVariantService) {
         this.fileStorageService = fileStorageService;
         this.mediaRepository = mediaRepository;
         this.userRepository = userRepository;
+        this.imageVariantService = imageVariantService;
         this.userProductAccessRepository = userProductAccessRepository; // Initialiser ici aussi
     }
 
+    /**
+     * Accepte les requêtes Range (reprise d'un téléchargement interrompu) et conditionnelles : voir {@link FileRegionWriter}.
+     * Pour une image, {@code size} (thumb, small, medium, large, ou une largeur en pixels) sert la déclinaison
+     * correspondante au lieu de l'original : voir {@link ImageVariant#fromParameter}.
+     */
     @GetMapping("/{fileName}")
-    public ResponseEntity<Resource> downloadFile(@PathVariable String fileName, Authentication authentication) {
+    public void downloadFile(@PathVariable String fileName, @RequestParam(required = false) String size,
+                             Authentication authentication,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ImageVariant variant;
+        try {
+            variant = ImageVariant.fromParameter(size).orElse(null);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
 
-        Media media = mediaRepository.findByFileName(fileName)
-                .orElseThrow(() -> new RuntimeException("File not found with name " + fileName));
+        // Un même fichier (contenu identique) peut être référencé par plusieurs médias : s'il est un fichier
+        // numérique pour l'un d'eux, il est protégé, et l'accès à l'un des produits concernés suffit
+        List<Media> references = mediaRepository.findByFileName(fileName);
+        if (references.isEmpty()) {
+            throw new RuntimeException("File not found with name " + fileName);
+        }
+        Media media = references.stream()
+                .filter(reference -> reference.getType() == MediaType.DIGITAL_ASSET)
+                .findFirst()
+                .orElse(references.get(0));
 
         Resource resource = fileStorageService.loadFileAsResource(media.getFileName());
+        Path file = resource.getFile().toPath();
+        // Empreinte et taille enregistrées à l'upload : pas de relecture du contenu pour l'ETag
+        String etag = fileStorageService.strongEtag(media);
 
-        String contentType = null;
-        try {
-            contentType = Files.probeContentType(resource.getFile().toPath());
-        } catch (IOException ex) {
-            System.err.println("Could not determine file type for " + fileName + ": " + ex.getMessage());
-        }
-        if (contentType == null) {
-            contentType = org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
-        }
+        // Type détecté à l'upload ; pour un ancien média pas encore rattrapé, déduit du nom sans accès au disque
+        String contentType = media.getContentType() != null ? media.getContentType()
+                : MediaTypeFactory.getMediaType(media.getFileName())
+                        .or(() -> MediaTypeFactory.getMediaType(media.getOriginalName()))
+                        .orElse(org.springframework.http.MediaType.APPLICATION_OCTET_STREAM)
+                        .toString();
 
         // --- DÉBUT DE LA CORRECTION : GESTION DU NOM DE FICHIER POUR L'EN-TÊTE ---
         String filenameToUseInHeader;
@@ -70,7 +99,8 @@ public class FileDownloadController {
 
         if (media.getType() == MediaType.DIGITAL_ASSET) {
             if (authentication == null || !authentication.isAuthenticated()) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                return;
             }
 
             String userEmail = authentication.getName();
@@ -79,37 +109,45 @@ public class FileDownloadController {
 
             // Assurez-vous que media.getProduct() n'est pas nul si un Digital Asset est toujours lié à un produit.
             // Ajouter une vérification pour éviter NullPointerException
-            Long productId = (media.getProduct() != null) ? media.getProduct().getId() : null;
+            List<Long> productIds = references.stream()
+                    .filter(reference -> reference.getType() == MediaType.DIGITAL_ASSET && reference.getProduct() != null)
+                    .map(reference -> reference.getProduct().getId())
+                    .distinct()
+                    .collect(Collectors.toList());
 
             // Si le produitId est nul pour un DIGITAL_ASSET, on pourrait refuser l'accès ou logger une erreur.
             // Pour l'instant, je vais considérer que le digital asset devrait avoir un produit associé.
-            if (productId == null) {
+            if (productIds.isEmpty()) {
                 System.err.println("Digital asset " + media.getFileName() + " is not linked to any product. Access denied.");
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+                response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+                return;
             }
 
 
             boolean isAdmin = authentication.getAuthorities().stream()
                     .anyMatch(ga -> ga.getAuthority().equals("ROLE_ADMIN"));
-            boolean hasAccess = userProductAccessRepository.existsByUserIdAndProductId(currentUser.getId(), productId);
+            boolean hasAccess = productIds.stream()
+                    .anyMatch(productId -> userProductAccessRepository.existsByUserIdAndProductId(currentUser.getId(), productId));
 
             if (!isAdmin && !hasAccess) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+                response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+                return;
             }
 
-            return ResponseEntity.ok()
-                    .contentType(org.springframework.http.MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filenameToUseInHeader + "\"") // <-- UTILISER filenameToUseInHeader
-                    .body(resource);
+            FileRegionWriter.write(request, response, file, etag, media.getContentLength(), contentType, "attachment; filename=\"" + filenameToUseInHeader + "\""); // <-- UTILISER filenameToUseInHeader
 
         } else if (media.getType() == MediaType.IMAGE) {
-            return ResponseEntity.ok()
-                    .contentType(org.springframework.http.MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filenameToUseInHeader + "\"") // <-- UTILISER filenameToUseInHeader
-                    .body(resource);
+            Path variantFile = variant == null ? null : imageVariantService.variant(media, variant);
+            if (variantFile != null) {
+                String variantEtag = etag == null ? null : etag.substring(0, etag.length() - 1) + "-" + variant.key() + "\"";
+                FileRegionWriter.write(request, response, variantFile, variantEtag, null, imageVariantService.contentType(media),
+                        "inline; filename=\"" + filenameToUseInHeader + "\"");
+                return;
+            }
+            FileRegionWriter.write(request, response, file, etag, media.getContentLength(), contentType, "inline; filename=\"" + filenameToUseInHeader + "\""); // <-- UTILISER filenameToUseInHeader
         } else {
             System.err.println("Attempted to access unsupported media type: " + media.getType());
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
         }
     }
 }
\ No newline at end of file
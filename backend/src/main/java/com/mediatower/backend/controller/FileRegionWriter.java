@@ -0,0 +1,227 @@
+package com.mediatower.backend.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Envoi d'un fichier du disque avec les requêtes conditionnelles et les plages d'octets (RFC 9110) :
+ * ETag et Last-Modified, 304, Range simple ou multiple (206, multipart/byteranges), If-Range et 416.
+ * <p>
+ * Une plage unique (ou le fichier entier) est confiée au sendfile de Tomcat quand le connecteur le permet : le
+ * noyau copie alors le fichier vers la socket sans passer par le tas. Sinon (connecteur sans sendfile, petite
+ * plage, plages multiples), chaque plage est copiée par {@link FileChannel#transferTo} vers le flux de réponse :
+ * la cible n'étant pas un canal de fichier ou de socket, les octets traversent des tampons de taille fixe
+ * (quelques Ko, réutilisés) puis le tampon de sortie de Tomcat ; la mémoire reste bornée quelle que soit la
+ * taille du fichier, mais chaque octet est copié dans le tas.
+ * <p>
+ * Mesure : {@code FileRegionWriterBenchmark}.
+ */
+final class FileRegionWriter {
+
+    // Attributs de requête de Tomcat (org.apache.catalina.Globals) : le connecteur envoie lui-même le fichier
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    // En dessous, le sendfile coûte plus qu'une copie (même seuil que le DefaultServlet de Tomcat)
+    private static final long SENDFILE_MIN_BYTES = 48 * 1024;
+
+    private FileRegionWriter() {
+    }
+
+    /**
+     * @param etag ETag fort du contenu (empreinte), ou null pour le dériver de la taille et de la date du fichier
+     * @param storedLength taille enregistrée avec l'empreinte, ou null ; si le fichier n'a plus cette taille,
+     *                     l'empreinte ne le décrit plus et l'ETag est dérivé du fichier. Content-Length et les
+     *                     plages sont toujours calculés sur le fichier réel.
+     */
+    static void write(HttpServletRequest request, HttpServletResponse response, Path file, String etag, Long storedLength,
+                      String contentType, String contentDisposition) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        if (etag == null || (storedLength != null && storedLength != length)) {
+            etag = "\"" + Long.toString(length, 36) + "-" + Long.toString(lastModified, 36) + "\"";
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // Répond 304 si If-None-Match (ou If-Modified-Since) correspond, sinon ajoute ETag et Last-Modified
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+
+        List<Region> regions = requestedRegions(request, etag, lastModified, length);
+        if (regions != null && regions.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.setContentLength(0);
+            return;
+        }
+        boolean headOnly = "HEAD".equals(request.getMethod());
+
+        if (regions == null || regions.size() == 1) {
+            Region region = regions == null ? new Region(0, length - 1) : regions.get(0);
+            if (regions != null) {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, region.contentRange(length));
+            }
+            response.setContentLengthLong(region.count());
+            if (headOnly || region.count() == 0) {
+                return;
+            }
+            if (region.count() >= SENDFILE_MIN_BYTES && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+                request.setAttribute(SENDFILE_FILENAME, file.toRealPath().toString());
+                request.setAttribute(SENDFILE_START, region.start());
+                request.setAttribute(SENDFILE_END, region.end() + 1);
+                return;
+            }
+            // Copie par tampons dans le tas (voir la doc de la classe)
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                transfer(channel, region, Channels.newChannel(response.getOutputStream()));
+            }
+            return;
+        }
+
+        // Plusieurs plages : une partie par plage, longueur totale calculée d'avance
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<byte[]> partHeaders = new ArrayList<>(regions.size());
+        long contentLength = 0;
+        for (Region region : regions) {
+            byte[] partHeader = ("\r\n--" + boundary + "\r\n" +
+                    HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n" +
+                    HttpHeaders.CONTENT_RANGE + ": " + region.contentRange(length) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + region.count();
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (headOnly) {
+            return;
+        }
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int i = 0; i < regions.size(); i++) {
+                out.write(partHeaders.get(i));
+                transfer(channel, regions.get(i), target);
+            }
+        }
+        out.write(closing);
+    }
+
+    /**
+     * Plages demandées, triées et fusionnées ; {@code null} pour envoyer tout le fichier (pas de Range, Range
+     * illisible ou If-Range périmé), liste vide si aucune plage n'est satisfiable.
+     */
+    private static List<Region> requestedRegions(HttpServletRequest request, String etag, long lastModified, long length) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !isCurrent(request.getHeader(HttpHeaders.IF_RANGE), etag, lastModified)) {
+            return null;
+        }
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return null; // Syntaxe invalide ou trop de plages : la RFC autorise à ignorer l'en-tête
+        }
+        List<Region> satisfiable = new ArrayList<>();
+        for (HttpRange range : ranges) {
+            long start;
+            long end;
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                continue; // Début au-delà de la fin du fichier
+            }
+            if (start < length && start <= end) {
+                satisfiable.add(new Region(start, end));
+            }
+        }
+        // Plages qui se chevauchent ou se touchent fusionnées : un client ne peut pas faire relire le fichier plusieurs fois
+        satisfiable.sort(Comparator.comparingLong(Region::start));
+        List<Region> merged = new ArrayList<>(satisfiable.size());
+        for (Region region : satisfiable) {
+            Region last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && region.start() <= last.end() + 1) {
+                merged.set(merged.size() - 1, new Region(last.start(), Math.max(last.end(), region.end())));
+            } else {
+                merged.add(region);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * If-Range : la plage n'est servie que si le client reprend bien la version courante du fichier
+     * (comparaison forte de l'ETag, ou date égale à la seconde près à Last-Modified).
+     */
+    private static boolean isCurrent(String ifRange, String etag, long lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.IF_RANGE, ifRange);
+            return headers.getFirstDate(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void transfer(FileChannel channel, Region region, WritableByteChannel target) throws IOException {
+        long position = region.start();
+        long end = region.end() + 1;
+        while (position < end) {
+            long sent = channel.transferTo(position, end - position, target);
+            if (sent <= 0) {
+                throw new EOFException("File truncated while sending bytes " + position + "-" + region.end());
+            }
+            position += sent;
+        }
+    }
+
+    /**
+     * Plage d'octets, bornes incluses.
+     */
+    private record Region(long start, long end) {
+
+        long count() {
+            return end - start + 1;
+        }
+
+        String contentRange(long length) {
+            return "bytes " + start + "-" + end + "/" + length;
+        }
+    }
+}
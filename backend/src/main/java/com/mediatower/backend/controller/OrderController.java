@@ -1,5 +1,6 @@
 package com.mediatower.backend.controller;
 
+import com.mediatower.backend.dto.CursorPage;
 import com.mediatower.backend.dto.OrderDto;
 import com.mediatower.backend.model.OrderStatus;
 import com.mediatower.backend.model.UserRole;
@@ -35,6 +36,16 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    @GetMapping("/scroll")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPage<OrderDto>> scrollOrders(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ResponseEntity.ok(orderService.getOrdersAfterCursor(search, cursor, size, withTotal));
+    }
+
     @GetMapping("/me")
     @PreAuthorize("isAuthenticated()")
     public List<OrderDto> getMyOrders(@AuthenticationPrincipal FirebaseUser firebaseUser) {
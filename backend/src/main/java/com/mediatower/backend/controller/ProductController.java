@@ -1,13 +1,20 @@
 package com.mediatower.backend.controller;
+import com.mediatower.backend.dto.CursorPage;
 import com.mediatower.backend.dto.ProductDto;
+import com.mediatower.backend.dto.ProductFacetPage;
 import com.mediatower.backend.model.Media;
 import com.mediatower.backend.model.MediaType;
 import com.mediatower.backend.model.Product;
 import com.mediatower.backend.repository.MediaRepository;
 import com.mediatower.backend.repository.ProductRepository;
 import com.mediatower.backend.security.FirebaseUser;
+import com.mediatower.backend.service.CatalogAggregate;
+import com.mediatower.backend.service.CatalogVersions;
 import com.mediatower.backend.service.FileStorageService;
+import com.mediatower.backend.service.ImageVariantService;
+import com.mediatower.backend.service.ProductDetailCache;
 import com.mediatower.backend.service.ProductService;
+import com.mediatower.backend.service.ResumableUploadService;
 import com.mediatower.backend.service.S3Service;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
@@ -15,13 +22,16 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/products")
@@ -32,13 +42,21 @@ public class ProductController {
     private final FileStorageService fileStorageService;
     private final MediaRepository mediaRepository;
     private final S3Service s3Service;
+    private final ProductDetailCache productDetailCache;
+    private final CatalogVersions catalogVersions;
+    private final ResumableUploadService resumableUploadService;
+    private final ImageVariantService imageVariantService;
 
-    public ProductController(ProductService productService, ProductRepository productRepository, FileStorageService fileStorageService, MediaRepository mediaRepository, S3Service s3Service) {
+    public ProductController(ProductService productService, ProductRepository productRepository, FileStorageService fileStorageService, MediaRepository mediaRepository, S3Service s3Service, ProductDetailCache productDetailCache, CatalogVersions catalogVersions, ResumableUploadService resumableUploadService, ImageVariantService imageVariantService) {
         this.productService = productService;
         this.productRepository = productRepository;
         this.fileStorageService = fileStorageService;
         this.mediaRepository = mediaRepository;
         this.s3Service = s3Service;
+        this.productDetailCache = productDetailCache;
+        this.catalogVersions = catalogVersions;
+        this.resumableUploadService = resumableUploadService;
+        this.imageVariantService = imageVariantService;
     }
 
     @GetMapping
@@ -51,7 +69,31 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    // Pagination par curseur : ?cursor=<nextCursor de la page précédente>&size=20&withTotal=false
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<ProductDto>> scrollProducts(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) String stockStatus,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ResponseEntity.ok(productService.getProductsAfterCursor(search, categoryId, stockStatus, cursor, size, withTotal));
+    }
+
     // CORRECTION: Une seule méthode /all avec sécurité conditionnelle
+    // Filtres à facettes : ?categoryId=1&categoryId=2&tagId=3&stock=instock&price=10-25&page=0&size=20
+    @GetMapping("/facets")
+    public ResponseEntity<ProductFacetPage> getFacetedProducts(
+            @RequestParam(required = false) Set<Long> categoryId,
+            @RequestParam(required = false) Set<Long> tagId,
+            @RequestParam(required = false) Set<String> stock,
+            @RequestParam(required = false) Set<String> price,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(productService.getFacetedProducts(categoryId, tagId, stock, price, page, size));
+    }
+
     @GetMapping("/all")
     public ResponseEntity<List<ProductDto>> getAllProductsForAdmin() {
         List<ProductDto> products = productService.getAllProductsForSelection();
@@ -121,6 +163,8 @@ public class ProductController {
         }
 
         associateImages(product, images);
+        // Fichier et images enregistrés après le commit de createProduct : nouvelle version une fois tout écrit
+        catalogVersions.bump(CatalogAggregate.PRODUCTS);
         return new ResponseEntity<>(productService.getProductById(product.getId()).get(), HttpStatus.CREATED);
     }
 
@@ -147,6 +191,9 @@ public class ProductController {
         }
 
         associateImages(product, images);
+        // Fichier et images enregistrés après le commit de updateProduct : une lecture a pu remettre l'ancienne fiche en cache
+        productDetailCache.evictAfterCommit(id);
+        catalogVersions.bump(CatalogAggregate.PRODUCTS);
         return ResponseEntity.ok(productService.getProductById(product.getId()).get());
     }
 
@@ -162,22 +209,70 @@ public class ProductController {
         return ResponseEntity.noContent().build();
     }
 
+    // Finalisation d'un upload reprenable (/api/uploads) : le fichier devient le fichier numérique du produit
+    @PutMapping("/{id}/digital-asset")
+    public ResponseEntity<ProductDto> attachDigitalAsset(@PathVariable Long id, @RequestParam String uploadId,
+                                                        Authentication authentication) throws IOException {
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Product not found with id " + id));
+        ResumableUploadService.CompletedUpload upload = resumableUploadService.complete(authentication.getName(), uploadId);
+        String newS3Key;
+        try {
+            newS3Key = s3Service.uploadFile(upload.file(), upload.originalName(), "produits");
+        } finally {
+            Files.deleteIfExists(upload.file());
+        }
+        // L'ancien fichier n'est supprimé qu'une fois le nouveau en place
+        String previousS3Key = product.getS3ObjectKey();
+        product.setS3ObjectKey(newS3Key);
+        productRepository.save(product);
+        if (previousS3Key != null && !previousS3Key.isBlank()) {
+            s3Service.deleteFile(previousS3Key);
+        }
+        productDetailCache.evictAfterCommit(id);
+        catalogVersions.bump(CatalogAggregate.PRODUCTS);
+        return ResponseEntity.ok(productService.getProductById(id).get());
+    }
+
+    // Finalisation d'un upload reprenable : le fichier est ajouté aux images du produit
+    @PostMapping("/{id}/images")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ProductDto> attachImage(@PathVariable Long id, @RequestParam String uploadId,
+                                                  Authentication authentication) throws IOException {
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Product not found with id " + id));
+        ResumableUploadService.CompletedUpload upload = resumableUploadService.complete(authentication.getName(), uploadId);
+        String fileName = fileStorageService.storeFile(upload.file(), upload.originalName());
+        saveImage(product, fileName, upload.originalName(), !hasPrimaryImage(product));
+        productDetailCache.evictAfterCommit(id);
+        catalogVersions.bump(CatalogAggregate.PRODUCTS);
+        return new ResponseEntity<>(productService.getProductById(id).get(), HttpStatus.CREATED);
+    }
+
     private void associateImages(Product product, List<MultipartFile> images) {
         if (images != null && !images.isEmpty()) {
-            boolean isFirstImage = !product.getMediaAssets().stream().anyMatch(m -> m.isPrimary() && m.getType() == MediaType.IMAGE);
+            boolean isFirstImage = !hasPrimaryImage(product);
             for (MultipartFile file : images) {
                 String fileName = fileStorageService.storeFile(file);
-                Media media = new Media();
-                media.setFileName(fileName);
-                media.setOriginalName(file.getOriginalFilename());
-                media.setType(MediaType.IMAGE);
-                media.setProduct(product);
-                if (isFirstImage) {
-                    media.setPrimary(true);
-                    isFirstImage = false;
-                }
-                mediaRepository.save(media);
+                saveImage(product, fileName, file.getOriginalFilename(), isFirstImage);
+                isFirstImage = false;
             }
         }
     }
+
+    private static boolean hasPrimaryImage(Product product) {
+        return product.getMediaAssets().stream().anyMatch(m -> m.isPrimary() && m.getType() == MediaType.IMAGE);
+    }
+
+    private void saveImage(Product product, String fileName, String originalName, boolean primary) {
+        Media media = new Media();
+        media.setFileName(fileName);
+        media.setOriginalName(originalName);
+        media.setType(MediaType.IMAGE);
+        media.setProduct(product);
+        fileStorageService.inspect(media);
+        media.setPrimary(primary);
+        mediaRepository.save(media);
+        imageVariantService.prepare(media);
+    }
 }
\ No newline at end of file
@@ -9,6 +9,7 @@ import com.mediatower.backend.model.ProductPack;
 import com.mediatower.backend.repository.MediaRepository;
 import com.mediatower.backend.repository.ProductPackRepository;
 import com.mediatower.backend.service.FileStorageService;
+import com.mediatower.backend.service.ImageVariantService;
 import com.mediatower.backend.service.ProductPackService;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
@@ -29,12 +30,14 @@ public class ProductPackController {
     private final ProductPackRepository packRepository;
     private final FileStorageService fileStorageService;
     private final MediaRepository mediaRepository;
+    private final ImageVariantService imageVariantService;
 
-    public ProductPackController(ProductPackService packService, ProductPackRepository packRepository, FileStorageService fileStorageService, MediaRepository mediaRepository) {
+    public ProductPackController(ProductPackService packService, ProductPackRepository packRepository, FileStorageService fileStorageService, MediaRepository mediaRepository, ImageVariantService imageVariantService) {
         this.packService = packService;
         this.packRepository = packRepository;
         this.fileStorageService = fileStorageService;
         this.mediaRepository = mediaRepository;
+        this.imageVariantService = imageVariantService;
     }
 
     @GetMapping
@@ -108,11 +111,13 @@ public class ProductPackController {
                 media.setOriginalName(file.getOriginalFilename());
                 media.setType(MediaType.IMAGE);
                 media.setPack(pack);
+                fileStorageService.inspect(media);
                 if (isFirstImage) {
                     media.setPrimary(true);
                     isFirstImage = false;
                 }
                 mediaRepository.save(media);
+                imageVariantService.prepare(media);
             }
         }
     }
@@ -0,0 +1,61 @@
+package com.mediatower.backend.controller;
+
+import com.mediatower.backend.dto.UploadSessionDto;
+import com.mediatower.backend.dto.UploadSessionRequest;
+import com.mediatower.backend.service.ResumableUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+/**
+ * Uploads reprenables. Le client ouvre une session, envoie chaque morceau par
+ * PUT /api/uploads/{id}?offset=N (corps brut, éventuellement plusieurs en parallèle), relit l'offset atteint
+ * par GET après une coupure, puis finalise en rattachant le fichier à un produit
+ * (PUT /api/products/{id}/digital-asset ou POST /api/products/{id}/images, paramètre uploadId).
+ */
+@RestController
+@RequestMapping("/api/uploads")
+public class UploadController {
+
+    // Mêmes noms d'en-têtes que le protocole tus
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+    private static final String UPLOAD_CHECKSUM = "Upload-Checksum";
+
+    private final ResumableUploadService resumableUploadService;
+
+    public UploadController(ResumableUploadService resumableUploadService) {
+        this.resumableUploadService = resumableUploadService;
+    }
+
+    @PostMapping
+    public ResponseEntity<UploadSessionDto> createUpload(@RequestBody UploadSessionRequest request, Authentication authentication) {
+        return new ResponseEntity<>(resumableUploadService.create(authentication.getName(), request), HttpStatus.CREATED);
+    }
+
+    @PutMapping("/{uploadId}")
+    public ResponseEntity<Void> uploadChunk(@PathVariable String uploadId,
+                                            @RequestParam long offset,
+                                            @RequestHeader(value = UPLOAD_CHECKSUM, required = false) String checksum,
+                                            HttpServletRequest request,
+                                            Authentication authentication) throws IOException {
+        long committed = resumableUploadService.writeChunk(authentication.getName(), uploadId, offset,
+                request.getContentLengthLong(), checksum, request.getInputStream());
+        return ResponseEntity.noContent().header(UPLOAD_OFFSET, Long.toString(committed)).build();
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<UploadSessionDto> getUpload(@PathVariable String uploadId, Authentication authentication) {
+        UploadSessionDto upload = resumableUploadService.status(authentication.getName(), uploadId);
+        return ResponseEntity.ok().header(UPLOAD_OFFSET, Long.toString(upload.getOffset())).body(upload);
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Void> abortUpload(@PathVariable String uploadId, Authentication authentication) {
+        resumableUploadService.abort(authentication.getName(), uploadId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -155,6 +155,16 @@ public class UserController {
         return ResponseEntity.ok(users);
     }
 
+    @GetMapping("/scroll")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPage<AdminUserDto>> scrollUsers(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ResponseEntity.ok(userService.findUsersAfterCursor(search, cursor, size, withTotal));
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<AdminUserDto> getUserById(@PathVariable Long id) {
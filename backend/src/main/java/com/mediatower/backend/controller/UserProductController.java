@@ -6,6 +6,7 @@ import com.mediatower.backend.repository.UserProductAccessRepository;
 import com.mediatower.backend.repository.UserRepository;
 import com.mediatower.backend.security.FirebaseUser;
 import com.mediatower.backend.service.FileStorageService;
+import com.mediatower.backend.service.ProductPopularityRanking;
 import com.mediatower.backend.service.S3Service;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.http.ResponseEntity;
@@ -32,15 +33,18 @@ public class UserProductController {
     private final UserRepository userRepository;
     private final S3Service s3Service;
     private final FileStorageService fileStorageService;
+    private final ProductPopularityRanking productPopularityRanking;
 
     public UserProductController(UserProductAccessRepository userProductAccessRepository,
                                  UserRepository userRepository,
                                  S3Service s3Service,
-                                 FileStorageService fileStorageService) {
+                                 FileStorageService fileStorageService,
+                                 ProductPopularityRanking productPopularityRanking) {
         this.userProductAccessRepository = userProductAccessRepository;
         this.userRepository = userRepository;
         this.s3Service = s3Service;
         this.fileStorageService = fileStorageService;
+        this.productPopularityRanking = productPopularityRanking;
     }
 
     @GetMapping("/user/products")
@@ -80,6 +84,7 @@ public class UserProductController {
         access.setDownloadCount(access.getDownloadCount() + 1);
         access.setLastDownloadAt(LocalDateTime.now());
         userProductAccessRepository.save(access);
+        productPopularityRanking.recordDownloadAfterCommit(access.getId(), productId, access.getDownloadCount());
 
         URL presignedUrl = s3Service.generatePresignedDownloadUrl(product.getS3ObjectKey());
 
@@ -0,0 +1,22 @@
+package com.mediatower.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Page d'une liste parcourue par curseur (endpoints /scroll).
+ * nextCursor est à renvoyer tel quel pour obtenir la page suivante ; null sur la dernière page.
+ * totalElements n'est calculé que si withTotal=true.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private String nextCursor;
+    private int size;
+    private Long totalElements;
+}
@@ -2,6 +2,8 @@ package com.mediatower.backend.dto;
 
 import lombok.Data;
 
+import java.util.Map;
+
 @Data
 public class MediaDto {
     private Long id;
@@ -10,4 +12,5 @@ public class MediaDto {
     private String type;
     private String url; // URL complète pour l'accès
     private boolean isPrimary;
+    private Map<String, String> variants; // Images : URL de chaque taille (thumb, small, medium, large)
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.mediatower.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Page du catalogue filtré par facettes (/api/products/facets).
+ * facets : facette (category, tag, stock, price) -> valeur (id ou libellé) -> nombre de produits,
+ * calculé avec les filtres des autres facettes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetPage {
+    private List<ProductDto> content;
+    private long totalElements;
+    private int page;
+    private int size;
+    private Map<String, Map<String, Long>> facets;
+}
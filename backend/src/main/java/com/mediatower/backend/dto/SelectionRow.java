@@ -0,0 +1,10 @@
+package com.mediatower.backend.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Ligne de projection des listes de sélection (éditeurs de promotions et de packs) :
+ * une ligne par (élément, langue), lue sans entité managée.
+ */
+public record SelectionRow(Long id, String locale, String name, BigDecimal price) {
+}
@@ -0,0 +1,22 @@
+package com.mediatower.backend.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * État d'un upload reprenable. offset est la longueur du début du fichier déjà reçu sans trou ;
+ * missingChunks liste les morceaux encore attendus (les morceaux peuvent arriver dans le désordre).
+ */
+@Data
+public class UploadSessionDto {
+    private String uploadId;
+    private String fileName;
+    private long size;
+    private long chunkSize;
+    private int chunkCount;
+    private long offset;
+    private List<Integer> missingChunks;
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,14 @@
+package com.mediatower.backend.dto;
+
+import lombok.Data;
+
+/**
+ * Ouverture d'un upload reprenable (POST /api/uploads).
+ * sha256 (hexadécimal, facultatif) est vérifié sur le fichier complet à la finalisation.
+ */
+@Data
+public class UploadSessionRequest {
+    private String fileName;
+    private long size;
+    private String sha256;
+}
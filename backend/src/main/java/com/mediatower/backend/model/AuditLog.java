@@ -9,7 +9,9 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "audit_logs")
+@Table(name = "audit_logs", indexes = {
+        @Index(name = "idx_audit_logs_timestamp_id", columnList = "timestamp DESC, id DESC")
+})
 @Getter
 @Setter
 @NoArgsConstructor
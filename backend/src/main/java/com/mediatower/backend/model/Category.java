@@ -6,12 +6,14 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.HashMap;
 
 @Entity
 @Table(name = "categories")
+@BatchSize(size = 100) // Catégories d'une page de produits chargées en une seule requête
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -20,12 +22,14 @@ public class Category {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @BatchSize(size = 100)
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name = "category_names", joinColumns = @JoinColumn(name = "category_id"))
     @MapKeyColumn(name = "language_code", length = 10)
     @Column(name = "name", nullable = false, length = 100)
     private Map<String, String> names = new HashMap<>();
 
+    @BatchSize(size = 100)
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name = "category_descriptions", joinColumns = @JoinColumn(name = "category_id"))
     @MapKeyColumn(name = "language_code", length = 10)
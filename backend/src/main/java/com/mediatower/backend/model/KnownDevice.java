@@ -11,6 +11,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "known_devices", uniqueConstraints = {
         @UniqueConstraint(columnNames = {"user_id", "userAgent"})
+}, indexes = {
+        @Index(name = "idx_known_devices_user_fingerprint", columnList = "user_id, fingerprint")
 })
 @Getter
 @Setter
@@ -28,6 +30,10 @@ public class KnownDevice {
     @Column(nullable = false, length = 512)
     private String userAgent;
 
+    // Empreinte compacte du user-agent (SHA-256 tronqué, hex) utilisée pour les recherches indexées
+    @Column(length = 32)
+    private String fingerprint;
+
     @Column
     private String lastIpAddress;
 
@@ -38,9 +44,10 @@ public class KnownDevice {
     @Column
     private LocalDateTime lastLogin;
 
-    public KnownDevice(User user, String userAgent, String ipAddress) {
+    public KnownDevice(User user, String userAgent, String fingerprint, String ipAddress) {
         this.user = user;
         this.userAgent = userAgent;
+        this.fingerprint = fingerprint;
         this.lastIpAddress = ipAddress;
         this.lastLogin = LocalDateTime.now();
     }
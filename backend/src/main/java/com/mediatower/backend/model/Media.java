@@ -22,6 +22,12 @@ public class Media {
     @Column(nullable = false)
     private MediaType type; // IMAGE ou DIGITAL_ASSET
 
+    // Renseignés une fois à l'upload (FileStorageService.inspect) ; null tant qu'un ancien média n'est pas rattrapé
+    private String contentType; // Type MIME détecté sur le contenu (octets magiques)
+    private Long contentLength; // Taille en octets
+    @Column(length = 64)
+    private String checksum; // SHA-256 en hexadécimal
+
     // Relation avec Product
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id")
@@ -9,6 +9,7 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -29,12 +30,14 @@ public class Product {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @BatchSize(size = 100) // Chargé en une requête IN (...) pour toute une page de produits
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name = "product_names", joinColumns = @JoinColumn(name = "product_id"))
     @MapKeyColumn(name = "language_code", length = 10)
     @Column(name = "name", nullable = false)
     private Map<String, String> names = new HashMap<>();
 
+    @BatchSize(size = 100)
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name = "product_descriptions", joinColumns = @JoinColumn(name = "product_id"))
     @MapKeyColumn(name = "language_code", length = 10)
@@ -50,10 +53,12 @@ public class Product {
     @JoinColumn(name = "category_id") // nullable=false devrait être géré par des validations
     private Category category;
 
+    @BatchSize(size = 100)
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "product_tags", joinColumns = @JoinColumn(name = "product_id"), inverseJoinColumns = @JoinColumn(name = "tag_id"))
     private Set<Tag> tags = new HashSet<>();
 
+    @BatchSize(size = 100)
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<Media> mediaAssets = new ArrayList<>();
 
@@ -1,13 +1,21 @@
 package com.mediatower.backend.model;
 
 import jakarta.persistence.*;
-import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
 @Table(name = "tags")
-@Data
+// Pas de @Data : son hashCode parcourait 'products' (collection LAZY), soit une requête par tag
+// dès qu'un tag est ajouté à un Set (ex. chargement des tags d'une page de produits)
+@Getter
+@Setter
+@ToString(exclude = "products")
+@EqualsAndHashCode(of = "id")
 public class Tag {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -6,13 +6,24 @@ import com.mediatower.backend.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
     // Méthode pour l'admin, avec pagination
     Page<AuditLog> findAllByOrderByTimestampDesc(Pageable pageable);
+
+    // Pagination par curseur : entrées antérieures à (timestamp, id) de la dernière ligne vue (index décroissant idx_audit_logs_timestamp_id)
+    @Query("SELECT a FROM AuditLog a LEFT JOIN FETCH a.user " +
+            "WHERE a.timestamp <= :beforeTimestamp AND (a.timestamp < :beforeTimestamp OR a.id < :beforeId) " +
+            "ORDER BY a.timestamp DESC, a.id DESC")
+    List<AuditLog> findBefore(@Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                              @Param("beforeId") Long beforeId,
+                              Pageable limit);
     List<AuditLog> findTop10ByUserAndActionOrderByTimestampDesc(User user, SecurityActionType action);
 }
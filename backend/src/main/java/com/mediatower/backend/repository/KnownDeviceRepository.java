@@ -10,4 +10,5 @@ import java.util.Optional;
 @Repository
 public interface KnownDeviceRepository extends JpaRepository<KnownDevice, Long> {
     Optional<KnownDevice> findByUserAndUserAgent(User user, String userAgent);
+    Optional<KnownDevice> findByUserIdAndFingerprint(Long userId, String fingerprint);
 }
\ No newline at end of file
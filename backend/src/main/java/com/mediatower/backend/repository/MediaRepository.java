@@ -1,12 +1,27 @@
 package com.mediatower.backend.repository;
 
 import com.mediatower.backend.model.Media;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
+import java.util.List;
 
 @Repository
 public interface MediaRepository extends JpaRepository<Media, Long> {
-    Optional<Media> findByFileName(String fileName);
-}
\ No newline at end of file
+    // Plusieurs médias partagent le même fichier quand leur contenu est identique (stockage par contenu)
+    List<Media> findByFileName(String fileName);
+
+    // Médias sans métadonnées de fichier (créés avant leur détection à l'upload), par id croissant
+    List<Media> findByChecksumIsNullAndIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Media m SET m.contentType = :contentType, m.contentLength = :contentLength, m.checksum = :checksum WHERE m.id = :id")
+    int updateFileMetadata(@Param("id") Long id, @Param("contentType") String contentType,
+                           @Param("contentLength") Long contentLength, @Param("checksum") String checksum);
+}
@@ -38,11 +38,24 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     // ---------------------------------------------
 
     long countByOrderDateBetween(LocalDateTime startDate, LocalDateTime endDate);
-    @Query("SELECT o FROM Order o JOIN o.user u WHERE " +
+    String SEARCH_FILTER = "FROM Order o JOIN o.user u WHERE " +
             "(:searchTerm IS NULL OR " +
             "LOWER(u.firstName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
             "LOWER(u.lastName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
             "LOWER(u.email) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-            "CAST(o.id AS string) LIKE CONCAT('%', :searchTerm, '%'))")
+            "CAST(o.id AS string) LIKE CONCAT('%', :searchTerm, '%'))";
+
+    @Query("SELECT o " + SEARCH_FILTER)
     Page<Order> findBySearchTerm(@Param("searchTerm") String searchTerm, Pageable pageable);
+
+    // Pagination par curseur : commandes antérieures à (date, id) de la dernière ligne vue, plus récentes d'abord
+    @Query("SELECT o " + SEARCH_FILTER + " AND o.orderDate <= :beforeDate AND (o.orderDate < :beforeDate OR o.id < :beforeId) " +
+            "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findBySearchTermBefore(@Param("searchTerm") String searchTerm,
+                                       @Param("beforeDate") LocalDateTime beforeDate,
+                                       @Param("beforeId") Long beforeId,
+                                       Pageable limit);
+
+    @Query("SELECT COUNT(o) " + SEARCH_FILTER)
+    long countBySearchTerm(@Param("searchTerm") String searchTerm);
 }
\ No newline at end of file
@@ -1,16 +1,23 @@
 package com.mediatower.backend.repository;
 
+import com.mediatower.backend.dto.SelectionRow;
 import com.mediatower.backend.model.Category;
 import com.mediatower.backend.model.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
@@ -23,9 +30,22 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByIdIn(List<Long> ids);
     List<Product> findTop4ByCategoryAndIdNot(Category category, Long id);
 
+    // Produits proches sans historique d'achat : même catégorie d'abord, puis le plus de tags en commun
+    @Query("SELECT p.id FROM Product p WHERE p.id <> :productId AND " +
+            "(p.category.id = :categoryId OR EXISTS (SELECT 1 FROM Product p2 JOIN p2.tags t WHERE p2 = p AND t.id IN :tagIds)) " +
+            "ORDER BY CASE WHEN p.category.id = :categoryId THEN 0 ELSE 1 END, " +
+            "(SELECT COUNT(t2) FROM Product p3 JOIN p3.tags t2 WHERE p3 = p AND t2.id IN :tagIds) DESC, p.id DESC")
+    List<Long> findRelatedIds(@Param("productId") Long productId,
+                              @Param("categoryId") Long categoryId,
+                              @Param("tagIds") Collection<Long> tagIds,
+                              Pageable pageable);
+
     // List<Product> findByNameContainingIgnoreCaseAndCategoryId(String name, Long categoryId);
     long countByStockLessThanEqual(Integer stock);
     long countByCategoryId(Long categoryId);
+    // Nombre de produits d'une page de catégories en une requête : [categoryId, count], catégories vides absentes
+    @Query("SELECT p.category.id, COUNT(p) FROM Product p WHERE p.category.id IN :categoryIds GROUP BY p.category.id")
+    List<Object[]> countByCategoryIds(@Param("categoryIds") Collection<Long> categoryIds);
     @Query("SELECT DISTINCT p FROM Product p JOIN p.category c LEFT JOIN p.names n WHERE " +
             "(:searchTerm IS NULL OR (KEY(n) IN ('en', 'fr') AND LOWER(VALUE(n)) LIKE LOWER(CONCAT('%', :searchTerm, '%')))) AND " +
             "(:categoryId IS NULL OR c.id = :categoryId) AND " +
@@ -40,6 +60,54 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
             Pageable pageable
     );
 
+    // Catalogue, étape 1 : uniquement les IDs de la page (pas de DISTINCT grâce à EXISTS, le tri reste possible)
+    String CATALOG_FILTERS = "FROM Product p JOIN p.category c WHERE " +
+            "(:searchTerm IS NULL OR EXISTS (SELECT 1 FROM Product p2 JOIN p2.names n WHERE p2 = p AND " +
+            " KEY(n) IN ('en', 'fr') AND LOWER(VALUE(n)) LIKE LOWER(CONCAT('%', :searchTerm, '%')))) AND " +
+            "(:categoryId IS NULL OR c.id = :categoryId) AND " +
+            "(:stockStatus IS NULL OR " +
+            " (:stockStatus = 'instock' AND p.stock > 10) OR " +
+            " (:stockStatus = 'lowstock' AND p.stock > 0 AND p.stock <= 10) OR " +
+            " (:stockStatus = 'outofstock' AND p.stock = 0))";
+
+    @Query(value = "SELECT p.id " + CATALOG_FILTERS, countQuery = "SELECT COUNT(p) " + CATALOG_FILTERS)
+    Page<Long> findIdsWithFilters(
+            @Param("searchTerm") String searchTerm,
+            @Param("categoryId") Long categoryId,
+            @Param("stockStatus") String stockStatus,
+            Pageable pageable
+    );
+
+    // Pagination par curseur (admin) : page suivante = IDs strictement inférieurs au dernier vu, sans OFFSET
+    @Query("SELECT p.id " + CATALOG_FILTERS + " AND p.id < :afterId ORDER BY p.id DESC")
+    List<Long> findIdsWithFiltersAfter(
+            @Param("searchTerm") String searchTerm,
+            @Param("categoryId") Long categoryId,
+            @Param("stockStatus") String stockStatus,
+            @Param("afterId") Long afterId,
+            Pageable limit
+    );
+
+    @Query("SELECT COUNT(p) " + CATALOG_FILTERS)
+    long countWithFilters(
+            @Param("searchTerm") String searchTerm,
+            @Param("categoryId") Long categoryId,
+            @Param("stockStatus") String stockStatus
+    );
+
+    // Catalogue, étape 2 : hydratation de la page. La catégorie vient par jointure, les collections
+    // (noms, descriptions, tags, médias) par @BatchSize : nombre de requêtes constant quelle que soit la taille de page.
+    @EntityGraph(attributePaths = {"category"})
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids")
+    List<Product> findAllForCatalogByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Listes de sélection (promotions, packs) : une ligne par (produit, langue), sans entité managée.
+    // À consommer dans une transaction et à fermer (try-with-resources).
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.mediatower.backend.dto.SelectionRow(p.id, KEY(n), VALUE(n), p.price) " +
+            "FROM Product p LEFT JOIN p.names n ORDER BY p.id, KEY(n)")
+    Stream<SelectionRow> streamSelectionRows();
+
 
 
 }
\ No newline at end of file
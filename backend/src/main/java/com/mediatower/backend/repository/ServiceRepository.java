@@ -1,14 +1,19 @@
 package com.mediatower.backend.repository;
 
+import com.mediatower.backend.dto.SelectionRow;
 import com.mediatower.backend.model.Service;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ServiceRepository extends JpaRepository<Service, Long> {
@@ -17,4 +22,10 @@ public interface ServiceRepository extends JpaRepository<Service, Long> {
             "(:searchTerm IS NULL OR (KEY(n) IN ('en', 'fr') AND LOWER(VALUE(n)) LIKE LOWER(CONCAT('%', :searchTerm, '%'))))")
     Page<Service> findBySearchTerm(@Param("searchTerm") String searchTerm, Pageable pageable);
 
+    // Liste de sélection des packs : une ligne par (service, langue), sans entité managée
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.mediatower.backend.dto.SelectionRow(s.id, KEY(n), VALUE(n), s.price) " +
+            "FROM Service s LEFT JOIN s.names n ORDER BY s.id, KEY(n)")
+    Stream<SelectionRow> streamSelectionRows();
+
 }
\ No newline at end of file
@@ -2,6 +2,7 @@
 package com.mediatower.backend.repository;
 
 import com.mediatower.backend.model.User;
+import com.mediatower.backend.security.UserSnapshot;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -22,6 +23,11 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.uid = :uid")
     Optional<User> findUserByUid(@Param("uid") String uid);
     List<User> findAllByUidIn(Collection<String> uids);
+
+    // Lecture seule pour le filtre d'authentification : pas d'entité managée, pas de codes de récupération chargés
+    @Query("SELECT new com.mediatower.backend.security.UserSnapshot(u.id, u.uid, u.email, u.firstName, u.lastName, u.role, u.status, u.emailVerified) " +
+            "FROM User u WHERE u.uid = :uid")
+    Optional<UserSnapshot> findSnapshotByUid(@Param("uid") String uid);
     Optional<User> findByVerificationToken(String token);
     long countByCreatedAtAfter(LocalDateTime date);
 
@@ -31,4 +37,16 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Page<User> findByFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCaseOrEmailContainingIgnoreCase(
             String firstName, String lastName, String email, Pageable pageable
     );
+
+    // Même recherche, pagination par curseur sur l'id (plus récents d'abord)
+    String SEARCH_FILTER = "FROM User u WHERE (:search IS NULL OR " +
+            "LOWER(u.firstName) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(u.lastName) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%')))";
+
+    @Query("SELECT u " + SEARCH_FILTER + " AND u.id < :afterId ORDER BY u.id DESC")
+    List<User> findBySearchAfter(@Param("search") String search, @Param("afterId") Long afterId, Pageable limit);
+
+    @Query("SELECT COUNT(u) " + SEARCH_FILTER)
+    long countBySearch(@Param("search") String search);
 }
\ No newline at end of file
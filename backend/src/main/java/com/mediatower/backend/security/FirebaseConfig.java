@@ -7,9 +7,12 @@ import com.google.cloud.firestore.Firestore;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import com.google.firebase.cloud.FirestoreClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -52,4 +55,19 @@ public class FirebaseConfig {
         System.out.println("Providing Firestore bean...");
         return FirestoreClient.getFirestore(firebaseApp);
     }
+
+    // Clés de signature des ID tokens, utilisées par FirebaseIdTokenVerifier.
+    // Choisies par app.security.token-verifier.key-source : 'google' (JWKS public de Google) ou 'jwks-file'
+    // (jeu de clés local désigné par app.security.token-verifier.jwks-location)
+    @Bean
+    @ConditionalOnProperty(name = "app.security.token-verifier.key-source", havingValue = "google", matchIfMissing = true)
+    public SigningKeySource googleSigningKeySource() {
+        return new GoogleSigningKeySource();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.security.token-verifier.key-source", havingValue = "jwks-file")
+    public SigningKeySource jwksFileSigningKeySource(@Value("${app.security.token-verifier.jwks-location}") Resource jwks) {
+        return new JwksResourceSigningKeySource(jwks);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,196 @@
+package com.mediatower.backend.security;
+
+import com.google.firebase.FirebaseApp;
+import com.mediatower.backend.exception.InvalidTokenException;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.security.interfaces.RSAPublicKey;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Vérification locale des ID tokens Firebase (RS256).
+ * Les clés publiques sont gardées en mémoire et rafraîchies en arrière-plan avant leur expiration :
+ * aucune requête réseau n'est faite sur le chemin d'une requête HTTP.
+ */
+@Component
+@ConditionalOnProperty(name = "app.security.token-verifier.mode", havingValue = "local", matchIfMissing = true)
+public class FirebaseIdTokenVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(FirebaseIdTokenVerifier.class);
+    private static final String ISSUER_PREFIX = "https://securetoken.google.com/";
+    private static final Duration MIN_REFRESH_DELAY = Duration.ofMinutes(1);
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(30);
+
+    private final SigningKeySource keySource;
+    private final String projectId;
+    private final String expectedIssuer;
+    private final long clockSkewSeconds;
+    private final Duration refreshMargin;
+    private final ScheduledExecutorService refresher;
+    private final AtomicBoolean refreshPending = new AtomicBoolean(false);
+
+    // Remplacé en bloc à chaque rafraîchissement (lecture sans verrou)
+    private volatile Map<String, RSAPublicKey> keys = Map.of();
+    private volatile long lastAttemptMillis;
+
+    public FirebaseIdTokenVerifier(SigningKeySource keySource, FirebaseApp firebaseApp,
+                                   @Value("${app.security.token-verifier.clock-skew-seconds:30}") long clockSkewSeconds,
+                                   @Value("${app.security.token-verifier.refresh-margin-minutes:10}") long refreshMarginMinutes) {
+        this.keySource = keySource;
+        this.projectId = firebaseApp.getOptions().getProjectId();
+        this.expectedIssuer = ISSUER_PREFIX + projectId;
+        this.clockSkewSeconds = clockSkewSeconds;
+        this.refreshMargin = Duration.ofMinutes(refreshMarginMinutes);
+        this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "firebase-key-refresher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PostConstruct
+    void init() {
+        refreshKeys();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    public VerifiedIdToken verify(String token) {
+        SignedJWT jwt;
+        try {
+            jwt = SignedJWT.parse(token);
+        } catch (ParseException e) {
+            throw new InvalidTokenException("Malformed ID token", e);
+        }
+
+        JWSHeader header = jwt.getHeader();
+        if (!JWSAlgorithm.RS256.equals(header.getAlgorithm())) {
+            throw new InvalidTokenException("Unexpected token algorithm: " + header.getAlgorithm());
+        }
+        RSAPublicKey key = header.getKeyID() != null ? keys.get(header.getKeyID()) : null;
+        if (key == null) {
+            // Clé inconnue : probablement une rotation pas encore vue, on déclenche un rafraîchissement.
+            requestEarlyRefresh();
+            throw new InvalidTokenException("Unknown signing key id: " + header.getKeyID());
+        }
+
+        try {
+            if (!jwt.verify(new RSASSAVerifier(key))) {
+                throw new InvalidTokenException("Invalid token signature");
+            }
+        } catch (JOSEException e) {
+            throw new InvalidTokenException("Token signature could not be verified", e);
+        }
+
+        JWTClaimsSet claims;
+        try {
+            claims = jwt.getJWTClaimsSet();
+        } catch (ParseException e) {
+            throw new InvalidTokenException("Malformed token claims", e);
+        }
+        return validateClaims(claims);
+    }
+
+    private VerifiedIdToken validateClaims(JWTClaimsSet claims) {
+        long now = System.currentTimeMillis() / 1000;
+
+        List<String> audience = claims.getAudience();
+        if (audience == null || !audience.contains(projectId)) {
+            throw new InvalidTokenException("Token has incorrect audience");
+        }
+        if (!expectedIssuer.equals(claims.getIssuer())) {
+            throw new InvalidTokenException("Token has incorrect issuer");
+        }
+        Date exp = claims.getExpirationTime();
+        if (exp == null || exp.getTime() / 1000 + clockSkewSeconds < now) {
+            throw new InvalidTokenException("Token has expired");
+        }
+        Date iat = claims.getIssueTime();
+        if (iat == null || iat.getTime() / 1000 - clockSkewSeconds > now) {
+            throw new InvalidTokenException("Token issued in the future");
+        }
+        Object authTime = claims.getClaim("auth_time");
+        if (!(authTime instanceof Number) || ((Number) authTime).longValue() - clockSkewSeconds > now) {
+            throw new InvalidTokenException("Token has an invalid auth_time");
+        }
+        String uid = claims.getSubject();
+        if (uid == null || uid.isEmpty() || uid.length() > 128) {
+            throw new InvalidTokenException("Token has an invalid subject");
+        }
+
+        Object email = claims.getClaim("email");
+        Object name = claims.getClaim("name");
+        return new VerifiedIdToken(
+                uid,
+                email instanceof String ? (String) email : null,
+                name instanceof String ? (String) name : null,
+                claims.getClaims(),
+                exp.getTime() / 1000);
+    }
+
+    private void refreshKeys() {
+        Duration nextDelay;
+        lastAttemptMillis = System.currentTimeMillis();
+        try {
+            SigningKeySource.SigningKeys loaded = keySource.load();
+            keys = loaded.keys();
+            nextDelay = loaded.maxAge().minus(refreshMargin);
+            if (nextDelay.compareTo(MIN_REFRESH_DELAY) < 0) {
+                nextDelay = MIN_REFRESH_DELAY;
+            }
+            logger.info("Loaded {} Firebase signing keys, next refresh in {}", loaded.keys().size(), nextDelay);
+        } catch (Exception e) {
+            // On garde les clés précédentes : mieux vaut des clés un peu anciennes que rejeter tout le trafic.
+            logger.warn("Failed to refresh Firebase signing keys, retrying in {}: {}", RETRY_DELAY, e.getMessage());
+            nextDelay = RETRY_DELAY;
+        }
+        schedule(nextDelay);
+    }
+
+    private void schedule(Duration delay) {
+        if (!refresher.isShutdown()) {
+            refresher.schedule(this::refreshKeys, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void requestEarlyRefresh() {
+        if (System.currentTimeMillis() - lastAttemptMillis < MIN_REFRESH_DELAY.toMillis()) {
+            return;
+        }
+        if (refreshPending.compareAndSet(false, true)) {
+            refresher.execute(() -> {
+                lastAttemptMillis = System.currentTimeMillis();
+                try {
+                    keys = keySource.load().keys();
+                } catch (Exception e) {
+                    logger.warn("Early refresh of Firebase signing keys failed: {}", e.getMessage());
+                } finally {
+                    refreshPending.set(false);
+                }
+            });
+        }
+    }
+}
@@ -1,25 +1,21 @@
 package com.mediatower.backend.security;
 
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthException;
 import com.google.firebase.auth.FirebaseToken;
-import com.mediatower.backend.model.User;
-import com.mediatower.backend.service.UserService;
+import com.mediatower.backend.service.UserPrincipalStore;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.List;
+import java.util.Optional;
 
-import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
-import org.springframework.security.web.util.matcher.OrRequestMatcher;
-import org.springframework.security.web.util.matcher.RequestMatcher;
-import org.springframework.http.HttpMethod;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,53 +23,26 @@ import org.slf4j.LoggerFactory;
 public class FirebaseTokenFilter extends OncePerRequestFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(FirebaseTokenFilter.class);
-    private final UserService userService;
-    private final RequestMatcher publicPathsMatcher;
-
-    public FirebaseTokenFilter(UserService userService) {
-        this.userService = userService;
-        List<RequestMatcher> matchers = Arrays.asList(
-                // Endpoints d'authentification publics SEULEMENT
-                new AntPathRequestMatcher("/api/auth/register", HttpMethod.POST.name()),
-                new AntPathRequestMatcher("/api/auth/verify-email/**", HttpMethod.GET.name()),
-                new AntPathRequestMatcher("/api/auth/resend-verification", HttpMethod.POST.name()),
-                new AntPathRequestMatcher("/api/auth/forgot-password", "POST"),
-                new AntPathRequestMatcher("/api/auth/reset-password", "POST"),
-                new AntPathRequestMatcher("/uploads/**", HttpMethod.GET.name()),
-
-
-                // IMPORTANT: /api/auth/login et /api/auth/verify-2fa NE SONT PLUS dans cette liste
-                // car ils doivent maintenant passer par le filtre d'authentification
-
-                // Autres endpoints publics
-                new AntPathRequestMatcher("/api/webhooks/**"),
-                new AntPathRequestMatcher("/api/download/**", HttpMethod.GET.name()),
-                new AntPathRequestMatcher("/api/service-reviews/**", HttpMethod.GET.name()),
-                new AntPathRequestMatcher("/api/products/**", HttpMethod.GET.name()),
-                new AntPathRequestMatcher("/api/categories/**", HttpMethod.GET.name()),
-                new AntPathRequestMatcher("/api/tags/**", HttpMethod.GET.name()),
-                new AntPathRequestMatcher("/api/services/**", HttpMethod.GET.name()),
-                new AntPathRequestMatcher("/api/reviews/**", HttpMethod.GET.name()),
-                new AntPathRequestMatcher("/api/settings", HttpMethod.GET.name()),
-                new AntPathRequestMatcher("/ws/**"),
-                new AntPathRequestMatcher("/api/chats/offline-message", HttpMethod.POST.name()),
-                new AntPathRequestMatcher("/h2-console/**")
-        );
-        publicPathsMatcher = new OrRequestMatcher(matchers);
+    private final UserPrincipalStore userPrincipalStore;
+    private final VerifiedTokenCache verifiedTokenCache;
+    // Absent si app.security.token-verifier.mode=sdk : on retombe alors sur FirebaseAuth.verifyIdToken
+    private final FirebaseIdTokenVerifier idTokenVerifier;
+    private final PublicRouteClassifier publicRouteClassifier;
+
+    public FirebaseTokenFilter(UserPrincipalStore userPrincipalStore, VerifiedTokenCache verifiedTokenCache,
+                               ObjectProvider<FirebaseIdTokenVerifier> idTokenVerifier, PublicRoutes publicRoutes) {
+        this.userPrincipalStore = userPrincipalStore;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.idTokenVerifier = idTokenVerifier.getIfAvailable();
+        this.publicRouteClassifier = new PublicRouteClassifier(publicRoutes.getPublicRoutes());
     }
 
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
-        boolean matches = publicPathsMatcher.matches(request);
-        String requestInfo = request.getMethod() + " " + request.getRequestURI();
-
-        logger.debug("Checking filter bypass for: {}, Public path: {}", requestInfo, matches);
-
-        // Log spécialement pour les endpoints d'auth pour debugging
-        if (request.getRequestURI().startsWith("/api/auth/") || request.getRequestURI().startsWith("/api/mfa/")) {
-            logger.info("Auth/MFA endpoint check: {}, Bypass filter: {}", requestInfo, matches);
+        boolean matches = publicRouteClassifier.isPublic(request);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Checking filter bypass for: {} {}, Public path: {}", request.getMethod(), request.getRequestURI(), matches);
         }
-
         return matches;
     }
 
@@ -93,22 +62,30 @@ public class FirebaseTokenFilter extends OncePerRequestFilter {
             String token = authorizationHeader.substring(7);
 
             try {
-                logger.debug("Validating Firebase token for request: {}", requestInfo);
-
-                // ============================ LA CORRECTION EST ICI ============================
-                // On passe 'false' pour indiquer à Firebase de valider le token SANS exiger
-                // que l'attribut 'email_verified' soit à 'true'. La vérification de l'email
-                // sera gérée par notre logique métier dans AuthController.
-                FirebaseToken decodedToken = FirebaseAuth.getInstance().verifyIdToken(token, false);
-                // ========================== FIN DE LA CORRECTION ============================
-
-                logger.debug("Valid Firebase token for UID: {} on request: {}", decodedToken.getUid(), requestInfo);
+                // Jeton déjà vérifié lors d'un appel précédent : ni vérification ni accès BDD.
+                Optional<VerifiedTokenCache.CachedPrincipal> cached = verifiedTokenCache.get(token);
+                FirebaseUser firebaseUser;
+                if (cached.isPresent()) {
+                    firebaseUser = cached.get().user();
+                    logger.debug("Cached principal used for UID: {} on request: {}", firebaseUser.getUid(), requestInfo);
+                } else {
+                    logger.debug("Validating Firebase token for request: {}", requestInfo);
+                    // Relevé avant la lecture de l'utilisateur : un changement de rôle commité pendant la lecture
+                    // empêche la mise en cache de l'ancien état
+                    long invalidationMark = verifiedTokenCache.invalidationMark();
+
+                    VerifiedIdToken decodedToken = verifyToken(token);
+
+                    logger.debug("Valid Firebase token for UID: {} on request: {}", decodedToken.uid(), requestInfo);
+
+                    UserSnapshot userInDb = userPrincipalStore.findOrCreate(decodedToken);
+                    logger.debug("User authenticated: {} with role: {} for request: {}",
+                            userInDb.email(), userInDb.role().name(), requestInfo);
+
+                    firebaseUser = FirebaseUser.create(userInDb);
+                    verifiedTokenCache.put(token, decodedToken, firebaseUser, invalidationMark);
+                }
 
-                User userInDb = userService.findOrCreateUserFromToken(decodedToken);
-                logger.debug("User authenticated: {} with role: {} for request: {}",
-                        userInDb.getEmail(), userInDb.getRole().name(), requestInfo);
-
-                FirebaseUser firebaseUser = FirebaseUser.create(userInDb);
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         firebaseUser, null, firebaseUser.getAuthorities());
                 SecurityContextHolder.getContext().setAuthentication(authentication);
@@ -137,4 +114,18 @@ public class FirebaseTokenFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private VerifiedIdToken verifyToken(String token) throws FirebaseAuthException {
+        if (idTokenVerifier != null) {
+            // Vérification locale : clés en mémoire, aucun appel réseau
+            return idTokenVerifier.verify(token);
+        }
+        // ============================ LA CORRECTION EST ICI ============================
+        // On passe 'false' pour indiquer à Firebase de valider le token SANS exiger
+        // que l'attribut 'email_verified' soit à 'true'. La vérification de l'email
+        // sera gérée par notre logique métier dans AuthController.
+        FirebaseToken decodedToken = FirebaseAuth.getInstance().verifyIdToken(token, false);
+        // ========================== FIN DE LA CORRECTION ============================
+        return VerifiedIdToken.from(decodedToken);
+    }
+}
@@ -35,13 +35,17 @@ public class FirebaseUser extends User {
     }
 
     public static FirebaseUser create(com.mediatower.backend.model.User userInDb) {
-        String roleName = "ROLE_" + userInDb.getRole().name();
+        return create(UserSnapshot.of(userInDb));
+    }
+
+    public static FirebaseUser create(UserSnapshot user) {
+        String roleName = "ROLE_" + user.role().name();
         return new FirebaseUser(
-                userInDb.getEmail(),
-                userInDb.getUid(),
-                userInDb.getRole(),
-                userInDb.getFirstName(),
-                userInDb.getLastName(),
+                user.email(),
+                user.uid(),
+                user.role(),
+                user.firstName(),
+                user.lastName(),
                 Collections.singletonList(new SimpleGrantedAuthority(roleName))
         );
     }
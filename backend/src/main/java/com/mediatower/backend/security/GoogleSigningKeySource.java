@@ -0,0 +1,67 @@
+package com.mediatower.backend.security;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Récupère le JWKS public de Google utilisé pour signer les ID tokens Firebase.
+ */
+public class GoogleSigningKeySource implements SigningKeySource {
+
+    public static final String FIREBASE_JWKS_URL =
+            "https://www.googleapis.com/service_accounts/v1/jwk/securetoken@system.gserviceaccount.com";
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+    private static final Duration DEFAULT_MAX_AGE = Duration.ofHours(1);
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final URI jwksUri;
+
+    public GoogleSigningKeySource() {
+        this(URI.create(FIREBASE_JWKS_URL));
+    }
+
+    public GoogleSigningKeySource(URI jwksUri) {
+        this.jwksUri = jwksUri;
+    }
+
+    @Override
+    public SigningKeys load() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(jwksUri)
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("Unexpected status " + response.statusCode() + " while fetching " + jwksUri);
+        }
+
+        Map<String, RSAPublicKey> keys = new HashMap<>();
+        for (JWK jwk : JWKSet.parse(response.body()).getKeys()) {
+            if (jwk instanceof RSAKey rsaKey && jwk.getKeyID() != null) {
+                keys.put(jwk.getKeyID(), rsaKey.toRSAPublicKey());
+            }
+        }
+
+        Duration maxAge = response.headers().firstValue("Cache-Control")
+                .map(MAX_AGE::matcher)
+                .filter(Matcher::find)
+                .map(m -> Duration.ofSeconds(Long.parseLong(m.group(1))))
+                .orElse(DEFAULT_MAX_AGE);
+        return new SigningKeys(Map.copyOf(keys), maxAge);
+    }
+}
@@ -0,0 +1,43 @@
+package com.mediatower.backend.security;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import org.springframework.core.io.Resource;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Jeu de clés local au format JWKS (fichier ou ressource du classpath), relu à chaque rafraîchissement.
+ * Pour les tests et les environnements sans accès à Google.
+ */
+public class JwksResourceSigningKeySource implements SigningKeySource {
+
+    private static final Duration RELOAD_INTERVAL = Duration.ofHours(1);
+
+    private final Resource jwks;
+
+    public JwksResourceSigningKeySource(Resource jwks) {
+        this.jwks = jwks;
+    }
+
+    @Override
+    public SigningKeys load() throws Exception {
+        String content;
+        try (InputStream in = jwks.getInputStream()) {
+            content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        Map<String, RSAPublicKey> keys = new HashMap<>();
+        for (JWK jwk : JWKSet.parse(content).getKeys()) {
+            if (jwk instanceof RSAKey rsaKey && jwk.getKeyID() != null) {
+                keys.put(jwk.getKeyID(), rsaKey.toRSAPublicKey());
+            }
+        }
+        return new SigningKeys(Map.copyOf(keys), RELOAD_INTERVAL);
+    }
+}
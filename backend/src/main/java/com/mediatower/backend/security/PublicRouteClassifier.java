@@ -0,0 +1,192 @@
+package com.mediatower.backend.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Table des routes publiques compilée une seule fois en arbre de préfixes (un nœud par segment de chemin).
+ * Classe une requête en au plus deux parcours du chemin, sans allocation.
+ * <p>
+ * Reproduit la sémantique d'{@link org.springframework.security.web.util.matcher.AntPathRequestMatcher}
+ * pour les deux formes de motifs utilisées (vérifié par PublicRouteClassifierTest) :
+ * <ul>
+ *     <li>'/a/b' : mêmes segments non vides ('//a/b' convient, comme pour AntPathMatcher), avec un '/' final
+ *     des deux côtés ou d'aucun ;</li>
+ *     <li>'/a/b/**' : '/a/b' lui-même ou tout ce qui commence par '/a/b/' (comparaison littérale) ;
+ *     '/**' accepte tout chemin.</li>
+ * </ul>
+ * Les autres jokers ('*', '?', '{var}') sont refusés à la construction.
+ */
+public final class PublicRouteClassifier {
+
+    private static final int GET = 1;
+    private static final int HEAD = 1 << 1;
+    private static final int POST = 1 << 2;
+    private static final int PUT = 1 << 3;
+    private static final int PATCH = 1 << 4;
+    private static final int DELETE = 1 << 5;
+    private static final int OPTIONS = 1 << 6;
+    private static final int TRACE = 1 << 7;
+    private static final int OTHER = 1 << 8;
+    private static final int ANY_METHOD = (1 << 9) - 1;
+    private static final String SUBTREE_SUFFIX = "/**";
+
+    private final Node root = new Node("");
+
+    public PublicRouteClassifier(List<PublicRoutes.Route> routes) {
+        for (PublicRoutes.Route route : routes) {
+            add(route.getMethod(), route.getPattern());
+        }
+    }
+
+    public boolean isPublic(HttpServletRequest request) {
+        String path = request.getServletPath();
+        String pathInfo = request.getPathInfo();
+        if (pathInfo != null) {
+            path = path + pathInfo;
+        }
+        return matches(request.getMethod(), path);
+    }
+
+    public boolean matches(String method, String path) {
+        int methodBit = methodBit(method);
+        if ((root.subtreeMethods & methodBit) != 0) {
+            return true; // '/**'
+        }
+        if (path.isEmpty() || path.charAt(0) != '/') {
+            return false;
+        }
+        return matchesSubtree(methodBit, path) || matchesExact(methodBit, path);
+    }
+
+    // Motifs '/a/b/**' : le chemin commence littéralement par '/a/b', suivi de '/' ou de rien
+    private boolean matchesSubtree(int methodBit, String path) {
+        Node node = root;
+        int length = path.length();
+        int start = 1;
+        while (start <= length) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            node = node.child(path, start, end - start);
+            if (node == null) {
+                return false;
+            }
+            if ((node.subtreeMethods & methodBit) != 0) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    // Motifs exacts : segments vides ignorés, '/' final comparé à part
+    private boolean matchesExact(int methodBit, String path) {
+        Node node = root;
+        int length = path.length();
+        int start = 0;
+        while (start < length) {
+            if (path.charAt(start) == '/') {
+                start++;
+                continue;
+            }
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            node = node.child(path, start, end - start);
+            if (node == null) {
+                return false;
+            }
+            start = end;
+        }
+        int methods = path.charAt(length - 1) == '/' ? node.exactSlashMethods : node.exactMethods;
+        return (methods & methodBit) != 0;
+    }
+
+    private void add(String method, String pattern) {
+        if (pattern == null || !pattern.startsWith("/")) {
+            throw new IllegalArgumentException("Public route pattern must start with '/': " + pattern);
+        }
+        boolean subtree = pattern.endsWith(SUBTREE_SUFFIX);
+        String literal = subtree ? pattern.substring(0, pattern.length() - SUBTREE_SUFFIX.length()) : pattern;
+        if (literal.indexOf('*') >= 0 || literal.indexOf('?') >= 0 || literal.indexOf('{') >= 0) {
+            throw new IllegalArgumentException("Unsupported wildcard in public route pattern: " + pattern);
+        }
+
+        int mask = method == null ? ANY_METHOD : methodBit(method);
+        Node node = root;
+        if (subtree) {
+            if (!literal.isEmpty()) {
+                for (String segment : literal.substring(1).split("/", -1)) {
+                    node = node.childOrCreate(segment);
+                }
+            }
+            node.subtreeMethods |= mask;
+        } else {
+            for (String segment : literal.split("/")) {
+                if (!segment.isEmpty()) {
+                    node = node.childOrCreate(segment);
+                }
+            }
+            if (literal.endsWith("/")) {
+                node.exactSlashMethods |= mask;
+            } else {
+                node.exactMethods |= mask;
+            }
+        }
+    }
+
+    private static int methodBit(String method) {
+        if (method == null) {
+            return OTHER;
+        }
+        return switch (method) {
+            case "GET" -> GET;
+            case "HEAD" -> HEAD;
+            case "POST" -> POST;
+            case "PUT" -> PUT;
+            case "PATCH" -> PATCH;
+            case "DELETE" -> DELETE;
+            case "OPTIONS" -> OPTIONS;
+            case "TRACE" -> TRACE;
+            default -> OTHER;
+        };
+    }
+
+    private static final class Node {
+        private final String segment;
+        private Node[] children = new Node[0];
+        private int exactMethods;
+        // Motifs exacts terminés par '/'
+        private int exactSlashMethods;
+        private int subtreeMethods;
+
+        private Node(String segment) {
+            this.segment = segment;
+        }
+
+        private Node child(String path, int offset, int length) {
+            for (Node child : children) {
+                if (child.segment.length() == length && path.regionMatches(offset, child.segment, 0, length)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        private Node childOrCreate(String segment) {
+            Node existing = child(segment, 0, segment.length());
+            if (existing != null) {
+                return existing;
+            }
+            Node created = new Node(segment);
+            children = Arrays.copyOf(children, children.length + 1);
+            children[children.length - 1] = created;
+            return created;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.mediatower.backend.security;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routes sur lesquelles le FirebaseTokenFilter ne s'applique pas. Ne sert qu'à ce classement : les autorisations
+ * restent celles, explicites, de SecurityConfig (une route listée ici sans y être autorisée reste refusée).
+ * Surchargeable via app.security.public-routes[i].method / .pattern.
+ * Seuls les motifs littéraux ou terminés par '/**' sont acceptés (voir {@link PublicRouteClassifier}).
+ */
+@Component
+@ConfigurationProperties(prefix = "app.security")
+@Getter
+@Setter
+public class PublicRoutes {
+
+    private List<Route> publicRoutes = new ArrayList<>(List.of(
+            // Endpoints d'authentification publics SEULEMENT
+            new Route("POST", "/api/auth/register"),
+            new Route("GET", "/api/auth/verify-email/**"),
+            new Route("POST", "/api/auth/resend-verification"),
+            new Route("POST", "/api/auth/forgot-password"),
+            new Route("POST", "/api/auth/reset-password"),
+            new Route("GET", "/uploads/**"),
+
+            // IMPORTANT: /api/auth/login et /api/auth/verify-2fa NE SONT PLUS dans cette liste
+            // car ils doivent maintenant passer par le filtre d'authentification
+
+            // Autres endpoints publics
+            new Route(null, "/api/webhooks/**"),
+            new Route("GET", "/api/download/**"),
+            new Route("GET", "/api/service-reviews/**"),
+            new Route("GET", "/api/products/**"),
+            new Route("GET", "/api/categories/**"),
+            new Route("GET", "/api/tags/**"),
+            new Route("GET", "/api/services/**"),
+            new Route("GET", "/api/reviews/**"),
+            new Route("GET", "/api/settings"),
+            new Route(null, "/ws/**"),
+            new Route("POST", "/api/chats/offline-message"),
+            new Route(null, "/h2-console/**")
+    ));
+
+    public RequestMatcher[] toRequestMatchers() {
+        return publicRoutes.stream()
+                .map(r -> new AntPathRequestMatcher(r.getPattern(), r.getMethod()))
+                .toArray(RequestMatcher[]::new);
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    public static class Route {
+        // null = toutes les méthodes HTTP
+        private String method;
+        private String pattern;
+
+        public Route(String method, String pattern) {
+            this.method = method;
+            this.pattern = pattern;
+        }
+    }
+}
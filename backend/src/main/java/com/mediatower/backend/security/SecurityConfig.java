@@ -73,7 +73,7 @@ public class SecurityConfig {
                         .requestMatchers(PathRequest.toH2Console()).permitAll()
 
                         // --- 2. Endpoints ADMIN (Logique existante conservée) ---
-                        .requestMatchers("/api/promotions/**", "/api/admin/**", "/api/stats/**", "/api/files/**").hasRole("ADMIN")
+                        .requestMatchers("/api/promotions/**", "/api/admin/**", "/api/stats/**", "/api/files/**", "/api/uploads/**", "/actuator/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.POST, "/api/products", "/api/services", "/api/packs").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.PUT, "/api/products/**", "/api/services/**", "/api/packs/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.DELETE, "/api/products/**", "/api/services/**", "/api/packs/**").hasRole("ADMIN")
@@ -0,0 +1,22 @@
+package com.mediatower.backend.security;
+
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Source des clés publiques utilisées pour signer les jetons Firebase.
+ * L'implémentation par défaut interroge Google ; un jeu de clés local peut être fourni à la place
+ * (tests, environnements sans réseau) avec app.security.token-verifier.key-source=jwks-file.
+ */
+public interface SigningKeySource {
+
+    SigningKeys load() throws Exception;
+
+    /**
+     * @param keys   clés indexées par 'kid'
+     * @param maxAge durée de validité annoncée par la source (Cache-Control: max-age)
+     */
+    record SigningKeys(Map<String, RSAPublicKey> keys, Duration maxAge) {
+    }
+}
@@ -0,0 +1,18 @@
+package com.mediatower.backend.security;
+
+import com.mediatower.backend.model.User;
+import com.mediatower.backend.model.UserRole;
+import com.mediatower.backend.model.UserStatus;
+
+/**
+ * Vue immuable d'un utilisateur, détachée de toute session JPA.
+ * C'est tout ce dont le filtre d'authentification a besoin pour construire le {@link FirebaseUser}.
+ */
+public record UserSnapshot(Long id, String uid, String email, String firstName, String lastName,
+                           UserRole role, UserStatus status, boolean emailVerified) {
+
+    public static UserSnapshot of(User user) {
+        return new UserSnapshot(user.getId(), user.getUid(), user.getEmail(), user.getFirstName(),
+                user.getLastName(), user.getRole(), user.getStatus(), user.isEmailVerified());
+    }
+}
@@ -0,0 +1,20 @@
+package com.mediatower.backend.security;
+
+import com.google.firebase.auth.FirebaseToken;
+
+import java.util.Map;
+
+/**
+ * Jeton d'identité Firebase déjà validé (signature, émetteur, audience, expiration).
+ * Produit soit par {@link FirebaseIdTokenVerifier} (vérification locale), soit à partir
+ * d'un {@link FirebaseToken} du SDK.
+ */
+public record VerifiedIdToken(String uid, String email, String name, Map<String, Object> claims,
+                              long expiresAtEpochSecond) {
+
+    public static VerifiedIdToken from(FirebaseToken token) {
+        Object exp = token.getClaims().get("exp");
+        long expiresAt = exp instanceof Number ? ((Number) exp).longValue() : 0L;
+        return new VerifiedIdToken(token.getUid(), token.getEmail(), token.getName(), token.getClaims(), expiresAt);
+    }
+}
@@ -0,0 +1,168 @@
+package com.mediatower.backend.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache des jetons Firebase déjà vérifiés.
+ * La clé est le hash SHA-256 du jeton (le jeton brut n'est jamais conservé) et chaque entrée
+ * expire à l'instant 'exp' du jeton, au plus tard {@code max-ttl-seconds} après sa mise en cache.
+ * <p>
+ * {@link #invalidateUser} ne vide que le cache de ce nœud. Avec plusieurs nœuds, un utilisateur désactivé ou
+ * rétrogradé garde son ancien principal sur les autres pendant au plus {@code max-ttl-seconds} : cette borne
+ * courte remplace une diffusion des invalidations entre nœuds.
+ * <p>
+ * Sur ce nœud, une requête qui a lu l'utilisateur avant un changement de rôle ou de statut ne doit pas remettre
+ * son ancien principal en cache après l'invalidation : elle relève {@link #invalidationMark()} avant de résoudre
+ * l'utilisateur, et {@link #put} ignore le principal si l'uid a été invalidé depuis.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(VerifiedTokenCache.class);
+    public static final String CACHE_NAME = "firebaseVerifiedTokens";
+    // Bien plus long que la résolution d'un utilisateur (vérification du jeton + lecture en base)
+    private static final Duration INVALIDATION_RETENTION = Duration.ofMinutes(10);
+
+    private final Cache<String, CachedPrincipal> cache;
+    private final long maxTtlSeconds;
+    // Numéro de la dernière invalidation de chaque uid, tiré d'un compteur commun à tous les uid
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Cache<String, Long> lastInvalidation = Caffeine.newBuilder()
+            .expireAfterWrite(INVALIDATION_RETENTION)
+            .build();
+
+    public VerifiedTokenCache(@Value("${app.security.token-cache.maximum-size:10000}") long maximumSize,
+                              @Value("${app.security.token-cache.max-ttl-seconds:60}") long maxTtlSeconds,
+                              MeterRegistry meterRegistry) {
+        this.maxTtlSeconds = maxTtlSeconds;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        // Expose cache.gets{result=hit|miss}, cache.evictions, cache.size sous /actuator/metrics
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public Optional<CachedPrincipal> get(String token) {
+        return Optional.ofNullable(cache.getIfPresent(hash(token)));
+    }
+
+    /**
+     * À relever avant de lire l'utilisateur en base, puis à passer à {@link #put}.
+     */
+    public long invalidationMark() {
+        return invalidations.get();
+    }
+
+    /**
+     * @param mark {@link #invalidationMark()} relevé avant la lecture de l'utilisateur ; si l'uid a été invalidé
+     *             depuis, le principal est peut-être périmé et n'est pas mis en cache
+     */
+    public void put(String token, VerifiedIdToken decodedToken, FirebaseUser user, long mark) {
+        long now = System.currentTimeMillis() / 1000;
+        if (decodedToken.expiresAtEpochSecond() <= now || invalidatedSince(user.getUid(), mark)) {
+            return; // Jeton déjà expiré, ou utilisateur modifié pendant sa lecture
+        }
+        long expiresAt = Math.min(decodedToken.expiresAtEpochSecond(), now + maxTtlSeconds);
+        String key = hash(token);
+        cache.put(key, new CachedPrincipal(decodedToken, user, expiresAt));
+        // Invalidation arrivée entre la vérification et l'ajout : son éviction a pu passer avant l'ajout
+        if (invalidatedSince(user.getUid(), mark)) {
+            cache.invalidate(key);
+        }
+    }
+
+    /**
+     * Retire toutes les entrées d'un utilisateur (changement de rôle, de statut, suppression...).
+     * Si une transaction est en cours, l'invalidation est rejouée après le commit : une requête qui a lu
+     * l'ancien état avant le commit ne peut plus le remettre en cache (voir {@link #put}).
+     */
+    public void invalidateUser(String uid) {
+        if (uid == null || uid.isBlank()) {
+            return;
+        }
+        evictUid(uid);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictUid(uid);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private boolean invalidatedSince(String uid, long mark) {
+        Long last = lastInvalidation.getIfPresent(uid);
+        return last != null && last > mark;
+    }
+
+    private void evictUid(String uid) {
+        // Enregistrée avant l'éviction : un put concurrent la voit forcément à sa seconde vérification
+        lastInvalidation.put(uid, invalidations.incrementAndGet());
+        boolean removed = cache.asMap().values().removeIf(p -> uid.equals(p.user().getUid()));
+        if (removed) {
+            logger.debug("Evicted cached principals for UID: {}", uid);
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * @param expiresAtEpochSecond fin de validité de l'entrée ('exp' du jeton ou borne max-ttl-seconds)
+     */
+    public record CachedPrincipal(VerifiedIdToken decodedToken, FirebaseUser user, long expiresAtEpochSecond) {
+    }
+
+    private static class TokenExpiry implements Expiry<String, CachedPrincipal> {
+        @Override
+        public long expireAfterCreate(String key, CachedPrincipal value, long currentTime) {
+            return remainingNanos(value);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedPrincipal value, long currentTime, long currentDuration) {
+            return remainingNanos(value);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedPrincipal value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        private static long remainingNanos(CachedPrincipal value) {
+            long remainingMillis = value.expiresAtEpochSecond() * 1000 - System.currentTimeMillis();
+            return Math.max(0, remainingMillis) * 1_000_000L;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.mediatower.backend.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compteur de tentatives par fenêtre de temps, tenu dans un seul long mis à jour par CAS :
+ * 20 bits de poids fort pour le nombre de tentatives, 44 bits de poids faible pour le début
+ * de la fenêtre (epoch millis, suffisant jusqu'en 2527).
+ * <p>
+ * Sans verrou ni allocation : deux requêtes concurrentes pour la même clé ne peuvent pas
+ * dépasser la limite, l'une des deux rejoue simplement son CAS.
+ */
+final class AttemptCounter {
+
+    private static final int TIME_BITS = 44;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+    static final int MAX_COUNT = (1 << (Long.SIZE - TIME_BITS)) - 1;
+
+    private AttemptCounter() {
+    }
+
+    /**
+     * Tente d'enregistrer une tentative.
+     *
+     * @param slideOnAcquire true : la fenêtre repart de chaque tentative acceptée (délai depuis la dernière) ;
+     *                       false : la fenêtre part de la première tentative.
+     * @return 0 si la tentative est acceptée, sinon le nombre de millisecondes avant la fin de la fenêtre.
+     */
+    static long tryAcquire(AtomicLong state, int maxAttempts, long windowMillis, boolean slideOnAcquire) {
+        int limit = Math.min(maxAttempts, MAX_COUNT);
+        while (true) {
+            long current = state.get();
+            long now = System.currentTimeMillis();
+            int count = count(current);
+            long windowStart = windowStart(current);
+            long windowEnd = windowStart + windowMillis;
+
+            long next;
+            if (count == 0 || windowEnd <= now) {
+                next = pack(1, now); // Fenêtre expirée (ou première tentative) : on repart de zéro
+            } else if (count < limit) {
+                next = pack(count + 1, slideOnAcquire ? now : windowStart);
+            } else {
+                return windowEnd - now;
+            }
+            if (state.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    static int count(long state) {
+        return (int) (state >>> TIME_BITS);
+    }
+
+    static long windowStart(long state) {
+        return state & TIME_MASK;
+    }
+
+    private static long pack(int count, long epochMillis) {
+        return ((long) count << TIME_BITS) | (epochMillis & TIME_MASK);
+    }
+}
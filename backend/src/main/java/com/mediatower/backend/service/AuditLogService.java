@@ -1,6 +1,7 @@
 package com.mediatower.backend.service;
 
 import com.mediatower.backend.dto.AuditLogDto;
+import com.mediatower.backend.dto.CursorPage;
 import com.mediatower.backend.model.AuditLog;
 import com.mediatower.backend.model.SecurityActionType;
 import com.mediatower.backend.model.User;
@@ -8,29 +9,54 @@ import com.mediatower.backend.repository.AuditLogRepository;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
 
 @Service
 public class AuditLogService {
 
+    private static final String CURSOR_SCOPE = "audit-logs";
+
     @Autowired
     private AuditLogRepository auditLogRepository;
 
-    @Async // Important : pour ne pas ralentir la requête principale
+    @Autowired
+    private AuditLogWriter auditLogWriter;
+
+    // Ne ralentit pas la requête principale : l'événement est mis en file et inséré par lots (voir AuditLogWriter).
+    // L'IP est lue ici, sur le thread de la requête, tant que HttpServletRequest est encore valide.
     public void logEvent(User user, SecurityActionType action, HttpServletRequest request, String details) {
         String ipAddress = getClientIpAddress(request);
-        AuditLog log = new AuditLog(user, action, ipAddress, details);
-        auditLogRepository.save(log);
+        Long userId = user != null ? user.getId() : null;
+        auditLogWriter.submit(new AuditLogWriter.AuditEvent(userId, action, ipAddress, details, LocalDateTime.now()));
     }
     @Transactional(readOnly = true)
     public Page<AuditLogDto> getAuditLogs(Pageable pageable) {
         Page<AuditLog> logsPage = auditLogRepository.findAllByOrderByTimestampDesc(pageable);
         return logsPage.map(this::convertToDto); // On utilise "map" pour convertir la page d'entités en page de DTOs
     }
+
+    // Variante par curseur : pas d'OFFSET ni de COUNT sur une table de plusieurs millions de lignes (sauf withTotal)
+    @Transactional(readOnly = true)
+    public CursorPage<AuditLogDto> getAuditLogsAfterCursor(String cursor, Integer size, boolean withTotal) {
+        int pageSize = KeysetCursor.pageSize(size);
+        KeysetCursor position = KeysetCursor.decode(CURSOR_SCOPE, cursor);
+
+        List<AuditLog> logs = auditLogRepository.findBefore(position.timestamp(), position.id(), PageRequest.of(0, pageSize + 1));
+        boolean hasNext = logs.size() > pageSize;
+        List<AuditLog> page = hasNext ? logs.subList(0, pageSize) : logs;
+        AuditLog last = page.isEmpty() ? null : page.get(page.size() - 1);
+        String nextCursor = hasNext ? KeysetCursor.encode(CURSOR_SCOPE, last.getTimestamp(), last.getId()) : null;
+        Long total = withTotal ? auditLogRepository.count() : null;
+        return new CursorPage<>(page.stream().map(this::convertToDto).collect(Collectors.toList()), nextCursor, pageSize, total);
+    }
     private AuditLogDto convertToDto(AuditLog log) {
         AuditLogDto dto = new AuditLogDto();
         dto.setId(log.getId());
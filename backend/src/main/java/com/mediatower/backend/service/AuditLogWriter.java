@@ -0,0 +1,217 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.model.SecurityActionType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Écriture groupée des événements d'audit.
+ * <p>
+ * Les appelants déposent l'événement dans une file bornée et repartent immédiatement. Un thread dédié
+ * vide la file et insère par lots JDBC (batchUpdate) dès que {@code batch-size} événements sont prêts
+ * ou au plus tard toutes les {@code flush-interval-ms} : un lot de 100 coûte une transaction au lieu de 100.
+ * <p>
+ * File pleine ({@code overflow-policy}) :
+ * <ul>
+ *     <li>BLOCK : l'appelant attend une place au plus {@code offer-timeout-ms}, puis l'événement est perdu ;</li>
+ *     <li>DROP_OLDEST : l'événement le plus ancien est sacrifié au profit du nouveau ;</li>
+ *     <li>CALLER_RUNS : l'appelant insère lui-même son événement (aucune perte, mais latence sur la requête).</li>
+ * </ul>
+ * Les événements en attente sont écrits à l'arrêt de l'application.
+ */
+@Component
+public class AuditLogWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLogWriter.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO audit_logs (user_id, action, ip_address, details, timestamp) VALUES (?, ?, ?, ?, ?)";
+    private static final int DETAILS_MAX_LENGTH = 512;
+
+    public enum OverflowPolicy { BLOCK, DROP_OLDEST, CALLER_RUNS }
+
+    public record AuditEvent(Long userId, SecurityActionType action, String ipAddress, String details, LocalDateTime timestamp) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<AuditEvent> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long offerTimeoutMillis;
+    private final OverflowPolicy overflowPolicy;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private final Timer flushTimer;
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+
+    public AuditLogWriter(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                          @Value("${app.audit.queue-capacity:10000}") int queueCapacity,
+                          @Value("${app.audit.batch-size:100}") int batchSize,
+                          @Value("${app.audit.flush-interval-ms:500}") long flushIntervalMillis,
+                          @Value("${app.audit.offer-timeout-ms:50}") long offerTimeoutMillis,
+                          @Value("${app.audit.overflow-policy:DROP_OLDEST}") OverflowPolicy overflowPolicy) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.overflowPolicy = overflowPolicy;
+        this.writerThread = new Thread(this::drainLoop, "audit-log-writer");
+        this.writerThread.setDaemon(true);
+
+        Gauge.builder("audit.queue.depth", queue, BlockingQueue::size)
+                .description("Audit events waiting to be written")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("audit.flush.latency")
+                .description("Duration of one audit batch insert")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.writtenCounter = Counter.builder("audit.events.written").register(meterRegistry);
+        this.droppedCounter = Counter.builder("audit.events.dropped").register(meterRegistry);
+        this.failedCounter = Counter.builder("audit.events.failed").register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        writerThread.start();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        writerThread.interrupt();
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        // Le thread a pu s'arrêter avant d'avoir tout vidé (timeout) : on termine ici
+        List<AuditEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+        logger.info("Audit log writer stopped.");
+    }
+
+    public void submit(AuditEvent event) {
+        if (!running) {
+            flush(List.of(event));
+            return;
+        }
+        if (queue.offer(event)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                try {
+                    if (!queue.offer(event, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                        drop(event);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    drop(event);
+                }
+            }
+            case DROP_OLDEST -> {
+                while (!queue.offer(event)) {
+                    AuditEvent oldest = queue.poll();
+                    if (oldest != null) {
+                        drop(oldest);
+                    }
+                }
+            }
+            case CALLER_RUNS -> flush(List.of(event));
+        }
+    }
+
+    private void drop(AuditEvent event) {
+        droppedCounter.increment();
+        logger.warn("Audit queue full, dropping event {} for user {}", event.action(), event.userId());
+    }
+
+    private void drainLoop() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditEvent first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                // Compléter le lot jusqu'à batch-size ou jusqu'à l'échéance
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long waitNanos = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || waitNanos <= 0) {
+                        break;
+                    }
+                    AuditEvent next = queue.poll(waitNanos, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Arrêt demandé : on écrit ce qui reste sans attendre
+                queue.drainTo(batch);
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<AuditEvent> batch) {
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, event) -> {
+                if (event.userId() != null) {
+                    ps.setLong(1, event.userId());
+                } else {
+                    ps.setNull(1, Types.BIGINT);
+                }
+                ps.setString(2, event.action().name());
+                ps.setString(3, event.ipAddress());
+                ps.setString(4, truncate(event.details()));
+                ps.setTimestamp(5, Timestamp.valueOf(event.timestamp()));
+            });
+            writtenCounter.increment(batch.size());
+        } catch (Exception e) {
+            // Un lot ne doit pas faire perdre les autres événements : on retente ligne par ligne
+            logger.error("Audit batch insert of {} events failed, retrying one by one: {}", batch.size(), e.getMessage());
+            if (batch.size() > 1) {
+                for (AuditEvent event : batch) {
+                    flush(List.of(event));
+                }
+            } else {
+                failedCounter.increment();
+            }
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String truncate(String details) {
+        return details != null && details.length() > DETAILS_MAX_LENGTH ? details.substring(0, DETAILS_MAX_LENGTH) : details;
+    }
+}
@@ -25,13 +25,15 @@ public class BookingService {
     private final ServiceRepository serviceRepository;
     private final EmailService emailService;
     private final NotificationService notificationService;
+    private final CatalogVersions catalogVersions;
 
-    public BookingService(BookingRepository bookingRepository, UserRepository userRepository, ServiceRepository serviceRepository, EmailService emailService, NotificationService notificationService) {
+    public BookingService(BookingRepository bookingRepository, UserRepository userRepository, ServiceRepository serviceRepository, EmailService emailService, NotificationService notificationService, CatalogVersions catalogVersions) {
         this.bookingRepository = bookingRepository;
         this.userRepository = userRepository;
         this.serviceRepository = serviceRepository;
         this.emailService = emailService;
         this.notificationService = notificationService;
+        this.catalogVersions = catalogVersions;
     }
 
     public BookingDto convertToDto(Booking booking) {
@@ -148,6 +150,8 @@ public class BookingService {
         booking.setCustomerNotes(notes);
         booking.setStatus(BookingStatus.PENDING);
         Booking savedBooking = bookingRepository.save(booking);
+        // Le nombre de réservations figure dans les fiches service publiques
+        catalogVersions.bump(CatalogAggregate.SERVICES);
 
         String serviceName = service.getNames().getOrDefault("en", "the requested service");
         emailService.sendBookingRequestedEmail(customer.getFirstName(), customer.getEmail(), serviceName);
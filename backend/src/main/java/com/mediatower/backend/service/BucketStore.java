@@ -0,0 +1,16 @@
+package com.mediatower.backend.service;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.ConsumptionProbe;
+
+/**
+ * Stockage des buckets d'un type de limite (IP, connexion, mot de passe oublié...).
+ * Local au JVM ({@link LocalBucketStore}) ou partagé entre les nœuds ({@link DistributedBucketStore}).
+ */
+public interface BucketStore {
+
+    /**
+     * Consomme un jeton du bucket associé à la clé (créé avec la limite donnée s'il n'existe pas).
+     */
+    ConsumptionProbe tryConsume(String key, Bandwidth limit);
+}
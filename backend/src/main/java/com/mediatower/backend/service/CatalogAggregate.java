@@ -0,0 +1,12 @@
+package com.mediatower.backend.service;
+
+/**
+ * Agrégats du catalogue public versionnés par {@link CatalogVersions}.
+ */
+public enum CatalogAggregate {
+    PRODUCTS,
+    CATEGORIES,
+    TAGS,
+    SERVICES,
+    SETTINGS
+}
@@ -0,0 +1,174 @@
+package com.mediatower.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Versions du catalogue public (table 'catalog_versions'), une par {@link CatalogAggregate}, pour les ETag
+ * et Last-Modified des GET publics.
+ * <p>
+ * Chaque écriture incrémente la version de son agrégat juste après son commit, dans une transaction courte
+ * séparée : la ligne de version, partagée par toutes les écritures de l'agrégat, n'est verrouillée que le
+ * temps de l'UPDATE et non jusqu'au commit de l'appelant (réservations, commandes...). Entre les deux commits,
+ * le nouveau contenu peut partir avec l'ancien ETag, jamais l'inverse ; l'incrément le remplace aussitôt.
+ * Tous les nœuds calculent le même ETag. Chaque nœud
+ * garde une copie des versions, relue après ses propres commits et toutes les {@code refresh-interval-ms} :
+ * une requête conditionnelle est traitée sans aller en base. La copie est lue avant les données, donc un ETag
+ * n'est jamais plus récent que le contenu qu'il accompagne ; sur les autres nœuds, un changement est vu avec
+ * au plus {@code refresh-interval-ms} de retard.
+ * <p>
+ * Une ligne créée démarre à l'instant courant en millisecondes : si la base est recréée (H2 en mémoire),
+ * les anciens ETag des navigateurs et du CDN ne peuvent pas être réattribués.
+ */
+@Component
+public class CatalogVersions {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogVersions.class);
+
+    private static final String SELECT_SQL = "SELECT aggregate, version, updated_at FROM catalog_versions";
+    private static final String INSERT_SQL = "INSERT INTO catalog_versions (aggregate, version, updated_at) VALUES (?, ?, ?)";
+    private static final String BUMP_SQL = "UPDATE catalog_versions SET version = version + 1, updated_at = ? WHERE aggregate = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate bumpTransaction;
+
+    // null tant que les versions n'ont pas été lues : pas de cache HTTP
+    private volatile Map<CatalogAggregate, Version> versions;
+
+    public CatalogVersions(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        // REQUIRES_NEW : après le commit, les ressources de la transaction de l'appelant sont encore liées au thread
+        this.bumpTransaction = new TransactionTemplate(transactionManager);
+        this.bumpTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Incrémente les versions après le commit de la transaction courante (rien en cas de rollback), ou
+     * immédiatement hors transaction. À appeler après l'écriture : hors transaction, une version incrémentée
+     * avant l'écriture serait associée à l'ancien contenu.
+     */
+    public void bump(CatalogAggregate... aggregates) {
+        // Ordre fixe : deux incréments des mêmes agrégats ne s'interbloquent pas
+        CatalogAggregate[] ordered = aggregates.clone();
+        Arrays.sort(ordered);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    increment(ordered);
+                }
+            });
+        } else {
+            increment(ordered);
+        }
+    }
+
+    /**
+     * ETag fort des agrégats donnés (guillemets compris), ou null si les versions ne sont pas encore connues.
+     */
+    public String etag(CatalogAggregate... aggregates) {
+        Map<CatalogAggregate, Version> current = versions;
+        if (current == null) {
+            return null;
+        }
+        StringBuilder etag = new StringBuilder("\"");
+        for (CatalogAggregate aggregate : aggregates) {
+            if (etag.length() > 1) {
+                etag.append('-');
+            }
+            etag.append(Long.toString(current.get(aggregate).version(), 36));
+        }
+        return etag.append('"').toString();
+    }
+
+    /**
+     * Date de la dernière modification des agrégats donnés (millisecondes), ou -1 si inconnue.
+     */
+    public long lastModified(CatalogAggregate... aggregates) {
+        Map<CatalogAggregate, Version> current = versions;
+        if (current == null) {
+            return -1;
+        }
+        long lastModified = -1;
+        for (CatalogAggregate aggregate : aggregates) {
+            lastModified = Math.max(lastModified, current.get(aggregate).updatedAt());
+        }
+        return lastModified;
+    }
+
+    @Scheduled(fixedDelayString = "${app.catalog-cache.refresh-interval-ms:2000}")
+    public void refresh() {
+        try {
+            Map<CatalogAggregate, Version> loaded = load();
+            if (loaded.size() < CatalogAggregate.values().length) {
+                long now = System.currentTimeMillis();
+                for (CatalogAggregate aggregate : CatalogAggregate.values()) {
+                    if (!loaded.containsKey(aggregate)) {
+                        insert(aggregate, now);
+                    }
+                }
+                loaded = load();
+            }
+            if (loaded.size() == CatalogAggregate.values().length) {
+                versions = loaded;
+            }
+        } catch (Exception e) {
+            // On garde les versions connues : au pire un changement d'un autre nœud est vu plus tard
+            logger.warn("Catalog versions refresh failed: {}", e.getMessage());
+        }
+    }
+
+    private void increment(CatalogAggregate[] ordered) {
+        try {
+            bumpTransaction.executeWithoutResult(status -> {
+                long now = System.currentTimeMillis();
+                for (CatalogAggregate aggregate : ordered) {
+                    if (jdbcTemplate.update(BUMP_SQL, now, aggregate.name()) == 0) {
+                        insert(aggregate, now);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            // L'écriture est déjà commitée : on ne la fait pas échouer, le prochain incrément de l'agrégat rattrape
+            logger.error("Catalog versions bump failed for {}: {}", Arrays.toString(ordered), e.getMessage(), e);
+        }
+        refresh();
+    }
+
+    private Map<CatalogAggregate, Version> load() {
+        Map<CatalogAggregate, Version> loaded = new EnumMap<>(CatalogAggregate.class);
+        jdbcTemplate.query(SELECT_SQL, rs -> {
+            try {
+                loaded.put(CatalogAggregate.valueOf(rs.getString("aggregate")),
+                        new Version(rs.getLong("version"), rs.getLong("updated_at")));
+            } catch (IllegalArgumentException e) {
+                // Agrégat retiré du code : ligne ignorée
+            }
+        });
+        return loaded;
+    }
+
+    private void insert(CatalogAggregate aggregate, long now) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, aggregate.name(), now, now);
+        } catch (DuplicateKeyException e) {
+            // Créée entre-temps par un autre nœud
+        }
+    }
+
+    private record Version(long version, long updatedAt) {
+    }
+}
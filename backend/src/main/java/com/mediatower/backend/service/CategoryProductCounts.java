@@ -0,0 +1,268 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.config.AsyncConfig;
+import com.mediatower.backend.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Nombre de produits par catégorie (productCount des CategoryDto), tenu en mémoire.
+ * <p>
+ * Chargé au démarrage par une requête groupée, puis tenu à jour après chaque commit d'une création, d'une
+ * suppression ou d'un changement de catégorie de produit : lister les catégories ne coûte aucune requête
+ * de comptage. Le tout est recompté depuis la base toutes les {@code reconcile-interval-ms} (écritures
+ * faites par un autre nœud ou hors de ProductService). Tant que le premier chargement n'est pas terminé,
+ * les comptes d'une page sont lus par une seule requête groupée.
+ * <p>
+ * Chaque déplacement appliqué reçoit un numéro de séquence. Le recomptage note la séquence au début de sa
+ * requête : un déplacement appliqué avant y est compté. Un déplacement appliqué depuis, ou dont le commit est en
+ * cours, a pu être vu ou non par la requête : le recomptage est refait, et au dernier essai les catégories
+ * concernées gardent leur compte en mémoire (déjà à jour de ces déplacements, ou qui le sera à leur
+ * application) jusqu'au recomptage suivant. Aucun déplacement n'est rejoué sur le résultat de la requête.
+ */
+@Component
+public class CategoryProductCounts {
+
+    private static final Logger logger = LoggerFactory.getLogger(CategoryProductCounts.class);
+
+    private static final String COUNTS_SQL = "SELECT category_id, COUNT(*) AS product_count FROM products " +
+            "WHERE category_id IS NOT NULL GROUP BY category_id";
+    private static final int MAX_RECONCILE_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductRepository productRepository;
+    private final CatalogVersions catalogVersions;
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+
+    // Protégés par le moniteur de l'instance
+    private long sequence;
+    // Déplacements dont le commit a commencé mais qui ne sont pas encore appliqués
+    private final Set<Move> inFlight = new HashSet<>();
+    private List<Move> appliedDuringReconcile;
+
+    private final Map<Long, Long> counts = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    public CategoryProductCounts(JdbcTemplate jdbcTemplate, ProductRepository productRepository,
+                                 CatalogVersions catalogVersions) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.productRepository = productRepository;
+        this.catalogVersions = catalogVersions;
+    }
+
+    @Async(AsyncConfig.DEFAULT_EXECUTOR)
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${app.category-counts.reconcile-interval-ms:600000}",
+            initialDelayString = "${app.category-counts.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        if (!reconcileLock.tryLock()) {
+            return; // Recomptage déjà en cours
+        }
+        try {
+            long start = System.currentTimeMillis();
+            synchronized (this) {
+                appliedDuringReconcile = new ArrayList<>();
+            }
+            for (int attempt = 1; ; attempt++) {
+                long queryStart;
+                synchronized (this) {
+                    queryStart = sequence;
+                }
+                Map<Long, Long> loaded = new HashMap<>();
+                jdbcTemplate.query(COUNTS_SQL, rs -> {
+                    loaded.put(rs.getLong("category_id"), rs.getLong("product_count"));
+                });
+                synchronized (this) {
+                    // Appliqué pendant la requête ou commit encore en cours : vu ou non par la requête
+                    Set<Long> uncertain = new HashSet<>();
+                    for (Move move : appliedDuringReconcile) {
+                        if (move.appliedSequence > queryStart) {
+                            move.deltas.forEach(delta -> uncertain.add(delta.categoryId()));
+                        }
+                    }
+                    inFlight.forEach(move -> move.deltas.forEach(delta -> uncertain.add(delta.categoryId())));
+                    if (!uncertain.isEmpty() && attempt < MAX_RECONCILE_ATTEMPTS) {
+                        continue;
+                    }
+                    appliedDuringReconcile = null;
+                    // Au premier chargement, les comptes en mémoire ne valent rien : les déplacements incertains
+                    // sont pris comme vus par la requête
+                    int corrected = publish(loaded, ready ? uncertain : Set.of());
+                    if (ready && corrected > 0) {
+                        logger.info("Category product counts reconciled: {} categories corrected", corrected);
+                    }
+                    if (!uncertain.isEmpty()) {
+                        logger.debug("Category product counts: {} categories left to the next reconciliation", uncertain.size());
+                    }
+                    ready = true;
+                }
+                logger.debug("Category product counts loaded: {} categories in {} ms",
+                        loaded.size(), System.currentTimeMillis() - start);
+                return;
+            }
+        } catch (Exception e) {
+            synchronized (this) {
+                appliedDuringReconcile = null;
+            }
+            logger.error("Category product counts reconciliation failed: {}", e.getMessage(), e);
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    /**
+     * Nombre de produits de chaque catégorie demandée (0 pour une catégorie vide).
+     */
+    public Map<Long, Long> countsFor(Collection<Long> categoryIds) {
+        Map<Long, Long> result = new HashMap<>();
+        if (categoryIds.isEmpty()) {
+            return result;
+        }
+        if (ready) {
+            categoryIds.forEach(id -> result.put(id, counts.getOrDefault(id, 0L)));
+            return result;
+        }
+        categoryIds.forEach(id -> result.put(id, 0L));
+        for (Object[] row : productRepository.countByCategoryIds(categoryIds)) {
+            result.put((Long) row[0], (Long) row[1]);
+        }
+        return result;
+    }
+
+    public long countFor(Long categoryId) {
+        return countsFor(List.of(categoryId)).get(categoryId);
+    }
+
+    /**
+     * Produit passé de {@code oldCategoryId} à {@code newCategoryId}, pris en compte après le commit.
+     * Création : oldCategoryId null ; suppression : newCategoryId null.
+     */
+    public void productMovedAfterCommit(Long oldCategoryId, Long newCategoryId) {
+        if (Objects.equals(oldCategoryId, newCategoryId)) {
+            return;
+        }
+        List<Delta> deltas = new ArrayList<>(2);
+        if (oldCategoryId != null) {
+            deltas.add(new Delta(oldCategoryId, -1));
+        }
+        if (newCategoryId != null) {
+            deltas.add(new Delta(newCategoryId, 1));
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private Move move;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    move = begin(deltas);
+                }
+
+                @Override
+                public void afterCommit() {
+                    apply(move != null ? move : new Move(deltas));
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED && move != null) {
+                        abandon(move);
+                    }
+                }
+            });
+        } else {
+            // Déjà commité, à un instant inconnu : incertain pour un recomptage en cours
+            apply(new Move(deltas));
+        }
+    }
+
+    private synchronized Move begin(List<Delta> deltas) {
+        Move move = new Move(deltas);
+        inFlight.add(move);
+        return move;
+    }
+
+    private synchronized void abandon(Move move) {
+        inFlight.remove(move);
+    }
+
+    private synchronized void apply(Move move) {
+        inFlight.remove(move);
+        move.appliedSequence = ++sequence;
+        for (Delta delta : move.deltas) {
+            set(delta.categoryId(), counts.getOrDefault(delta.categoryId(), 0L) + delta.change());
+        }
+        if (appliedDuringReconcile != null) {
+            appliedDuringReconcile.add(move);
+        }
+    }
+
+    // Remplace les comptes par ceux de la base, sauf pour les catégories 'kept' ; renvoie le nombre de
+    // catégories dont le compte a changé
+    private int publish(Map<Long, Long> loaded, Set<Long> kept) {
+        Set<Long> categoryIds = new HashSet<>(counts.keySet());
+        categoryIds.addAll(loaded.keySet());
+        categoryIds.removeAll(kept);
+        int corrected = 0;
+        for (Long categoryId : categoryIds) {
+            long expected = loaded.getOrDefault(categoryId, 0L);
+            if (expected != counts.getOrDefault(categoryId, 0L)) {
+                set(categoryId, expected);
+                corrected++;
+            }
+        }
+        if (corrected > 0) {
+            // Les comptes servis changent sans écriture passée par ProductService : ETag des catégories périmé
+            catalogVersions.bump(CatalogAggregate.CATEGORIES);
+        }
+        return corrected;
+    }
+
+    // Les catégories vides n'ont pas d'entrée
+    private void set(Long categoryId, long count) {
+        if (count > 0) {
+            counts.put(categoryId, count);
+        } else {
+            counts.remove(categoryId);
+        }
+    }
+
+    private record Delta(long categoryId, long change) {
+    }
+
+    /**
+     * Déplacements d'une transaction ; appliedSequence : séquence à leur application (0 avant).
+     * Égalité par identité : deux transactions peuvent porter les mêmes déplacements.
+     */
+    private static final class Move {
+        private final List<Delta> deltas;
+        private long appliedSequence;
+
+        Move(List<Delta> deltas) {
+            this.deltas = deltas;
+        }
+    }
+}
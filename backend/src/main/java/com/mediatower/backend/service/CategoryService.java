@@ -6,20 +6,28 @@ import com.mediatower.backend.repository.CategoryRepository;
 import com.mediatower.backend.repository.ProductRepository; // <-- AJOUT DE L'IMPORT
 import org.springframework.stereotype.Service;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 
 @Service
 public class CategoryService {
     private final CategoryRepository categoryRepository;
     private final ProductRepository productRepository; // <-- AJOUT DE LA DÉPENDANCE
+    private final ProductDetailCache productDetailCache;
+    private final CatalogVersions catalogVersions;
+    private final CategoryProductCounts categoryProductCounts;
 
     // --- MISE À JOUR DU CONSTRUCTEUR ---
-    public CategoryService(CategoryRepository categoryRepository, ProductRepository productRepository) {
+    public CategoryService(CategoryRepository categoryRepository, ProductRepository productRepository, ProductDetailCache productDetailCache, CatalogVersions catalogVersions, CategoryProductCounts categoryProductCounts) {
         this.categoryRepository = categoryRepository;
         this.productRepository = productRepository;
+        this.productDetailCache = productDetailCache;
+        this.catalogVersions = catalogVersions;
+        this.categoryProductCounts = categoryProductCounts;
     }
 
     public Page<CategoryDto> getAllCategoriesPaginated(String search, Pageable pageable) {
@@ -29,7 +37,7 @@ public class CategoryService {
         } else {
             categoryPage = categoryRepository.findAllWithCollections(pageable);
         }
-        return categoryPage.map(this::convertToDto);
+        return toDtos(categoryPage);
 
     }
 
@@ -40,6 +48,7 @@ public class CategoryService {
     public CategoryDto createCategory(CategoryDto categoryDto) {
         Category category = convertToEntity(categoryDto);
         Category savedCategory = categoryRepository.save(category);
+        catalogVersions.bump(CatalogAggregate.CATEGORIES);
         return convertToDto(savedCategory); // On reconvertit pour avoir un DTO complet avec l'ID et le productCount
     }
 
@@ -50,6 +59,9 @@ public class CategoryService {
         existingCategory.setNames(categoryDto.getNames());
         existingCategory.setDescriptions(categoryDto.getDescriptions());
         Category updatedCategory = categoryRepository.save(existingCategory);
+        // Le nom de la catégorie figure dans chaque fiche produit en cache
+        productDetailCache.evictCategoryAfterCommit(id);
+        catalogVersions.bump(CatalogAggregate.CATEGORIES);
         return convertToDto(updatedCategory);
     }
 
@@ -64,20 +76,35 @@ public class CategoryService {
             throw new IllegalStateException("Cannot delete category with ID: " + id + " because it contains " + productCount + " products.");
         }
         categoryRepository.deleteById(id);
+        catalogVersions.bump(CatalogAggregate.CATEGORIES);
     }
 
     // --- MISE À JOUR DE LA MÉTHODE DE CONVERSION ---
     public CategoryDto convertToDto(Category category) {
-        // Pour chaque catégorie, on compte le nombre de produits associés
-        long count = productRepository.countByCategoryId(category.getId());
+        return convertToDto(category, categoryProductCounts.countFor(category.getId()));
+    }
+
+    private CategoryDto convertToDto(Category category, long productCount) {
         return new CategoryDto(
                 category.getId(),
                 category.getNames(),
                 category.getDescriptions(),
-                count // On ajoute le compte au DTO
+                productCount // On ajoute le compte au DTO
         );
     }
 
+    // Comptes de produits de toute la liste en un seul appel (mémoire, ou une requête groupée au démarrage)
+    private List<CategoryDto> toDtos(List<Category> categories) {
+        Map<Long, Long> counts = categoryProductCounts.countsFor(categories.stream().map(Category::getId).toList());
+        return categories.stream()
+                .map(category -> convertToDto(category, counts.get(category.getId())))
+                .collect(Collectors.toList());
+    }
+
+    private Page<CategoryDto> toDtos(Page<Category> page) {
+        return new PageImpl<>(toDtos(page.getContent()), page.getPageable(), page.getTotalElements());
+    }
+
     public Category convertToEntity(CategoryDto categoryDto) {
         Category category = new Category();
         category.setId(categoryDto.getId());
@@ -86,8 +113,6 @@ public class CategoryService {
         return category;
     }
     public List<CategoryDto> getAllCategoriesList() {
-        return categoryRepository.findAll().stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return toDtos(categoryRepository.findAll());
     }
 }
\ No newline at end of file
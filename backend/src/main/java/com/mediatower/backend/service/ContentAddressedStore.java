@@ -0,0 +1,381 @@
+package com.mediatower.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Stockage des fichiers par contenu : chaque fichier est rangé une seule fois sous son SHA-256, dans
+ * {@code blob-dir/ab/cd/<sha256>} (deux niveaux de sous-dossiers pour ne pas avoir des centaines de milliers
+ * d'entrées dans un seul dossier). Le nom de référence renvoyé, {@code <sha256>.<extension>}, est celui gardé
+ * dans {@code Media.fileName} : deux uploads identiques partagent le même fichier et la même URL.
+ * <p>
+ * La table 'storage_blobs' compte les références de chaque fichier. Un fichier qui n'est plus référencé n'est
+ * supprimé qu'après {@code gc-grace-minutes}, par {@link #collectGarbage()} : un upload du même contenu
+ * pendant ce délai le reprend. Le ramasse-miettes recompte aussi les références depuis la table media, car les
+ * médias supprimés en cascade (produit, service, pack) ne passent pas par {@link #release}.
+ * <p>
+ * Les fichiers dérivés d'un contenu (miniatures...) sont rangés à côté de lui, sous {@code <sha256>-<nom>}, et
+ * supprimés avec lui.
+ */
+@Component
+public class ContentAddressedStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentAddressedStore.class);
+
+    private static final Pattern REFERENCE = Pattern.compile("[0-9a-f]{64}(\\.[a-z0-9]{1,10})?");
+    private static final Pattern DERIVATIVE = Pattern.compile("([0-9a-f]{64})-[a-z0-9.]{1,32}");
+    private static final Pattern EXTENSION = Pattern.compile("[a-z0-9]{1,10}");
+    private static final int LOCK_STRIPES = 64;
+
+    private static final String ACQUIRE_SQL = "UPDATE storage_blobs SET ref_count = ref_count + 1, updated_at = ? WHERE digest = ?";
+    private static final String INSERT_SQL = "INSERT INTO storage_blobs (digest, ref_count, size, updated_at) VALUES (?, 1, ?, ?)";
+    private static final String RELEASE_SQL = "UPDATE storage_blobs SET ref_count = ref_count - 1, updated_at = ? WHERE digest = ? AND ref_count > 0";
+    private static final String RECOUNT_SQL = "UPDATE storage_blobs SET ref_count = ?, updated_at = ? WHERE digest = ? AND ref_count = ? AND updated_at < ?";
+    private static final String UNREFERENCED_SQL = "SELECT digest FROM storage_blobs WHERE ref_count = 0 AND updated_at < ?";
+    private static final String DELETE_SQL = "DELETE FROM storage_blobs WHERE digest = ? AND ref_count = 0 AND updated_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Path blobLocation;
+    private final Path tempLocation;
+    private final Duration grace;
+    // Sérialise, pour un même contenu, la mise en place d'un fichier et sa suppression par le ramasse-miettes
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public ContentAddressedStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                 @Value("${app.storage.blob-dir:uploads-blobs}") String blobDir,
+                                 @Value("${app.storage.gc-grace-minutes:60}") long graceMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.blobLocation = Paths.get(blobDir).toAbsolutePath().normalize();
+        this.tempLocation = blobLocation.resolve("tmp");
+        this.grace = Duration.ofMinutes(graceMinutes);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        try {
+            Files.createDirectories(tempLocation);
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not create the directory where the content-addressed files will be stored.", ex);
+        }
+    }
+
+    public static boolean isReference(String fileName) {
+        return fileName != null && REFERENCE.matcher(fileName).matches();
+    }
+
+    /**
+     * SHA-256 (hexadécimal) d'un nom de référence.
+     */
+    public static String digestOf(String reference) {
+        return reference.substring(0, 64);
+    }
+
+    /**
+     * Enregistre le flux : il est haché pendant son écriture dans un fichier temporaire, qui devient le fichier
+     * du contenu s'il n'existe pas encore. Compte une référence de plus ; renvoie le nom de référence.
+     */
+    public String store(InputStream content, String originalName) throws IOException {
+        Path temp = Files.createTempFile(tempLocation, "blob-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (DigestInputStream in = new DigestInputStream(content, digest)) {
+                size = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return place(temp, HexFormat.of().formatHex(digest.digest()), size, originalName);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Enregistre un fichier déjà sur le disque (upload reprenable terminé), déplacé dans le stockage ou supprimé
+     * si ce contenu y est déjà.
+     */
+    public String store(Path source, String originalName) throws IOException {
+        try {
+            return place(source, sha256Of(source), Files.size(source), originalName);
+        } finally {
+            Files.deleteIfExists(source);
+        }
+    }
+
+    /**
+     * SHA-256 (hexadécimal) d'un fichier, lu en entier.
+     */
+    public static String sha256Of(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        try (DigestInputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public Path resolve(String reference) {
+        String digest = digestOf(reference);
+        return blobLocation.resolve(digest.substring(0, 2)).resolve(digest.substring(2, 4)).resolve(digest);
+    }
+
+    /**
+     * Emplacement d'un fichier dérivé du contenu de la référence (il n'existe peut-être pas encore).
+     */
+    public Path derivative(String reference, String name) {
+        String digest = digestOf(reference);
+        return resolve(digest).resolveSibling(digest + "-" + name);
+    }
+
+    /**
+     * Écrit un fichier dérivé dans un fichier temporaire puis le met en place d'un seul coup : un lecteur ne voit
+     * jamais de fichier incomplet. Renvoie null si le contenu d'origine a été supprimé entre-temps.
+     */
+    public Path writeDerivative(String reference, String name, ContentWriter writer) throws IOException {
+        String digest = digestOf(reference);
+        Path temp = Files.createTempFile(tempLocation, "derivative-", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                writer.write(out);
+            }
+            Path target = derivative(reference, name);
+            synchronized (lockFor(digest)) {
+                if (!Files.exists(resolve(digest))) {
+                    return null;
+                }
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return target;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Retire une référence (média supprimé). Le fichier reste en place jusqu'au passage du ramasse-miettes.
+     */
+    public void release(String reference) {
+        if (isReference(reference)) {
+            jdbcTemplate.update(RELEASE_SQL, System.currentTimeMillis(), digestOf(reference));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.storage.gc-interval-ms:3600000}",
+            initialDelayString = "${app.storage.gc-interval-ms:3600000}")
+    public void collectGarbage() {
+        try {
+            long start = System.currentTimeMillis();
+            long cutoff = start - grace.toMillis();
+            int recounted = recount(cutoff);
+            int deleted = 0;
+            for (String digest : jdbcTemplate.queryForList(UNREFERENCED_SQL, String.class, cutoff)) {
+                if (deleteUnreferenced(digest, cutoff)) {
+                    deleted++;
+                }
+            }
+            int orphans = deleteOrphans(cutoff);
+            if (recounted + deleted + orphans > 0) {
+                logger.info("Blob store garbage collection: {} reference counts corrected, {} blobs and {} orphan files deleted in {} ms",
+                        recounted, deleted, orphans, System.currentTimeMillis() - start);
+            }
+        } catch (Exception e) {
+            logger.error("Blob store garbage collection failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private String place(Path file, String digest, long size, String originalName) throws IOException {
+        acquire(digest, size);
+        Path target = resolve(digest);
+        synchronized (lockFor(digest)) {
+            if (Files.exists(target)) {
+                // Contenu déjà stocké : la date rafraîchie le protège du ramasse-miettes le temps du commit
+                Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+            } else {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException ex) {
+                    // Source sur un autre système de fichiers : copie à côté puis renommage, jamais de fichier à moitié visible
+                    Path temp = Files.createTempFile(tempLocation, "blob-", ".tmp");
+                    try {
+                        Files.copy(file, temp, StandardCopyOption.REPLACE_EXISTING);
+                        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                    } finally {
+                        Files.deleteIfExists(temp);
+                    }
+                }
+            }
+        }
+        return digest + extensionOf(originalName);
+    }
+
+    private void acquire(String digest, long size) {
+        long now = System.currentTimeMillis();
+        if (jdbcTemplate.update(ACQUIRE_SQL, now, digest) == 0) {
+            try {
+                jdbcTemplate.update(INSERT_SQL, digest, size, now);
+            } catch (DuplicateKeyException e) {
+                jdbcTemplate.update(ACQUIRE_SQL, now, digest); // Même contenu envoyé en même temps
+            }
+        }
+    }
+
+    /**
+     * Aligne les compteurs des fichiers inactifs depuis le délai de grâce sur le nombre de médias qui les référencent.
+     */
+    private int recount(long cutoff) {
+        Map<String, Long> references = new HashMap<>();
+        jdbcTemplate.query("SELECT file_name FROM media", rs -> {
+            String fileName = rs.getString("file_name");
+            if (isReference(fileName)) {
+                references.merge(digestOf(fileName), 1L, Long::sum);
+            }
+        });
+        List<Object[]> corrections = new ArrayList<>();
+        jdbcTemplate.query("SELECT digest, ref_count FROM storage_blobs WHERE updated_at < ?", rs -> {
+            long counted = references.getOrDefault(rs.getString("digest"), 0L);
+            if (rs.getLong("ref_count") != counted) {
+                corrections.add(new Object[]{counted, rs.getString("digest"), rs.getLong("ref_count")});
+            }
+        }, cutoff);
+        int corrected = 0;
+        long now = System.currentTimeMillis();
+        for (Object[] correction : corrections) {
+            // Ignoré si le compteur a bougé depuis la lecture
+            corrected += jdbcTemplate.update(RECOUNT_SQL, correction[0], now, correction[1], correction[2], cutoff);
+        }
+        return corrected;
+    }
+
+    private boolean deleteUnreferenced(String digest, long cutoff) {
+        // La ligne reste verrouillée jusqu'au commit : un upload du même contenu attend, puis recrée ligne et fichier
+        Boolean deleted = transactionTemplate.execute(status -> {
+            if (jdbcTemplate.update(DELETE_SQL, digest, cutoff) == 0) {
+                return false;
+            }
+            synchronized (lockFor(digest)) {
+                try {
+                    Files.deleteIfExists(resolve(digest));
+                    deleteDerivatives(digest);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not delete blob " + digest, e);
+                }
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(deleted);
+    }
+
+    /**
+     * Fichiers sans ligne (upload annulé après sa mise en place, arrêt brutal) et fichiers temporaires abandonnés.
+     */
+    private int deleteOrphans(long cutoff) throws IOException {
+        Set<String> known = new HashSet<>(jdbcTemplate.queryForList("SELECT digest FROM storage_blobs", String.class));
+        int deleted = 0;
+        try (Stream<Path> files = Files.walk(blobLocation, 3)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                String name = file.getFileName().toString();
+                if (file.startsWith(tempLocation)) {
+                    if (Files.getLastModifiedTime(file).toMillis() < cutoff && Files.deleteIfExists(file)) {
+                        deleted++;
+                    }
+                    continue;
+                }
+                Matcher derivative = DERIVATIVE.matcher(name);
+                if (derivative.matches()) {
+                    // Dérivé resté seul (arrêt entre la suppression du contenu et celle de ses dérivés)
+                    String digest = derivative.group(1);
+                    synchronized (lockFor(digest)) {
+                        if (!Files.exists(file.resolveSibling(digest))
+                                && Files.getLastModifiedTime(file).toMillis() < cutoff && Files.deleteIfExists(file)) {
+                            deleted++;
+                        }
+                    }
+                    continue;
+                }
+                if (!isReference(name) || known.contains(name)) {
+                    continue;
+                }
+                synchronized (lockFor(name)) {
+                    if (Files.getLastModifiedTime(file).toMillis() < cutoff && Files.deleteIfExists(file)) {
+                        deleted++;
+                    }
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private void deleteDerivatives(String digest) throws IOException {
+        Path directory = resolve(digest).getParent();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> derivatives = Files.newDirectoryStream(directory, digest + "-*")) {
+            for (Path derivative : derivatives) {
+                Files.deleteIfExists(derivative);
+            }
+        }
+    }
+
+    private Object lockFor(String digest) {
+        return locks[Math.floorMod(digest.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static String extensionOf(String originalName) {
+        String extension = StringUtils.getFilenameExtension(originalName);
+        if (extension == null) {
+            return "";
+        }
+        extension = extension.toLowerCase(Locale.ROOT);
+        return EXTENSION.matcher(extension).matches() ? "." + extension : "";
+    }
+
+    /**
+     * Production du contenu d'un fichier dérivé.
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
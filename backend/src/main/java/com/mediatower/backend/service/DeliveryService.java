@@ -12,6 +12,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Service
 public class DeliveryService {
 
@@ -20,13 +23,16 @@ public class DeliveryService {
     private final OrderRepository orderRepository;
     private final UserProductAccessRepository userProductAccessRepository;
     private final EmailService emailService;
+    private final ProductSimilarityIndex productSimilarityIndex;
 
     public DeliveryService(OrderRepository orderRepository,
                            UserProductAccessRepository userProductAccessRepository,
-                           EmailService emailService) {
+                           EmailService emailService,
+                           ProductSimilarityIndex productSimilarityIndex) {
         this.orderRepository = orderRepository;
         this.userProductAccessRepository = userProductAccessRepository;
         this.emailService = emailService;
+        this.productSimilarityIndex = productSimilarityIndex;
     }
 
     /**
@@ -46,7 +52,9 @@ public class DeliveryService {
         logger.info("Processing delivery for confirmed order: {}", order.getId());
 
         // 1. Accorder l'accès aux produits achetés
+        List<Long> purchasedProductIds = new ArrayList<>();
         for (OrderItem item : order.getOrderItems()) {
+            purchasedProductIds.add(item.getProduct().getId());
             // On vérifie si un accès existe déjà pour éviter les doublons
             boolean accessExists = userProductAccessRepository.existsByUserAndProduct(order.getUser(), item.getProduct());
             if (!accessExists) {
@@ -60,6 +68,8 @@ public class DeliveryService {
             }
         }
 
+        productSimilarityIndex.recordPurchaseAfterCommit(order.getUser().getId(), purchasedProductIds);
+
         // 2. Envoyer l'e-mail de confirmation d'achat et d'accès
         try {
             emailService.sendOrderConfirmationEmail(order);
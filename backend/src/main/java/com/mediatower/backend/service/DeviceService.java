@@ -1,36 +1,92 @@
 package com.mediatower.backend.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mediatower.backend.config.AsyncConfig;
 import com.mediatower.backend.model.KnownDevice;
 import com.mediatower.backend.model.User;
 import com.mediatower.backend.repository.KnownDeviceRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Détection des nouveaux appareils / nouvelles adresses IP à la connexion.
+ * <p>
+ * Un cache (utilisateur, empreinte du user-agent) -> (appareil, dernière IP) évite toute requête quand
+ * l'utilisateur se reconnecte depuis un appareil et une IP déjà vus : seul lastLogin change alors, et il est
+ * écrit en différé par lots (au plus une écriture par appareil et par intervalle de flush).
+ * Tout le reste (appareil inconnu, IP différente) passe par la base sur le pool 'deviceExecutor',
+ * avec les mêmes alertes e-mail qu'auparavant.
+ */
 @Service
 public class DeviceService {
 
     private static final Logger logger = LoggerFactory.getLogger(DeviceService.class);
+    private static final String UPDATE_LAST_LOGIN_SQL = "UPDATE known_devices SET last_login = ? WHERE id = ?";
 
     private final KnownDeviceRepository knownDeviceRepository;
     private final EmailService emailService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor deviceExecutor;
+
+    // "userId:empreinte" -> appareil connu et dernière IP vue
+    private final Cache<String, KnownDeviceState> knownDevices;
+    // id de l'appareil -> dernière connexion pas encore écrite en base
+    private final Map<Long, LocalDateTime> pendingLastLogins = new ConcurrentHashMap<>();
 
     // Injection par constructeur (meilleure pratique)
-    public DeviceService(KnownDeviceRepository knownDeviceRepository, EmailService emailService) {
+    public DeviceService(KnownDeviceRepository knownDeviceRepository, EmailService emailService,
+                         JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                         @Qualifier(AsyncConfig.DEVICE_EXECUTOR) Executor deviceExecutor,
+                         MeterRegistry meterRegistry,
+                         @Value("${app.device.cache-size:50000}") long cacheSize,
+                         @Value("${app.device.cache-ttl-minutes:10}") long cacheTtlMinutes) {
         this.knownDeviceRepository = knownDeviceRepository;
         this.emailService = emailService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.deviceExecutor = deviceExecutor;
+        // TTL court : en multi-nœuds, un changement d'IP vu par un autre nœud est pris en compte après au plus ce délai
+        this.knownDevices = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMinutes(cacheTtlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, knownDevices, "knownDevices");
     }
 
-    @Async
-    @Transactional // Ajout de @Transactional pour garantir la cohérence des données
+    /**
+     * Appelé sur le thread de la requête : les en-têtes sont lus tant que la requête est valide,
+     * le travail en base éventuel est délégué au pool 'deviceExecutor'.
+     */
     public void handleDeviceVerification(User user, HttpServletRequest request) {
         String userAgent = request.getHeader("User-Agent");
         if (userAgent == null || userAgent.isEmpty()) {
@@ -42,38 +98,89 @@ public class DeviceService {
         }
 
         String ipAddress = getClientIpAddress(request);
+        String fingerprint = fingerprint(userAgent);
+        String cacheKey = user.getId() + ":" + fingerprint;
+
+        KnownDeviceState cached = knownDevices.getIfPresent(cacheKey);
+        if (cached != null && Objects.equals(cached.lastIpAddress(), ipAddress)) {
+            // Appareil et IP déjà connus : rien à vérifier, lastLogin sera écrit au prochain flush
+            pendingLastLogins.put(cached.deviceId(), LocalDateTime.now());
+            return;
+        }
 
-        Optional<KnownDevice> deviceOpt = knownDeviceRepository.findByUserAndUserAgent(user, userAgent);
+        String finalUserAgent = userAgent;
+        deviceExecutor.execute(() -> {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        verifyDevice(user, finalUserAgent, fingerprint, ipAddress, cacheKey));
+            } catch (Exception e) {
+                logger.error("Device verification failed for user {}: {}", user.getEmail(), e.getMessage(), e);
+            }
+        });
+    }
 
+    private void verifyDevice(User user, String userAgent, String fingerprint, String ipAddress, String cacheKey) {
+        Optional<KnownDevice> deviceOpt = knownDeviceRepository.findByUserIdAndFingerprint(user.getId(), fingerprint);
+        if (deviceOpt.isEmpty()) {
+            // Appareils enregistrés avant l'ajout de l'empreinte : recherche par user-agent, puis empreinte complétée
+            deviceOpt = knownDeviceRepository.findByUserAndUserAgent(user, userAgent);
+            deviceOpt.ifPresent(device -> device.setFingerprint(fingerprint));
+        }
+
+        KnownDevice device;
         if (deviceOpt.isEmpty()) {
             // --- CAS A : Appareil totalement inconnu ---
             logger.info("New device detected for user {}. User-Agent: {}", user.getEmail(), userAgent);
-            KnownDevice newDevice = new KnownDevice(user, userAgent, ipAddress);
-            knownDeviceRepository.save(newDevice);
-            sendNewDeviceAlert(user, newDevice);
+            device = knownDeviceRepository.save(new KnownDevice(user, userAgent, fingerprint, ipAddress));
+            sendNewDeviceAlert(user, device);
 
         } else {
             // --- CAS B : Appareil déjà connu ---
-            KnownDevice knownDevice = deviceOpt.get();
+            device = deviceOpt.get();
 
             // On vérifie si l'adresse IP a changé de manière significative
-            if (!Objects.equals(knownDevice.getLastIpAddress(), ipAddress)) {
+            if (!Objects.equals(device.getLastIpAddress(), ipAddress)) {
                 logger.info("New IP address detected for a known device for user {}. Old IP: {}, New IP: {}",
-                        user.getEmail(), knownDevice.getLastIpAddress(), ipAddress);
+                        user.getEmail(), device.getLastIpAddress(), ipAddress);
 
-                // On met à jour l'IP et l'heure de connexion
-                knownDevice.setLastIpAddress(ipAddress);
-                knownDevice.setLastLogin(LocalDateTime.now());
-                knownDeviceRepository.save(knownDevice);
+                // On met à jour l'IP et l'heure de connexion immédiatement (une éventuelle valeur en attente est obsolète)
+                pendingLastLogins.remove(device.getId());
+                device.setLastIpAddress(ipAddress);
+                device.setLastLogin(LocalDateTime.now());
+                knownDeviceRepository.save(device);
 
                 // On envoie une alerte de nouvelle localisation
-                sendNewLocationAlert(user, knownDevice);
+                sendNewLocationAlert(user, device);
             } else {
-                // L'IP est la même, on met juste à jour l'heure de connexion
-                knownDevice.setLastLogin(LocalDateTime.now());
-                knownDeviceRepository.save(knownDevice);
+                // L'IP est la même, l'heure de connexion sera écrite au prochain flush
+                pendingLastLogins.put(device.getId(), LocalDateTime.now());
             }
         }
+        knownDevices.put(cacheKey, new KnownDeviceState(device.getId(), ipAddress));
+    }
+
+    /**
+     * Écrit par lots les heures de dernière connexion en attente.
+     */
+    @Scheduled(fixedDelayString = "${app.device.last-login-flush-interval-ms:300000}")
+    public void flushLastLogins() {
+        if (pendingLastLogins.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>(pendingLastLogins.size());
+        for (Long deviceId : pendingLastLogins.keySet()) {
+            LocalDateTime lastLogin = pendingLastLogins.remove(deviceId);
+            if (lastLogin != null) {
+                batch.add(new Object[]{Timestamp.valueOf(lastLogin), deviceId});
+            }
+        }
+        jdbcTemplate.batchUpdate(UPDATE_LAST_LOGIN_SQL, batch);
+        logger.debug("Flushed last login time of {} known devices", batch.size());
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flushLastLogins();
     }
 
     // --- NOUVELLES MÉTHODES PRIVÉES POUR ENVOYER LES E-MAILS ---
@@ -106,6 +213,15 @@ public class DeviceService {
         );
     }
 
+    private static String fingerprint(String userAgent) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(userAgent.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
     private String getClientIpAddress(HttpServletRequest request) {
         if (request == null) return "N/A";
         String xfHeader = request.getHeader("X-Forwarded-For");
@@ -114,4 +230,7 @@ public class DeviceService {
         }
         return xfHeader.split(",")[0];
     }
+
+    private record KnownDeviceState(Long deviceId, String lastIpAddress) {
+    }
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.mediatower.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.distributed.BucketProxy;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+
+/**
+ * Buckets partagés entre tous les nœuds via un {@link ProxyManager} bucket4j.
+ * <p>
+ * Niveau local devant le stockage partagé : une clé refusée est mémorisée jusqu'à sa prochaine recharge
+ * et les requêtes suivantes sont refusées sans aller en base (c'est précisément le trafic d'une attaque).
+ * Ce refus local est toujours correct : aucun autre nœud ne peut rendre des jetons avant cette échéance.
+ * Les requêtes autorisées, elles, passent toujours par le stockage partagé pour que le budget soit global.
+ */
+public class DistributedBucketStore implements BucketStore {
+
+    private final String namespace;
+    private final ProxyManager<String> proxyManager;
+    private final Cache<String, BucketProxy> proxies;
+    // Clé -> instant (System.nanoTime) jusqu'auquel la clé est bloquée
+    private final Cache<String, Long> blockedUntil;
+    private final Counter localRejections;
+
+    public DistributedBucketStore(String name, ProxyManager<String> proxyManager, long maximumKeys,
+                                  Duration idleExpiry, MeterRegistry meterRegistry) {
+        this.namespace = name + ":";
+        this.proxyManager = proxyManager;
+        this.proxies = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfterAccess(idleExpiry)
+                .recordStats()
+                .build();
+        this.blockedUntil = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfterWrite(idleExpiry)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, proxies, name);
+        this.localRejections = Counter.builder("rateLimit.localRejections")
+                .tag("store", name)
+                .description("Requests rejected by the local tier without reaching the shared bucket store")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ConsumptionProbe tryConsume(String key, Bandwidth limit) {
+        Long until = blockedUntil.getIfPresent(key);
+        if (until != null) {
+            long waitNanos = until - System.nanoTime();
+            if (waitNanos > 0) {
+                localRejections.increment();
+                return ConsumptionProbe.rejected(0, waitNanos, waitNanos);
+            }
+            blockedUntil.invalidate(key);
+        }
+
+        BucketProxy bucket = proxies.get(key, k -> proxyManager.builder()
+                .build(namespace + k, BucketConfiguration.builder().addLimit(limit).build()));
+        ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
+        if (!probe.isConsumed()) {
+            blockedUntil.put(key, System.nanoTime() + probe.getNanosToWaitForRefill());
+        }
+        return probe;
+    }
+}
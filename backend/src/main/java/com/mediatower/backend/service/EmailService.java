@@ -1,5 +1,6 @@
 package com.mediatower.backend.service;
 
+import com.mediatower.backend.config.AsyncConfig;
 import com.mediatower.backend.model.Booking;
 import com.mediatower.backend.model.Order;
 import com.mediatower.backend.model.OrderItem;
@@ -44,7 +45,7 @@ public class EmailService {
     }
 
     // --- E-MAILS HTML ---
-    @Async
+    @Async(AsyncConfig.EMAIL_EXECUTOR)
     public void sendOrderConfirmationEmail(Order order) {
         logger.info("Preparing to send order confirmation email for order #{}", order.getId());
         try {
@@ -68,7 +69,7 @@ public class EmailService {
             logger.error("Failed to send order confirmation email for order #{}", order.getId(), e);
         }
     }
-    @Async
+    @Async(AsyncConfig.EMAIL_EXECUTOR)
     public void sendServiceInProgressEmail(Booking booking) {
         logger.info("Preparing to send service in-progress email for booking #{}", booking.getId());
         try {
@@ -90,7 +91,7 @@ public class EmailService {
             logger.error("Failed to send service in-progress email for booking #{}", booking.getId(), e);
         }
     }
-    @Async
+    @Async(AsyncConfig.EMAIL_EXECUTOR)
     public void sendServiceCancelledEmail(Booking booking) {
         logger.info("Preparing to send service cancellation email for booking #{}", booking.getId());
         try {
@@ -115,7 +116,7 @@ public class EmailService {
 
 
     // --- E-MAILS TEXTE (AMÉLIORÉS) ---
-    @Async
+    @Async(AsyncConfig.EMAIL_EXECUTOR)
     public void sendBookingRequestedEmail(String customerName, String customerEmail, String serviceName) {
         String subject = "We've received your request for: " + serviceName;
         String text = String.format(
@@ -127,7 +128,7 @@ public class EmailService {
         );
         sendSimpleTextEmail(customerEmail, subject, text);
     }
-    @Async
+    @Async(AsyncConfig.EMAIL_EXECUTOR)
     public void sendBookingConfirmedEmail(String customerName, String customerEmail, String serviceName, Long bookingId) {
         String subject = "Your Booking for '" + serviceName + "' is Confirmed!";
         String text = String.format(
@@ -141,7 +142,7 @@ public class EmailService {
         );
         sendSimpleTextEmail(customerEmail, subject, text);
     }
-    @Async
+    @Async(AsyncConfig.EMAIL_EXECUTOR)
     public void sendBookingCompletedEmail(String customerName, String customerEmail, String serviceName, Long bookingId, Long serviceId) {
         String subject = "Your service '" + serviceName + "' is complete!";
         String text = String.format(
@@ -156,7 +157,7 @@ public class EmailService {
         );
         sendSimpleTextEmail(customerEmail, subject, text);
     }
-    @Async
+    @Async(AsyncConfig.EMAIL_EXECUTOR)
     public void sendBookingCancelledBySystemEmail(String customerName, String customerEmail, String serviceName, Long bookingId) {
         String subject = "Update on your booking #" + bookingId;
         String text = String.format(
@@ -171,7 +172,7 @@ public class EmailService {
     }
 
     // --- MÉTHODES UTILITAIRES POUR L'ENVOI ---
-    @Async
+    @Async(AsyncConfig.EMAIL_EXECUTOR)
     public void sendHtmlEmail(String to, String subject, String htmlContent) throws MessagingException {
         MimeMessage mimeMessage = mailSender.createMimeMessage();
         MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, MimeMessageHelper.MULTIPART_MODE_MIXED_RELATED, StandardCharsets.UTF_8.name());
@@ -182,7 +183,7 @@ public class EmailService {
         mailSender.send(mimeMessage);
     }
 
-    @Async
+    @Async(AsyncConfig.EMAIL_EXECUTOR)
     public void sendSimpleTextEmail(String to, String subject, String text) {
         SimpleMailMessage message = new SimpleMailMessage();
         message.setFrom(fromEmail);
@@ -210,7 +211,7 @@ public class EmailService {
     }
 
     // --- E-MAILS DE SUPPORT (INCHANGÉS POUR L'INSTANT) ---
-    @Async
+    @Async(AsyncConfig.EMAIL_EXECUTOR)
     public void sendTicketReplyEmail(String userEmail, Long ticketId) {
         SimpleMailMessage message = new SimpleMailMessage();
         message.setFrom(fromEmail);
@@ -220,7 +221,7 @@ public class EmailService {
                 "http://localhost:5174/account/tickets/" + ticketId);
         mailSender.send(message);
     }
-    @Async
+    @Async(AsyncConfig.EMAIL_EXECUTOR)
     public void sendTicketCreationConfirmationEmail(String userEmail, Long ticketId) {
         SimpleMailMessage message = new SimpleMailMessage();
         message.setFrom(fromEmail);
@@ -231,7 +232,7 @@ public class EmailService {
         mailSender.send(message);
     }
 
-    @Async
+    @Async(AsyncConfig.EMAIL_EXECUTOR)
     public void sendTicketClosedEmail(String userEmail, Long ticketId) {
         SimpleMailMessage message = new SimpleMailMessage();
         message.setFrom(fromEmail);
@@ -240,7 +241,7 @@ public class EmailService {
         message.setText("Hello,\n\nYour support ticket has been marked as resolved and closed.\n\nIf you feel your issue is not resolved, you can reply to this message to reopen the ticket.\n\nThank you for using Media Tower!\n\nThe Media Tower Team");
         mailSender.send(message);
     }
-    @Async
+    @Async(AsyncConfig.EMAIL_EXECUTOR)
     public void sendVerificationEmail(String to, String firstName, String token) {
         logger.info("Preparing to send verification email to {}", to);
         try {
@@ -258,7 +259,7 @@ public class EmailService {
         }
 
     }
-    @Async
+    @Async(AsyncConfig.EMAIL_EXECUTOR)
     public void sendPasswordResetEmail(String to, String firstName, String resetUrl) {
         logger.info("Preparing to send password reset email to {}", to);
         try {
@@ -282,7 +283,7 @@ public class EmailService {
      * @param ipAddress L'adresse IP de la connexion
      * @param userAgent Le navigateur/appareil utilisé
      */
-    @Async // <-- Cette nouvelle méthode est aussi asynchrone
+    @Async(AsyncConfig.EMAIL_EXECUTOR) // <-- Cette nouvelle méthode est aussi asynchrone
     public void sendNewDeviceLoginAlertEmail(String to, String userName, String loginTime, String ipAddress, String userAgent) {
         try {
             Context context = new Context();
@@ -307,7 +308,7 @@ public class EmailService {
             // logger.error("Failed to send new device login alert email to {}", to, e);
         }
     }
-    @Async
+    @Async(AsyncConfig.EMAIL_EXECUTOR)
     public void sendNewLocationLoginAlertEmail(String to, String userName, String loginTime, String ipAddress, String userAgent) {
         try {
             Context context = new Context();
@@ -5,6 +5,9 @@ import com.google.cloud.storage.Bucket;
 import com.google.cloud.storage.HttpMethod;
 import com.google.cloud.storage.Storage;
 import com.google.firebase.cloud.StorageClient;
+import com.mediatower.backend.model.Media;
+import org.apache.tika.Tika;
+import org.apache.tika.io.TikaInputStream;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
@@ -13,10 +16,12 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -31,8 +36,16 @@ public class FileStorageService {
     private String bucketName;
 
     private final Path fileStorageLocation;
+    private final ContentAddressedStore contentAddressedStore;
+    // true : fichiers rangés par contenu (dédupliqués), false : sous leur nom d'origine dans uploads/
+    private final boolean contentAddressed;
+    // Détecteur par défaut de tika-core (signatures du registre de types), utilisable par plusieurs threads
+    private final Tika tika = new Tika();
 
-    public FileStorageService() {
+    public FileStorageService(ContentAddressedStore contentAddressedStore,
+                              @Value("${app.storage.content-addressed:true}") boolean contentAddressed) {
+        this.contentAddressedStore = contentAddressedStore;
+        this.contentAddressed = contentAddressed;
         this.fileStorageLocation = Paths.get("uploads").toAbsolutePath().normalize();
         try {
             Files.createDirectories(this.fileStorageLocation);
@@ -47,6 +60,9 @@ public class FileStorageService {
             if (fileName.contains("..")) {
                 throw new RuntimeException("Sorry! Filename contains invalid path sequence " + fileName);
             }
+            if (contentAddressed) {
+                return contentAddressedStore.store(file.getInputStream(), fileName);
+            }
             Path targetLocation = this.fileStorageLocation.resolve(fileName);
             Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
             return fileName;
@@ -54,6 +70,33 @@ public class FileStorageService {
             throw new RuntimeException("Could not store file " + fileName + ". Please try again!", ex);
         }
     }
+
+    /**
+     * Range dans le dossier des uploads un fichier reçu par upload reprenable (déplacement, sans recopie).
+     * @return le nom unique du fichier sur le serveur
+     */
+    public String storeFile(Path source, String originalFileName) {
+        String cleanName = StringUtils.cleanPath(originalFileName);
+        String fileName = UUID.randomUUID() + "-" + cleanName;
+        try {
+            if (cleanName.contains("..") || cleanName.contains("/")) {
+                throw new RuntimeException("Sorry! Filename contains invalid path sequence " + cleanName);
+            }
+            if (contentAddressed) {
+                return contentAddressedStore.store(source, cleanName);
+            }
+            Path targetLocation = this.fileStorageLocation.resolve(fileName);
+            try {
+                Files.move(source, targetLocation, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(source, targetLocation); // Dossier entrant sur un autre système de fichiers
+            }
+            return fileName;
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not store file " + cleanName + ". Please try again!", ex);
+        }
+    }
+
     public String storeProfileImage(MultipartFile file) {
         String subfolder = "profile-images";
         String originalFileName = StringUtils.cleanPath(file.getOriginalFilename());
@@ -87,9 +130,97 @@ public class FileStorageService {
         }
     }
 
+    /**
+     * Retire la référence d'un média supprimé : le fichier est effacé quand plus aucun média ne l'utilise.
+     * Sans effet pour les fichiers rangés sous leur nom d'origine.
+     */
+    public void releaseFile(String fileName) {
+        contentAddressedStore.release(fileName);
+    }
+
+    /**
+     * ETag fort du fichier d'un média : le SHA-256 enregistré par {@link #inspect}, ou à défaut celui que porte le nom
+     * d'un fichier rangé par contenu ; null pour un ancien fichier rangé sous son nom et pas encore inspecté.
+     */
+    public String strongEtag(Media media) {
+        if (media.getChecksum() != null) {
+            return "\"" + media.getChecksum() + "\"";
+        }
+        return ContentAddressedStore.isReference(media.getFileName())
+                ? "\"" + ContentAddressedStore.digestOf(media.getFileName()) + "\""
+                : null;
+    }
+
+    /**
+     * Renseigne le type MIME (détection Tika sur les premiers octets du contenu, le nom d'origine ne servant qu'à
+     * départager), la taille et le SHA-256 du fichier d'un média. Appelé une fois à l'upload : le téléchargement
+     * construit ensuite ses en-têtes sans toucher au disque ni aux bases de types du système.
+     */
+    public void inspect(Media media) {
+        Path file = resolvePath(media.getFileName());
+        try {
+            media.setContentLength(Files.size(file));
+            try (TikaInputStream in = TikaInputStream.get(file)) {
+                media.setContentType(tika.detect(in, media.getOriginalName()));
+            }
+            // Fichier rangé par contenu : son nom donne déjà l'empreinte
+            media.setChecksum(ContentAddressedStore.isReference(media.getFileName())
+                    ? ContentAddressedStore.digestOf(media.getFileName())
+                    : ContentAddressedStore.sha256Of(file));
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not inspect file " + media.getFileName(), ex);
+        }
+    }
+
+    /**
+     * Déclinaison d'un fichier (miniature...) si elle a déjà été produite, sinon null. Celle d'un fichier rangé
+     * sous son nom d'origine est ignorée si le fichier a été remplacé depuis.
+     */
+    public Path findVariant(String fileName, String variantName) {
+        Path variant = variantPath(fileName, variantName);
+        try {
+            if (ContentAddressedStore.isReference(fileName)) {
+                return Files.exists(variant) ? variant : null;
+            }
+            return Files.getLastModifiedTime(variant).compareTo(Files.getLastModifiedTime(resolvePath(fileName))) >= 0
+                    ? variant : null;
+        } catch (IOException ex) {
+            return null; // Déclinaison (ou original) absente
+        }
+    }
+
+    /**
+     * Enregistre une déclinaison à côté de son fichier, mise en place d'un seul coup une fois écrite.
+     * @return son emplacement, ou null si le fichier d'origine n'existe plus
+     */
+    public Path storeVariant(String fileName, String variantName, ContentAddressedStore.ContentWriter writer) throws IOException {
+        if (ContentAddressedStore.isReference(fileName)) {
+            return contentAddressedStore.writeDerivative(fileName, variantName, writer);
+        }
+        Path target = variantPath(fileName, variantName);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), "variant-", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                writer.write(out);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return target;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path variantPath(String fileName, String variantName) {
+        // Fichiers rangés sous leur nom d'origine : déclinaisons dans uploads/.variants/<nom>/
+        return ContentAddressedStore.isReference(fileName)
+                ? contentAddressedStore.derivative(fileName, variantName)
+                : this.fileStorageLocation.resolve(".variants").resolve(fileName).resolve(variantName).normalize();
+    }
+
     public Resource loadFileAsResource(String fileName) {
         try {
-            Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
+            Path filePath = resolvePath(fileName);
             Resource resource = new UrlResource(filePath.toUri());
             if (resource.exists()) {
                 return resource;
@@ -101,6 +232,13 @@ public class FileStorageService {
         }
     }
 
+    private Path resolvePath(String fileName) {
+        // Les fichiers enregistrés avant le stockage par contenu restent sous leur nom dans uploads/
+        return ContentAddressedStore.isReference(fileName)
+                ? contentAddressedStore.resolve(fileName)
+                : this.fileStorageLocation.resolve(fileName).normalize();
+    }
+
     public String saveFileToFirebase(MultipartFile file) throws IOException {
         StorageClient storageClient = StorageClient.getInstance();
         String fileName = "uploads/" + UUID.randomUUID() + "-" + file.getOriginalFilename();
@@ -0,0 +1,77 @@
+package com.mediatower.backend.service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Tailles fixes dans lesquelles les images du catalogue sont déclinées : le plus grand côté est ramené à
+ * {@code maxDimension} pixels (jamais agrandi), proportions conservées.
+ */
+public enum ImageVariant {
+    THUMB(200),
+    SMALL(480),
+    MEDIUM(960),
+    LARGE(1600);
+
+    private final int maxDimension;
+
+    ImageVariant(int maxDimension) {
+        this.maxDimension = maxDimension;
+    }
+
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+
+    // Valeur du paramètre size et clé dans MediaDto.variants
+    public String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Paramètre size d'un téléchargement : un nom (thumb, small...) ou une largeur d'affichage en pixels, qui
+     * choisit la plus petite taille suffisante. Vide pour l'original (pas de paramètre, ou largeur au-delà de la
+     * plus grande taille).
+     *
+     * @throws IllegalArgumentException valeur inconnue
+     */
+    public static Optional<ImageVariant> fromParameter(String size) {
+        if (size == null || size.isBlank()) {
+            return Optional.empty();
+        }
+        String value = size.trim().toLowerCase(Locale.ROOT);
+        for (ImageVariant variant : values()) {
+            if (variant.key().equals(value)) {
+                return Optional.of(variant);
+            }
+        }
+        int width;
+        try {
+            width = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unknown image size: " + size);
+        }
+        if (width <= 0) {
+            throw new IllegalArgumentException("Unknown image size: " + size);
+        }
+        for (ImageVariant variant : values()) {
+            if (variant.maxDimension >= width) {
+                return Optional.of(variant);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * URL de chaque taille à partir de l'URL de téléchargement de l'original.
+     */
+    public static Map<String, String> urls(String downloadUrl) {
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (ImageVariant variant : values()) {
+            urls.put(variant.key(), downloadUrl + "?size=" + variant.key());
+        }
+        return urls;
+    }
+}
@@ -0,0 +1,146 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.config.AsyncConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Production d'une déclinaison d'image sur le pool {@link AsyncConfig#IMAGE_EXECUTOR} : décodage de l'original
+ * (sous-échantillonné dès la lecture quand il est bien plus grand que la cible), réduction, puis ré-encodage en
+ * JPEG, ou en PNG pour les originaux qui peuvent avoir de la transparence. Ne passer que par
+ * {@link ImageVariantService}, qui évite de produire deux fois la même déclinaison en même temps.
+ */
+@Component
+public class ImageVariantGenerator {
+
+    private final FileStorageService fileStorageService;
+    // Au-delà, l'original n'est pas décodé (une image de quelques Ko peut annoncer des dimensions énormes)
+    private final long maxPixels;
+    private final float jpegQuality;
+
+    public ImageVariantGenerator(FileStorageService fileStorageService,
+                                 @Value("${app.images.max-pixels:50000000}") long maxPixels,
+                                 @Value("${app.images.jpeg-quality:0.82}") float jpegQuality) {
+        this.fileStorageService = fileStorageService;
+        this.maxPixels = maxPixels;
+        this.jpegQuality = jpegQuality;
+    }
+
+    /**
+     * @return l'emplacement de la déclinaison, ou null si l'original a disparu
+     * @throws UndecodableImageException si l'original n'est pas une image lisible par ImageIO (SVG, WebP, JPEG
+     * CMJN...) ou dépasse la limite de pixels : inutile de réessayer
+     * @throws IOException pour toute autre erreur de lecture ou d'écriture, peut-être passagère
+     */
+    @Async(AsyncConfig.IMAGE_EXECUTOR)
+    public CompletableFuture<Path> generate(String fileName, ImageVariant variant, String variantName) throws IOException {
+        // Déjà produite (demande en double, ou contenu identique déjà envoyé)
+        Path existing = fileStorageService.findVariant(fileName, variantName);
+        if (existing != null) {
+            return CompletableFuture.completedFuture(existing);
+        }
+        boolean png = variantName.endsWith(".png");
+        BufferedImage image = read(fileStorageService.loadFileAsResource(fileName).getFile().toPath(),
+                variant.getMaxDimension(), png);
+        return CompletableFuture.completedFuture(fileStorageService.storeVariant(fileName, variantName, out -> {
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+                write(image, png, output);
+            }
+        }));
+    }
+
+    private BufferedImage read(Path source, int maxDimension, boolean keepAlpha) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new UndecodableImageException("no ImageIO reader for " + source.getFileName());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // Dimensions lues dans l'en-tête, sans décoder les pixels
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new UndecodableImageException(width + "x" + height + " pixels, over the limit of " + maxPixels);
+                }
+                int longest = Math.max(width, height);
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Ne décode qu'un pixel sur n, en gardant au moins deux fois la taille cible pour la qualité de la réduction
+                int subsampling = Math.max(1, longest / (maxDimension * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage decoded = reader.read(0, param);
+
+                double scale = Math.min(1.0, (double) maxDimension / longest);
+                int targetWidth = Math.max(1, (int) Math.round(width * scale));
+                int targetHeight = Math.max(1, (int) Math.round(height * scale));
+                return resize(decoded, targetWidth, targetHeight, keepAlpha);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage source, int width, int height, boolean keepAlpha) {
+        BufferedImage target = new BufferedImage(width, height,
+                keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            if (!keepAlpha) {
+                // JPEG sans transparence : fond blanc plutôt que noir
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+            }
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private void write(BufferedImage image, boolean png, ImageOutputStream output) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(png ? "png" : "jpeg").next();
+        try {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (!png) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            }
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * L'original ne pourra jamais être décliné, contrairement à une erreur d'entrée-sortie.
+     */
+    static class UndecodableImageException extends IOException {
+
+        UndecodableImageException(String message) {
+            super(message);
+        }
+    }
+}
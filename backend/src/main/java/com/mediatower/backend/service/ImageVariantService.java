@@ -0,0 +1,132 @@
+package com.mediatower.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mediatower.backend.model.Media;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Déclinaisons des images du catalogue dans les tailles de {@link ImageVariant}, rangées à côté de l'original.
+ * <p>
+ * Toutes les tailles sont lancées à l'upload ({@link #prepare}) sur le pool dédié ; une taille manquante
+ * (pool saturé, image antérieure, déclinaison supprimée) est lancée à la première demande puis gardée.
+ * Une demande n'attend jamais la production : l'original est servi tant que la déclinaison n'est pas prête,
+ * et les demandes simultanées ne lancent qu'une production. Quand une image ne peut pas être déclinée,
+ * l'original est servi.
+ */
+@Service
+public class ImageVariantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+
+    private final ImageVariantGenerator generator;
+    private final FileStorageService fileStorageService;
+    // Productions en cours, par fichier et déclinaison
+    private final ConcurrentMap<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+    // Originaux qu'ImageIO ne sait pas lire ou trop grands : pas de nouveau décodage à chaque requête. Borné, et
+    // oublié au bout d'un moment (nouveau lecteur ImageIO, limite de pixels relevée) ; une erreur passagère n'y entre pas
+    private final Cache<String, Boolean> undecodable;
+
+    public ImageVariantService(ImageVariantGenerator generator, FileStorageService fileStorageService,
+                               @Value("${app.images.undecodable-cache.maximum-size:10000}") long undecodableMaxSize,
+                               @Value("${app.images.undecodable-cache.ttl-hours:24}") long undecodableTtlHours) {
+        this.generator = generator;
+        this.fileStorageService = fileStorageService;
+        this.undecodable = Caffeine.newBuilder()
+                .expireAfterWrite(undecodableTtlHours, TimeUnit.HOURS)
+                .maximumSize(undecodableMaxSize)
+                .build();
+    }
+
+    /**
+     * Lance en arrière-plan la production de toutes les tailles d'une image qui vient d'être enregistrée.
+     */
+    public void prepare(Media media) {
+        for (ImageVariant variant : ImageVariant.values()) {
+            produce(media, variant);
+        }
+    }
+
+    /**
+     * Fichier de la déclinaison demandée s'il est prêt ; sinon null pour servir l'original, et la production est
+     * lancée en arrière-plan si elle ne l'est pas déjà.
+     */
+    public Path variant(Media media, ImageVariant variant) {
+        Path existing = fileStorageService.findVariant(media.getFileName(), variantName(media, variant));
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture<Path> production = produce(media, variant);
+        // Déjà terminée (production lancée par la même demande sur le thread appelant, pool saturé)
+        return production.isDone() && !production.isCompletedExceptionally() ? production.join() : null;
+    }
+
+    /**
+     * Type MIME des déclinaisons d'un média.
+     */
+    public String contentType(Media media) {
+        return keepsAlpha(media) ? "image/png" : "image/jpeg";
+    }
+
+    private CompletableFuture<Path> produce(Media media, ImageVariant variant) {
+        String fileName = media.getFileName();
+        if (undecodable.getIfPresent(fileName) != null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String variantName = variantName(media, variant);
+        String key = fileName + "/" + variantName;
+        CompletableFuture<Path> production = new CompletableFuture<>();
+        CompletableFuture<Path> running = inFlight.putIfAbsent(key, production);
+        if (running != null) {
+            return running;
+        }
+        try {
+            generator.generate(fileName, variant, variantName).whenComplete((path, error) -> {
+                inFlight.remove(key, production);
+                if (error != null) {
+                    failed(fileName, variantName, production, error);
+                } else {
+                    production.complete(path); // null : original disparu, rien à retenir
+                }
+            });
+        } catch (Exception e) {
+            inFlight.remove(key, production);
+            failed(fileName, variantName, production, e);
+        }
+        return production;
+    }
+
+    private void failed(String fileName, String variantName, CompletableFuture<Path> production, Throwable error) {
+        // Exception levée par la méthode @Async : enveloppée par le CompletableFuture du proxy
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof ImageVariantGenerator.UndecodableImageException) {
+            undecodable.put(fileName, Boolean.TRUE);
+            logger.info("Image {} cannot be resized, serving original: {}", fileName, cause.getMessage());
+        } else {
+            logger.warn("Could not generate image variant {} of {}: {}", variantName, fileName, cause.toString());
+        }
+        production.completeExceptionally(cause);
+    }
+
+    private static String variantName(Media media, ImageVariant variant) {
+        return variant.key() + (keepsAlpha(media) ? ".png" : ".jpg");
+    }
+
+    // PNG et GIF peuvent avoir de la transparence : déclinés en PNG, le reste en JPEG
+    private static boolean keepsAlpha(Media media) {
+        String contentType = media.getContentType() != null ? media.getContentType()
+                : MediaTypeFactory.getMediaType(media.getOriginalName()).map(Object::toString).orElse("");
+        return contentType.equals("image/png") || contentType.equals("image/gif");
+    }
+}
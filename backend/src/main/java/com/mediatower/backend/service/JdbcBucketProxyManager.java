@@ -0,0 +1,145 @@
+package com.mediatower.backend.service;
+
+import io.github.bucket4j.distributed.proxy.ClientSideConfig;
+import io.github.bucket4j.distributed.proxy.generic.compare_and_swap.AbstractCompareAndSwapBasedProxyManager;
+import io.github.bucket4j.distributed.proxy.generic.compare_and_swap.AsyncCompareAndSwapOperation;
+import io.github.bucket4j.distributed.proxy.generic.compare_and_swap.CompareAndSwapOperation;
+import io.github.bucket4j.distributed.remote.RemoteBucketState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * ProxyManager bucket4j adossé à la table 'rate_limit_buckets' de la base applicative.
+ * <p>
+ * Chaque consommation fait une lecture puis une écriture conditionnelle (compare-and-swap sur la colonne
+ * 'version') : pas de verrou de ligne, et bucket4j rejoue automatiquement l'opération si un autre nœud
+ * a modifié le bucket entre-temps. Les lignes dont le bucket serait de toute façon plein sont purgées
+ * périodiquement.
+ */
+public class JdbcBucketProxyManager extends AbstractCompareAndSwapBasedProxyManager<String> {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcBucketProxyManager.class);
+
+    private static final String SELECT_SQL = "SELECT state, version FROM rate_limit_buckets WHERE id = ?";
+    private static final String INSERT_SQL = "INSERT INTO rate_limit_buckets (id, state, version, expires_at) VALUES (?, ?, 0, ?)";
+    private static final String UPDATE_SQL = "UPDATE rate_limit_buckets SET state = ?, version = version + 1, expires_at = ? WHERE id = ? AND version = ?";
+    private static final String DELETE_SQL = "DELETE FROM rate_limit_buckets WHERE id = ?";
+    private static final String PURGE_SQL = "DELETE FROM rate_limit_buckets WHERE expires_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcBucketProxyManager(JdbcTemplate jdbcTemplate) {
+        super(ClientSideConfig.getDefault());
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    protected CompareAndSwapOperation beginCompareAndSwapOperation(String key) {
+        // bucket4j réutilise la même opération pour toutes les tentatives d'une commande :
+        // la version lue par getStateData() est celle vérifiée par compareAndSwap() juste après.
+        return new CompareAndSwapOperation() {
+            private long version = -1;
+
+            @Override
+            public Optional<byte[]> getStateData() {
+                List<Row> rows = jdbcTemplate.query(SELECT_SQL,
+                        (rs, i) -> new Row(rs.getBytes("state"), rs.getLong("version")), key);
+                if (rows.isEmpty()) {
+                    version = -1;
+                    return Optional.empty();
+                }
+                version = rows.get(0).version();
+                return Optional.of(rows.get(0).state());
+            }
+
+            @Override
+            public boolean compareAndSwap(byte[] originalData, byte[] newData, RemoteBucketState newState) {
+                long expiresAt = expiresAt(newState);
+                if (originalData == null) {
+                    try {
+                        return jdbcTemplate.update(INSERT_SQL, key, newData, expiresAt) == 1;
+                    } catch (DuplicateKeyException e) {
+                        return false; // Un autre nœud a créé le bucket en premier : bucket4j relit et rejoue
+                    }
+                }
+                return jdbcTemplate.update(UPDATE_SQL, newData, expiresAt, key, version) == 1;
+            }
+        };
+    }
+
+    /**
+     * Variante asynchrone de {@link #beginCompareAndSwapOperation} : JDBC étant bloquant, chaque étape s'exécute
+     * dans le thread appelant et renvoie un future déjà complété (ou en échec). Le budget et la détection des
+     * conflits sont exactement ceux du mode synchrone, le thread n'est simplement pas libéré pendant la requête.
+     */
+    @Override
+    protected AsyncCompareAndSwapOperation beginAsyncCompareAndSwapOperation(String key) {
+        CompareAndSwapOperation operation = beginCompareAndSwapOperation(key);
+        return new AsyncCompareAndSwapOperation() {
+            @Override
+            public CompletableFuture<Optional<byte[]>> getStateData() {
+                return completed(operation::getStateData);
+            }
+
+            @Override
+            public CompletableFuture<Boolean> compareAndSwap(byte[] originalData, byte[] newData, RemoteBucketState newState) {
+                return completed(() -> operation.compareAndSwap(originalData, newData, newState));
+            }
+        };
+    }
+
+    @Override
+    public boolean isAsyncModeSupported() {
+        return true;
+    }
+
+    @Override
+    public void removeProxy(String key) {
+        jdbcTemplate.update(DELETE_SQL, key);
+    }
+
+    @Override
+    protected CompletableFuture<Void> removeAsync(String key) {
+        return completed(() -> {
+            removeProxy(key);
+            return null;
+        });
+    }
+
+    /**
+     * Supprime les buckets entièrement rechargés : les recréer plus tard donne exactement le même état.
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.purge-interval-ms:300000}")
+    public void purgeExpired() {
+        int deleted = jdbcTemplate.update(PURGE_SQL, System.currentTimeMillis());
+        if (deleted > 0) {
+            logger.debug("Purged {} expired rate limit buckets", deleted);
+        }
+    }
+
+    private static long expiresAt(RemoteBucketState state) {
+        long nowMillis = System.currentTimeMillis();
+        long refillNanos = state.calculateFullRefillingTime(TimeUnit.MILLISECONDS.toNanos(nowMillis));
+        return nowMillis + TimeUnit.NANOSECONDS.toMillis(refillNanos);
+    }
+
+    private static <T> CompletableFuture<T> completed(Supplier<T> call) {
+        try {
+            return CompletableFuture.completedFuture(call.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private record Row(byte[] state, long version) {
+    }
+}
@@ -0,0 +1,75 @@
+package com.mediatower.backend.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Curseur opaque de la pagination par clé (keyset) : la clé de tri et l'id de la dernière ligne renvoyée,
+ * préfixés par le nom de la liste pour qu'un curseur ne puisse pas être rejoué sur une autre.
+ * Encodé en Base64 URL ; un curseur illisible donne une erreur 400.
+ */
+final class KeysetCursor {
+
+    static final int DEFAULT_SIZE = 20;
+    static final int MAX_SIZE = 100;
+
+    // Point de départ de la première page (tri décroissant)
+    static final LocalDateTime FIRST_TIMESTAMP = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    static final long FIRST_ID = Long.MAX_VALUE;
+
+    private final LocalDateTime timestamp;
+    private final long id;
+
+    private KeysetCursor(LocalDateTime timestamp, long id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    LocalDateTime timestamp() {
+        return timestamp;
+    }
+
+    long id() {
+        return id;
+    }
+
+    static int pageSize(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return DEFAULT_SIZE;
+        }
+        return Math.min(requested, MAX_SIZE);
+    }
+
+    static String encode(String scope, LocalDateTime timestamp, long id) {
+        String raw = scope + "|" + (timestamp != null ? timestamp : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String encode(String scope, long id) {
+        return encode(scope, null, id);
+    }
+
+    /**
+     * Curseur décodé, ou la position de départ si {@code cursor} est vide.
+     */
+    static KeysetCursor decode(String scope, String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return new KeysetCursor(FIRST_TIMESTAMP, FIRST_ID);
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", -1);
+            if (parts.length != 3 || !scope.equals(parts[0])) {
+                throw new IllegalArgumentException("cursor scope mismatch");
+            }
+            LocalDateTime timestamp = parts[1].isEmpty() ? FIRST_TIMESTAMP : LocalDateTime.parse(parts[1]);
+            return new KeysetCursor(timestamp, Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid pagination cursor");
+        }
+    }
+}
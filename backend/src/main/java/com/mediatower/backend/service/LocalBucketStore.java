@@ -0,0 +1,52 @@
+package com.mediatower.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+
+/**
+ * Stockage borné des buckets bucket4j d'un type de limite (IP, tentatives de connexion...).
+ * <p>
+ * Nombre de clés plafonné (éviction LRU au-delà) et expiration après inactivité : une rotation d'IP
+ * ne peut plus faire grossir le heap sans limite. Une entrée coûte environ 400 octets
+ * (clé + bucket lock-free + nœud Caffeine), soit ~40 Mo pour 100 000 clés.
+ * Le délai d'inactivité doit être au moins égal au temps de recharge complète du bucket, sinon
+ * une entrée expirée serait recréée pleine plus tôt que prévu.
+ */
+public class LocalBucketStore implements BucketStore {
+
+    private final Cache<String, Bucket> buckets;
+
+    public LocalBucketStore(String name, long maximumKeys, Duration idleExpiry, MeterRegistry meterRegistry) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfterAccess(idleExpiry)
+                .recordStats()
+                .build();
+        // cache.size, cache.evictions, cache.gets{result=hit|miss} avec le tag cache=<name>
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, name);
+    }
+
+    public Bucket resolve(String key, Bandwidth limit) {
+        return buckets.get(key, k -> Bucket.builder().addLimit(limit).build());
+    }
+
+    @Override
+    public ConsumptionProbe tryConsume(String key, Bandwidth limit) {
+        return resolve(key, limit).tryConsumeAndReturnRemaining(1);
+    }
+
+    public long estimatedSize() {
+        return buckets.estimatedSize();
+    }
+
+    public void cleanUp() {
+        buckets.cleanUp();
+    }
+}
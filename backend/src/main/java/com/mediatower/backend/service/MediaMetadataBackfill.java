@@ -0,0 +1,79 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.config.AsyncConfig;
+import com.mediatower.backend.model.Media;
+import com.mediatower.backend.repository.MediaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Rattrapage des métadonnées de fichier (type MIME, taille, SHA-256) des médias créés avant leur détection à
+ * l'upload. Lancé au démarrage, par lots de {@value #BATCH_SIZE} ; un média dont le fichier est introuvable est
+ * signalé et laissé tel quel (il garde le type déduit de son nom au téléchargement).
+ */
+@Component
+public class MediaMetadataBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaMetadataBackfill.class);
+
+    private static final int BATCH_SIZE = 100;
+
+    private final MediaRepository mediaRepository;
+    private final FileStorageService fileStorageService;
+    private final ReentrantLock backfillLock = new ReentrantLock();
+
+    public MediaMetadataBackfill(MediaRepository mediaRepository, FileStorageService fileStorageService) {
+        this.mediaRepository = mediaRepository;
+        this.fileStorageService = fileStorageService;
+    }
+
+    @Async(AsyncConfig.DEFAULT_EXECUTOR)
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        backfill();
+    }
+
+    public void backfill() {
+        if (!backfillLock.tryLock()) {
+            return; // Rattrapage déjà en cours
+        }
+        try {
+            long start = System.currentTimeMillis();
+            int filled = 0;
+            int failed = 0;
+            long lastId = 0;
+            while (true) {
+                // Curseur sur l'id : les médias en échec ne sont pas relus dans la même passe
+                List<Media> batch = mediaRepository.findByChecksumIsNullAndIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, BATCH_SIZE));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (Media media : batch) {
+                    lastId = media.getId();
+                    try {
+                        fileStorageService.inspect(media);
+                        mediaRepository.updateFileMetadata(media.getId(), media.getContentType(), media.getContentLength(), media.getChecksum());
+                        filled++;
+                    } catch (RuntimeException e) {
+                        failed++;
+                        logger.warn("Could not backfill file metadata of media {} ({}): {}", media.getId(), media.getFileName(), e.getMessage());
+                    }
+                }
+            }
+            if (filled + failed > 0) {
+                logger.info("Media file metadata backfilled: {} media updated, {} failed in {} ms",
+                        filled, failed, System.currentTimeMillis() - start);
+            }
+        } finally {
+            backfillLock.unlock();
+        }
+    }
+}
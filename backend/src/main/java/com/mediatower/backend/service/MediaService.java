@@ -14,6 +14,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 
 @Component
 public class MediaService {
@@ -22,17 +23,33 @@ public class MediaService {
     private final ProductRepository productRepository;
     private final ServiceRepository serviceRepository;
     private final ProductPackRepository packRepository;
+    private final ProductDetailCache productDetailCache;
+    private final CatalogVersions catalogVersions;
+    private final FileStorageService fileStorageService;
 
-    public MediaService(MediaRepository mediaRepository, ProductRepository productRepository, ServiceRepository serviceRepository, ProductPackRepository packRepository) {
+    public MediaService(MediaRepository mediaRepository, ProductRepository productRepository, ServiceRepository serviceRepository, ProductPackRepository packRepository, ProductDetailCache productDetailCache, CatalogVersions catalogVersions, FileStorageService fileStorageService) {
         this.mediaRepository = mediaRepository;
         this.productRepository = productRepository;
         this.serviceRepository = serviceRepository;
         this.packRepository = packRepository;
+        this.productDetailCache = productDetailCache;
+        this.catalogVersions = catalogVersions;
+        this.fileStorageService = fileStorageService;
     }
 
     public void deleteMedia(Long mediaId) {
         // La suppression est gérée par la cascade, mais on peut ajouter une logique de suppression de fichier ici si besoin
+        Optional<Media> media = mediaRepository.findById(mediaId);
+        Long productId = media
+                .map(Media::getProduct)
+                .map(Product::getId)
+                .orElse(null);
         mediaRepository.deleteById(mediaId);
+        // Le fichier peut être partagé avec d'autres médias (même contenu) : il n'est effacé qu'à la dernière référence
+        media.ifPresent(deleted -> fileStorageService.releaseFile(deleted.getFileName()));
+        productDetailCache.evictAfterCommit(productId);
+        // Le média peut appartenir à un produit ou à un service
+        catalogVersions.bump(CatalogAggregate.PRODUCTS, CatalogAggregate.SERVICES);
     }
 
     @Transactional
@@ -40,6 +57,8 @@ public class MediaService {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         setPrimary(product.getMediaAssets(), mediaIdToSetAsPrimary);
+        productDetailCache.evictAfterCommit(productId);
+        catalogVersions.bump(CatalogAggregate.PRODUCTS);
     }
 
     @Transactional
@@ -47,6 +66,7 @@ public class MediaService {
         Service service = serviceRepository.findById(serviceId)
                 .orElseThrow(() -> new RuntimeException("Service not found"));
         setPrimary(service.getMediaAssets(), mediaIdToSetAsPrimary);
+        catalogVersions.bump(CatalogAggregate.SERVICES);
     }
 
     @Transactional
@@ -2,6 +2,7 @@
 
 package com.mediatower.backend.service;
 
+import com.mediatower.backend.dto.CursorPage;
 import com.mediatower.backend.dto.OrderDto;
 import com.mediatower.backend.dto.OrderItemDto;
 import com.mediatower.backend.dto.PromotionDto;
@@ -14,6 +15,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -27,6 +29,7 @@ import java.util.stream.Collectors;
 @Service
 public class OrderService {
     private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
+    private static final String CURSOR_SCOPE = "orders";
 
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
@@ -34,18 +37,21 @@ public class OrderService {
     private final DeliveryService deliveryService;
     private final PromotionService promotionService;
     private final PromotionRepository promotionRepository;
+    private final ProductPopularityRanking productPopularityRanking;
 
     public OrderService(OrderRepository orderRepository, UserRepository userRepository,
                         ProductRepository productRepository,
                         @Lazy DeliveryService deliveryService,
                         PromotionService promotionService,
-                        PromotionRepository promotionRepository) {
+                        PromotionRepository promotionRepository,
+                        ProductPopularityRanking productPopularityRanking) {
         this.orderRepository = orderRepository;
         this.userRepository = userRepository;
         this.productRepository = productRepository;
         this.deliveryService = deliveryService;
         this.promotionService = promotionService;
         this.promotionRepository = promotionRepository;
+        this.productPopularityRanking = productPopularityRanking;
     }
 
     @Transactional
@@ -155,6 +161,11 @@ public class OrderService {
         logger.info("Order {} status updated to {}.", id, status);
         if (status == OrderStatus.CONFIRMED) {
             logger.info("Order {} confirmed. Triggering delivery process.", id);
+            for (OrderItem item : order.getOrderItems()) {
+                if (item.getProduct() != null) {
+                    productPopularityRanking.recordSaleAfterCommit(item.getId(), item.getProduct().getId(), item.getQuantity());
+                }
+            }
             Order deliveredOrder = deliveryService.processOrderDelivery(order);
             return convertToDto(deliveredOrder);
         }
@@ -166,6 +177,22 @@ public class OrderService {
         return orderRepository.findBySearchTerm(search, pageable).map(this::convertToDto);
     }
 
+    // Variante par curseur : commandes les plus récentes d'abord, (orderDate, id) de la dernière ligne comme position
+    @Transactional(readOnly = true)
+    public CursorPage<OrderDto> getOrdersAfterCursor(String searchTerm, String cursor, Integer size, boolean withTotal) {
+        String search = (searchTerm == null || searchTerm.trim().isEmpty()) ? null : searchTerm;
+        int pageSize = KeysetCursor.pageSize(size);
+        KeysetCursor position = KeysetCursor.decode(CURSOR_SCOPE, cursor);
+
+        List<Order> orders = orderRepository.findBySearchTermBefore(search, position.timestamp(), position.id(), PageRequest.of(0, pageSize + 1));
+        boolean hasNext = orders.size() > pageSize;
+        List<Order> page = hasNext ? orders.subList(0, pageSize) : orders;
+        Order last = page.isEmpty() ? null : page.get(page.size() - 1);
+        String nextCursor = hasNext ? KeysetCursor.encode(CURSOR_SCOPE, last.getOrderDate(), last.getId()) : null;
+        Long total = withTotal ? orderRepository.countBySearchTerm(search) : null;
+        return new CursorPage<>(page.stream().map(this::convertToDto).collect(Collectors.toList()), nextCursor, pageSize, total);
+    }
+
     public OrderDto getOrderById(Long id) {
         return orderRepository.findById(id).map(this::convertToDto)
                 .orElseThrow(() -> new RuntimeException("Order not found with ID: " + id));
@@ -0,0 +1,178 @@
+package com.mediatower.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.mediatower.backend.config.CacheConfig;
+import com.mediatower.backend.dto.ProductDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Cache en lecture seule des fiches produit (GET /api/products/{id}), adossé au cache
+ * {@link CacheConfig#PRODUCT_DETAIL_CACHE} du CacheManager Caffeine.
+ * <p>
+ * Les requêtes concurrentes sur un même id absent attendent un seul chargement. Les évictions sont faites
+ * tout de suite puis rejouées après la fin de la transaction : une lecture qui aurait recopié l'ancien état
+ * avant le commit est retirée. Caffeine bloque l'éviction d'une clé tant qu'elle est en cours de chargement ;
+ * pour les évictions par catégorie ou par tag, un chargement commencé avant l'éviction est refait.
+ * Les chargements groupés ({@link #getAll}) ne sont pas protégés par Caffeine : leurs fiches ne sont mises
+ * en cache que si aucune éviction n'a eu lieu pendant le chargement.
+ * Les produits inexistants ne sont pas mis en cache.
+ */
+@Component
+public class ProductDetailCache {
+
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final Cache<Object, Object> cache;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Timer loadTimer;
+    // Incrémenté à chaque éviction groupée (catégorie, tag)
+    private final AtomicLong bulkEvictions = new AtomicLong();
+    // Incrémenté à chaque éviction, unitaire ou groupée
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ProductDetailCache(CacheManager cacheManager, PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry) {
+        CaffeineCache springCache = (CaffeineCache) Objects.requireNonNull(
+                cacheManager.getCache(CacheConfig.PRODUCT_DETAIL_CACHE), "Product detail cache is not configured");
+        this.cache = springCache.getNativeCache();
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // cache.gets{result=hit|miss} donne le taux de succès
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CacheConfig.PRODUCT_DETAIL_CACHE);
+        this.loadTimer = Timer.builder("product.detail.load")
+                .description("Time to load and convert a product on a cache miss")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public Optional<ProductDto> get(Long productId, Function<Long, Optional<ProductDto>> loader) {
+        if (productId == null) {
+            return Optional.empty();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // Appel depuis une transaction d'écriture : l'appelant doit voir ses propres modifications non commitées
+            return loader.apply(productId);
+        }
+        return Optional.ofNullable((ProductDto) cache.get(productId, key -> load(productId, loader)));
+    }
+
+    /**
+     * Fiches des produits demandés, dans l'ordre des ids (produits inexistants omis). Les fiches absentes
+     * du cache sont chargées ensemble par {@code loader}.
+     */
+    public List<ProductDto> getAll(List<Long> productIds, Function<List<Long>, List<ProductDto>> loader) {
+        if (productIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return loader.apply(productIds);
+        }
+        long generation = evictions.get();
+        Map<Object, Object> found = new HashMap<>(cache.getAllPresent(productIds));
+        List<Long> missing = productIds.stream().filter(id -> !found.containsKey(id)).distinct().collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            loadAll(missing, loader).forEach((id, dto) -> {
+                found.put(id, dto);
+                // Publiée seulement si aucune éviction n'a eu lieu depuis le début du chargement. compute est
+                // atomique face à invalidate : la fiche n'est jamais visible, même un instant, après son éviction.
+                cache.asMap().compute(id, (key, cached) -> cached != null || generation != evictions.get() ? cached : dto);
+            });
+        }
+        return productIds.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .map(ProductDto.class::cast)
+                .collect(Collectors.toList());
+    }
+
+    public void evictAfterCommit(Long productId) {
+        if (productId != null) {
+            evictNowAndAfterCompletion(() -> {
+                evictions.incrementAndGet();
+                cache.invalidate(productId);
+            });
+        }
+    }
+
+    public void evictCategoryAfterCommit(Long categoryId) {
+        if (categoryId != null) {
+            evictNowAndAfterCompletion(() -> evictMatching(dto -> categoryId.equals(dto.getCategoryId())));
+        }
+    }
+
+    public void evictTagAfterCommit(Long tagId) {
+        if (tagId != null) {
+            evictNowAndAfterCompletion(() -> evictMatching(dto -> dto.getTagIds() != null && dto.getTagIds().contains(tagId)));
+        }
+    }
+
+    private ProductDto load(Long productId, Function<Long, Optional<ProductDto>> loader) {
+        return loadTimer.record(() -> {
+            for (int attempt = 1; ; attempt++) {
+                long generation = bulkEvictions.get();
+                // Transaction dédiée : chaque tentative relit l'état commité
+                ProductDto dto = readOnlyTransaction.execute(status -> loader.apply(productId).map(ProductDetailCache::detach).orElse(null));
+                if (generation == bulkEvictions.get() || attempt == MAX_LOAD_ATTEMPTS) {
+                    return dto;
+                }
+            }
+        });
+    }
+
+    private Map<Object, Object> loadAll(List<Long> ids, Function<List<Long>, List<ProductDto>> loader) {
+        return loadTimer.record(() -> readOnlyTransaction.execute(status -> {
+            Map<Object, Object> loaded = new HashMap<>();
+            loader.apply(ids).forEach(dto -> loaded.put(dto.getId(), detach(dto)));
+            return loaded;
+        }));
+    }
+
+    private void evictMatching(Predicate<ProductDto> predicate) {
+        bulkEvictions.incrementAndGet();
+        evictions.incrementAndGet();
+        cache.asMap().values().removeIf(value -> predicate.test((ProductDto) value));
+    }
+
+    private static void evictNowAndAfterCompletion(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.run();
+                }
+            });
+        }
+    }
+
+    // Les maps de noms et descriptions sont celles de l'entité : on les recopie pour ne rien garder de la session
+    private static ProductDto detach(ProductDto dto) {
+        if (dto.getNames() != null) {
+            dto.setNames(new HashMap<>(dto.getNames()));
+        }
+        if (dto.getDescriptions() != null) {
+            dto.setDescriptions(new HashMap<>(dto.getDescriptions()));
+        }
+        return dto;
+    }
+}
@@ -0,0 +1,429 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.config.AsyncConfig;
+import com.mediatower.backend.model.Product;
+import com.mediatower.backend.model.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Index de facettes du catalogue (/api/products/facets) : un bitmap de produits par catégorie, par tag,
+ * par niveau de stock (mêmes seuils que le filtre stockStatus du catalogue) et par tranche de prix.
+ * <p>
+ * Chaque produit occupe une position (bit) attribuée dans l'ordre des ids : parcourir un bitmap depuis
+ * la fin donne les produits les plus récents d'abord, comme le catalogue. Un filtre est un OU des valeurs
+ * cochées dans une facette et un ET entre facettes. Le nombre affiché à côté d'une valeur est calculé avec
+ * les filtres des autres facettes seulement, pour que cocher une deuxième catégorie reste possible.
+ * <p>
+ * Construit au démarrage puis reconstruit toutes les {@code rebuild-interval-ms} (positions des produits
+ * supprimés libérées, écritures des autres nœuds) ; entre-temps, tenu à jour après commit par
+ * ProductService et TagService. Les mises à jour reçues pendant une reconstruction sont rejouées : elles
+ * remplacent l'état d'un produit, les rejouer est sans effet si la reconstruction les a déjà vues.
+ */
+@Component
+public class ProductFacetIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductFacetIndex.class);
+
+    public static final String CATEGORY = "category";
+    public static final String TAG = "tag";
+    public static final String STOCK = "stock";
+    public static final String PRICE = "price";
+
+    private static final List<String> STOCK_BUCKETS = List.of("instock", "lowstock", "outofstock");
+    private static final int LOW_STOCK_THRESHOLD = 10;
+    private static final int NO_BUCKET = -1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BigDecimal[] priceBounds;
+    private final List<String> priceBands;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Protégés par 'lock'
+    private Bitmaps bitmaps;
+    private boolean ready;
+    private List<Consumer<Bitmaps>> updatesDuringRebuild;
+
+    public ProductFacetIndex(JdbcTemplate jdbcTemplate,
+                             @Value("${app.facets.price-bands:10,25,50,100}") List<BigDecimal> priceBounds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.priceBounds = priceBounds.stream().sorted().toArray(BigDecimal[]::new);
+        List<String> bands = new ArrayList<>();
+        BigDecimal lower = BigDecimal.ZERO;
+        for (BigDecimal bound : this.priceBounds) {
+            bands.add(lower.toPlainString() + "-" + bound.toPlainString());
+            lower = bound;
+        }
+        bands.add(lower.toPlainString() + "+");
+        this.priceBands = List.copyOf(bands);
+        this.bitmaps = new Bitmaps();
+    }
+
+    @Async(AsyncConfig.DEFAULT_EXECUTOR)
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${app.facets.rebuild-interval-ms:3600000}",
+            initialDelayString = "${app.facets.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        if (!rebuildLock.tryLock()) {
+            return; // Reconstruction déjà en cours
+        }
+        try {
+            long start = System.currentTimeMillis();
+            withWriteLock(() -> updatesDuringRebuild = new ArrayList<>());
+            Map<Long, ProductFacets> products = loadAll();
+            Bitmaps built = new Bitmaps();
+            products.values().forEach(built::put);
+
+            withWriteLock(() -> {
+                updatesDuringRebuild.forEach(update -> update.accept(built));
+                updatesDuringRebuild = null;
+                bitmaps = built;
+                ready = true;
+            });
+            logger.info("Product facet index built: {} products, {} categories, {} tags in {} ms",
+                    products.size(), built.categories.size(), built.tags.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            withWriteLock(() -> updatesDuringRebuild = null);
+            logger.error("Product facet index rebuild failed: {}", e.getMessage(), e);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return ready;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Produits correspondant à la sélection (les plus récents d'abord, à partir de {@code offset}) et
+     * nombre de produits de chaque valeur de facette.
+     */
+    public Result query(Selection selection, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            return bitmaps.query(selection, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Indexe (ou ré-indexe) le produit après le commit. Doit être appelé dans la transaction :
+     * catégorie, tags, stock et prix sont copiés immédiatement.
+     */
+    public void indexAfterCommit(Product product) {
+        long[] tagIds = product.getTags() == null ? new long[0]
+                : product.getTags().stream().map(Tag::getId).mapToLong(Long::longValue).sorted().toArray();
+        ProductFacets facets = new ProductFacets(product.getId(),
+                product.getCategory() != null ? product.getCategory().getId() : null,
+                tagIds, stockBucket(product.getStock()), priceBand(product.getPrice()));
+        afterCommit(() -> apply(target -> target.put(facets)));
+    }
+
+    public void removeAfterCommit(Long productId) {
+        afterCommit(() -> apply(target -> target.remove(productId)));
+    }
+
+    // Les produits perdent le tag supprimé (la table de jointure est vidée par la base)
+    public void removeTagAfterCommit(Long tagId) {
+        afterCommit(() -> apply(target -> target.removeTag(tagId)));
+    }
+
+    private void apply(Consumer<Bitmaps> update) {
+        lock.writeLock().lock();
+        try {
+            update.accept(bitmaps);
+            if (updatesDuringRebuild != null) {
+                // Rejouée sur l'index en construction au moment de le publier
+                updatesDuringRebuild.add(update);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private Map<Long, ProductFacets> loadAll() {
+        Map<Long, ProductFacets> products = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT id, category_id, stock, price FROM products ORDER BY id", rs -> {
+            long id = rs.getLong("id");
+            long categoryId = rs.getLong("category_id");
+            Long category = rs.wasNull() ? null : categoryId;
+            int stock = rs.getInt("stock");
+            Integer stockValue = rs.wasNull() ? null : stock;
+            products.put(id, new ProductFacets(id, category, new long[0], stockBucket(stockValue), priceBand(rs.getBigDecimal("price"))));
+        });
+        Map<Long, List<Long>> tagsByProduct = new HashMap<>();
+        jdbcTemplate.query("SELECT product_id, tag_id FROM product_tags", rs -> {
+            tagsByProduct.computeIfAbsent(rs.getLong("product_id"), k -> new ArrayList<>()).add(rs.getLong("tag_id"));
+        });
+        tagsByProduct.forEach((productId, tagIds) -> products.computeIfPresent(productId, (id, facets) ->
+                facets.withTags(tagIds.stream().mapToLong(Long::longValue).sorted().toArray())));
+        return products;
+    }
+
+    private static int stockBucket(Integer stock) {
+        if (stock == null || stock < 0) {
+            return NO_BUCKET;
+        }
+        return stock > LOW_STOCK_THRESHOLD ? 0 : stock > 0 ? 1 : 2;
+    }
+
+    private int priceBand(BigDecimal price) {
+        if (price == null) {
+            return NO_BUCKET;
+        }
+        int band = 0;
+        while (band < priceBounds.length && price.compareTo(priceBounds[band]) >= 0) {
+            band++;
+        }
+        return band;
+    }
+
+    /**
+     * Valeurs cochées par facette ; une facette vide (ou null) ne filtre pas.
+     * Une valeur inconnue (catégorie sans produit, libellé erroné) ne correspond à aucun produit.
+     */
+    public record Selection(Set<Long> categoryIds, Set<Long> tagIds, Set<String> stockBuckets, Set<String> priceBands) {
+    }
+
+    /**
+     * @param facets facette -> valeur (id ou libellé) -> nombre de produits
+     */
+    public record Result(List<Long> productIds, long total, Map<String, Map<String, Long>> facets) {
+    }
+
+    private record ProductFacets(long productId, Long categoryId, long[] tagIds, int stockBucket, int priceBand) {
+        ProductFacets withTags(long[] tags) {
+            return new ProductFacets(productId, categoryId, tags, stockBucket, priceBand);
+        }
+    }
+
+    /**
+     * Bitmaps d'une génération de l'index. Les positions des produits supprimés restent libres jusqu'à la
+     * reconstruction suivante.
+     */
+    private final class Bitmaps {
+        final Map<Long, Integer> slots = new HashMap<>();
+        ProductFacets[] bySlot = new ProductFacets[1024];
+        int nextSlot;
+        final BitSet alive = new BitSet();
+        final Map<Long, BitSet> categories = new TreeMap<>();
+        final Map<Long, BitSet> tags = new TreeMap<>();
+        final BitSet[] stock = newBitSets(STOCK_BUCKETS.size());
+        final BitSet[] prices = newBitSets(priceBands.size());
+
+        void put(ProductFacets facets) {
+            Integer slot = slots.get(facets.productId());
+            if (slot != null) {
+                clear(slot);
+            } else {
+                slot = nextSlot++;
+                if (slot == bySlot.length) {
+                    bySlot = Arrays.copyOf(bySlot, bySlot.length * 2);
+                }
+                slots.put(facets.productId(), slot);
+            }
+            bySlot[slot] = facets;
+            alive.set(slot);
+            if (facets.categoryId() != null) {
+                categories.computeIfAbsent(facets.categoryId(), k -> new BitSet()).set(slot);
+            }
+            for (long tagId : facets.tagIds()) {
+                tags.computeIfAbsent(tagId, k -> new BitSet()).set(slot);
+            }
+            if (facets.stockBucket() != NO_BUCKET) {
+                stock[facets.stockBucket()].set(slot);
+            }
+            if (facets.priceBand() != NO_BUCKET) {
+                prices[facets.priceBand()].set(slot);
+            }
+        }
+
+        void remove(Long productId) {
+            Integer slot = slots.remove(productId);
+            if (slot != null) {
+                clear(slot);
+                bySlot[slot] = null;
+            }
+        }
+
+        void removeTag(Long tagId) {
+            BitSet tagged = tags.remove(tagId);
+            if (tagged == null) {
+                return;
+            }
+            for (int slot = tagged.nextSetBit(0); slot >= 0; slot = tagged.nextSetBit(slot + 1)) {
+                ProductFacets facets = bySlot[slot];
+                bySlot[slot] = facets.withTags(Arrays.stream(facets.tagIds()).filter(id -> id != tagId).toArray());
+            }
+        }
+
+        private void clear(int slot) {
+            ProductFacets previous = bySlot[slot];
+            alive.clear(slot);
+            if (previous.categoryId() != null) {
+                clearAndDropIfEmpty(categories, previous.categoryId(), slot);
+            }
+            for (long tagId : previous.tagIds()) {
+                clearAndDropIfEmpty(tags, tagId, slot);
+            }
+            if (previous.stockBucket() != NO_BUCKET) {
+                stock[previous.stockBucket()].clear(slot);
+            }
+            if (previous.priceBand() != NO_BUCKET) {
+                prices[previous.priceBand()].clear(slot);
+            }
+        }
+
+        Result query(Selection selection, int offset, int limit) {
+            // Filtre de chaque facette (null : pas de filtre), dans l'ordre CATEGORY, TAG, STOCK, PRICE
+            BitSet[] filters = {
+                    union(selection.categoryIds(), categories::get),
+                    union(selection.tagIds(), tags::get),
+                    union(selection.stockBuckets(), label -> bucket(stock, STOCK_BUCKETS, label)),
+                    union(selection.priceBands(), label -> bucket(prices, priceBands, label))
+            };
+
+            BitSet matches = excluding(filters, -1);
+            List<Long> productIds = new ArrayList<>(Math.max(0, limit));
+            int skipped = 0;
+            for (int slot = matches.length() - 1; slot >= 0 && productIds.size() < limit; slot = matches.previousSetBit(slot - 1)) {
+                if (skipped++ >= offset) {
+                    productIds.add(bySlot[slot].productId());
+                }
+            }
+
+            Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+            facets.put(CATEGORY, counts(excluding(filters, 0), categories));
+            facets.put(TAG, counts(excluding(filters, 1), tags));
+            facets.put(STOCK, counts(excluding(filters, 2), STOCK_BUCKETS, stock));
+            facets.put(PRICE, counts(excluding(filters, 3), priceBands, prices));
+            return new Result(productIds, matches.cardinality(), facets);
+        }
+
+        // Produits vivants passant tous les filtres sauf celui d'indice 'skipped'
+        private BitSet excluding(BitSet[] filters, int skipped) {
+            BitSet result = (BitSet) alive.clone();
+            for (int i = 0; i < filters.length; i++) {
+                if (i != skipped && filters[i] != null) {
+                    result.and(filters[i]);
+                }
+            }
+            return result;
+        }
+
+        private <K> BitSet union(Collection<K> values, Function<K, BitSet> bitmapOf) {
+            if (values == null || values.isEmpty()) {
+                return null;
+            }
+            BitSet union = new BitSet();
+            for (K value : values) {
+                BitSet bitmap = bitmapOf.apply(value);
+                if (bitmap != null) {
+                    union.or(bitmap);
+                }
+            }
+            return union;
+        }
+
+        private Map<String, Long> counts(BitSet base, Map<Long, BitSet> bitmapsById) {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            bitmapsById.forEach((id, bitmap) -> counts.put(id.toString(), intersectionSize(base, bitmap)));
+            return counts;
+        }
+
+        private Map<String, Long> counts(BitSet base, List<String> labels, BitSet[] bitmapsByLabel) {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (int i = 0; i < labels.size(); i++) {
+                counts.put(labels.get(i), intersectionSize(base, bitmapsByLabel[i]));
+            }
+            return counts;
+        }
+    }
+
+    private static BitSet bucket(BitSet[] bitmaps, List<String> labels, String label) {
+        int index = labels.indexOf(label);
+        return index < 0 ? null : bitmaps[index];
+    }
+
+    private static long intersectionSize(BitSet a, BitSet b) {
+        BitSet intersection = (BitSet) a.clone();
+        intersection.and(b);
+        return intersection.cardinality();
+    }
+
+    private static void clearAndDropIfEmpty(Map<Long, BitSet> bitmapsById, Long id, int slot) {
+        BitSet bitmap = bitmapsById.get(id);
+        if (bitmap != null) {
+            bitmap.clear(slot);
+            if (bitmap.isEmpty()) {
+                bitmapsById.remove(id);
+            }
+        }
+    }
+
+    private static BitSet[] newBitSets(int count) {
+        BitSet[] bitSets = new BitSet[count];
+        for (int i = 0; i < count; i++) {
+            bitSets[i] = new BitSet();
+        }
+        return bitSets;
+    }
+}
@@ -107,6 +107,9 @@ public class ProductPackService {
         mediaDto.setType(media.getType().name());
         mediaDto.setUrl(baseUrl + media.getFileName());
         mediaDto.setPrimary(media.isPrimary());
+        if (media.getType() == MediaType.IMAGE) {
+            mediaDto.setVariants(ImageVariant.urls(mediaDto.getUrl()));
+        }
         return mediaDto;
     }
 
@@ -0,0 +1,346 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.config.AsyncConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Classement des produits les plus populaires (/api/products/popular), tenu en mémoire.
+ * <p>
+ * Chaque vente (confirmation de commande) et chaque téléchargement ajoute un poids qui décroît de moitié
+ * toutes les {@code half-life-days}. La décroissance est appliquée « vers l'avant » : un événement à
+ * l'instant t vaut poids * 2^((t - base) / demi-vie). Tous les scores vieillissent au même rythme, l'ordre
+ * ne change donc que lorsqu'un événement arrive, et les scores ne font qu'augmenter : un tas minimum des
+ * {@code capacity} meilleurs produits reste exact avec une mise à jour en O(log K).
+ * <p>
+ * Les lecteurs lisent un tableau trié publié après chaque mise à jour, sans verrou. Le classement est
+ * reconstruit depuis la base au démarrage puis toutes les {@code rebuild-interval-ms} (nouvelle base de
+ * temps, produits supprimés, commandes annulées) ; les événements reçus pendant la reconstruction sont
+ * rejoués sur le nouveau classement, sauf ceux que les requêtes ont déjà lus : chaque événement désigne sa
+ * ligne (ligne de commande, ou accès produit avec son compteur de téléchargements après l'événement).
+ */
+@Component
+public class ProductPopularityRanking {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductPopularityRanking.class);
+
+    private static final String SALES_SQL = "SELECT oi.id, oi.product_id, o.order_date, oi.quantity FROM order_items oi " +
+            "JOIN orders o ON o.id = oi.order_id " +
+            "WHERE oi.product_id IS NOT NULL AND o.status IN ('CONFIRMED', 'PROCESSING', 'SHIPPED', 'DELIVERED') " +
+            "AND o.order_date >= ?";
+    // Pas d'historique des téléchargements : le compteur est daté de son dernier téléchargement
+    private static final String DOWNLOADS_SQL = "SELECT id, product_id, download_count, last_download_at FROM user_product_access " +
+            "WHERE download_count > 0 AND last_download_at >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int capacity;
+    private final double halfLifeMillis;
+    private final Duration lookback;
+    private final double saleWeight;
+    private final double downloadWeight;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    // Protégés par le moniteur de l'instance
+    private Ranking ranking;
+    private List<Event> eventsDuringRebuild;
+
+    private volatile long[] topProductIds = new long[0];
+    private volatile boolean ready;
+
+    public ProductPopularityRanking(JdbcTemplate jdbcTemplate,
+                                    @Value("${app.popularity.capacity:50}") int capacity,
+                                    @Value("${app.popularity.half-life-days:7}") double halfLifeDays,
+                                    @Value("${app.popularity.lookback-days:60}") long lookbackDays,
+                                    @Value("${app.popularity.sale-weight:1.0}") double saleWeight,
+                                    @Value("${app.popularity.download-weight:0.2}") double downloadWeight) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.capacity = capacity;
+        this.halfLifeMillis = halfLifeDays * Duration.ofDays(1).toMillis();
+        this.lookback = Duration.ofDays(lookbackDays);
+        this.saleWeight = saleWeight;
+        this.downloadWeight = downloadWeight;
+        this.ranking = new Ranking(System.currentTimeMillis());
+    }
+
+    @Async(AsyncConfig.DEFAULT_EXECUTOR)
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${app.popularity.rebuild-interval-ms:21600000}",
+            initialDelayString = "${app.popularity.rebuild-interval-ms:21600000}")
+    public void rebuild() {
+        if (!rebuildLock.tryLock()) {
+            return; // Reconstruction déjà en cours
+        }
+        try {
+            long start = System.currentTimeMillis();
+            synchronized (this) {
+                eventsDuringRebuild = new ArrayList<>();
+            }
+            Ranking built = new Ranking(start);
+            Timestamp since = new Timestamp(start - lookback.toMillis());
+            // Lignes lues : un événement commité avant leur lecture y est déjà compté
+            Set<Long> countedOrderItems = new HashSet<>();
+            Map<Long, Integer> countedDownloads = new HashMap<>();
+            jdbcTemplate.query(SALES_SQL, rs -> {
+                countedOrderItems.add(rs.getLong("id"));
+                built.add(rs.getLong("product_id"), saleWeight * rs.getInt("quantity"), rs.getTimestamp("order_date").getTime());
+            }, since);
+            jdbcTemplate.query(DOWNLOADS_SQL, rs -> {
+                countedDownloads.put(rs.getLong("id"), rs.getInt("download_count"));
+                built.add(rs.getLong("product_id"), downloadWeight * rs.getInt("download_count"), rs.getTimestamp("last_download_at").getTime());
+            }, since);
+
+            synchronized (this) {
+                eventsDuringRebuild.stream()
+                        .filter(event -> event.sale()
+                                ? !countedOrderItems.contains(event.rowId())
+                                : countedDownloads.getOrDefault(event.rowId(), 0) < event.downloadCount())
+                        .forEach(event -> built.add(event.productId(), event.weight(), event.atMillis()));
+                eventsDuringRebuild = null;
+                ranking = built;
+                topProductIds = built.heap.sortedIds();
+                ready = true;
+            }
+            logger.info("Popularity ranking rebuilt: {} scored products in {} ms",
+                    built.scores.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            synchronized (this) {
+                eventsDuringRebuild = null;
+            }
+            logger.error("Popularity ranking rebuild failed: {}", e.getMessage(), e);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Les {@code limit} produits les plus populaires, du plus au moins populaire (au plus {@code capacity}).
+     */
+    public List<Long> top(int limit) {
+        long[] ids = topProductIds;
+        int count = Math.min(Math.max(limit, 0), ids.length);
+        List<Long> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(ids[i]);
+        }
+        return result;
+    }
+
+    public void recordSaleAfterCommit(Long orderItemId, Long productId, int quantity) {
+        if (orderItemId != null && productId != null && quantity > 0) {
+            afterCommit(new Event(productId, saleWeight * quantity, System.currentTimeMillis(), true, orderItemId, 0));
+        }
+    }
+
+    /**
+     * @param downloadCount compteur de téléchargements de l'accès, ce téléchargement compris
+     */
+    public void recordDownloadAfterCommit(Long accessId, Long productId, int downloadCount) {
+        if (accessId != null && productId != null) {
+            afterCommit(new Event(productId, downloadWeight, System.currentTimeMillis(), false, accessId, downloadCount));
+        }
+    }
+
+    public void removeAfterCommit(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        runAfterCommit(() -> {
+            synchronized (this) {
+                ranking.remove(productId);
+                topProductIds = ranking.heap.sortedIds();
+            }
+        });
+    }
+
+    private void afterCommit(Event event) {
+        runAfterCommit(() -> record(event));
+    }
+
+    private synchronized void record(Event event) {
+        ranking.add(event.productId(), event.weight(), event.atMillis());
+        if (eventsDuringRebuild != null) {
+            eventsDuringRebuild.add(event);
+        }
+        topProductIds = ranking.heap.sortedIds();
+    }
+
+    private static void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // rowId : ligne de commande (vente) ou accès produit (téléchargement)
+    private record Event(long productId, double weight, long atMillis, boolean sale, long rowId, int downloadCount) {
+    }
+
+    /**
+     * Scores d'une période (base de temps fixée à la reconstruction) et tas des meilleurs produits.
+     */
+    private final class Ranking {
+        final long baseMillis;
+        final Map<Long, Double> scores = new HashMap<>();
+        final TopKHeap heap = new TopKHeap(capacity);
+
+        Ranking(long baseMillis) {
+            this.baseMillis = baseMillis;
+        }
+
+        void add(long productId, double weight, long atMillis) {
+            double decayed = weight * Math.pow(2, (atMillis - baseMillis) / halfLifeMillis);
+            double score = scores.merge(productId, decayed, Double::sum);
+            heap.offer(productId, score);
+        }
+
+        void remove(long productId) {
+            scores.remove(productId);
+            if (heap.remove(productId)) {
+                // Une place s'est libérée : on reprend le meilleur produit hors du tas (suppression rare)
+                scores.entrySet().stream()
+                        .filter(entry -> !heap.contains(entry.getKey()))
+                        .max(Map.Entry.comparingByValue())
+                        .ifPresent(entry -> heap.offer(entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Tas minimum indexé : la racine est le moins bon des K retenus, remplacée quand un meilleur score arrive.
+     */
+    private static final class TopKHeap {
+        private final long[] ids;
+        private final double[] scores;
+        private final Map<Long, Integer> positions = new HashMap<>();
+        private int size;
+
+        TopKHeap(int capacity) {
+            this.ids = new long[capacity];
+            this.scores = new double[capacity];
+        }
+
+        boolean contains(long productId) {
+            return positions.containsKey(productId);
+        }
+
+        // Les scores ne font qu'augmenter : un produit déjà présent ne peut que descendre vers les feuilles
+        void offer(long productId, double score) {
+            Integer position = positions.get(productId);
+            if (position != null) {
+                scores[position] = score;
+                siftDown(position);
+            } else if (size < ids.length) {
+                set(size, productId, score);
+                siftUp(size++);
+            } else if (size > 0 && score > scores[0]) {
+                positions.remove(ids[0]);
+                set(0, productId, score);
+                siftDown(0);
+            }
+        }
+
+        boolean remove(long productId) {
+            Integer position = positions.remove(productId);
+            if (position == null) {
+                return false;
+            }
+            size--;
+            if (position < size) {
+                set(position, ids[size], scores[size]);
+                siftDown(position);
+                siftUp(position);
+            }
+            return true;
+        }
+
+        long[] sortedIds() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+            long[] sorted = new long[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = ids[order[i]];
+            }
+            return sorted;
+        }
+
+        private void siftUp(int position) {
+            while (position > 0) {
+                int parent = (position - 1) / 2;
+                if (scores[parent] <= scores[position]) {
+                    return;
+                }
+                swap(parent, position);
+                position = parent;
+            }
+        }
+
+        private void siftDown(int position) {
+            while (true) {
+                int smallest = position;
+                int left = 2 * position + 1;
+                int right = left + 1;
+                if (left < size && scores[left] < scores[smallest]) {
+                    smallest = left;
+                }
+                if (right < size && scores[right] < scores[smallest]) {
+                    smallest = right;
+                }
+                if (smallest == position) {
+                    return;
+                }
+                swap(position, smallest);
+                position = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long id = ids[a];
+            double score = scores[a];
+            set(a, ids[b], scores[b]);
+            set(b, id, score);
+        }
+
+        private void set(int position, long productId, double score) {
+            ids[position] = productId;
+            scores[position] = score;
+            positions.put(productId, position);
+        }
+    }
+}
@@ -0,0 +1,465 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.config.AsyncConfig;
+import com.mediatower.backend.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index inversé en mémoire des noms et descriptions (en / fr) des produits.
+ * <p>
+ * Remplace le LIKE '%terme%' (parcours complet de product_names à chaque frappe) pour /api/products/search :
+ * <ul>
+ *     <li>texte normalisé par {@link TextAnalyzer} (accents, casse, mots vides) ;</li>
+ *     <li>dernier mot de la requête complété par préfixe ('casq' -> 'casque') ;</li>
+ *     <li>tolérance aux fautes : 1 erreur dès 4 lettres, 2 dès 8 ;</li>
+ *     <li>classement BM25, le nom pesant {@value #NAME_WEIGHT} fois plus que la description.</li>
+ * </ul>
+ * Construit au démarrage depuis la base, puis tenu à jour après commit par ProductService (création,
+ * modification, suppression). Une modification retire l'ancien document et en ajoute un nouveau ; les documents
+ * retirés restent en place jusqu'au compactage, qui renumérote les documents vivants et purge les listes.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final List<String> LANGUAGES = List.of("en", "fr");
+    private static final int NAME_WEIGHT = 3;
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final float PREFIX_FACTOR = 0.7f;
+    private static final float FUZZY_FACTOR = 0.5f;
+    private static final int MAX_EXPANSIONS = 50;
+    private static final int COMPACTION_MIN_DEAD = 1_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Protégés par 'lock'
+    private Segment segment = new Segment();
+    private boolean ready;
+    private final List<Runnable> updatesDuringBuild = new ArrayList<>();
+
+    public ProductSearchIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Async(AsyncConfig.DEFAULT_EXECUTOR)
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Segment built = new Segment();
+        Map<Long, ProductText> products = loadAll();
+        products.values().forEach(built::add);
+
+        lock.writeLock().lock();
+        try {
+            segment = built;
+            ready = true;
+            // Modifications commitées pendant la construction : rejouées sur le nouvel index
+            updatesDuringBuild.forEach(Runnable::run);
+            updatesDuringBuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Product search index built: {} products, {} terms in {} ms",
+                products.size(), built.terms.size(), System.currentTimeMillis() - start);
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return ready;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Indexe (ou ré-indexe) le produit après le commit de la transaction en cours.
+     * Doit être appelé dans la transaction : les noms et descriptions sont copiés immédiatement.
+     */
+    public void indexAfterCommit(Product product) {
+        ProductText text = new ProductText(product.getId(),
+                product.getCategory() != null ? product.getCategory().getId() : null,
+                product.getPrice(),
+                product.getNames() != null ? new HashMap<>(product.getNames()) : Map.of(),
+                product.getDescriptions() != null ? new HashMap<>(product.getDescriptions()) : Map.of());
+        afterCommit(() -> apply(() -> {
+            segment.remove(text.id());
+            segment.add(text);
+        }));
+    }
+
+    public void removeAfterCommit(Long productId) {
+        afterCommit(() -> apply(() -> segment.remove(productId)));
+    }
+
+    /**
+     * Taille de l'index courant (compteurs internes, pour les tests).
+     */
+    IndexStats stats() {
+        lock.readLock().lock();
+        try {
+            return new IndexStats(segment.docs.size(), segment.docIdByProduct.size(), segment.terms.size(),
+                    segment.livePostings, segment.deadPostings);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * IDs des produits correspondant à la requête, du plus pertinent au moins pertinent.
+     * Sans texte, renvoie les produits filtrés, les plus récents d'abord.
+     */
+    public List<Long> search(String query, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice, int limit) {
+        List<String> tokens = TextAnalyzer.queryTokens(query);
+        lock.readLock().lock();
+        try {
+            return segment.search(tokens, new Filter(categoryId, minPrice, maxPrice), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Runnable update) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                updatesDuringBuild.add(update);
+                return;
+            }
+            update.run();
+            segment.compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private Map<Long, ProductText> loadAll() {
+        Map<Long, ProductText> products = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT id, category_id, price FROM products ORDER BY id", rs -> {
+            long id = rs.getLong("id");
+            long categoryId = rs.getLong("category_id");
+            products.put(id, new ProductText(id, rs.wasNull() ? null : categoryId, rs.getBigDecimal("price"),
+                    new HashMap<>(), new HashMap<>()));
+        });
+        jdbcTemplate.query("SELECT product_id, language_code, name FROM product_names", rs -> {
+            ProductText text = products.get(rs.getLong("product_id"));
+            if (text != null) {
+                text.names().put(rs.getString("language_code"), rs.getString("name"));
+            }
+        });
+        jdbcTemplate.query("SELECT product_id, language_code, description FROM product_descriptions", rs -> {
+            ProductText text = products.get(rs.getLong("product_id"));
+            if (text != null) {
+                text.descriptions().put(rs.getString("language_code"), rs.getString("description"));
+            }
+        });
+        return products;
+    }
+
+    /**
+     * @param slots documents numérotés, retirés compris (taille des tableaux parcourus par une recherche)
+     */
+    record IndexStats(int slots, int liveDocs, int terms, long livePostings, long deadPostings) {
+    }
+
+    private record ProductText(Long id, Long categoryId, BigDecimal price,
+                               Map<String, String> names, Map<String, String> descriptions) {
+    }
+
+    private record Filter(Long categoryId, BigDecimal minPrice, BigDecimal maxPrice) {
+        boolean accepts(Doc doc) {
+            if (categoryId != null && !categoryId.equals(doc.categoryId)) {
+                return false;
+            }
+            if (minPrice != null && (doc.price == null || doc.price.compareTo(minPrice) < 0)) {
+                return false;
+            }
+            return maxPrice == null || (doc.price != null && doc.price.compareTo(maxPrice) <= 0);
+        }
+    }
+
+    private static final class Doc {
+        final long productId;
+        final Long categoryId;
+        final BigDecimal price;
+        final int length;
+        final String[] terms; // termes distincts (instances du dictionnaire), pour la suppression
+
+        Doc(long productId, Long categoryId, BigDecimal price, int length, String[] terms) {
+            this.productId = productId;
+            this.categoryId = categoryId;
+            this.price = price;
+            this.length = length;
+            this.terms = terms;
+        }
+    }
+
+    /**
+     * Liste d'occurrences d'un terme : identifiants de documents et fréquences pondérées.
+     */
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] freqs = new int[4];
+        int size;
+        int liveCount;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+            liveCount++;
+        }
+    }
+
+    private static final class Segment {
+        final TreeMap<String, Postings> terms = new TreeMap<>();
+        // Index = identifiant interne du document ; null une fois le produit supprimé
+        final List<Doc> docs = new ArrayList<>();
+        final Map<Long, Integer> docIdByProduct = new HashMap<>();
+        long totalLength;
+        long livePostings;
+        long deadPostings;
+
+        void add(ProductText text) {
+            Map<String, Integer> freqs = new HashMap<>();
+            int length = 0;
+            for (String language : LANGUAGES) {
+                for (String token : TextAnalyzer.tokens(text.names().get(language))) {
+                    freqs.merge(token, NAME_WEIGHT, Integer::sum);
+                    length += NAME_WEIGHT;
+                }
+                for (String token : TextAnalyzer.tokens(text.descriptions().get(language))) {
+                    freqs.merge(token, 1, Integer::sum);
+                    length++;
+                }
+            }
+            int docId = docs.size();
+            String[] docTerms = new String[freqs.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : freqs.entrySet()) {
+                Map.Entry<String, Postings> existing = terms.ceilingEntry(entry.getKey());
+                String term;
+                Postings postings;
+                if (existing != null && existing.getKey().equals(entry.getKey())) {
+                    term = existing.getKey();
+                    postings = existing.getValue();
+                } else {
+                    term = entry.getKey();
+                    postings = new Postings();
+                    terms.put(term, postings);
+                }
+                postings.add(docId, entry.getValue());
+                docTerms[i++] = term;
+            }
+            docs.add(new Doc(text.id(), text.categoryId(), text.price(), length, docTerms));
+            docIdByProduct.put(text.id(), docId);
+            totalLength += length;
+            livePostings += docTerms.length;
+        }
+
+        void remove(Long productId) {
+            Integer docId = docIdByProduct.remove(productId);
+            if (docId == null) {
+                return;
+            }
+            Doc doc = docs.set(docId, null);
+            totalLength -= doc.length;
+            livePostings -= doc.terms.length;
+            for (String term : doc.terms) {
+                Postings postings = terms.get(term);
+                if (postings != null && --postings.liveCount == 0) {
+                    // Plus aucun document vivant : le terme disparaît avec ses entrées mortes déjà comptées
+                    terms.remove(term);
+                    deadPostings -= postings.size - 1;
+                } else {
+                    deadPostings++;
+                }
+            }
+        }
+
+        /**
+         * Compacte quand les entrées mortes des listes, ou les documents retirés, dépassent le quart des vivants :
+         * les documents vivants sont renumérotés dans leur ordre (plus récents en dernier), ce qui ramène les
+         * tableaux d'une recherche au nombre de produits indexés.
+         */
+        void compactIfNeeded() {
+            int deadDocs = docs.size() - docIdByProduct.size();
+            boolean postingsBloated = deadPostings >= COMPACTION_MIN_DEAD && deadPostings >= livePostings / 4;
+            boolean docsBloated = deadDocs >= COMPACTION_MIN_DEAD && deadDocs >= docIdByProduct.size() / 4;
+            if (!postingsBloated && !docsBloated) {
+                return;
+            }
+            int[] renumbered = new int[docs.size()];
+            List<Doc> live = new ArrayList<>(docIdByProduct.size());
+            for (int docId = 0; docId < docs.size(); docId++) {
+                Doc doc = docs.get(docId);
+                renumbered[docId] = doc == null ? -1 : live.size();
+                if (doc != null) {
+                    live.add(doc);
+                }
+            }
+            for (Postings postings : terms.values()) {
+                int kept = 0;
+                for (int i = 0; i < postings.size; i++) {
+                    int docId = renumbered[postings.docs[i]];
+                    if (docId >= 0) {
+                        postings.docs[kept] = docId;
+                        postings.freqs[kept] = postings.freqs[i];
+                        kept++;
+                    }
+                }
+                postings.size = kept;
+                if (kept < postings.docs.length / 4) {
+                    postings.docs = Arrays.copyOf(postings.docs, Math.max(4, kept));
+                    postings.freqs = Arrays.copyOf(postings.freqs, Math.max(4, kept));
+                }
+            }
+            docs.clear();
+            docs.addAll(live);
+            docIdByProduct.clear();
+            for (int docId = 0; docId < live.size(); docId++) {
+                docIdByProduct.put(live.get(docId).productId, docId);
+            }
+            deadPostings = 0;
+        }
+
+        List<Long> search(List<String> tokens, Filter filter, int limit) {
+            int liveDocs = docIdByProduct.size();
+            if (liveDocs == 0) {
+                return List.of();
+            }
+            if (tokens.isEmpty()) {
+                return filterOnly(filter, limit);
+            }
+
+            float averageLength = Math.max(1f, (float) totalLength / liveDocs);
+            float[] scores = new float[docs.size()];
+            int[] matchedTokens = new int[docs.size()];
+            for (int t = 0; t < tokens.size(); t++) {
+                boolean last = t == tokens.size() - 1;
+                for (Map.Entry<Postings, Float> expansion : expand(tokens.get(t), last).entrySet()) {
+                    Postings postings = expansion.getKey();
+                    float idf = (float) Math.log(1 + (liveDocs - postings.liveCount + 0.5) / (postings.liveCount + 0.5));
+                    float weight = idf * expansion.getValue();
+                    for (int i = 0; i < postings.size; i++) {
+                        int docId = postings.docs[i];
+                        Doc doc = docs.get(docId);
+                        if (doc == null) {
+                            continue;
+                        }
+                        int freq = postings.freqs[i];
+                        scores[docId] += weight * freq * (K1 + 1) / (freq + K1 * (1 - B + B * doc.length / averageLength));
+                        // Un document ne compte qu'une fois par mot de la requête, quelle que soit la variante trouvée
+                        if (matchedTokens[docId] == t) {
+                            matchedTokens[docId] = t + 1;
+                        }
+                    }
+                }
+            }
+
+            // Tous les mots de la requête doivent correspondre ; on garde les 'limit' meilleurs (tas min)
+            PriorityQueue<Integer> top = new PriorityQueue<>((a, b) -> Float.compare(scores[a], scores[b]));
+            for (int docId = 0; docId < matchedTokens.length; docId++) {
+                if (matchedTokens[docId] != tokens.size() || !filter.accepts(docs.get(docId))) {
+                    continue;
+                }
+                top.offer(docId);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            Long[] ranked = new Long[top.size()];
+            for (int i = ranked.length - 1; i >= 0; i--) {
+                ranked[i] = docs.get(top.poll()).productId;
+            }
+            return Arrays.asList(ranked);
+        }
+
+        private List<Long> filterOnly(Filter filter, int limit) {
+            List<Long> ids = new ArrayList<>();
+            for (int docId = docs.size() - 1; docId >= 0 && ids.size() < limit; docId--) {
+                Doc doc = docs.get(docId);
+                if (doc != null && filter.accepts(doc)) {
+                    ids.add(doc.productId);
+                }
+            }
+            return ids;
+        }
+
+        /**
+         * Variantes d'un mot de la requête présentes dans le dictionnaire, avec leur facteur de score :
+         * mot exact (1), complétions par préfixe pour le dernier mot, termes à distance d'édition bornée.
+         */
+        private Map<Postings, Float> expand(String token, boolean allowPrefix) {
+            Map<Postings, Float> expansions = new HashMap<>();
+            Postings exact = terms.get(token);
+            if (exact != null) {
+                expansions.put(exact, 1f);
+            }
+            if (allowPrefix && token.length() >= 2) {
+                NavigableMap<String, Postings> completions = terms.subMap(token, false, token + Character.MAX_VALUE, false);
+                for (Postings postings : completions.values()) {
+                    if (expansions.size() >= MAX_EXPANSIONS) {
+                        break;
+                    }
+                    expansions.putIfAbsent(postings, PREFIX_FACTOR);
+                }
+            }
+            if (token.length() >= 4) {
+                int maxEdits = token.length() >= 8 ? 2 : 1;
+                // Candidats limités aux termes de même première lettre
+                String first = token.substring(0, 1);
+                for (Map.Entry<String, Postings> entry : terms.subMap(first, true, first + Character.MAX_VALUE, false).entrySet()) {
+                    if (expansions.size() >= MAX_EXPANSIONS) {
+                        break;
+                    }
+                    if (!expansions.containsKey(entry.getValue())
+                            && TextAnalyzer.boundedEditDistance(token, entry.getKey(), maxEdits) <= maxEdits) {
+                        expansions.put(entry.getValue(), FUZZY_FACTOR);
+                    }
+                }
+            }
+            return expansions;
+        }
+    }
+}
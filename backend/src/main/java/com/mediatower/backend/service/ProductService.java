@@ -1,17 +1,26 @@
 package com.mediatower.backend.service;
 
+import com.mediatower.backend.dto.CursorPage;
 import com.mediatower.backend.dto.MediaDto;
 import com.mediatower.backend.dto.ProductDto;
+import com.mediatower.backend.dto.ProductFacetPage;
+import com.mediatower.backend.dto.SelectionRow;
 import com.mediatower.backend.model.*;
 import com.mediatower.backend.repository.*;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ProductService {
@@ -24,8 +33,19 @@ public class ProductService {
     private final OrderRepository orderRepository;
     private final S3Service s3Service; // Assurez-vous d'injecter S3Service
     private final UserProductAccessRepository userProductAccessRepository;
-
-    public ProductService(ProductRepository productRepository, CategoryRepository categoryRepository, OrderItemRepository orderItemRepository, TagRepository tagRepository, MediaRepository mediaRepository, OrderRepository orderRepository, S3Service s3Service, UserProductAccessRepository userProductAccessRepository) {
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductDetailCache productDetailCache;
+    private final ProductPopularityRanking productPopularityRanking;
+    private final ProductSimilarityIndex productSimilarityIndex;
+    private final CatalogVersions catalogVersions;
+    private final CategoryProductCounts categoryProductCounts;
+    private final ProductFacetIndex productFacetIndex;
+
+    private static final int SEARCH_RESULTS_LIMIT = 50;
+    private static final int SIMILAR_PRODUCTS_LIMIT = 4;
+    private static final String CURSOR_SCOPE = "products";
+
+    public ProductService(ProductRepository productRepository, CategoryRepository categoryRepository, OrderItemRepository orderItemRepository, TagRepository tagRepository, MediaRepository mediaRepository, OrderRepository orderRepository, S3Service s3Service, UserProductAccessRepository userProductAccessRepository, ProductSearchIndex productSearchIndex, ProductDetailCache productDetailCache, ProductPopularityRanking productPopularityRanking, ProductSimilarityIndex productSimilarityIndex, CatalogVersions catalogVersions, CategoryProductCounts categoryProductCounts, ProductFacetIndex productFacetIndex) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
         this.orderItemRepository = orderItemRepository;
@@ -34,49 +54,139 @@ public class ProductService {
         this.orderRepository = orderRepository;
         this.s3Service = s3Service;
         this.userProductAccessRepository = userProductAccessRepository;
+        this.productSearchIndex = productSearchIndex;
+        this.productDetailCache = productDetailCache;
+        this.productPopularityRanking = productPopularityRanking;
+        this.productSimilarityIndex = productSimilarityIndex;
+        this.catalogVersions = catalogVersions;
+        this.categoryProductCounts = categoryProductCounts;
+        this.productFacetIndex = productFacetIndex;
     }
 
+    @Transactional(readOnly = true)
     public Page<ProductDto> getAllProductsPaginated(String searchTerm, Long categoryId, String stockStatus, Pageable pageable) {
         // Normalisation des filtres pour la requête
         String search = (searchTerm == null || searchTerm.trim().isEmpty()) ? null : searchTerm;
         Long catId = (categoryId != null && categoryId == 0) ? null : categoryId; // On considère 0 comme 'all'
         String stock = (stockStatus == null || stockStatus.equals("all")) ? null : stockStatus;
 
-        Page<Product> productPage = productRepository.findWithFilters(search, catId, stock, pageable);
-        return productPage.map(this::convertToDto);
+        // 1. Page d'IDs (+ count), 2. hydratation groupée : plus de N+1 dans convertToDto
+        Page<Long> idPage = productRepository.findIdsWithFilters(search, catId, stock, pageable);
+        if (idPage.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, idPage.getTotalElements());
+        }
+        return new PageImpl<>(hydrateInOrder(idPage.getContent()), pageable, idPage.getTotalElements());
     }
 
+    /**
+     * Variante par curseur de {@link #getAllProductsPaginated} (produits les plus récents d'abord) :
+     * le coût d'une page ne dépend plus de sa profondeur, et le COUNT n'est fait que si withTotal.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ProductDto> getProductsAfterCursor(String searchTerm, Long categoryId, String stockStatus,
+                                                         String cursor, Integer size, boolean withTotal) {
+        String search = (searchTerm == null || searchTerm.trim().isEmpty()) ? null : searchTerm;
+        Long catId = (categoryId != null && categoryId == 0) ? null : categoryId;
+        String stock = (stockStatus == null || stockStatus.equals("all")) ? null : stockStatus;
+        int pageSize = KeysetCursor.pageSize(size);
+        KeysetCursor position = KeysetCursor.decode(CURSOR_SCOPE, cursor);
+
+        // Une ligne de plus que demandé : indique s'il existe une page suivante
+        List<Long> ids = productRepository.findIdsWithFiltersAfter(search, catId, stock, position.id(), PageRequest.of(0, pageSize + 1));
+        boolean hasNext = ids.size() > pageSize;
+        List<Long> pageIds = hasNext ? ids.subList(0, pageSize) : ids;
+        String nextCursor = hasNext ? KeysetCursor.encode(CURSOR_SCOPE, pageIds.get(pageIds.size() - 1)) : null;
+        Long total = withTotal ? productRepository.countWithFilters(search, catId, stock) : null;
+        return new CursorPage<>(hydrateInOrder(pageIds), nextCursor, pageSize, total);
+    }
+
+    /**
+     * Catalogue filtré par facettes (catégories, tags, niveaux de stock, tranches de prix) avec le nombre de
+     * produits de chaque valeur. Ids tirés de {@link ProductFacetIndex}, fiches lues dans le cache de détail.
+     */
+    public ProductFacetPage getFacetedProducts(Set<Long> categoryIds, Set<Long> tagIds, Set<String> stockBuckets,
+                                               Set<String> priceBands, int page, Integer size) {
+        if (!productFacetIndex.isReady()) {
+            // Aucune requête SQL raisonnable ne donne les comptes par facette : index en construction (démarrage)
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Product facets are not available yet");
+        }
+        int pageSize = KeysetCursor.pageSize(size);
+        int pageNumber = Math.max(page, 0);
+        // Calcul en long : page * size dépasse Integer.MAX_VALUE pour un numéro de page forgé
+        long offset = (long) pageNumber * pageSize;
+        if (offset > Integer.MAX_VALUE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page number is too large");
+        }
+        ProductFacetIndex.Result result = productFacetIndex.query(
+                new ProductFacetIndex.Selection(categoryIds, tagIds, stockBuckets, priceBands),
+                (int) offset, pageSize);
+        List<ProductDto> content = productDetailCache.getAll(result.productIds(), this::hydrateInOrder);
+        return new ProductFacetPage(content, result.total(), pageNumber, pageSize, result.facets());
+    }
+
+    // Charge les produits en une requête (+ collections par lots) en conservant l'ordre des IDs
+    private List<ProductDto> hydrateInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Product> productsById = productRepository.findAllForCatalogByIdIn(ids).stream()
+                .collect(Collectors.toMap(Product::getId, p -> p));
+        return ids.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull) // Produit supprimé entre les deux requêtes
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+    }
 
-    public Optional<ProductDto> getProductById(Long id) {
-        return productRepository.findById(id).map(this::convertToDto);
 
+    public Optional<ProductDto> getProductById(Long id) {
+        return productDetailCache.get(id, productId -> productRepository.findById(productId).map(this::convertToDto));
     }
 
-//
-public List<ProductDto> getAllProductsForSelection() {
-    return productRepository.findAll().stream()
-            .map(product -> {
+    // Une seule requête de projection : pas d'entité chargée
+    @Transactional(readOnly = true)
+    public List<ProductDto> getAllProductsForSelection() {
+        try (Stream<SelectionRow> rows = productRepository.streamSelectionRows()) {
+            return SelectionAssembler.assemble(rows, row -> {
                 ProductDto dto = new ProductDto();
-                dto.setId(product.getId());
-                dto.setNames(product.getNames());
-                dto.setPrice(product.getPrice());
+                dto.setId(row.id());
+                dto.setNames(new HashMap<>());
+                dto.setPrice(row.price());
                 return dto;
-            })
-            .collect(Collectors.toList());
-}
+            }, ProductDto::getNames);
+        }
+    }
 
     @Transactional
     public ProductDto createProduct(ProductDto dto) {
         Product product = new Product();
         updateProductFromDto(product, dto);
-        return convertToDto(productRepository.save(product));
+        Product saved = productRepository.save(product);
+        productSearchIndex.indexAfterCommit(saved);
+        productFacetIndex.indexAfterCommit(saved);
+        categoryProductCounts.productMovedAfterCommit(null, categoryIdOf(saved));
+        productSimilarityIndex.invalidateFallbacksAfterCommit();
+        catalogVersions.bump(CatalogAggregate.PRODUCTS);
+        return convertToDto(saved);
     }
 
     @Transactional
     public ProductDto updateProduct(Long id, ProductDto dto) {
         Product product = productRepository.findById(id).orElseThrow(() -> new RuntimeException("Product not found"));
+        Long previousCategoryId = categoryIdOf(product);
         updateProductFromDto(product, dto);
-        return convertToDto(productRepository.save(product));
+        Product saved = productRepository.save(product);
+        productSearchIndex.indexAfterCommit(saved);
+        productFacetIndex.indexAfterCommit(saved);
+        categoryProductCounts.productMovedAfterCommit(previousCategoryId, categoryIdOf(saved));
+        productDetailCache.evictAfterCommit(id);
+        productSimilarityIndex.invalidateFallbacksAfterCommit();
+        catalogVersions.bump(CatalogAggregate.PRODUCTS);
+        return convertToDto(saved);
+    }
+
+    private static Long categoryIdOf(Product product) {
+        return product.getCategory() != null ? product.getCategory().getId() : null;
     }
 
     private void updateProductFromDto(Product product, ProductDto dto) {
@@ -100,24 +210,70 @@ public List<ProductDto> getAllProductsForSelection() {
         if (orderRepository.countByOrderItemsProductId(id) > 0) {
             throw new IllegalStateException("Cannot delete product: It is part of one or more existing orders.");
         }
-        if (!productRepository.existsById(id)) {
-            throw new RuntimeException("Product not found");
-        }
+        Product product = productRepository.findById(id).orElseThrow(() -> new RuntimeException("Product not found"));
+        Long categoryId = categoryIdOf(product);
         productRepository.deleteById(id);
+        categoryProductCounts.productMovedAfterCommit(categoryId, null);
+        productSearchIndex.removeAfterCommit(id);
+        productFacetIndex.removeAfterCommit(id);
+        productDetailCache.evictAfterCommit(id);
+        productPopularityRanking.removeAfterCommit(id);
+        productSimilarityIndex.removeAfterCommit(id);
+        catalogVersions.bump(CatalogAggregate.PRODUCTS);
     }
 
+    @Transactional(readOnly = true)
     public List<ProductDto> getPopularProducts(int limit) {
-        return Collections.emptyList(); // Placeholder
+        List<Long> ids;
+        if (productPopularityRanking.isReady()) {
+            ids = productPopularityRanking.top(limit);
+        } else {
+            // Classement encore en construction (démarrage) : meilleures ventes de tous les temps
+            ids = orderItemRepository.findTopSellingProducts(PageRequest.of(0, limit)).stream()
+                    .map(row -> (Long) row[0])
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        }
+        return hydrateInOrder(ids);
     }
 
 
 
+    // Pas de transaction : les fiches viennent du cache produit (voir ProductDetailCache)
     public List<ProductDto> getSimilarProducts(Long productId) {
-        return Collections.emptyList(); // Placeholder
+        Optional<ProductDto> source = getProductById(productId);
+        if (source.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // Quelques candidats de plus que la limite : un produit supprimé sur un autre nœud peut encore y figurer
+        LinkedHashSet<Long> ids = new LinkedHashSet<>(productSimilarityIndex.similarTo(productId, SIMILAR_PRODUCTS_LIMIT * 2));
+        if (ids.size() < SIMILAR_PRODUCTS_LIMIT) {
+            // Produit peu ou pas vendu : complété par catégorie et tags (en cache jusqu'au prochain changement du catalogue)
+            Set<Long> tagIds = source.get().getTagIds() != null ? source.get().getTagIds() : Set.of();
+            ids.addAll(productSimilarityIndex.fallbackFor(productId, id -> productRepository.findRelatedIds(
+                    id, source.get().getCategoryId(), tagIds, PageRequest.of(0, SIMILAR_PRODUCTS_LIMIT * 2))));
+        }
+        // Limite appliquée après le retrait des produits disparus
+        return productDetailCache.getAll(new ArrayList<>(ids), this::hydrateInOrder).stream()
+                .limit(SIMILAR_PRODUCTS_LIMIT)
+                .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public List<ProductDto> searchProducts(String name, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice) {
-        return Collections.emptyList(); // Placeholder
+        List<Long> ids;
+        if (productSearchIndex.isReady()) {
+            ids = productSearchIndex.search(name, categoryId, minPrice, maxPrice, SEARCH_RESULTS_LIMIT);
+        } else {
+            // Index encore en construction (démarrage) : recherche LIKE en base, prix filtrés ci-dessous
+            String search = (name == null || name.isBlank()) ? null : name.trim();
+            ids = productRepository.findIdsWithFilters(search, categoryId, null,
+                    PageRequest.of(0, SEARCH_RESULTS_LIMIT, Sort.by(Sort.Direction.DESC, "id"))).getContent();
+        }
+        return hydrateInOrder(ids).stream()
+                .filter(p -> minPrice == null || p.getPrice().compareTo(minPrice) >= 0)
+                .filter(p -> maxPrice == null || p.getPrice().compareTo(maxPrice) <= 0)
+                .collect(Collectors.toList());
     }
 
     private ProductDto convertToDto(Product product) {
@@ -136,8 +292,9 @@ public List<ProductDto> getAllProductsForSelection() {
             // ====================================================================
         }
 
-        dto.setNames(product.getNames());
-        dto.setDescriptions(product.getDescriptions());
+        // Copiées ici, dans la transaction : chargées pour toute la page (@BatchSize) et non pendant la sérialisation
+        dto.setNames(product.getNames() == null ? null : new HashMap<>(product.getNames()));
+        dto.setDescriptions(product.getDescriptions() == null ? null : new HashMap<>(product.getDescriptions()));
 
         if (product.getTags() != null) {
             dto.setTagIds(product.getTags().stream().map(Tag::getId).collect(Collectors.toSet()));
@@ -167,6 +324,9 @@ public List<ProductDto> getAllProductsForSelection() {
         mediaDto.setType(media.getType().name());
         mediaDto.setUrl(baseUrl + media.getFileName());
         mediaDto.setPrimary(media.isPrimary());
+        if (media.getType() == MediaType.IMAGE) {
+            mediaDto.setVariants(ImageVariant.urls(mediaDto.getUrl()));
+        }
         return mediaDto;
     }
     @Transactional(readOnly = true)
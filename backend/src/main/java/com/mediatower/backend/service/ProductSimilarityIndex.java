@@ -0,0 +1,373 @@
+package com.mediatower.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mediatower.backend.config.AsyncConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * « Les clients qui ont acheté ce produit ont aussi acheté » pour /api/products/{id}/similar.
+ * <p>
+ * Le panier d'un client est l'ensemble des produits auxquels il a accès ou qu'il a commandés (commandes
+ * confirmées). Deux produits du même panier forment une co-occurrence ; la similarité est le cosinus
+ * co(i, j) / sqrt(n(i) * n(j)), n étant le nombre de clients possédant le produit. Seuls les
+ * {@code neighbours} meilleurs voisins de chaque produit sont gardés, en tableaux primitifs immuables :
+ * une lecture est une recherche dans une map concurrente, sans verrou.
+ * <p>
+ * Construit au démarrage puis reconstruit toutes les {@code rebuild-interval-ms} ; entre-temps, chaque
+ * livraison met à jour les compteurs et recalcule les voisins des produits concernés. Les paniers de plus
+ * de {@code max-basket-size} produits (revendeurs, comptes de test) sont ignorés.
+ * <p>
+ * Les produits sans assez d'achats communs sont complétés par des produits proches au catalogue (catégorie,
+ * tags), gardés dans un cache invalidé à chaque modification du catalogue : une requête ne relance pas la
+ * recherche en base tant que le catalogue ne change pas.
+ */
+@Component
+public class ProductSimilarityIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSimilarityIndex.class);
+
+    private static final String ACCESS_SQL = "SELECT user_id, product_id FROM user_product_access";
+    private static final String ORDERS_SQL = "SELECT o.user_id, oi.product_id FROM order_items oi " +
+            "JOIN orders o ON o.id = oi.order_id " +
+            "WHERE oi.product_id IS NOT NULL AND o.status IN ('CONFIRMED', 'PROCESSING', 'SHIPPED', 'DELIVERED')";
+
+    private static final long[] NO_PRODUCTS = new long[0];
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int neighbours;
+    private final int maxBasketSize;
+    private final int minCoPurchases;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final Cache<Long, List<Long>> fallbacks;
+    // Incrémenté à chaque invalidation des compléments
+    private final AtomicLong fallbackInvalidations = new AtomicLong();
+
+    // Protégés par le moniteur de l'instance
+    private Model model;
+    private List<Consumer<Model>> changesDuringRebuild;
+
+    private volatile Map<Long, Neighbours> neighboursByProduct;
+    private volatile boolean ready;
+
+    public ProductSimilarityIndex(JdbcTemplate jdbcTemplate,
+                                  @Value("${app.similarity.neighbours:10}") int neighbours,
+                                  @Value("${app.similarity.max-basket-size:200}") int maxBasketSize,
+                                  @Value("${app.similarity.min-co-purchases:1}") int minCoPurchases,
+                                  @Value("${app.similarity.fallback-cache.maximum-size:10000}") long fallbackCacheSize,
+                                  @Value("${app.similarity.fallback-cache.ttl-minutes:60}") long fallbackCacheTtlMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.neighbours = neighbours;
+        this.maxBasketSize = maxBasketSize;
+        this.minCoPurchases = minCoPurchases;
+        // Invalidé à chaque modification du catalogue : le TTL n'est qu'un filet de sécurité
+        this.fallbacks = Caffeine.newBuilder()
+                .maximumSize(fallbackCacheSize)
+                .expireAfterWrite(fallbackCacheTtlMinutes, TimeUnit.MINUTES)
+                .build();
+        this.model = new Model();
+        this.neighboursByProduct = model.published;
+    }
+
+    @Async(AsyncConfig.DEFAULT_EXECUTOR)
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${app.similarity.rebuild-interval-ms:21600000}",
+            initialDelayString = "${app.similarity.rebuild-interval-ms:21600000}")
+    public void rebuild() {
+        if (!rebuildLock.tryLock()) {
+            return; // Reconstruction déjà en cours
+        }
+        try {
+            long start = System.currentTimeMillis();
+            synchronized (this) {
+                changesDuringRebuild = new ArrayList<>();
+            }
+            Map<Long, Set<Long>> baskets = new HashMap<>();
+            jdbcTemplate.query(ACCESS_SQL, rs -> {
+                baskets.computeIfAbsent(rs.getLong("user_id"), k -> new HashSet<>()).add(rs.getLong("product_id"));
+            });
+            jdbcTemplate.query(ORDERS_SQL, rs -> {
+                baskets.computeIfAbsent(rs.getLong("user_id"), k -> new HashSet<>()).add(rs.getLong("product_id"));
+            });
+
+            Model built = new Model();
+            baskets.forEach(built::addBasket);
+            built.coCounts.keySet().forEach(built::recomputeNeighbours);
+
+            synchronized (this) {
+                changesDuringRebuild.forEach(change -> change.accept(built));
+                changesDuringRebuild = null;
+                model = built;
+                neighboursByProduct = built.published;
+                ready = true;
+            }
+            logger.info("Product similarity index built: {} baskets, {} products with neighbours in {} ms",
+                    baskets.size(), built.published.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            synchronized (this) {
+                changesDuringRebuild = null;
+            }
+            logger.error("Product similarity index rebuild failed: {}", e.getMessage(), e);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Voisins du produit, du plus au moins similaire (au plus {@code limit}) ; vide pour un produit sans achat commun.
+     */
+    public List<Long> similarTo(Long productId, int limit) {
+        Neighbours found = productId != null ? neighboursByProduct.get(productId) : null;
+        if (found == null) {
+            return List.of();
+        }
+        int count = Math.min(limit, found.productIds().length);
+        List<Long> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(found.productIds()[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Produits proches au catalogue, pour compléter {@link #similarTo} : lus par {@code loader} au premier appel,
+     * puis dans le cache jusqu'à la prochaine modification du catalogue.
+     */
+    public List<Long> fallbackFor(Long productId, Function<Long, List<Long>> loader) {
+        List<Long> cached = fallbacks.getIfPresent(productId);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = fallbackInvalidations.get();
+        List<Long> loaded = List.copyOf(loader.apply(productId));
+        // Mis en cache seulement si aucune invalidation n'a eu lieu pendant la lecture
+        fallbacks.asMap().compute(productId, (key, current) ->
+                current != null || generation != fallbackInvalidations.get() ? current : loaded);
+        return loaded;
+    }
+
+    /**
+     * Oublie les compléments (produit créé, modifié ou supprimé, tag supprimé), tout de suite et après la fin
+     * de la transaction : une lecture faite avant le commit n'est pas gardée.
+     */
+    public void invalidateFallbacksAfterCommit() {
+        Runnable invalidation = () -> {
+            fallbackInvalidations.incrementAndGet();
+            fallbacks.invalidateAll();
+        };
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * Enregistre, après le commit, les produits livrés à un client. Les produits qu'il possédait déjà sont ignorés.
+     */
+    public void recordPurchaseAfterCommit(Long userId, Collection<Long> productIds) {
+        if (userId == null || productIds.isEmpty()) {
+            return;
+        }
+        List<Long> purchased = List.copyOf(productIds);
+        applyAfterCommit(model -> model.addPurchase(userId, purchased));
+    }
+
+    /**
+     * Retire, après le commit, un produit supprimé : il n'est plus proposé comme voisin et n'a plus de voisins.
+     */
+    public void removeAfterCommit(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        applyAfterCommit(model -> model.removeProduct(productId));
+        invalidateFallbacksAfterCommit();
+    }
+
+    private void applyAfterCommit(Consumer<Model> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    private synchronized void apply(Consumer<Model> change) {
+        change.accept(model);
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(change);
+        }
+    }
+
+    /**
+     * Voisins triés par similarité décroissante (tableaux parallèles).
+     */
+    private record Neighbours(long[] productIds, float[] scores) {
+    }
+
+    /**
+     * Compteurs d'une génération de l'index : paniers, nombre de clients par produit et co-occurrences.
+     * Seule la map 'published' est lue en dehors du moniteur.
+     */
+    private final class Model {
+        final Map<Long, long[]> baskets = new HashMap<>();
+        final Map<Long, Integer> owners = new HashMap<>();
+        final Map<Long, Map<Long, Integer>> coCounts = new HashMap<>();
+        // Produits supprimés depuis la construction, encore présents dans les paniers
+        final Set<Long> removed = new HashSet<>();
+        final Map<Long, Neighbours> published = new ConcurrentHashMap<>();
+
+        void addBasket(Long userId, Set<Long> productIds) {
+            long[] basket = productIds.stream().mapToLong(Long::longValue).sorted().toArray();
+            baskets.put(userId, basket);
+            for (long productId : basket) {
+                owners.merge(productId, 1, Integer::sum);
+            }
+            if (basket.length > maxBasketSize) {
+                return;
+            }
+            for (int i = 0; i < basket.length; i++) {
+                for (int j = i + 1; j < basket.length; j++) {
+                    incrementPair(basket[i], basket[j]);
+                }
+            }
+        }
+
+        void addPurchase(long userId, List<Long> productIds) {
+            long[] basket = baskets.getOrDefault(userId, NO_PRODUCTS);
+            Set<Long> touched = new HashSet<>();
+            for (Long productId : productIds) {
+                if (Arrays.binarySearch(basket, productId) >= 0 || removed.contains(productId)) {
+                    continue; // Déjà possédé (accès existant, commande rejouée) ou supprimé entre-temps
+                }
+                owners.merge(productId, 1, Integer::sum);
+                if (basket.length < maxBasketSize) {
+                    for (long owned : basket) {
+                        if (removed.contains(owned)) {
+                            continue;
+                        }
+                        incrementPair(productId, owned);
+                        touched.add(owned);
+                    }
+                }
+                touched.add(productId);
+                basket = insertSorted(basket, productId);
+            }
+            baskets.put(userId, basket);
+            // Le nombre de clients des produits achetés change aussi le score de leurs autres voisins :
+            // ces listes-là sont corrigées à la prochaine reconstruction
+            touched.forEach(this::recomputeNeighbours);
+        }
+
+        void removeProduct(Long productId) {
+            removed.add(productId);
+            owners.remove(productId);
+            published.remove(productId);
+            Map<Long, Integer> counts = coCounts.remove(productId);
+            if (counts == null) {
+                return;
+            }
+            for (Long otherId : counts.keySet()) {
+                Map<Long, Integer> otherCounts = coCounts.get(otherId);
+                if (otherCounts != null) {
+                    otherCounts.remove(productId);
+                }
+                recomputeNeighbours(otherId);
+            }
+        }
+
+        void recomputeNeighbours(Long productId) {
+            Map<Long, Integer> counts = coCounts.get(productId);
+            if (counts == null || counts.isEmpty()) {
+                published.remove(productId);
+                return;
+            }
+            double ownersOfProduct = owners.getOrDefault(productId, 1);
+            PriorityQueue<Candidate> best = new PriorityQueue<>((a, b) -> Double.compare(a.score(), b.score()));
+            counts.forEach((otherId, count) -> {
+                if (count < minCoPurchases) {
+                    return;
+                }
+                double score = count / Math.sqrt(ownersOfProduct * owners.getOrDefault(otherId, 1));
+                if (best.size() < neighbours) {
+                    best.add(new Candidate(otherId, score));
+                } else if (score > best.peek().score()) {
+                    best.poll();
+                    best.add(new Candidate(otherId, score));
+                }
+            });
+            if (best.isEmpty()) {
+                published.remove(productId);
+                return;
+            }
+            long[] ids = new long[best.size()];
+            float[] scores = new float[best.size()];
+            for (int i = ids.length - 1; i >= 0; i--) {
+                Candidate candidate = best.poll();
+                ids[i] = candidate.productId();
+                scores[i] = (float) candidate.score();
+            }
+            published.put(productId, new Neighbours(ids, scores));
+        }
+
+        private void incrementPair(long a, long b) {
+            coCounts.computeIfAbsent(a, k -> new HashMap<>()).merge(b, 1, Integer::sum);
+            coCounts.computeIfAbsent(b, k -> new HashMap<>()).merge(a, 1, Integer::sum);
+        }
+
+        private long[] insertSorted(long[] basket, long productId) {
+            int insertAt = -(Arrays.binarySearch(basket, productId) + 1);
+            long[] grown = new long[basket.length + 1];
+            System.arraycopy(basket, 0, grown, 0, insertAt);
+            grown[insertAt] = productId;
+            System.arraycopy(basket, insertAt, grown, insertAt + 1, basket.length - insertAt);
+            return grown;
+        }
+    }
+
+    private record Candidate(long productId, double score) {
+    }
+}
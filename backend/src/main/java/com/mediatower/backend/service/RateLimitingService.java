@@ -2,44 +2,91 @@ package com.mediatower.backend.service;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.mediatower.backend.config.CacheConfig;
 import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
 import io.github.bucket4j.Refill;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 
 import java.time.Duration;
-import java.time.LocalDateTime;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class RateLimitingService {
 
     private static final Logger logger = LoggerFactory.getLogger(RateLimitingService.class);
 
+    // 5 requêtes par IP, rechargées toutes les 15 minutes
+    private static final Bandwidth IP_REQUEST_LIMIT = Bandwidth.classic(5, Refill.intervally(5, Duration.ofMinutes(15)));
+    // Configuration stricte : 10 tentatives autorisées, puis recharge 1 tentative toutes les 30 secondes.
+    // Cela signifie qu'après 10 échecs, l'utilisateur doit attendre 30s pour un nouvel essai.
+    private static final Bandwidth LOGIN_ATTEMPT_LIMIT = Bandwidth.classic(10, Refill.intervally(1, Duration.ofSeconds(30)));
+
     // Cache pour les tentatives de renvoi d'email de vérification
-    private final Cache<String, RateLimitAttempt> resendVerificationCache;
-    private final Map<String, Bucket> loginAttemptCache = new ConcurrentHashMap<>();
+    private final Cache<String, AtomicLong> resendVerificationCache;
+    private final BucketStore loginAttemptBuckets;
 
     // Cache pour les tentatives de forgot password par email
-    private final Cache<String, RateLimitAttempt> forgotPasswordCache;
+    private final Cache<String, WindowedAttempts> forgotPasswordCache;
 
     // Cache pour les requêtes par IP (utilise bucket4j)
-    private final Map<String, Bucket> ipRequestCache = new ConcurrentHashMap<>();
+    private final BucketStore ipRequestBuckets;
+
+    // Mode distribué uniquement : resend / forgot password passent aussi par des buckets partagés (null en mode local)
+    private final BucketStore resendVerificationBuckets;
+    private final BucketStore forgotPasswordBuckets;
+
+    public RateLimitingService(CacheManager cacheManager, MeterRegistry meterRegistry,
+                               ObjectProvider<ProxyManager<String>> proxyManagerProvider,
+                               @Value("${app.rate-limit.max-keys:100000}") long maxKeys,
+                               @Value("${app.rate-limit.idle-expiry-minutes:30}") long idleExpiryMinutes) {
+        Duration idleExpiry = Duration.ofMinutes(idleExpiryMinutes);
+        ProxyManager<String> proxyManager = proxyManagerProvider.getIfAvailable();
+        if (proxyManager != null) {
+            // app.rate-limit.mode=distributed : budget commun à tous les nœuds
+            logger.info("Rate limiting buckets are shared through the application database.");
+            this.ipRequestBuckets = new DistributedBucketStore("rateLimit.ipRequests", proxyManager, maxKeys, idleExpiry, meterRegistry);
+            this.loginAttemptBuckets = new DistributedBucketStore("rateLimit.loginAttempts", proxyManager, maxKeys, idleExpiry, meterRegistry);
+            this.resendVerificationBuckets = new DistributedBucketStore("rateLimit.resendVerification", proxyManager, maxKeys, idleExpiry, meterRegistry);
+            this.forgotPasswordBuckets = new DistributedBucketStore("rateLimit.forgotPassword", proxyManager, maxKeys, idleExpiry, meterRegistry);
+        } else {
+            this.ipRequestBuckets = new LocalBucketStore("rateLimit.ipRequests", maxKeys, idleExpiry, meterRegistry);
+            this.loginAttemptBuckets = new LocalBucketStore("rateLimit.loginAttempts", maxKeys, idleExpiry, meterRegistry);
+            this.resendVerificationBuckets = null;
+            this.forgotPasswordBuckets = null;
+        }
 
-    public RateLimitingService(CacheManager cacheManager) {
         // Cache pour resend verification (existant)
-        this.resendVerificationCache = (Cache<String, RateLimitAttempt>) cacheManager.getCache(CacheConfig.RESEND_VERIFICATION_CACHE).getNativeCache();
+        this.resendVerificationCache = (Cache<String, AtomicLong>) cacheManager.getCache(CacheConfig.RESEND_VERIFICATION_CACHE).getNativeCache();
 
         // Nouveau cache pour forgot password
+        // Chaque entrée vit une fenêtre après sa dernière lecture : la fenêtre est alors forcément écoulée
         this.forgotPasswordCache = Caffeine.newBuilder()
-                .expireAfterWrite(15, TimeUnit.MINUTES) // 15 minutes d'expiration
+                .expireAfter(new Expiry<String, WindowedAttempts>() {
+                    @Override
+                    public long expireAfterCreate(String email, WindowedAttempts attempts, long currentTime) {
+                        return attempts.windowNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String email, WindowedAttempts attempts, long currentTime, long currentDuration) {
+                        return attempts.windowNanos;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String email, WindowedAttempts attempts, long currentTime, long currentDuration) {
+                        return attempts.windowNanos;
+                    }
+                })
                 .maximumSize(10_000)
                 .build();
     }
@@ -48,29 +95,21 @@ public class RateLimitingService {
      * Rate limiting pour resend verification email
      */
     public boolean allowResend(String email, int maxAttempts, int timeWindowMinutes) {
-        RateLimitAttempt attempt = resendVerificationCache.get(email, k -> new RateLimitAttempt(1, LocalDateTime.now()));
-
-        if (attempt == null) {
-            resendVerificationCache.put(email, new RateLimitAttempt(1, LocalDateTime.now()));
-            return true;
-        }
-
-        // Si la fenêtre de temps est passée, réinitialiser le compteur
-        if (attempt.firstAttemptTime.plusMinutes(timeWindowMinutes).isBefore(LocalDateTime.now())) {
-            logger.info("Rate limit for resend verification email {} reset due to time window expiration.", email);
-            resendVerificationCache.put(email, new RateLimitAttempt(1, LocalDateTime.now()));
-            return true;
+        if (resendVerificationBuckets != null) {
+            ConsumptionProbe probe = resendVerificationBuckets.tryConsume(email, windowLimit(maxAttempts, timeWindowMinutes));
+            if (!probe.isConsumed()) {
+                logger.warn("Rate limit exceeded for resend verification email {}.", email);
+            }
+            return probe.isConsumed();
         }
-
-        // Si le nombre de tentatives est inférieur à la limite, incrémenter et autoriser
-        if (attempt.attempts < maxAttempts) {
-            attempt.attempts++;
-            resendVerificationCache.put(email, attempt);
-            logger.debug("Email {} allowed to resend verification. Attempts: {}/{}", email, attempt.attempts, maxAttempts);
+        AtomicLong attempts = resendVerificationCache.get(email, k -> new AtomicLong());
+        long millisRemaining = AttemptCounter.tryAcquire(attempts, maxAttempts, TimeUnit.MINUTES.toMillis(timeWindowMinutes), false);
+        if (millisRemaining == 0) {
+            logger.debug("Email {} allowed to resend verification. Attempts: {}/{}", email, AttemptCounter.count(attempts.get()), maxAttempts);
             return true;
         }
 
-        logger.warn("Rate limit exceeded for resend verification email {}. Attempts: {}/{}.", email, attempt.attempts, maxAttempts);
+        logger.warn("Rate limit exceeded for resend verification email {}. Attempts: {}/{}.", email, maxAttempts, maxAttempts);
         return false;
     }
 
@@ -78,39 +117,30 @@ public class RateLimitingService {
      * Rate limiting pour forgot password par email avec retour du résultat détaillé
      */
     public RateLimitResult checkForgotPasswordLimit(String email, int maxAttempts, int timeWindowMinutes) {
-        RateLimitAttempt attempt = forgotPasswordCache.get(email, k -> new RateLimitAttempt(0, LocalDateTime.now()));
-
-        if (attempt == null) {
-            attempt = new RateLimitAttempt(1, LocalDateTime.now());
-            forgotPasswordCache.put(email, attempt);
-            return new RateLimitResult(true, 0, maxAttempts);
+        if (forgotPasswordBuckets != null) {
+            ConsumptionProbe probe = forgotPasswordBuckets.tryConsume(email, windowLimit(maxAttempts, timeWindowMinutes));
+            if (probe.isConsumed()) {
+                return new RateLimitResult(true, 0, maxAttempts);
+            }
+            logger.warn("Rate limit exceeded for forgot password email {}.", email);
+            return new RateLimitResult(false, TimeUnit.NANOSECONDS.toSeconds(probe.getNanosToWaitForRefill()), maxAttempts);
         }
-
-        // Calculer le temps de reset basé sur la DERNIÈRE tentative
-        LocalDateTime resetTime = attempt.lastAttemptTime.plusMinutes(timeWindowMinutes);
-
-        // Si la fenêtre de temps est passée, réinitialiser le compteur
-        if (resetTime.isBefore(LocalDateTime.now())) {
-            logger.info("Rate limit for forgot password email {} reset due to time window expiration.", email);
-            attempt = new RateLimitAttempt(1, LocalDateTime.now());
-            forgotPasswordCache.put(email, attempt);
-            return new RateLimitResult(true, 0, maxAttempts);
+        // La fenêtre est calculée à partir de la DERNIÈRE tentative acceptée
+        long windowMillis = TimeUnit.MINUTES.toMillis(timeWindowMinutes);
+        WindowedAttempts attempts = forgotPasswordCache.get(email, k -> new WindowedAttempts(windowMillis));
+        if (attempts.windowNanos < TimeUnit.MILLISECONDS.toNanos(windowMillis)) {
+            // Fenêtre plus longue que celle de la création : on rallonge la durée de vie de l'entrée
+            attempts.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+            forgotPasswordCache.put(email, attempts);
         }
-
-        // Si le nombre de tentatives est inférieur à la limite, incrémenter et autoriser
-        if (attempt.attempts < maxAttempts) {
-            attempt.attempts++;
-            attempt.lastAttemptTime = LocalDateTime.now(); // Mettre à jour le temps de la dernière tentative
-            forgotPasswordCache.put(email, attempt);
-            logger.debug("Email {} allowed to request forgot password. Attempts: {}/{}", email, attempt.attempts, maxAttempts);
+        long millisRemaining = AttemptCounter.tryAcquire(attempts.state, maxAttempts, windowMillis, true);
+        if (millisRemaining == 0) {
+            logger.debug("Email {} allowed to request forgot password. Attempts: {}/{}", email, AttemptCounter.count(attempts.state.get()), maxAttempts);
             return new RateLimitResult(true, 0, maxAttempts);
         }
 
-        // Calculer le temps restant basé sur la dernière tentative
-        long secondsRemaining = Duration.between(LocalDateTime.now(), resetTime).getSeconds();
-
-        logger.warn("Rate limit exceeded for forgot password email {}. Attempts: {}/{}.", email, attempt.attempts, maxAttempts);
-        return new RateLimitResult(false, secondsRemaining, maxAttempts);
+        logger.warn("Rate limit exceeded for forgot password email {}. Attempts: {}/{}.", email, maxAttempts, maxAttempts);
+        return new RateLimitResult(false, TimeUnit.MILLISECONDS.toSeconds(millisRemaining), maxAttempts);
     }
 
     /**
@@ -124,25 +154,21 @@ public class RateLimitingService {
      * Rate limiting par IP (pour les requêtes générales)
      */
     public boolean allowRequestFromIp(String ip) {
-        Bucket bucket = ipRequestCache.computeIfAbsent(ip, this::createNewIpBucket);
-        return bucket.tryConsume(1);
+        return ipRequestBuckets.tryConsume(ip, IP_REQUEST_LIMIT).isConsumed();
     }
 
-    private Bucket createNewIpBucket(String ip) {
-        Bandwidth limit = Bandwidth.classic(5, Refill.intervally(5, Duration.ofMinutes(15)));
-        return Bucket.builder().addLimit(limit).build();
+    // maxAttempts autorisées par fenêtre, budget entièrement rechargé à la fin de la fenêtre
+    private static Bandwidth windowLimit(int maxAttempts, int timeWindowMinutes) {
+        return Bandwidth.classic(maxAttempts, Refill.intervally(maxAttempts, Duration.ofMinutes(timeWindowMinutes)));
     }
 
-    // Classe interne pour stocker l'état du rate limit
-    private static class RateLimitAttempt {
-        int attempts;
-        LocalDateTime firstAttemptTime;
-        LocalDateTime lastAttemptTime; // Nouveau champ ajouté
+    // Compteur de tentatives et durée de la fenêtre qui lui est appliquée (durée de vie de l'entrée en cache)
+    private static final class WindowedAttempts {
+        private final AtomicLong state = new AtomicLong();
+        private volatile long windowNanos;
 
-        public RateLimitAttempt(int attempts, LocalDateTime attemptTime) {
-            this.attempts = attempts;
-            this.firstAttemptTime = attemptTime;
-            this.lastAttemptTime = attemptTime; // Initialiser avec la même valeur
+        private WindowedAttempts(long windowMillis) {
+            this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
         }
     }
 
@@ -170,14 +196,7 @@ public class RateLimitingService {
      * @return Un objet RateLimitResult. `isAllowed()` sera `false` si la limite est dépassée.
      */
     public RateLimitResult checkLoginAttempt(String ip) {
-        Bucket bucket = loginAttemptCache.computeIfAbsent(ip, key -> {
-            // Configuration stricte : 10 tentatives autorisées, puis recharge 1 tentative toutes les 30 secondes.
-            // Cela signifie qu'après 10 échecs, l'utilisateur doit attendre 30s pour un nouvel essai.
-            Bandwidth limit = Bandwidth.classic(10, Refill.intervally(1, Duration.ofSeconds(30)));
-            return Bucket.builder().addLimit(limit).build();
-        });
-
-        ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
+        ConsumptionProbe probe = loginAttemptBuckets.tryConsume(ip, LOGIN_ATTEMPT_LIMIT);
         if (probe.isConsumed()) {
             return new RateLimitResult(true, 0, 10); // Autorisé
         } else {
@@ -0,0 +1,370 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.dto.UploadSessionDto;
+import com.mediatower.backend.dto.UploadSessionRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Uploads reprenables des gros fichiers (/api/uploads) : ouverture d'une session, envoi du fichier par
+ * morceaux de {@code chunk-size-bytes} (PUT à un offset, dans n'importe quel ordre et en parallèle),
+ * consultation de l'offset atteint après une coupure, puis finalisation.
+ * <p>
+ * Le fichier est alloué à sa taille finale dès l'ouverture et chaque morceau y est écrit directement à sa
+ * position, sans spool du conteneur ni recopie. Un morceau n'est compté qu'une fois entièrement reçu ; son
+ * SHA-256 est vérifié quand le client envoie l'en-tête {@code Upload-Checksum: sha256 <base64>}.
+ * <p>
+ * Les sessions sont tenues en mémoire (par nœud, comme le dossier uploads) : une session sans activité
+ * depuis {@code session-ttl-minutes} est supprimée avec son fichier, de même que les fichiers orphelins
+ * (session perdue au redémarrage, finalisation abandonnée).
+ */
+@Component
+public class ResumableUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResumableUploadService.class);
+
+    private static final String PART_SUFFIX = ".part";
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    private final Path incomingLocation;
+    private final long chunkSize;
+    private final long maxSize;
+    private final Duration sessionTtl;
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    public ResumableUploadService(@Value("${app.uploads.incoming-dir:uploads-incoming}") String incomingDir,
+                                  @Value("${app.uploads.chunk-size-bytes:8388608}") long chunkSize,
+                                  @Value("${app.uploads.max-size-bytes:10737418240}") long maxSize,
+                                  @Value("${app.uploads.session-ttl-minutes:1440}") long sessionTtlMinutes) {
+        this.incomingLocation = Paths.get(incomingDir).toAbsolutePath().normalize();
+        this.chunkSize = chunkSize;
+        this.maxSize = maxSize;
+        this.sessionTtl = Duration.ofMinutes(sessionTtlMinutes);
+        try {
+            Files.createDirectories(this.incomingLocation);
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not create the directory for incoming uploads.", ex);
+        }
+    }
+
+    /**
+     * Fichier reçu en entier et vérifié, à déplacer ou à envoyer vers S3 par l'appelant.
+     */
+    public record CompletedUpload(Path file, String originalName, long size) {
+    }
+
+    public UploadSessionDto create(String owner, UploadSessionRequest request) {
+        String fileName = request.getFileName() != null ? StringUtils.cleanPath(request.getFileName()) : "";
+        if (!StringUtils.hasText(fileName) || fileName.contains("..") || fileName.contains("/")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid file name");
+        }
+        if (request.getSize() <= 0 || request.getSize() > maxSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "File size must be between 1 and " + maxSize + " bytes");
+        }
+        String sha256 = request.getSha256();
+        if (sha256 != null && !sha256.matches("[0-9a-fA-F]{64}")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "sha256 must be 64 hexadecimal characters");
+        }
+        String uploadId = UUID.randomUUID().toString();
+        Path file = incomingLocation.resolve(uploadId + PART_SUFFIX);
+        try (RandomAccessFile allocated = new RandomAccessFile(file.toFile(), "rw")) {
+            allocated.setLength(request.getSize());
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not allocate upload file for " + fileName, ex);
+        }
+        UploadSession session = new UploadSession(uploadId, owner, fileName, request.getSize(), chunkSize,
+                sha256 != null ? sha256.toLowerCase() : null, file);
+        sessions.put(uploadId, session);
+        logger.info("Upload {} opened by {}: {} ({} bytes, {} chunks)", uploadId, owner, fileName, session.size, session.chunkCount);
+        synchronized (session) {
+            return toDto(session);
+        }
+    }
+
+    /**
+     * Écrit le morceau qui commence à {@code offset} et renvoie le nouvel offset atteint sans trou.
+     * Un morceau déjà reçu peut être renvoyé (réessai) ; il remplace le précédent.
+     */
+    public long writeChunk(String owner, String uploadId, long offset, long contentLength, String checksum, InputStream body) throws IOException {
+        UploadSession session = find(owner, uploadId);
+        if (offset < 0 || offset >= session.size || offset % session.chunkSize != 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Offset must be a multiple of " + session.chunkSize + " within the file");
+        }
+        int index = (int) (offset / session.chunkSize);
+        long expected = Math.min(session.chunkSize, session.size - offset);
+        if (contentLength < 0) {
+            throw new ResponseStatusException(HttpStatus.LENGTH_REQUIRED, "Content-Length is required");
+        }
+        if (contentLength != expected) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chunk at offset " + offset + " must be " + expected + " bytes");
+        }
+        byte[] expectedDigest = parseChecksum(checksum);
+
+        synchronized (session) {
+            if (session.completing) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload is being finalized");
+            }
+            if (session.writing.get(index)) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Chunk at offset " + offset + " is already being written");
+            }
+            session.writing.set(index);
+            session.received.clear(index);
+            session.touch();
+        }
+        boolean written = false;
+        try {
+            MessageDigest digest = sha256();
+            long copied = 0;
+            byte[] buffer = new byte[COPY_BUFFER_BYTES];
+            try (FileChannel channel = FileChannel.open(session.file, StandardOpenOption.WRITE)) {
+                int read;
+                while ((read = body.read(buffer, 0, (int) Math.min(buffer.length, expected - copied + 1))) != -1) {
+                    if (copied + read > expected) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chunk is larger than its Content-Length");
+                    }
+                    digest.update(buffer, 0, read);
+                    ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes, offset + copied + bytes.position());
+                    }
+                    copied += read;
+                }
+            }
+            if (copied != expected) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Incomplete chunk: received " + copied + " of " + expected + " bytes");
+            }
+            if (expectedDigest != null && !MessageDigest.isEqual(expectedDigest, digest.digest())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chunk checksum mismatch at offset " + offset);
+            }
+            written = true;
+        } finally {
+            synchronized (session) {
+                session.writing.clear(index);
+                if (written) {
+                    session.received.set(index);
+                }
+                session.touch();
+            }
+        }
+        synchronized (session) {
+            return session.committedOffset();
+        }
+    }
+
+    public UploadSessionDto status(String owner, String uploadId) {
+        UploadSession session = find(owner, uploadId);
+        synchronized (session) {
+            return toDto(session);
+        }
+    }
+
+    public void abort(String owner, String uploadId) {
+        UploadSession session = find(owner, uploadId);
+        synchronized (session) {
+            if (session.completing) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload is being finalized");
+            }
+            discard(session);
+        }
+    }
+
+    /**
+     * Termine l'upload : tous les morceaux doivent être reçus. Le fichier est écrit sur disque et, si le client a
+     * donné son SHA-256 à l'ouverture, vérifié (un fichier différent est supprimé). La session est alors fermée.
+     */
+    public CompletedUpload complete(String owner, String uploadId) throws IOException {
+        UploadSession session = find(owner, uploadId);
+        synchronized (session) {
+            if (session.completing) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload is already being finalized");
+            }
+            if (session.received.cardinality() < session.chunkCount || !session.writing.isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload is incomplete: " +
+                        (session.chunkCount - session.received.cardinality()) + " chunks missing");
+            }
+            session.completing = true;
+        }
+        try (FileChannel channel = FileChannel.open(session.file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.force(true);
+            if (session.sha256 != null) {
+                MessageDigest digest = sha256();
+                ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+                while (channel.read(buffer) != -1) {
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.clear();
+                }
+                if (!session.sha256.equals(HexFormat.of().formatHex(digest.digest()))) {
+                    discard(session);
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "File checksum mismatch, upload discarded");
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            synchronized (session) {
+                session.completing = false;
+            }
+            throw ex;
+        }
+        sessions.remove(uploadId);
+        logger.info("Upload {} completed: {} ({} bytes)", uploadId, session.fileName, session.size);
+        return new CompletedUpload(session.file, session.fileName, session.size);
+    }
+
+    /**
+     * Supprime les sessions inactives et les fichiers entrants qui n'appartiennent plus à aucune session.
+     */
+    @Scheduled(fixedDelayString = "${app.uploads.purge-interval-ms:600000}",
+            initialDelayString = "${app.uploads.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        long expiredBefore = System.currentTimeMillis() - sessionTtl.toMillis();
+        int purged = 0;
+        for (UploadSession session : sessions.values()) {
+            synchronized (session) {
+                if (session.lastActivityMillis < expiredBefore && session.writing.isEmpty() && !session.completing) {
+                    discard(session);
+                    purged++;
+                }
+            }
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(incomingLocation, "*" + PART_SUFFIX)) {
+            for (Path file : files) {
+                String uploadId = file.getFileName().toString().replace(PART_SUFFIX, "");
+                if (!sessions.containsKey(uploadId) && Files.getLastModifiedTime(file).toMillis() < expiredBefore) {
+                    Files.deleteIfExists(file);
+                    purged++;
+                }
+            }
+        } catch (IOException ex) {
+            logger.warn("Could not purge incoming uploads in {}: {}", incomingLocation, ex.getMessage());
+        }
+        if (purged > 0) {
+            logger.info("Purged {} expired uploads", purged);
+        }
+    }
+
+    private UploadSession find(String owner, String uploadId) {
+        UploadSession session = uploadId != null ? sessions.get(uploadId) : null;
+        // Session d'un autre utilisateur : même réponse qu'une session inconnue
+        if (session == null || !session.owner.equals(owner)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload not found: " + uploadId);
+        }
+        return session;
+    }
+
+    private void discard(UploadSession session) {
+        sessions.remove(session.id);
+        try {
+            Files.deleteIfExists(session.file);
+        } catch (IOException ex) {
+            logger.warn("Could not delete upload file {}: {}", session.file, ex.getMessage());
+        }
+    }
+
+    private UploadSessionDto toDto(UploadSession session) {
+        UploadSessionDto dto = new UploadSessionDto();
+        dto.setUploadId(session.id);
+        dto.setFileName(session.fileName);
+        dto.setSize(session.size);
+        dto.setChunkSize(session.chunkSize);
+        dto.setChunkCount(session.chunkCount);
+        dto.setOffset(session.committedOffset());
+        List<Integer> missing = new ArrayList<>();
+        for (int i = session.received.nextClearBit(0); i < session.chunkCount; i = session.received.nextClearBit(i + 1)) {
+            missing.add(i);
+        }
+        dto.setMissingChunks(missing);
+        dto.setExpiresAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(session.lastActivityMillis).plus(sessionTtl), ZoneId.systemDefault()));
+        return dto;
+    }
+
+    private static byte[] parseChecksum(String checksum) {
+        if (checksum == null || checksum.isBlank()) {
+            return null;
+        }
+        String[] parts = checksum.trim().split("\\s+");
+        if (parts.length != 2 || !parts[0].equalsIgnoreCase("sha256")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Upload-Checksum must be 'sha256 <base64 digest>'");
+        }
+        try {
+            return Base64.getDecoder().decode(parts[1]);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Upload-Checksum digest is not valid base64");
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Morceaux reçus et en cours d'écriture ; protégés par le moniteur de la session.
+     */
+    private static final class UploadSession {
+        final String id;
+        final String owner;
+        final String fileName;
+        final long size;
+        final long chunkSize;
+        final int chunkCount;
+        final String sha256;
+        final Path file;
+        final BitSet received = new BitSet();
+        final BitSet writing = new BitSet();
+        boolean completing;
+        long lastActivityMillis = System.currentTimeMillis();
+
+        UploadSession(String id, String owner, String fileName, long size, long chunkSize, String sha256, Path file) {
+            this.id = id;
+            this.owner = owner;
+            this.fileName = fileName;
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.chunkCount = (int) ((size + chunkSize - 1) / chunkSize);
+            this.sha256 = sha256;
+            this.file = file;
+        }
+
+        long committedOffset() {
+            return Math.min(size, received.nextClearBit(0) * chunkSize);
+        }
+
+        void touch() {
+            lastActivityMillis = System.currentTimeMillis();
+        }
+    }
+}
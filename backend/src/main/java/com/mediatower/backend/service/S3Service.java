@@ -6,6 +6,11 @@ import com.amazonaws.services.s3.model.DeleteObjectRequest;
 import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
+import jakarta.annotation.PreDestroy;
+import org.apache.tika.Tika;
+import org.apache.tika.io.TikaInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,6 +19,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.Date;
 import java.util.UUID;
@@ -23,12 +29,21 @@ public class S3Service {
 
     private static final Logger logger = LoggerFactory.getLogger(S3Service.class);
     private final AmazonS3 s3Client;
+    // Envoi des gros fichiers en multipart S3, parties envoyées en parallèle
+    private final TransferManager transferManager;
+    private final Tika tika = new Tika();
 
     @Value("${aws.s3.bucketName}")
     private String bucketName;
 
     public S3Service(AmazonS3 s3Client) {
         this.s3Client = s3Client;
+        this.transferManager = TransferManagerBuilder.standard().withS3Client(s3Client).build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        transferManager.shutdownNow(false); // Le client S3 est un bean partagé
     }
 
     /**
@@ -77,6 +92,34 @@ public class S3Service {
         return objectKey;
     }
 
+    /**
+     * Téléverse vers Amazon S3 un fichier déjà sur le disque (upload reprenable terminé), en multipart au-delà
+     * de quelques Mo : au-delà de 5 Go un PUT simple est refusé par S3.
+     * @param file Le fichier local.
+     * @param originalName Le nom d'origine, utilisé pour la clé et pour départager la détection du type de contenu.
+     * @param directory Le sous-dossier dans le bucket S3 (ex: "produits").
+     * @return La clé S3 complète de l'objet téléversé.
+     */
+    public String uploadFile(Path file, String originalName, String directory) throws IOException {
+        String objectKey = directory + "/" + UUID.randomUUID() + "-" + originalName;
+
+        ObjectMetadata metadata = new ObjectMetadata();
+        // Type détecté par Tika sur les premiers octets, comme pour les médias stockés localement
+        try (TikaInputStream in = TikaInputStream.get(file)) {
+            metadata.setContentType(tika.detect(in, originalName));
+        }
+
+        logger.info("Uploading file '{}' to S3 with key: {}", originalName, objectKey);
+        try {
+            transferManager.upload(new PutObjectRequest(bucketName, objectKey, file.toFile()).withMetadata(metadata))
+                    .waitForCompletion();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while uploading " + objectKey, e);
+        }
+        return objectKey;
+    }
+
     /**
      * Supprime un fichier d'Amazon S3.
      * @param objectKey La clé complète de l'objet à supprimer.
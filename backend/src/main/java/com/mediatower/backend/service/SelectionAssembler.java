@@ -0,0 +1,35 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.dto.SelectionRow;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Regroupe les lignes (id, langue, nom, prix) d'une projection en DTO, un par id, dans l'ordre des lignes.
+ */
+final class SelectionAssembler {
+
+    private SelectionAssembler() {
+    }
+
+    /**
+     * @param newItem crée le DTO d'un id à partir de sa première ligne (id et prix), avec une map de noms vide
+     * @param namesOf map des noms du DTO, complétée ligne par ligne
+     */
+    static <T> List<T> assemble(Stream<SelectionRow> rows, Function<SelectionRow, T> newItem,
+                                Function<T, Map<String, String>> namesOf) {
+        Map<Long, T> items = new LinkedHashMap<>();
+        rows.forEach(row -> {
+            T item = items.computeIfAbsent(row.id(), id -> newItem.apply(row));
+            if (row.locale() != null) { // Élément sans aucun nom : LEFT JOIN vide
+                namesOf.apply(item).put(row.locale(), row.name());
+            }
+        });
+        return new ArrayList<>(items.values());
+    }
+}
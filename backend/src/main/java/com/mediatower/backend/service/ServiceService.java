@@ -3,6 +3,7 @@
 package com.mediatower.backend.service;
 
 import com.mediatower.backend.dto.MediaDto;
+import com.mediatower.backend.dto.SelectionRow;
 import com.mediatower.backend.dto.ServiceDto;
 import com.mediatower.backend.model.Media;
 import com.mediatower.backend.model.MediaType;
@@ -16,9 +17,11 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Component
 public class ServiceService {
@@ -27,14 +30,18 @@ public class ServiceService {
     private final BookingRepository bookingRepository;
     private final FileStorageService fileStorageService;
     private final MediaRepository mediaRepository;
+    private final CatalogVersions catalogVersions;
+    private final ImageVariantService imageVariantService;
 
     private final String baseUrl = "http://localhost:8080/api/download/";
 
-    public ServiceService(ServiceRepository serviceRepository, BookingRepository bookingRepository, FileStorageService fileStorageService, MediaRepository mediaRepository) {
+    public ServiceService(ServiceRepository serviceRepository, BookingRepository bookingRepository, FileStorageService fileStorageService, MediaRepository mediaRepository, CatalogVersions catalogVersions, ImageVariantService imageVariantService) {
         this.serviceRepository = serviceRepository;
         this.bookingRepository = bookingRepository;
         this.fileStorageService = fileStorageService;
         this.mediaRepository = mediaRepository;
+        this.catalogVersions = catalogVersions;
+        this.imageVariantService = imageVariantService;
     }
 
     public Page<ServiceDto> getAllServicesPaginated(String searchTerm, Pageable pageable) {
@@ -48,16 +55,17 @@ public class ServiceService {
     }
 
     // CORRECTION: Méthode pour admin - sélection simplifiée
+    @Transactional(readOnly = true)
     public List<ServiceDto> getAllServicesForSelection() {
-        return serviceRepository.findAll().stream()
-                .map(service -> {
-                    ServiceDto dto = new ServiceDto();
-                    dto.setId(service.getId());
-                    dto.setNames(service.getNames());
-                    dto.setPrice(service.getPrice());
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        try (Stream<SelectionRow> rows = serviceRepository.streamSelectionRows()) {
+            return SelectionAssembler.assemble(rows, row -> {
+                ServiceDto dto = new ServiceDto();
+                dto.setId(row.id());
+                dto.setNames(new HashMap<>());
+                dto.setPrice(row.price());
+                return dto;
+            }, ServiceDto::getNames);
+        }
     }
 
     @Transactional
@@ -68,6 +76,7 @@ public class ServiceService {
         Service savedService = serviceRepository.save(service);
 
         associateMedia(savedService, images);
+        catalogVersions.bump(CatalogAggregate.SERVICES);
 
         return convertToDto(savedService);
     }
@@ -79,6 +88,7 @@ public class ServiceService {
         updateServiceFromDto(service, serviceDto);
 
         associateMedia(service, images);
+        catalogVersions.bump(CatalogAggregate.SERVICES);
 
         return convertToDto(serviceRepository.save(service));
     }
@@ -93,11 +103,13 @@ public class ServiceService {
                 media.setOriginalName(file.getOriginalFilename());
                 media.setType(MediaType.IMAGE);
                 media.setService(service);
+                fileStorageService.inspect(media);
                 if (isFirstImage) {
                     media.setPrimary(true);
                     isFirstImage = false;
                 }
                 mediaRepository.save(media);
+                imageVariantService.prepare(media);
                 service.getMediaAssets().add(media);
             }
         }
@@ -111,6 +123,7 @@ public class ServiceService {
 
     public void deleteService(Long id) {
         serviceRepository.deleteById(id);
+        catalogVersions.bump(CatalogAggregate.SERVICES);
     }
 
     public List<ServiceDto> getSimilarServices(Long serviceId) {
@@ -145,6 +158,9 @@ public class ServiceService {
         mediaDto.setType(media.getType().name());
         mediaDto.setUrl(baseUrl + media.getFileName());
         mediaDto.setPrimary(media.isPrimary());
+        if (media.getType() == MediaType.IMAGE) {
+            mediaDto.setVariants(ImageVariant.urls(mediaDto.getUrl()));
+        }
         return mediaDto;
     }
 }
\ No newline at end of file
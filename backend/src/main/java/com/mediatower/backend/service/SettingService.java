@@ -17,9 +17,11 @@ import java.util.stream.Collectors;
 public class SettingService {
 
     private final SettingRepository settingRepository;
+    private final CatalogVersions catalogVersions;
 
-    public SettingService(SettingRepository settingRepository) {
+    public SettingService(SettingRepository settingRepository, CatalogVersions catalogVersions) {
         this.settingRepository = settingRepository;
+        this.catalogVersions = catalogVersions;
     }
 
     // Récupérer tous les paramètres
@@ -64,6 +66,7 @@ public class SettingService {
                 .collect(Collectors.toList());
 
         settingRepository.saveAll(updatedSettings);
+        catalogVersions.bump(CatalogAggregate.SETTINGS);
 
         return settingsToUpdate;
     }
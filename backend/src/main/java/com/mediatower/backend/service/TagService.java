@@ -9,7 +9,17 @@ import java.util.stream.Collectors;
 @Service
 public class TagService {
     private final TagRepository tagRepository;
-    public TagService(TagRepository tagRepository) { this.tagRepository = tagRepository; }
+    private final ProductDetailCache productDetailCache;
+    private final CatalogVersions catalogVersions;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductSimilarityIndex productSimilarityIndex;
+    public TagService(TagRepository tagRepository, ProductDetailCache productDetailCache, CatalogVersions catalogVersions, ProductFacetIndex productFacetIndex, ProductSimilarityIndex productSimilarityIndex) {
+        this.tagRepository = tagRepository;
+        this.productDetailCache = productDetailCache;
+        this.catalogVersions = catalogVersions;
+        this.productFacetIndex = productFacetIndex;
+        this.productSimilarityIndex = productSimilarityIndex;
+    }
 
     public List<TagDto> getAllTags() {
         return tagRepository.findAll().stream().map(this::convertToDto).collect(Collectors.toList());
@@ -18,11 +28,18 @@ public class TagService {
     public TagDto createTag(TagDto dto) {
         Tag tag = new Tag();
         tag.setName(dto.getName());
-        return convertToDto(tagRepository.save(tag));
+        TagDto created = convertToDto(tagRepository.save(tag));
+        catalogVersions.bump(CatalogAggregate.TAGS);
+        return created;
     }
 
     public void deleteTag(Long id) {
         tagRepository.deleteById(id);
+        // Les fiches produit en cache ne portent que les ids de tags : seule la suppression les rend obsolètes
+        productDetailCache.evictTagAfterCommit(id);
+        productFacetIndex.removeTagAfterCommit(id);
+        productSimilarityIndex.invalidateFallbacksAfterCommit();
+        catalogVersions.bump(CatalogAggregate.TAGS);
     }
 
     private TagDto convertToDto(Tag tag) {
@@ -0,0 +1,94 @@
+package com.mediatower.backend.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Découpage et normalisation du texte pour la recherche (en / fr) :
+ * minuscules, suppression des accents ('Éditeur' -> 'editeur'), ligatures dépliées, mots vides retirés.
+ */
+final class TextAnalyzer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "the", "of", "for", "to", "in", "on", "with", "or",
+            "le", "la", "les", "un", "une", "des", "de", "du", "et", "en", "au", "aux", "pour", "sur", "avec", "ou", "l", "d");
+
+    private TextAnalyzer() {
+    }
+
+    /**
+     * Tokens normalisés du texte, dans l'ordre, doublons inclus (utilisé pour les fréquences).
+     */
+    static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        for (String token : SEPARATORS.split(fold(text))) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Tokens distincts d'une requête, dans l'ordre de saisie.
+     */
+    static List<String> queryTokens(String query) {
+        return new ArrayList<>(new LinkedHashSet<>(tokens(query)));
+    }
+
+    static String fold(String text) {
+        String lower = text.toLowerCase(Locale.ROOT)
+                .replace("œ", "oe")
+                .replace("æ", "ae")
+                .replace("ß", "ss");
+        return DIACRITICS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    /**
+     * Distance de Damerau-Levenshtein (transpositions adjacentes) si elle est au plus maxEdits, sinon maxEdits + 1.
+     */
+    static int boundedEditDistance(String a, String b, int maxEdits) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > maxEdits) {
+            return maxEdits + 1;
+        }
+        int[] prevPrev = new int[m + 1];
+        int[] prev = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(prev[j] + 1, current[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, prevPrev[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] recycled = prevPrev;
+            prevPrev = prev;
+            prev = current;
+            current = recycled;
+        }
+        return Math.min(prev[m], maxEdits + 1);
+    }
+}
@@ -0,0 +1,128 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.model.User;
+import com.mediatower.backend.model.UserRole;
+import com.mediatower.backend.model.UserStatus;
+import com.mediatower.backend.repository.UserRepository;
+import com.mediatower.backend.security.UserSnapshot;
+import com.mediatower.backend.security.VerifiedIdToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Résolution de l'utilisateur applicatif à partir d'un ID token vérifié.
+ * <p>
+ * Chemin rapide : une lecture seule par UID, sans écriture. Chemin lent (première connexion) :
+ * liaison d'un compte existant par e-mail ou création, sérialisé par UID pour que deux premières
+ * requêtes concurrentes ne créent pas deux fois le même utilisateur.
+ */
+@Service
+public class UserPrincipalStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserPrincipalStore.class);
+    private static final int LOCK_STRIPES = 64;
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final TransactionTemplate readOnlyTx;
+    private final TransactionTemplate writeTx;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public UserPrincipalStore(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                              PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.writeTx = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public UserSnapshot findOrCreate(VerifiedIdToken decodedToken) {
+        // 1. Chemin rapide : utilisateur déjà lié à son UID Firebase (cas de toutes les connexions répétées)
+        Optional<UserSnapshot> linked = findLinked(decodedToken.uid());
+        if (linked.isPresent()) {
+            return linked.get();
+        }
+
+        // 2. Chemin lent, sérialisé par UID. Le verrou englobe toute la transaction (commit inclus).
+        ReentrantLock lock = locks[Math.floorMod(decodedToken.uid().hashCode(), LOCK_STRIPES)];
+        lock.lock();
+        try {
+            return writeTx.execute(status -> linkOrCreate(decodedToken));
+        } catch (DataIntegrityViolationException e) {
+            // Un autre nœud a inséré/lié le même utilisateur entre-temps : on relit simplement.
+            logger.info("Concurrent creation detected for UID {}, reloading: {}", decodedToken.uid(), e.getMessage());
+            return findLinked(decodedToken.uid()).orElseThrow(() -> e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Optional<UserSnapshot> findLinked(String uid) {
+        return readOnlyTx.execute(status -> userRepository.findSnapshotByUid(uid));
+    }
+
+    private UserSnapshot linkOrCreate(VerifiedIdToken decodedToken) {
+        String uid = decodedToken.uid();
+        String email = decodedToken.email();
+
+        // Un thread précédent (même verrou) a peut-être déjà fait le travail
+        Optional<User> existingUserByUid = userRepository.findByUid(uid);
+        if (existingUserByUid.isPresent()) {
+            return UserSnapshot.of(existingUserByUid.get());
+        }
+
+        // Si non trouvé par UID, chercher par e-mail (première connexion après inscription, ou liaison)
+        Optional<User> existingUserByEmail = email != null ? userRepository.findByEmail(email) : Optional.empty();
+        if (existingUserByEmail.isPresent()) {
+            User userToLink = existingUserByEmail.get();
+            // Si l'utilisateur existe déjà (inscription classique) mais n'a pas de UID, on le lie.
+            if (userToLink.getUid() == null || userToLink.getUid().isBlank()) {
+                logger.info("Linking Firebase UID {} to existing local account {}", uid, email);
+                userToLink.setUid(uid);
+                if (!userToLink.isEmailVerified()) {
+                    userToLink.setEmailVerified(true); // La connexion via Firebase confirme l'email
+                }
+                return UserSnapshot.of(userRepository.save(userToLink));
+            }
+            return UserSnapshot.of(userToLink);
+        }
+
+        // Si l'utilisateur n'existe VRAIMENT PAS, on le crée (cas d'une inscription via Google)
+        logger.info("Creating new user from social login (Google) for UID: {}", uid);
+        User newUser = new User();
+        newUser.setUid(uid);
+        newUser.setEmail(email);
+
+        String name = decodedToken.name();
+        if (name != null && !name.isEmpty()) {
+            String[] names = name.split(" ", 2);
+            newUser.setFirstName(names[0]);
+            if (names.length > 1) {
+                newUser.setLastName(names[1]);
+            }
+        } else {
+            newUser.setFirstName(email != null ? email.split("@")[0] : "User");
+        }
+
+        // Mot de passe aléatoire FORT et non devinable : la connexion se fera toujours via Google.
+        newUser.setPassword(passwordEncoder.encode(UUID.randomUUID().toString() + UUID.randomUUID().toString()));
+        newUser.setRole(UserRole.USER);
+        newUser.setStatus(UserStatus.ACTIVE);
+        newUser.setEmailVerified(true);
+
+        return UserSnapshot.of(userRepository.save(newUser));
+    }
+}
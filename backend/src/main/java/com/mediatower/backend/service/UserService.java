@@ -13,15 +13,18 @@ import com.mediatower.backend.dto.LoginHistoryDto;
 import com.google.firebase.auth.FirebaseToken;
 import com.google.firebase.auth.UserRecord;
 import com.mediatower.backend.dto.AdminUserDto;
+import com.mediatower.backend.dto.CursorPage;
 import com.mediatower.backend.dto.RegisterRequest;
 import com.mediatower.backend.dto.UserProfileDto;
 import com.mediatower.backend.repository.PasswordResetTokenRepository;
 import com.mediatower.backend.repository.UserRepository;
 import com.mediatower.backend.dto.PasswordHistoryDto;
+import com.mediatower.backend.security.VerifiedTokenCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -38,6 +41,7 @@ import java.util.stream.Collectors;
 public class UserService {
 
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+    private static final String CURSOR_SCOPE = "users";
     @Value("${frontend.base-url}")
     private String frontendBaseUrl;
     @Value("${app.backend-base-url}")
@@ -51,10 +55,11 @@ public class UserService {
     private final AuditLogService auditLogService;
     private final FileStorageService fileStorageService;
     private final AuditLogRepository auditLogRepository;
+    private final VerifiedTokenCache verifiedTokenCache;
 
 
 
-    public UserService(UserRepository userRepository, PasswordHistoryRepository passwordHistoryRepository, PasswordEncoder passwordEncoder, EmailService emailService, PasswordResetTokenRepository tokenRepository, AuditLogService auditLogService, FileStorageService fileStorageService, AuditLogRepository auditLogRepository) {
+    public UserService(UserRepository userRepository, PasswordHistoryRepository passwordHistoryRepository, PasswordEncoder passwordEncoder, EmailService emailService, PasswordResetTokenRepository tokenRepository, AuditLogService auditLogService, FileStorageService fileStorageService, AuditLogRepository auditLogRepository, VerifiedTokenCache verifiedTokenCache) {
         this.userRepository = userRepository;
         this.passwordHistoryRepository = passwordHistoryRepository;
         this.passwordEncoder = passwordEncoder;
@@ -63,6 +68,7 @@ public class UserService {
         this.auditLogService = auditLogService;
         this.fileStorageService = fileStorageService;
         this.auditLogRepository = auditLogRepository;
+        this.verifiedTokenCache = verifiedTokenCache;
     }
 
     @Transactional
@@ -193,62 +199,6 @@ public class UserService {
         }
     }
 
-    @Transactional
-    public User findOrCreateUserFromToken(FirebaseToken decodedToken) {
-        String uid = decodedToken.getUid();
-        String email = decodedToken.getEmail();
-
-        // 1. Chercher par UID Firebase (cas le plus courant pour les connexions répétées)
-        Optional<User> existingUserByUid = userRepository.findByUid(uid);
-        if (existingUserByUid.isPresent()) {
-            return existingUserByUid.get();
-        }
-
-        // 2. Si non trouvé par UID, chercher par e-mail (cas de la première connexion après inscription, ou liaison)
-        Optional<User> existingUserByEmail = userRepository.findByEmail(email);
-        if (existingUserByEmail.isPresent()) {
-            User userToLink = existingUserByEmail.get();
-            // Si l'utilisateur existe déjà (inscription classique) mais n'a pas de UID, on le lie.
-            if (userToLink.getUid() == null || userToLink.getUid().isBlank()) {
-                logger.info("Linking Firebase UID {} to existing local account {}", uid, email);
-                userToLink.setUid(uid);
-                if (!userToLink.isEmailVerified()) {
-                    userToLink.setEmailVerified(true); // La connexion via Firebase confirme l'email
-                }
-                return userRepository.save(userToLink);
-            }
-            // Si l'UID correspond déjà, on retourne l'utilisateur.
-            // Ce cas est normalement déjà géré par la première recherche, mais c'est une sécurité.
-            return userToLink;
-        }
-
-        // 3. Si l'utilisateur n'existe VRAIMENT PAS, on le crée (cas d'une inscription via Google)
-        logger.info("Creating new user from social login (Google) for UID: {}", uid);
-        User newUser = new User();
-        newUser.setUid(uid);
-        newUser.setEmail(email);
-
-        String name = decodedToken.getName();
-        if (name != null && !name.isEmpty()) {
-            String[] names = name.split(" ", 2);
-            newUser.setFirstName(names[0]);
-            if (names.length > 1) {
-                newUser.setLastName(names[1]);
-            }
-        } else {
-            newUser.setFirstName(email != null ? email.split("@")[0] : "User");
-        }
-
-        // On assigne un mot de passe aléatoire FORT et non devinable, car il ne sera jamais utilisé pour se connecter.
-        // La connexion se fera toujours via Google.
-        newUser.setPassword(passwordEncoder.encode(UUID.randomUUID().toString() + UUID.randomUUID().toString()));
-        newUser.setRole(UserRole.USER);
-        newUser.setStatus(UserStatus.ACTIVE);
-        newUser.setEmailVerified(true);
-
-        return userRepository.save(newUser);
-    }
-
     @Transactional(readOnly = true)
     public Optional<User> findUserByToken(FirebaseToken decodedToken) {
         return userRepository.findByUid(decodedToken.getUid());
@@ -278,6 +228,8 @@ public class UserService {
         user.setAddress(userProfileDto.getAddress());
 
         User updatedUser = userRepository.save(user);
+        // Le nom fait partie du FirebaseUser mis en cache
+        verifiedTokenCache.invalidateUser(updatedUser.getUid());
         return convertToDto(updatedUser);
     }
 
@@ -293,6 +245,7 @@ public class UserService {
         }
 
         User updatedUser = userRepository.save(user);
+        verifiedTokenCache.invalidateUser(updatedUser.getUid());
         return convertToDto(updatedUser);
     }
 
@@ -308,15 +261,16 @@ public class UserService {
         }
 
         User updatedUser = userRepository.save(user);
+        verifiedTokenCache.invalidateUser(updatedUser.getUid());
         return convertToDto(updatedUser);
     }
 
     @Transactional
     public void deleteUser(Long id) {
-        if (!userRepository.existsById(id)) {
-            throw new RuntimeException("User not found");
-        }
-        userRepository.deleteById(id);
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        userRepository.delete(user);
+        verifiedTokenCache.invalidateUser(user.getUid());
     }
 
     @Transactional
@@ -644,4 +598,19 @@ public class UserService {
         // On convertit la Page<User> en Page<AdminUserDto>
         return userPage.map(this::convertToAdminDto);
     }
+
+    // Variante par curseur de findAllUsersPaginated : utilisateurs les plus récents (id décroissant) d'abord
+    @Transactional(readOnly = true)
+    public CursorPage<AdminUserDto> findUsersAfterCursor(String search, String cursor, Integer size, boolean withTotal) {
+        String term = (search == null || search.trim().isEmpty()) ? null : search.trim();
+        int pageSize = KeysetCursor.pageSize(size);
+        KeysetCursor position = KeysetCursor.decode(CURSOR_SCOPE, cursor);
+
+        List<User> users = userRepository.findBySearchAfter(term, position.id(), PageRequest.of(0, pageSize + 1));
+        boolean hasNext = users.size() > pageSize;
+        List<User> page = hasNext ? users.subList(0, pageSize) : users;
+        String nextCursor = hasNext ? KeysetCursor.encode(CURSOR_SCOPE, page.get(page.size() - 1).getId()) : null;
+        Long total = withTotal ? userRepository.countBySearch(term) : null;
+        return new CursorPage<>(page.stream().map(this::convertToAdminDto).collect(Collectors.toList()), nextCursor, pageSize, total);
+    }
 }
\ No newline at end of file
@@ -85,3 +85,34 @@ CREATE TABLE IF NOT EXISTS bookings (
     updated_at TIMESTAMP,
     CONSTRAINT fk_bookings_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
     );
+
+-- ============================
+-- Table RATE_LIMIT_BUCKETS (rate limiting distribué, app.rate-limit.mode=distributed)
+-- ============================
+CREATE TABLE IF NOT EXISTS rate_limit_buckets (
+                                                  id VARCHAR(255) PRIMARY KEY,
+                                                  state VARBINARY(2048) NOT NULL,
+    version BIGINT NOT NULL,
+    expires_at BIGINT NOT NULL
+    );
+CREATE INDEX IF NOT EXISTS idx_rate_limit_buckets_expires_at ON rate_limit_buckets (expires_at);
+
+-- ============================
+-- Table CATALOG_VERSIONS (ETag des GET publics du catalogue, voir CatalogVersions)
+-- ============================
+CREATE TABLE IF NOT EXISTS catalog_versions (
+                                                aggregate VARCHAR(32) PRIMARY KEY,
+                                                version BIGINT NOT NULL,
+                                                updated_at BIGINT NOT NULL
+    );
+
+-- ============================
+-- Table STORAGE_BLOBS (fichiers stockés par contenu et nombre de médias qui les référencent, voir ContentAddressedStore)
+-- ============================
+CREATE TABLE IF NOT EXISTS storage_blobs (
+                                             digest VARCHAR(64) PRIMARY KEY,
+                                             ref_count BIGINT NOT NULL,
+                                             size BIGINT NOT NULL,
+                                             updated_at BIGINT NOT NULL
+    );
+CREATE INDEX IF NOT EXISTS idx_storage_blobs_ref_count ON storage_blobs (ref_count, updated_at);
@@ -0,0 +1,178 @@
+package com.mediatower.backend.controller;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadInfo;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Téléchargements concurrents d'un fichier de 1 Go par un Tomcat embarqué : débit, temps CPU et octets alloués
+ * par les threads du connecteur, pic du tas. Trois chemins de {@link FileRegionWriter} : sendfile, copie par
+ * transferTo (connecteur sans sendfile) et multipart/byteranges (deux plages couvrant le fichier).
+ * Le pic du tas doit rester borné quel que soit le chemin : la copie hors sendfile passe par des tampons
+ * réutilisés, jamais par un tableau de la taille du fichier.
+ * <p>
+ * Lancement : {@code mvn test -Dtest=FileRegionWriterBenchmark -Dbenchmark=true}
+ * (taille du fichier : {@code -Dbenchmark.fileSize=<octets>}, connexions : {@code -Dbenchmark.clients=<n>})
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class FileRegionWriterBenchmark {
+
+    private static final long FILE_SIZE = Long.getLong("benchmark.fileSize", 1L << 30);
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 8);
+    // Pic du tas toléré au-dessus du niveau de départ, pour l'ensemble des téléchargements en cours
+    private static final long MAX_HEAP_GROWTH = 64L << 20;
+
+    private static Path file;
+    private static Tomcat tomcat;
+    private static int port;
+
+    @BeforeAll
+    static void start() throws Exception {
+        // Fichier creux : la création est immédiate, la lecture passe par le cache de pages comme un vrai fichier
+        file = Files.createTempFile("file-region-benchmark", ".bin");
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(FILE_SIZE);
+        }
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("file-region-benchmark-tomcat").toString());
+        tomcat.setPort(0);
+        tomcat.getConnector();
+        Context context = tomcat.addContext("", null);
+        addServlet(context, "sendfile", true);
+        addServlet(context, "copy", false);
+        addServlet(context, "multipart", true);
+        tomcat.start();
+        port = tomcat.getConnector().getLocalPort();
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        tomcat.stop();
+        tomcat.destroy();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void concurrentDownloads() throws Exception {
+        String half = "bytes=0-" + (FILE_SIZE / 2 - 2) + "," + (FILE_SIZE / 2) + "-";
+        for (int round = 0; round < 2; round++) { // le premier tour sert de chauffe
+            measure("sendfile", null);
+            measure("copy", null);
+            measure("multipart", half);
+        }
+    }
+
+    private static void measure(String path, String range) throws Exception {
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        long heapBefore = heapPools.stream().mapToLong(pool -> pool.getUsage().getUsed()).sum();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long gcBefore = gcCount();
+        long[] serverBefore = serverThreads();
+
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        long start = System.nanoTime();
+        List<Future<Long>> downloads = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            downloads.add(clients.submit(() -> download(path, range)));
+        }
+        long received = 0;
+        for (Future<Long> download : downloads) {
+            received += download.get();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        clients.shutdown();
+
+        long[] serverAfter = serverThreads();
+        long heapPeak = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        // Les deux plages laissent un octet de côté ; s'y ajoutent les en-têtes des parties
+        long payload = CLIENTS * (range == null ? FILE_SIZE : FILE_SIZE - 1);
+        System.out.printf("%-9s %d x %d Mo : %6.0f Mo/s, CPU serveur %6d ms, alloué %8d Ko, pic du tas +%4d Mo, %d GC%n",
+                path, CLIENTS, FILE_SIZE >> 20, (received >> 20) / seconds,
+                (serverAfter[0] - serverBefore[0]) / 1_000_000, (serverAfter[1] - serverBefore[1]) >> 10,
+                Math.max(0, heapPeak - heapBefore) >> 20, gcCount() - gcBefore);
+
+        assertTrue(range == null ? received == payload : received > payload, path + " : " + received + " octets reçus");
+        assertTrue(heapPeak - heapBefore < MAX_HEAP_GROWTH, path + " : pic du tas +" + ((heapPeak - heapBefore) >> 20) + " Mo");
+    }
+
+    private static long download(String path, String range) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/" + path).openConnection();
+        if (range != null) {
+            connection.setRequestProperty("Range", range);
+        }
+        long count = 0;
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                count += read;
+            }
+        }
+        assertEquals(connection.getContentLengthLong(), count, path);
+        return count;
+    }
+
+    private static void addServlet(Context context, String name, boolean sendfile) {
+        Tomcat.addServlet(context, name, new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                if (!sendfile) {
+                    request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.FALSE);
+                }
+                FileRegionWriter.write(request, response, file, null, null, "application/octet-stream", "attachment");
+            }
+        });
+        context.addServletMappingDecoded("/" + name, name);
+    }
+
+    // Temps CPU et octets alloués cumulés des threads du connecteur
+    private static long[] serverThreads() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long cpu = 0;
+        long allocated = 0;
+        for (long id : threads.getAllThreadIds()) {
+            ThreadInfo info = threads.getThreadInfo(id);
+            if (info != null && info.getThreadName().startsWith("http-nio")) {
+                cpu += Math.max(0, threads.getThreadCpuTime(id));
+                allocated += Math.max(0, threads.getThreadAllocatedBytes(id));
+            }
+        }
+        return new long[]{cpu, allocated};
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+                .sum();
+    }
+}
@@ -0,0 +1,329 @@
+package com.mediatower.backend.controller;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Réponses de {@link FileRegionWriter} servies par un Tomcat embarqué : plages simples, fusionnées et
+ * multiples, 416, If-Range, HEAD et 304, par sendfile et par copie.
+ */
+class FileRegionWriterTest {
+
+    // Au-dessus du seuil du sendfile
+    private static final int FILE_SIZE = 200_000;
+    private static final String STORED_ETAG = "\"sha256-stored\"";
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+    private static final Instant LAST_MODIFIED = Instant.parse("2024-03-01T12:00:00Z");
+
+    private static Path file;
+    private static byte[] content;
+    private static Tomcat tomcat;
+    private static int port;
+    private static final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void start() throws Exception {
+        content = new byte[FILE_SIZE];
+        new Random(42).nextBytes(content);
+        file = Files.createTempFile("file-region-test", ".bin");
+        Files.write(file, content);
+        Files.setLastModifiedTime(file, FileTime.from(LAST_MODIFIED));
+
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("file-region-test-tomcat").toString());
+        tomcat.setPort(0);
+        tomcat.getConnector();
+        Context context = tomcat.addContext("", null);
+        addServlet(context, "sendfile", true, null, null);
+        addServlet(context, "copy", false, null, null);
+        addServlet(context, "stored", true, STORED_ETAG, (long) FILE_SIZE);
+        addServlet(context, "stale", true, STORED_ETAG, FILE_SIZE + 1L);
+        tomcat.start();
+        port = tomcat.getConnector().getLocalPort();
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        tomcat.stop();
+        tomcat.destroy();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void wholeFileWithoutRange() throws Exception {
+        for (String path : List.of("sendfile", "copy")) {
+            HttpResponse<byte[]> response = get(path);
+
+            assertEquals(200, response.statusCode(), path);
+            assertArrayEquals(content, response.body(), path);
+            assertEquals(String.valueOf(FILE_SIZE), header(response, "Content-Length"));
+            assertEquals("bytes", header(response, "Accept-Ranges"));
+            assertEquals("attachment", header(response, "Content-Disposition"));
+            assertTrue(response.headers().firstValue("ETag").isPresent());
+        }
+    }
+
+    @Test
+    void singleRangesAreServedWithContentRange() throws Exception {
+        for (String path : List.of("sendfile", "copy")) {
+            assertSingleRange(get(path, "Range", "bytes=10-19"), 10, 19);
+            // Plage de plus de 48 Ko : sendfile quand le connecteur le permet
+            assertSingleRange(get(path, "Range", "bytes=1000-150999"), 1000, 150_999);
+            // Suffixe et plage ouverte
+            assertSingleRange(get(path, "Range", "bytes=-5"), FILE_SIZE - 5, FILE_SIZE - 1);
+            assertSingleRange(get(path, "Range", "bytes=199990-"), 199_990, FILE_SIZE - 1);
+            // Fin au-delà du fichier : ramenée au dernier octet
+            assertSingleRange(get(path, "Range", "bytes=199000-999999"), 199_000, FILE_SIZE - 1);
+        }
+    }
+
+    @Test
+    void overlappingAndAdjacentRangesAreMerged() throws Exception {
+        assertSingleRange(get("copy", "Range", "bytes=15-19,0-9,5-14"), 0, 19);
+        // Plage non satisfiable ignorée quand une autre l'est
+        assertSingleRange(get("copy", "Range", "bytes=300000-,20-29"), 20, 29);
+    }
+
+    @Test
+    void multipleRangesAreSentAsMultipart() throws Exception {
+        for (String path : List.of("sendfile", "copy")) {
+            HttpResponse<byte[]> response = get(path, "Range", "bytes=100-109,0-4,50000-120000");
+
+            assertEquals(206, response.statusCode());
+            String contentType = header(response, "Content-Type");
+            assertTrue(contentType.startsWith("multipart/byteranges; boundary="), contentType);
+            assertEquals(String.valueOf(response.body().length), header(response, "Content-Length"));
+
+            List<Part> parts = parts(response.body(), contentType.substring(contentType.indexOf('=') + 1));
+            assertEquals(3, parts.size());
+            assertPart(parts.get(0), 0, 4);
+            assertPart(parts.get(1), 100, 109);
+            assertPart(parts.get(2), 50_000, 120_000);
+        }
+    }
+
+    @Test
+    void unsatisfiableRangeIs416() throws Exception {
+        for (String range : List.of("bytes=200000-", "bytes=300000-400000,250000-")) {
+            HttpResponse<byte[]> response = get("copy", "Range", range);
+
+            assertEquals(416, response.statusCode(), range);
+            assertEquals("bytes */" + FILE_SIZE, header(response, "Content-Range"));
+            assertEquals(0, response.body().length);
+        }
+    }
+
+    @Test
+    void unreadableRangeSendsTheWholeFile() throws Exception {
+        for (String range : List.of("bytes=abc", "items=0-5", "bytes=9-3")) {
+            HttpResponse<byte[]> response = get("copy", "Range", range);
+
+            assertEquals(200, response.statusCode(), range);
+            assertArrayEquals(content, response.body(), range);
+        }
+    }
+
+    @Test
+    void ifRangeByETagServesTheRangeOnlyForTheCurrentVersion() throws Exception {
+        String etag = header(get("copy"), "ETag");
+
+        assertSingleRange(get("copy", "Range", "bytes=0-9", "If-Range", etag), 0, 9);
+        assertWholeFile(get("copy", "Range", "bytes=0-9", "If-Range", "\"other\""));
+        // Comparaison forte : un ETag faible ne valide pas la plage
+        assertWholeFile(get("copy", "Range", "bytes=0-9", "If-Range", "W/" + etag));
+    }
+
+    @Test
+    void ifRangeByDateServesTheRangeOnlyForTheCurrentVersion() throws Exception {
+        String lastModified = header(get("copy"), "Last-Modified");
+        assertEquals(httpDate(LAST_MODIFIED), lastModified);
+
+        assertSingleRange(get("copy", "Range", "bytes=0-9", "If-Range", lastModified), 0, 9);
+        assertWholeFile(get("copy", "Range", "bytes=0-9", "If-Range", httpDate(LAST_MODIFIED.minusSeconds(60))));
+        assertWholeFile(get("copy", "Range", "bytes=0-9", "If-Range", httpDate(LAST_MODIFIED.plusSeconds(60))));
+        assertWholeFile(get("copy", "Range", "bytes=0-9", "If-Range", "not a date"));
+    }
+
+    @Test
+    void headSendsHeadersWithoutBody() throws Exception {
+        HttpResponse<byte[]> whole = head("sendfile");
+        assertEquals(200, whole.statusCode());
+        assertEquals(String.valueOf(FILE_SIZE), header(whole, "Content-Length"));
+        assertEquals(0, whole.body().length);
+
+        HttpResponse<byte[]> range = head("sendfile", "Range", "bytes=10-19");
+        assertEquals(206, range.statusCode());
+        assertEquals("bytes 10-19/" + FILE_SIZE, header(range, "Content-Range"));
+        assertEquals("10", header(range, "Content-Length"));
+        assertEquals(0, range.body().length);
+
+        // Longueur multipart annoncée : celle qu'aurait le corps avec la même frontière
+        HttpResponse<byte[]> multipart = head("copy", "Range", "bytes=0-4,100-109");
+        assertEquals(206, multipart.statusCode());
+        String contentType = header(multipart, "Content-Type");
+        String boundary = contentType.substring(contentType.indexOf('=') + 1);
+        long expected = partHeader(boundary, "0-4").length() + 5 + partHeader(boundary, "100-109").length() + 10
+                + ("\r\n--" + boundary + "--\r\n").length();
+        assertEquals(String.valueOf(expected), header(multipart, "Content-Length"));
+        assertEquals(0, multipart.body().length);
+    }
+
+    @Test
+    void conditionalRequestsAreAnswered304() throws Exception {
+        String etag = header(get("copy"), "ETag");
+
+        HttpResponse<byte[]> byEtag = get("copy", "If-None-Match", etag);
+        assertEquals(304, byEtag.statusCode());
+        assertEquals(0, byEtag.body().length);
+        assertEquals(etag, header(byEtag, "ETag"));
+
+        assertEquals(304, get("copy", "If-Modified-Since", httpDate(LAST_MODIFIED)).statusCode());
+        assertEquals(200, get("copy", "If-Modified-Since", httpDate(LAST_MODIFIED.minusSeconds(60))).statusCode());
+        // If-None-Match prime sur If-Modified-Since
+        assertEquals(200, get("copy", "If-None-Match", "\"other\"", "If-Modified-Since", httpDate(LAST_MODIFIED)).statusCode());
+        // 304 même avec Range
+        assertEquals(304, get("copy", "If-None-Match", etag, "Range", "bytes=0-9").statusCode());
+    }
+
+    @Test
+    void storedETagIsUsedOnlyWhileTheFileHasTheStoredLength() throws Exception {
+        assertEquals(STORED_ETAG, header(get("stored"), "ETag"));
+        assertEquals(304, get("stored", "If-None-Match", STORED_ETAG).statusCode());
+
+        // Fichier remplacé depuis l'empreinte : ETag dérivé du fichier
+        String derived = header(get("stale"), "ETag");
+        assertNotEquals(STORED_ETAG, derived);
+        assertEquals(header(get("copy"), "ETag"), derived);
+        assertWholeFile(get("stale", "Range", "bytes=0-9", "If-Range", STORED_ETAG));
+    }
+
+    private static void assertSingleRange(HttpResponse<byte[]> response, int start, int end) {
+        assertEquals(206, response.statusCode());
+        assertEquals("bytes " + start + "-" + end + "/" + FILE_SIZE, header(response, "Content-Range"));
+        assertEquals(String.valueOf(end - start + 1), header(response, "Content-Length"));
+        assertArrayEquals(Arrays.copyOfRange(content, start, end + 1), response.body());
+    }
+
+    private static void assertWholeFile(HttpResponse<byte[]> response) {
+        assertEquals(200, response.statusCode());
+        assertFalse(response.headers().firstValue("Content-Range").isPresent());
+        assertArrayEquals(content, response.body());
+    }
+
+    private static void assertPart(Part part, int start, int end) {
+        assertEquals("bytes " + start + "-" + end + "/" + FILE_SIZE, part.contentRange());
+        assertEquals("application/octet-stream", part.contentType());
+        assertArrayEquals(Arrays.copyOfRange(content, start, end + 1), part.body());
+    }
+
+    // Découpe un corps multipart/byteranges ; chaque partie est lue sur la longueur annoncée par son Content-Range
+    private static List<Part> parts(byte[] body, String boundary) {
+        List<Part> parts = new ArrayList<>();
+        String text = new String(body, StandardCharsets.ISO_8859_1);
+        int position = 0;
+        while (true) {
+            int delimiter = text.indexOf("\r\n--" + boundary, position);
+            assertTrue(delimiter >= 0, "missing boundary");
+            position = delimiter + 4 + boundary.length();
+            if (text.startsWith("--\r\n", position)) {
+                assertEquals(body.length, position + 4, "bytes after the closing boundary");
+                return parts;
+            }
+            int headersEnd = text.indexOf("\r\n\r\n", position);
+            String contentType = null;
+            String contentRange = null;
+            for (String line : text.substring(position + 2, headersEnd).split("\r\n")) {
+                String name = line.substring(0, line.indexOf(':'));
+                String value = line.substring(line.indexOf(':') + 1).trim();
+                if (name.equalsIgnoreCase("Content-Type")) {
+                    contentType = value;
+                } else if (name.equalsIgnoreCase("Content-Range")) {
+                    contentRange = value;
+                }
+            }
+            String[] bounds = contentRange.substring("bytes ".length(), contentRange.indexOf('/')).split("-");
+            int start = headersEnd + 4;
+            int end = start + Integer.parseInt(bounds[1]) - Integer.parseInt(bounds[0]) + 1;
+            parts.add(new Part(contentType, contentRange, Arrays.copyOfRange(body, start, end)));
+            position = end;
+        }
+    }
+
+    private static String partHeader(String boundary, String range) {
+        return "\r\n--" + boundary + "\r\nContent-Type: application/octet-stream\r\nContent-Range: bytes " + range + "/"
+                + FILE_SIZE + "\r\n\r\n";
+    }
+
+    private record Part(String contentType, String contentRange, byte[] body) {
+    }
+
+    private static HttpResponse<byte[]> get(String path, String... headers) throws Exception {
+        return send(HttpRequest.newBuilder(uri(path)).GET(), headers);
+    }
+
+    private static HttpResponse<byte[]> head(String path, String... headers) throws Exception {
+        return send(HttpRequest.newBuilder(uri(path)).method("HEAD", HttpRequest.BodyPublishers.noBody()), headers);
+    }
+
+    private static HttpResponse<byte[]> send(HttpRequest.Builder request, String... headers) throws Exception {
+        if (headers.length > 0) {
+            request.headers(headers);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static URI uri(String path) {
+        return URI.create("http://localhost:" + port + "/" + path);
+    }
+
+    private static String header(HttpResponse<?> response, String name) {
+        return response.headers().firstValue(name).orElseThrow(() -> new AssertionError("missing " + name));
+    }
+
+    private static String httpDate(Instant instant) {
+        return HTTP_DATE.format(instant.atZone(ZoneOffset.UTC));
+    }
+
+    private static void addServlet(Context context, String name, boolean sendfile, String etag, Long storedLength) {
+        Tomcat.addServlet(context, name, new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                if (!sendfile) {
+                    request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.FALSE);
+                }
+                FileRegionWriter.write(request, response, file, etag, storedLength, "application/octet-stream", "attachment");
+            }
+        });
+        context.addServletMappingDecoded("/" + name, name);
+    }
+}
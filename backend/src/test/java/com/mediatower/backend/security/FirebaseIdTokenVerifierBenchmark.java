@@ -0,0 +1,75 @@
+package com.mediatower.backend.security;
+
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.auth.FirebaseAuth;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Base64;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Coût d'une vérification d'ID token : {@link FirebaseIdTokenVerifier} contre FirebaseAuth.verifyIdToken.
+ * Les deux chemins ont leurs clés en mémoire (le SDK reçoit ses certificats d'un transport HTTP simulé) : on
+ * compare le coût en régime établi, hors latence réseau du SDK lors du rafraîchissement de ses clés.
+ * <p>
+ * Lancement : {@code mvn test -Dtest=FirebaseIdTokenVerifierBenchmark -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class FirebaseIdTokenVerifierBenchmark {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    @Test
+    void compareWithSdk() throws Exception {
+        String token = TestSigningKeys.token("bench-user");
+
+        FirebaseApp localApp = TestSigningKeys.firebaseApp();
+        FirebaseIdTokenVerifier verifier = new FirebaseIdTokenVerifier(TestSigningKeys.keySource(), localApp, 30, 10);
+        verifier.init();
+
+        // Même format que https://www.googleapis.com/robot/v1/metadata/x509/securetoken@system.gserviceaccount.com
+        String pem = "-----BEGIN CERTIFICATE-----\\n"
+                + Base64.getEncoder().encodeToString(TestSigningKeys.CERTIFICATE.getEncoded())
+                + "\\n-----END CERTIFICATE-----\\n";
+        MockHttpTransport transport = new MockHttpTransport.Builder()
+                .setLowLevelHttpResponse(new MockLowLevelHttpResponse()
+                        .setContentType("application/json")
+                        .addHeader("Cache-Control", "public, max-age=3600")
+                        .setContent("{\"" + TestSigningKeys.KEY_ID + "\": \"" + pem + "\"}"))
+                .build();
+        FirebaseApp sdkApp = TestSigningKeys.firebaseApp(FirebaseOptions.builder().setHttpTransport(transport));
+        FirebaseAuth sdk = FirebaseAuth.getInstance(sdkApp);
+
+        try {
+            assertEquals("bench-user", verifier.verify(token).uid());
+            assertEquals("bench-user", sdk.verifyIdToken(token, false).getUid());
+
+            double local = nanosPerCall(() -> verifier.verify(token).uid());
+            double viaSdk = nanosPerCall(() -> sdk.verifyIdToken(token, false).getUid());
+            System.out.printf("local verifier: %.1f us/op, SDK: %.1f us/op (x%.2f)%n",
+                    local / 1000, viaSdk / 1000, viaSdk / local);
+        } finally {
+            verifier.shutdown();
+            localApp.delete();
+            sdkApp.delete();
+        }
+    }
+
+    private static double nanosPerCall(Callable<String> call) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            call.call();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            call.call();
+        }
+        return (System.nanoTime() - start) / (double) ITERATIONS;
+    }
+}
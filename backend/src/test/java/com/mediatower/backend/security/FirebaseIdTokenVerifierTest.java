@@ -0,0 +1,72 @@
+package com.mediatower.backend.security;
+
+import com.google.firebase.FirebaseApp;
+import com.mediatower.backend.exception.InvalidTokenException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.security.KeyPairGenerator;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FirebaseIdTokenVerifierTest {
+
+    private FirebaseApp firebaseApp;
+    private FirebaseIdTokenVerifier verifier;
+
+    @BeforeEach
+    void setUp() {
+        firebaseApp = TestSigningKeys.firebaseApp();
+        verifier = new FirebaseIdTokenVerifier(TestSigningKeys.keySource(), firebaseApp, 30, 10);
+        verifier.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        verifier.shutdown();
+        firebaseApp.delete();
+    }
+
+    @Test
+    void acceptsValidToken() {
+        VerifiedIdToken token = verifier.verify(TestSigningKeys.token("user-1"));
+
+        assertEquals("user-1", token.uid());
+        assertEquals("user-1@example.com", token.email());
+        assertTrue(token.expiresAtEpochSecond() > System.currentTimeMillis() / 1000);
+    }
+
+    @Test
+    void rejectsWrongAudienceIssuerOrExpiry() {
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(
+                TestSigningKeys.token("user-1", claims -> claims.audience("other-project"))));
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(
+                TestSigningKeys.token("user-1", claims -> claims.issuer("https://securetoken.google.com/other-project"))));
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(
+                TestSigningKeys.token("user-1", claims -> claims.expirationTime(new Date(System.currentTimeMillis() - 120_000)))));
+    }
+
+    @Test
+    void rejectsForeignSignatureAndUnknownKey() throws Exception {
+        var otherKey = KeyPairGenerator.getInstance("RSA").generateKeyPair().getPrivate();
+        String forged = TestSigningKeys.sign(TestSigningKeys.KEY_ID, otherKey, TestSigningKeys.validClaims("user-1").build());
+        String unknownKid = TestSigningKeys.sign("rotated-key", TestSigningKeys.PRIVATE_KEY, TestSigningKeys.validClaims("user-1").build());
+
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(forged));
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(unknownKid));
+        assertThrows(InvalidTokenException.class, () -> verifier.verify("not-a-jwt"));
+    }
+
+    @Test
+    void loadsLocalJwksFile() throws Exception {
+        SigningKeySource.SigningKeys keys =
+                new JwksResourceSigningKeySource(new ClassPathResource("security/test-jwks.json")).load();
+
+        assertEquals(TestSigningKeys.PUBLIC_KEY, keys.keys().get(TestSigningKeys.KEY_ID));
+    }
+}
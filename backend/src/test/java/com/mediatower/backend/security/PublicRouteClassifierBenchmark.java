@@ -0,0 +1,83 @@
+package com.mediatower.backend.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Coût de shouldNotFilter par requête : {@link PublicRouteClassifier} contre l'ancien OrRequestMatcher, sur un
+ * mélange de chemins proche du trafic réel (catalogue public surtout, puis API authentifiée et ressources).
+ * Les octets alloués restants viennent des requêtes simulées (proxy), pas du classifieur.
+ * <p>
+ * Lancement : {@code mvn test -Dtest=PublicRouteClassifierBenchmark -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PublicRouteClassifierBenchmark {
+
+    private static final int ROUNDS = 50_000;
+
+    private static final List<HttpServletRequest> TRAFFIC = List.of(
+            TestRequests.request("GET", "/api/products", null),
+            TestRequests.request("GET", "/api/products/42", null),
+            TestRequests.request("GET", "/api/products/popular", null),
+            TestRequests.request("GET", "/api/categories", null),
+            TestRequests.request("GET", "/api/tags", null),
+            TestRequests.request("GET", "/api/settings", null),
+            TestRequests.request("GET", "/uploads/3f/banner.jpg", null),
+            TestRequests.request("GET", "/api/download/0f52a9519b83653198e17e060047da94.jpg", null),
+            TestRequests.request("GET", "/api/services/7", null),
+            TestRequests.request("GET", "/api/reviews/product/42", null),
+            TestRequests.request("GET", "/api/users/me", null),
+            TestRequests.request("GET", "/api/orders/my-orders", null),
+            TestRequests.request("POST", "/api/orders", null),
+            TestRequests.request("POST", "/api/auth/login", null),
+            TestRequests.request("GET", "/api/auth/me", null),
+            TestRequests.request("POST", "/api/mfa/verify", null),
+            TestRequests.request("GET", "/api/admin/stats", null),
+            TestRequests.request("PUT", "/api/products/42", null),
+            TestRequests.request("POST", "/api/webhooks/stripe", null),
+            TestRequests.request("GET", "/ws/info", null));
+
+    @Test
+    void compareWithAntMatchers() {
+        PublicRoutes routes = new PublicRoutes();
+        PublicRouteClassifier classifier = new PublicRouteClassifier(routes.getPublicRoutes());
+        RequestMatcher antMatchers = new OrRequestMatcher(routes.toRequestMatchers());
+
+        for (HttpServletRequest request : TRAFFIC) {
+            assertEquals(antMatchers.matches(request), classifier.isPublic(request), request.toString());
+        }
+        measure("AntPathRequestMatcher chain", antMatchers::matches); // chauffe
+        measure("PublicRouteClassifier", classifier::isPublic);
+        measure("AntPathRequestMatcher chain", antMatchers::matches);
+        measure("PublicRouteClassifier", classifier::isPublic);
+    }
+
+    private static void measure(String name, Predicate<HttpServletRequest> matcher) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        int publicCount = 0;
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (HttpServletRequest request : TRAFFIC) {
+                if (matcher.test(request)) {
+                    publicCount++;
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+        int calls = ROUNDS * TRAFFIC.size();
+        System.out.printf("%-28s %7.1f ns/request, %6.1f bytes allocated/request (%d public)%n",
+                name, elapsed / (double) calls, allocated / (double) calls, publicCount);
+    }
+}
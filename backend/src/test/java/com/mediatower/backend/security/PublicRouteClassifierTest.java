@@ -0,0 +1,101 @@
+package com.mediatower.backend.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Le classifieur doit répondre exactement comme l'ancien OrRequestMatcher d'AntPathRequestMatcher.
+ */
+class PublicRouteClassifierTest {
+
+    private static final List<String> METHODS =
+            List.of("GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "TRACE", "PROPFIND", "get");
+
+    @Test
+    void classifiesDefaultRoutesLikeAntMatchers() {
+        assertSameClassification(new PublicRoutes().getPublicRoutes());
+    }
+
+    @Test
+    void classifiesRootAndCatchAllRoutesLikeAntMatchers() {
+        assertSameClassification(List.of(
+                new PublicRoutes.Route("GET", "/"),
+                new PublicRoutes.Route("POST", "/**"),
+                new PublicRoutes.Route(null, "/a/b"),
+                new PublicRoutes.Route("DELETE", "/a/b/**"),
+                new PublicRoutes.Route("GET", "/a"),
+                new PublicRoutes.Route("PUT", "/c/d/")));
+    }
+
+    @Test
+    void combinesServletPathAndPathInfo() {
+        PublicRouteClassifier classifier = new PublicRouteClassifier(new PublicRoutes().getPublicRoutes());
+
+        assertTrue(classifier.isPublic(TestRequests.request("GET", "/api", "/products/12")));
+        assertTrue(classifier.isPublic(TestRequests.request("GET", "/api/products/12", null)));
+        assertFalse(classifier.isPublic(TestRequests.request("POST", "/api", "/products/12")));
+    }
+
+    @Test
+    void rejectsUnsupportedWildcards() {
+        for (String pattern : List.of("/api/*/x", "/api/products/*", "/api/?", "/api/{id}", "api/products")) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> new PublicRouteClassifier(List.of(new PublicRoutes.Route("GET", pattern))), pattern);
+        }
+    }
+
+    private static void assertSameClassification(List<PublicRoutes.Route> routes) {
+        PublicRouteClassifier classifier = new PublicRouteClassifier(routes);
+        PublicRoutes publicRoutes = new PublicRoutes();
+        publicRoutes.setPublicRoutes(routes);
+        RequestMatcher antMatchers = new OrRequestMatcher(publicRoutes.toRequestMatchers());
+
+        int checked = 0;
+        for (String path : paths(routes)) {
+            for (String method : METHODS) {
+                HttpServletRequest request = TestRequests.request(method, path, null);
+                assertEquals(antMatchers.matches(request), classifier.matches(method, path), method + " " + path);
+                checked++;
+            }
+        }
+        assertTrue(checked >= 300, "only " + checked + " cases");
+    }
+
+    /**
+     * Chaque motif, ses voisins (préfixes, suffixes, casse, '/' doublés ou finaux) et quelques chemins hors liste.
+     */
+    static Set<String> paths(List<PublicRoutes.Route> routes) {
+        Set<String> paths = new LinkedHashSet<>(List.of(
+                "/", "//", "/api", "/api/", "/api/orders", "/api/admin/users", "/actuator/health", "/index.html",
+                "/api/products/../admin", "/api/products/%2e%2e/admin", "/api/products;jsessionid=1", "/API/PRODUCTS"));
+        for (PublicRoutes.Route route : routes) {
+            String literal = route.getPattern().endsWith("/**")
+                    ? route.getPattern().substring(0, route.getPattern().length() - 3)
+                    : route.getPattern();
+            List<String> variants = new ArrayList<>(List.of(
+                    literal, literal + "/", literal + "//", literal + "/x", literal + "/x/y", literal + "x",
+                    literal + "-old/x", literal.toUpperCase(Locale.ROOT), "/" + literal, literal.replace("/", "//")));
+            int lastSlash = literal.lastIndexOf('/');
+            if (lastSlash > 0) {
+                variants.add(literal.substring(0, lastSlash));
+                variants.add(literal.substring(0, literal.length() - 1));
+            }
+            paths.addAll(variants);
+        }
+        paths.removeIf(String::isEmpty);
+        return paths;
+    }
+}
@@ -0,0 +1,31 @@
+package com.mediatower.backend.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * Requêtes HTTP minimales pour les tests sans conteneur de servlets : méthode et chemin seulement.
+ */
+final class TestRequests {
+
+    private TestRequests() {
+    }
+
+    static HttpServletRequest request(String method, String servletPath, String pathInfo) {
+        return (HttpServletRequest) Proxy.newProxyInstance(TestRequests.class.getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, invoked, args) -> switch (invoked.getName()) {
+                    case "getMethod" -> method;
+                    case "getServletPath" -> servletPath;
+                    case "getPathInfo" -> pathInfo;
+                    case "getRequestURI" -> pathInfo == null ? servletPath : servletPath + pathInfo;
+                    case "getContextPath" -> "";
+                    case "toString" -> method + " " + servletPath + (pathInfo == null ? "" : pathInfo);
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> invoked.getReturnType() == boolean.class ? false
+                            : invoked.getReturnType() == int.class ? 0
+                            : invoked.getReturnType() == long.class ? 0L : null;
+                });
+    }
+}
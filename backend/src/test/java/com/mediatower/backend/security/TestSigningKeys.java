@@ -0,0 +1,122 @@
+package com.mediatower.backend.security;
+
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+
+/**
+ * Clé de signature de test (src/test/resources/security) : jetons au format Firebase signés localement,
+ * et application Firebase sans accès réseau pour les vérifier.
+ */
+final class TestSigningKeys {
+
+    static final String KEY_ID = "test-key";
+    static final String PROJECT_ID = "mediatower-test";
+
+    static final PrivateKey PRIVATE_KEY = loadPrivateKey();
+    static final X509Certificate CERTIFICATE = loadCertificate();
+    static final RSAPublicKey PUBLIC_KEY = (RSAPublicKey) CERTIFICATE.getPublicKey();
+
+    private TestSigningKeys() {
+    }
+
+    static SigningKeySource keySource() {
+        return () -> new SigningKeySource.SigningKeys(Map.of(KEY_ID, PUBLIC_KEY), Duration.ofHours(1));
+    }
+
+    static FirebaseApp firebaseApp() {
+        return firebaseApp(FirebaseOptions.builder());
+    }
+
+    /**
+     * Application Firebase nommée (une par appel), à supprimer avec {@link FirebaseApp#delete()}.
+     */
+    static FirebaseApp firebaseApp(FirebaseOptions.Builder options) {
+        options.setCredentials(GoogleCredentials.create(new AccessToken("test", new Date(Long.MAX_VALUE))))
+                .setProjectId(PROJECT_ID);
+        return FirebaseApp.initializeApp(options.build(), "test-" + UUID.randomUUID());
+    }
+
+    static String token(String uid) {
+        return token(uid, claims -> claims);
+    }
+
+    /**
+     * Jeton valide pour {@link #PROJECT_ID}, modifiable avant signature.
+     */
+    static String token(String uid, UnaryOperator<JWTClaimsSet.Builder> customizer) {
+        return sign(KEY_ID, PRIVATE_KEY, customizer.apply(validClaims(uid)).build());
+    }
+
+    static String sign(String keyId, PrivateKey key, JWTClaimsSet claims) {
+        try {
+            SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256)
+                    .keyID(keyId).type(JOSEObjectType.JWT).build(), claims);
+            jwt.sign(new RSASSASigner(key));
+            return jwt.serialize();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static JWTClaimsSet.Builder validClaims(String uid) {
+        long now = System.currentTimeMillis();
+        return new JWTClaimsSet.Builder()
+                .issuer("https://securetoken.google.com/" + PROJECT_ID)
+                .audience(PROJECT_ID)
+                .subject(uid)
+                .issueTime(new Date(now - 60_000))
+                .expirationTime(new Date(now + 3_600_000))
+                .claim("auth_time", now / 1000 - 60)
+                .claim("email", uid + "@example.com");
+    }
+
+    private static PrivateKey loadPrivateKey() {
+        try (InputStream in = resource("security/test-signing-key.pem")) {
+            String pem = new String(in.readAllBytes(), StandardCharsets.US_ASCII)
+                    .replaceAll("-----(BEGIN|END) PRIVATE KEY-----", "")
+                    .replaceAll("\\s", "");
+            return KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(pem)));
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not load the test signing key", e);
+        }
+    }
+
+    private static X509Certificate loadCertificate() {
+        try (InputStream in = resource("security/test-signing-cert.pem")) {
+            return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(in);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not load the test signing certificate", e);
+        }
+    }
+
+    static InputStream resource(String name) {
+        InputStream in = TestSigningKeys.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new IllegalStateException("Missing test resource " + name);
+        }
+        return in;
+    }
+}
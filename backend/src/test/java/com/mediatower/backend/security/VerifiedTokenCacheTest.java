@@ -0,0 +1,90 @@
+package com.mediatower.backend.security;
+
+import com.mediatower.backend.model.UserRole;
+import com.mediatower.backend.model.UserStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Une requête qui a lu l'utilisateur avant le commit d'un changement de rôle ne remet pas l'ancien principal
+ * en cache après l'éviction.
+ */
+class VerifiedTokenCacheTest {
+
+    private static final String TOKEN = "header.payload.signature";
+
+    private final VerifiedTokenCache cache = new VerifiedTokenCache(100, 60, new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void principalIsCachedWithoutConcurrentInvalidation() {
+        long mark = cache.invalidationMark();
+        cache.invalidateUser("someone-else");
+
+        cache.put(TOKEN, token("uid-1"), user("uid-1", UserRole.ADMIN), mark);
+
+        assertEquals(UserRole.ADMIN, cache.get(TOKEN).orElseThrow().user().getRole());
+    }
+
+    @Test
+    void userReadBeforeCommitIsNotCachedAfterEviction() {
+        // Transaction de changement de rôle : éviction immédiate, puis rejouée après le commit
+        TransactionSynchronizationManager.initSynchronization();
+        cache.invalidateUser("uid-1");
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // Requête concurrente : démarre pendant la transaction et lit l'ancien rôle, encore commité
+        long mark = cache.invalidationMark();
+        FirebaseUser staleUser = user("uid-1", UserRole.ADMIN);
+
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        // Mise en cache après l'éviction rejouée
+        cache.put(TOKEN, token("uid-1"), staleUser, mark);
+
+        assertFalse(cache.get(TOKEN).isPresent());
+    }
+
+    @Test
+    void userReadAfterInvalidationIsCached() {
+        cache.invalidateUser("uid-1");
+        long mark = cache.invalidationMark();
+
+        cache.put(TOKEN, token("uid-1"), user("uid-1", UserRole.USER), mark);
+
+        assertTrue(cache.get(TOKEN).isPresent());
+    }
+
+    @Test
+    void invalidationEvictsCachedPrincipal() {
+        cache.put(TOKEN, token("uid-1"), user("uid-1", UserRole.ADMIN), cache.invalidationMark());
+
+        cache.invalidateUser("uid-1");
+
+        assertFalse(cache.get(TOKEN).isPresent());
+    }
+
+    private static VerifiedIdToken token(String uid) {
+        return new VerifiedIdToken(uid, uid + "@example.com", null, Map.of(), System.currentTimeMillis() / 1000 + 3600);
+    }
+
+    private static FirebaseUser user(String uid, UserRole role) {
+        return FirebaseUser.create(new UserSnapshot(1L, uid, uid + "@example.com", "First", "Last", role, UserStatus.ACTIVE, true));
+    }
+}
@@ -0,0 +1,93 @@
+package com.mediatower.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AttemptCounterTest {
+
+    private static final long ONE_HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    void concurrentAttemptsNeverExceedTheLimit() throws Exception {
+        for (boolean slideOnAcquire : new boolean[]{false, true}) {
+            for (int round = 0; round < 50; round++) {
+                AtomicLong state = new AtomicLong();
+
+                int accepted = hammer(() -> AttemptCounter.tryAcquire(state, 5, ONE_HOUR, slideOnAcquire) == 0, 16, 200);
+
+                assertEquals(5, accepted, "slideOnAcquire=" + slideOnAcquire + ", round " + round);
+                assertEquals(5, AttemptCounter.count(state.get()));
+            }
+        }
+    }
+
+    @Test
+    void rejectedAttemptReportsTimeUntilWindowEnd() {
+        AtomicLong state = new AtomicLong();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, AttemptCounter.tryAcquire(state, 3, ONE_HOUR, false));
+        }
+
+        long remaining = AttemptCounter.tryAcquire(state, 3, ONE_HOUR, false);
+
+        assertTrue(remaining > ONE_HOUR - 5_000 && remaining <= ONE_HOUR, "remaining " + remaining);
+    }
+
+    @Test
+    void windowExpiryResetsTheCount() throws InterruptedException {
+        AtomicLong state = new AtomicLong();
+        assertEquals(0, AttemptCounter.tryAcquire(state, 1, 50, false));
+        assertTrue(AttemptCounter.tryAcquire(state, 1, 50, false) > 0);
+
+        Thread.sleep(80);
+
+        assertEquals(0, AttemptCounter.tryAcquire(state, 1, 50, false));
+        assertEquals(1, AttemptCounter.count(state.get()));
+    }
+
+    /**
+     * Lance {@code attemptsPerThread} tentatives depuis chaque thread, tous démarrés en même temps.
+     *
+     * @return le nombre de tentatives acceptées
+     */
+    static int hammer(BooleanSupplier attempt, int threads, int attemptsPerThread) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int accepted = 0;
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        if (attempt.getAsBoolean()) {
+                            accepted++;
+                        }
+                    }
+                    return accepted;
+                }));
+            }
+            start.countDown();
+
+            int accepted = 0;
+            for (Future<Integer> result : results) {
+                accepted += result.get();
+            }
+            return accepted;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
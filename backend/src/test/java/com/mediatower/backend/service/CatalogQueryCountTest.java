@@ -0,0 +1,144 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.dto.ProductDto;
+import com.mediatower.backend.model.Category;
+import com.mediatower.backend.model.Media;
+import com.mediatower.backend.model.MediaType;
+import com.mediatower.backend.model.Product;
+import com.mediatower.backend.model.Tag;
+import com.mediatower.backend.repository.CategoryRepository;
+import com.mediatower.backend.repository.ProductRepository;
+import com.mediatower.backend.repository.TagRepository;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Nombre de requêtes SQL d'une page du catalogue (getAllProductsPaginated) : constant, quelle que soit la taille
+ * de la page. Une régression N+1 (association chargée produit par produit) fait croître le compte avec la page.
+ */
+class CatalogQueryCountTest {
+
+    // Page d'IDs, count, produits + catégorie, puis un IN (...) par collection : noms des catégories,
+    // noms, descriptions, tags et médias des produits
+    private static final long STATEMENTS_PER_PAGE = 8;
+
+    private AnnotationConfigApplicationContext context;
+    private ProductService productService;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        context = JpaTestConfig.start();
+        ProductRepository products = context.getBean(ProductRepository.class);
+        // Seules les dépendances de la liste paginée sont fournies
+        productService = new ProductService(products, null, null, null, null, null, null, null,
+                null, null, null, null, null, null, null);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                createCatalog(context.getBean(CategoryRepository.class), context.getBean(TagRepository.class), products));
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void pageIsLoadedWithAConstantNumberOfStatements() {
+        Statistics statistics = JpaTestConfig.statistics(context);
+
+        for (int pageSize : new int[]{1, 12, 24, 48}) {
+            statistics.clear();
+
+            Page<ProductDto> page = listPage(null, null, PageRequest.of(0, pageSize, Sort.by("id")));
+
+            assertEquals(pageSize, page.getContent().size());
+            assertEquals(60, page.getTotalElements());
+            assertEquals(STATEMENTS_PER_PAGE, statistics.getPrepareStatementCount(), "page size " + pageSize);
+        }
+    }
+
+    @Test
+    void filteredPageKeepsOrderAndHydratesAssociations() {
+        Statistics statistics = JpaTestConfig.statistics(context);
+        statistics.clear();
+
+        Page<ProductDto> page = listPage("Product 1", null, PageRequest.of(0, 24, Sort.by(Sort.Direction.DESC, "price")));
+
+        // "Product 1", "Product 10".."Product 19"
+        assertEquals(11, page.getTotalElements());
+        assertTrue(statistics.getPrepareStatementCount() <= STATEMENTS_PER_PAGE, statistics.getPrepareStatementCount() + " statements");
+        List<ProductDto> content = page.getContent();
+        for (int i = 1; i < content.size(); i++) {
+            assertTrue(content.get(i - 1).getPrice().compareTo(content.get(i).getPrice()) >= 0);
+        }
+        ProductDto first = content.get(0);
+        assertFalse(first.getCategoryName().isEmpty());
+        assertEquals(2, first.getTagIds().size());
+        assertEquals(1, first.getImages().size());
+        assertEquals(1, first.getDigitalAssets().size());
+        assertEquals(2, first.getNames().size());
+    }
+
+    private Page<ProductDto> listPage(String search, Long categoryId, PageRequest pageable) {
+        return readOnly.execute(status -> productService.getAllProductsPaginated(search, categoryId, "all", pageable));
+    }
+
+    private static void createCatalog(CategoryRepository categories, TagRepository tags, ProductRepository products) {
+        List<Category> savedCategories = new ArrayList<>();
+        for (int c = 0; c < 4; c++) {
+            Category category = new Category();
+            category.setNames(Map.of("en", "Category " + c, "fr", "Catégorie " + c));
+            category.setDescriptions(Map.of("en", "Description " + c));
+            savedCategories.add(categories.save(category));
+        }
+        List<Tag> savedTags = new ArrayList<>();
+        for (int t = 0; t < 6; t++) {
+            Tag tag = new Tag();
+            tag.setName("tag-" + t);
+            savedTags.add(tags.save(tag));
+        }
+        for (int p = 0; p < 60; p++) {
+            Product product = new Product();
+            product.setNames(Map.of("en", "Product " + p, "fr", "Produit " + p));
+            product.setDescriptions(Map.of("en", "About product " + p));
+            product.setPrice(BigDecimal.valueOf(10 + (p * 37) % 90));
+            product.setStock(p % 5);
+            product.setCategory(savedCategories.get(p % savedCategories.size()));
+            product.setTags(Set.of(savedTags.get(p % 6), savedTags.get((p + 1) % 6)));
+            product.getMediaAssets().add(media(product, "image-" + p + ".jpg", MediaType.IMAGE));
+            product.getMediaAssets().add(media(product, "file-" + p + ".pdf", MediaType.DIGITAL_ASSET));
+            products.save(product);
+        }
+    }
+
+    private static Media media(Product product, String fileName, MediaType type) {
+        Media media = new Media();
+        media.setFileName(fileName);
+        media.setOriginalName(fileName);
+        media.setType(type);
+        media.setProduct(product);
+        return media;
+    }
+}
@@ -0,0 +1,83 @@
+package com.mediatower.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class CatalogVersionsTest {
+
+    private AnnotationConfigApplicationContext context;
+    private CatalogVersions catalogVersions;
+    private TransactionTemplate transaction;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        context = JpaTestConfig.start(CatalogVersions.class);
+        catalogVersions = context.getBean(CatalogVersions.class);
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        jdbc = context.getBean(JdbcTemplate.class);
+        catalogVersions.refresh();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void openTransactionDoesNotHoldTheVersionRow() {
+        long before = version(CatalogAggregate.SERVICES);
+
+        transaction.executeWithoutResult(status -> {
+            catalogVersions.bump(CatalogAggregate.SERVICES);
+            // Autre écriture du même agrégat pendant que la première transaction est encore ouverte
+            CompletableFuture.runAsync(() -> transaction.executeWithoutResult(inner ->
+                    catalogVersions.bump(CatalogAggregate.SERVICES))).orTimeout(5, TimeUnit.SECONDS).join();
+            assertEquals(before + 1, version(CatalogAggregate.SERVICES));
+        });
+
+        assertEquals(before + 2, version(CatalogAggregate.SERVICES));
+    }
+
+    @Test
+    void versionAndEtagChangeOnlyAfterCommit() {
+        String etag = catalogVersions.etag(CatalogAggregate.PRODUCTS, CatalogAggregate.CATEGORIES);
+        long before = version(CatalogAggregate.PRODUCTS);
+
+        transaction.executeWithoutResult(status -> {
+            catalogVersions.bump(CatalogAggregate.PRODUCTS);
+            assertEquals(before, version(CatalogAggregate.PRODUCTS));
+            assertEquals(etag, catalogVersions.etag(CatalogAggregate.PRODUCTS, CatalogAggregate.CATEGORIES));
+        });
+
+        assertEquals(before + 1, version(CatalogAggregate.PRODUCTS));
+        assertNotEquals(etag, catalogVersions.etag(CatalogAggregate.PRODUCTS, CatalogAggregate.CATEGORIES));
+    }
+
+    @Test
+    void rollbackDoesNotBump() {
+        long before = version(CatalogAggregate.TAGS);
+
+        transaction.executeWithoutResult(status -> {
+            catalogVersions.bump(CatalogAggregate.TAGS);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(before, version(CatalogAggregate.TAGS));
+    }
+
+    private long version(CatalogAggregate aggregate) {
+        return jdbc.queryForObject("SELECT version FROM catalog_versions WHERE aggregate = ?", Long.class, aggregate.name());
+    }
+}
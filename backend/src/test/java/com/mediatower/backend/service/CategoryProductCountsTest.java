@@ -0,0 +1,196 @@
+package com.mediatower.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Recomptage des produits par catégorie pendant que des produits changent de catégorie : un déplacement
+ * que la requête a pu voir n'est jamais compté deux fois.
+ */
+class CategoryProductCountsTest {
+
+    private static final List<Long> CATEGORIES = List.of(1L, 2L, 3L);
+
+    private JdbcTemplate jdbc;
+    // Actions exécutées, dans l'ordre, avant chaque requête de comptage (une par essai)
+    private final List<Runnable> beforeCounting = new ArrayList<>();
+    private final List<CatalogAggregate> bumped = new ArrayList<>();
+    private CategoryProductCounts counts;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:category-counts-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        // Colonnes lues par le recomptage seulement
+        jdbc.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, category_id BIGINT)");
+
+        JdbcTemplate interceptingJdbc = new JdbcTemplate(dataSource) {
+            @Override
+            public void query(String sql, RowCallbackHandler handler) {
+                if (!beforeCounting.isEmpty()) {
+                    beforeCounting.remove(0).run();
+                }
+                super.query(sql, handler);
+            }
+        };
+        CatalogVersions catalogVersions = new CatalogVersions(null, null) {
+            @Override
+            public void bump(CatalogAggregate... aggregates) {
+                bumped.addAll(List.of(aggregates));
+            }
+        };
+        // Le dépôt ne sert qu'avant le premier chargement
+        counts = new CategoryProductCounts(interceptingJdbc, null, catalogVersions);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("SHUTDOWN");
+    }
+
+    @Test
+    void reconcileCorrectsDriftAndBumpsCategoriesOnlyOnChange() {
+        product(10, 1);
+        product(11, 1);
+        product(12, 2);
+
+        counts.reconcile();
+        assertEquals(Map.of(1L, 2L, 2L, 1L, 3L, 0L), counts.countsFor(CATEGORIES));
+        int bumpsAfterLoad = bumped.size();
+
+        counts.reconcile();
+        assertEquals(bumpsAfterLoad, bumped.size());
+
+        // Écritures hors ProductService : corrigées au recomptage suivant, ETag des catégories périmé
+        product(13, 3);
+        jdbc.update("DELETE FROM products WHERE id = 10");
+        counts.reconcile();
+
+        assertEquals(Map.of(1L, 1L, 2L, 1L, 3L, 1L), counts.countsFor(CATEGORIES));
+        assertEquals(bumpsAfterLoad + 1, bumped.size());
+        assertEquals(CatalogAggregate.CATEGORIES, bumped.get(bumped.size() - 1));
+    }
+
+    @Test
+    void moveAppliedDuringEveryAttemptIsNotCountedTwice() {
+        product(10, 1);
+        product(11, 1);
+        product(12, 2);
+        counts.reconcile();
+
+        // Le produit 10 change de catégorie pendant chacun des trois essais : dernier essai compris, la requête
+        // voit déjà le déplacement, qui ne doit pas être ajouté une seconde fois
+        beforeCounting.add(() -> move(10, 1, 2).commit().complete());
+        beforeCounting.add(() -> move(10, 2, 1).commit().complete());
+        beforeCounting.add(() -> move(10, 1, 2).commit().complete());
+        counts.reconcile();
+
+        assertEquals(Map.of(1L, 1L, 2L, 2L, 3L, 0L), counts.countsFor(CATEGORIES));
+        assertEquals(databaseCounts(), counts.countsFor(CATEGORIES));
+    }
+
+    @Test
+    void moveCommittedButNotYetAppliedIsNotCountedTwice() {
+        product(10, 1);
+        product(11, 2);
+        counts.reconcile();
+
+        // Commit visible par la requête, afterCommit exécuté seulement après le recomptage
+        List<Move> pending = new ArrayList<>();
+        beforeCounting.add(() -> pending.add(move(10, 1, 3).commit()));
+        counts.reconcile();
+        pending.get(0).complete();
+
+        assertEquals(Map.of(1L, 0L, 2L, 1L, 3L, 1L), counts.countsFor(CATEGORIES));
+        assertEquals(databaseCounts(), counts.countsFor(CATEGORIES));
+    }
+
+    @Test
+    void moveSettledBeforeTheLastAttemptIsTakenFromTheQuery() {
+        product(10, 1);
+        product(11, 2);
+        counts.reconcile();
+        // Compte en mémoire faussé : seul un recomptage qui retient la base le corrige
+        jdbc.update("UPDATE products SET category_id = 2 WHERE id = 11");
+        product(12, 2);
+
+        beforeCounting.add(() -> move(10, 1, 3).commit().complete());
+        counts.reconcile();
+
+        assertEquals(databaseCounts(), counts.countsFor(CATEGORIES));
+        assertEquals(Map.of(1L, 0L, 2L, 2L, 3L, 1L), counts.countsFor(CATEGORIES));
+    }
+
+    @Test
+    void rolledBackMoveChangesNothing() {
+        product(10, 1);
+        counts.reconcile();
+
+        Move move = move(10, 1, 2);
+        move.synchronization.beforeCommit(false);
+        move.synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        counts.reconcile();
+
+        assertEquals(Map.of(1L, 1L, 2L, 0L, 3L, 0L), counts.countsFor(CATEGORIES));
+    }
+
+    // Déplacement enregistré dans une transaction simulée : commit() l'écrit en base, complete() exécute afterCommit
+    private Move move(long productId, long from, long to) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            counts.productMovedAfterCommit(from, to);
+            return new Move(productId, to, TransactionSynchronizationManager.getSynchronizations().get(0));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private final class Move {
+        private final long productId;
+        private final long to;
+        private final TransactionSynchronization synchronization;
+
+        Move(long productId, long to, TransactionSynchronization synchronization) {
+            this.productId = productId;
+            this.to = to;
+            this.synchronization = synchronization;
+        }
+
+        Move commit() {
+            synchronization.beforeCommit(false);
+            jdbc.update("UPDATE products SET category_id = ? WHERE id = ?", to, productId);
+            return this;
+        }
+
+        void complete() {
+            synchronization.afterCommit();
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+    }
+
+    private void product(long id, long categoryId) {
+        jdbc.update("INSERT INTO products (id, category_id) VALUES (?, ?)", id, categoryId);
+    }
+
+    private Map<Long, Long> databaseCounts() {
+        Map<Long, Long> result = new HashMap<>();
+        CATEGORIES.forEach(id -> result.put(id,
+                jdbc.queryForObject("SELECT COUNT(*) FROM products WHERE category_id = ?", Long.class, id)));
+        return result;
+    }
+}
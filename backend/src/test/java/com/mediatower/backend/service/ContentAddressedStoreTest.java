@@ -0,0 +1,284 @@
+package com.mediatower.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stockage par contenu sur H2 : déduplication, compteurs de références, recomptage après suppression en
+ * cascade, ramasse-miettes (contenus, dérivés, fichiers orphelins) et upload concurrent d'une suppression.
+ */
+class ContentAddressedStoreTest {
+
+    private static final byte[] HELLO = "hello".getBytes(StandardCharsets.UTF_8);
+    private static final long TWO_HOURS = 2 * 60 * 60 * 1000L;
+
+    private JdbcTemplate jdbc;
+    private Path blobDir;
+    // Exécutée juste après la suppression de la ligne par le ramasse-miettes, transaction encore ouverte
+    private Runnable afterBlobRowDeleted;
+    private ContentAddressedStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:blobs-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE storage_blobs (digest VARCHAR(64) PRIMARY KEY, ref_count BIGINT NOT NULL, " +
+                "size BIGINT NOT NULL, updated_at BIGINT NOT NULL)");
+        // Colonnes lues par le recomptage seulement
+        jdbc.execute("CREATE TABLE media (id BIGINT AUTO_INCREMENT PRIMARY KEY, file_name VARCHAR(255) NOT NULL)");
+
+        JdbcTemplate interceptingJdbc = new JdbcTemplate(dataSource) {
+            @Override
+            public int update(String sql, Object... args) {
+                int updated = super.update(sql, args);
+                if (sql.startsWith("DELETE FROM storage_blobs") && updated > 0 && afterBlobRowDeleted != null) {
+                    afterBlobRowDeleted.run();
+                }
+                return updated;
+            }
+        };
+        blobDir = Files.createTempDirectory("blobs");
+        store = new ContentAddressedStore(interceptingJdbc, new DataSourceTransactionManager(dataSource), blobDir.toString(), 60);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        jdbc.execute("SHUTDOWN");
+        FileSystemUtils.deleteRecursively(blobDir);
+    }
+
+    @Test
+    void identicalContentIsStoredOnceAndCounted() throws Exception {
+        String first = upload(HELLO, "photo.PNG");
+        String second = upload(HELLO, "copy.png");
+        Path source = Files.write(Files.createTempFile("resumable", ".part"), HELLO);
+        String third = store.store(source, "archive");
+
+        String digest = sha256(HELLO);
+        assertEquals(digest + ".png", first);
+        assertEquals(first, second);
+        assertEquals(digest, third);
+        assertFalse(Files.exists(source));
+        assertEquals(3, refCount(digest));
+        assertEquals(blobDir.resolve(digest.substring(0, 2)).resolve(digest.substring(2, 4)).resolve(digest), store.resolve(first));
+        assertEquals("hello", Files.readString(store.resolve(first)));
+        // Un seul fichier de contenu, temporaires compris
+        assertEquals(1, regularFiles().size());
+
+        String other = upload("other".getBytes(StandardCharsets.UTF_8), "notes.txt");
+        assertEquals(sha256("other".getBytes(StandardCharsets.UTF_8)) + ".txt", other);
+        assertEquals(2, regularFiles().size());
+    }
+
+    @Test
+    void releasedContentIsDeletedOnlyAfterTheGracePeriod() throws Exception {
+        String reference = upload(HELLO, "a.png");
+        upload(HELLO, "b.png");
+        Path derivative = store.writeDerivative(reference, "thumb.webp", out -> out.write(1));
+
+        store.release(reference);
+        store.release(reference);
+        store.release(reference); // Déjà à zéro : le compteur ne devient pas négatif
+        assertEquals(0, refCount(sha256(HELLO)));
+
+        // Dans le délai de grâce : rien n'est supprimé
+        store.collectGarbage();
+        assertTrue(Files.exists(store.resolve(reference)));
+
+        age(reference);
+        store.collectGarbage();
+
+        assertNull(refCount(sha256(HELLO)));
+        assertFalse(Files.exists(store.resolve(reference)));
+        assertFalse(Files.exists(derivative));
+    }
+
+    @Test
+    void contentUploadedAgainDuringTheGracePeriodIsKept() throws Exception {
+        String reference = upload(HELLO, "a.png");
+        store.release(reference);
+        media(reference);
+        assertEquals(reference, upload(HELLO, "a.png"));
+        age(reference);
+
+        store.collectGarbage();
+
+        assertEquals(1, refCount(sha256(HELLO)));
+        assertTrue(Files.exists(store.resolve(reference)));
+    }
+
+    @Test
+    void countsAreRecountedFromMediaAfterCascadeDeletes() throws Exception {
+        String cascaded = upload(HELLO, "a.png");
+        upload(HELLO, "a.png");
+        media(cascaded);
+        media(cascaded);
+        String undercounted = upload("other".getBytes(StandardCharsets.UTF_8), "b.pdf");
+        media(undercounted);
+        media(undercounted);
+        // Produit supprimé : ses médias partent en cascade sans passer par release()
+        jdbc.update("DELETE FROM media WHERE file_name = ?", cascaded);
+        age(cascaded);
+        age(undercounted);
+
+        store.collectGarbage();
+
+        assertEquals(0, refCount(sha256(HELLO)));
+        assertEquals(2, refCount(digestOf(undercounted)));
+        // Recompté à l'instant : le fichier attend un nouveau délai de grâce
+        assertTrue(Files.exists(store.resolve(cascaded)));
+
+        age(cascaded);
+        store.collectGarbage();
+
+        assertNull(refCount(sha256(HELLO)));
+        assertFalse(Files.exists(store.resolve(cascaded)));
+        assertTrue(Files.exists(store.resolve(undercounted)));
+    }
+
+    @Test
+    void orphanFilesAndDerivativesAreCleanedAfterTheGracePeriod() throws Exception {
+        String kept = upload(HELLO, "a.png");
+        media(kept);
+        Path keptDerivative = store.writeDerivative(kept, "thumb.webp", out -> out.write(1));
+        assertEquals(store.derivative(kept, "thumb.webp"), keptDerivative);
+        // Contenu inconnu : pas de dérivé sans original
+        String missing = sha256("missing".getBytes(StandardCharsets.UTF_8)) + ".png";
+        assertNull(store.writeDerivative(missing, "thumb.webp", out -> out.write(1)));
+
+        // Contenu sans ligne (arrêt avant le commit), dérivé resté seul, temporaire abandonné, fichier étranger
+        String orphanDigest = sha256("orphan".getBytes(StandardCharsets.UTF_8));
+        Path orphan = write(store.resolve(orphanDigest), true);
+        Path recentOrphan = write(store.resolve(sha256("recent".getBytes(StandardCharsets.UTF_8))), false);
+        Path lonelyDerivative = write(store.derivative(missing, "small.webp"), true);
+        Path staleTemp = write(blobDir.resolve("tmp").resolve("blob-1.tmp"), true);
+        Path recentTemp = write(blobDir.resolve("tmp").resolve("blob-2.tmp"), false);
+        Path foreign = write(blobDir.resolve("README"), true);
+
+        store.collectGarbage();
+
+        assertFalse(Files.exists(orphan));
+        assertFalse(Files.exists(lonelyDerivative));
+        assertFalse(Files.exists(staleTemp));
+        assertTrue(Files.exists(recentOrphan));
+        assertTrue(Files.exists(recentTemp));
+        assertTrue(Files.exists(foreign));
+        assertTrue(Files.exists(store.resolve(kept)));
+        assertTrue(Files.exists(keptDerivative));
+        assertEquals(1, refCount(sha256(HELLO)));
+    }
+
+    @Test
+    void uploadDuringDeletionWaitsForTheRowLockAndRecreatesTheContent() throws Exception {
+        String reference = upload(HELLO, "a.png");
+        store.release(reference);
+        age(reference);
+
+        AtomicReference<String> uploaded = new AtomicReference<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread uploader = new Thread(() -> {
+            try {
+                uploaded.set(upload(HELLO, "a.png"));
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        afterBlobRowDeleted = () -> {
+            afterBlobRowDeleted = null;
+            uploader.start();
+            // L'upload est bloqué par le verrou de la ligne supprimée tant que la suppression n'est pas commitée
+            waitUntilWaiting(uploader);
+            LockSupport.parkNanos(200_000_000L);
+            assertTrue(uploader.isAlive());
+            assertNull(uploaded.get());
+            assertTrue(Files.exists(store.resolve(reference)));
+        };
+
+        store.collectGarbage();
+        uploader.join(10_000);
+
+        assertNull(failure.get());
+        assertEquals(reference, uploaded.get());
+        assertEquals(1, refCount(sha256(HELLO)));
+        assertEquals("hello", Files.readString(store.resolve(reference)));
+    }
+
+    private String upload(byte[] content, String originalName) throws IOException {
+        return store.store(new ByteArrayInputStream(content), originalName);
+    }
+
+    private void media(String fileName) {
+        jdbc.update("INSERT INTO media (file_name) VALUES (?)", fileName);
+    }
+
+    // Ligne et fichier inactifs depuis plus que le délai de grâce
+    private void age(String reference) throws IOException {
+        long old = System.currentTimeMillis() - TWO_HOURS;
+        jdbc.update("UPDATE storage_blobs SET updated_at = ? WHERE digest = ?", old, digestOf(reference));
+        Files.setLastModifiedTime(store.resolve(reference), FileTime.fromMillis(old));
+    }
+
+    private static Path write(Path file, boolean old) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, HELLO);
+        if (old) {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - TWO_HOURS));
+        }
+        return file;
+    }
+
+    private Long refCount(String digest) {
+        List<Long> counts = jdbc.queryForList("SELECT ref_count FROM storage_blobs WHERE digest = ?", Long.class, digest);
+        return counts.isEmpty() ? null : counts.get(0);
+    }
+
+    private List<Path> regularFiles() throws IOException {
+        try (var files = Files.walk(blobDir)) {
+            return files.filter(Files::isRegularFile).toList();
+        }
+    }
+
+    private static void waitUntilWaiting(Thread thread) {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            Thread.State state = thread.getState();
+            if (state == Thread.State.WAITING || state == Thread.State.TIMED_WAITING) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        throw new AssertionError("upload did not wait for the row lock: " + thread.getState());
+    }
+
+    private static String digestOf(String reference) {
+        return ContentAddressedStore.digestOf(reference);
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+}
@@ -0,0 +1,160 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.config.CacheConfig;
+import com.mediatower.backend.config.RateLimitConfig;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+import io.github.bucket4j.distributed.AsyncBucketProxy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Deux contextes Spring (deux "nœuds") en app.rate-limit.mode=distributed sur la même base H2 :
+ * le budget est commun, quel que soit le nœud qui reçoit la requête.
+ */
+class DistributedRateLimitingTest {
+
+    private AnnotationConfigApplicationContext nodeA;
+    private AnnotationConfigApplicationContext nodeB;
+
+    @BeforeEach
+    void startNodes() {
+        String url = "jdbc:h2:mem:ratelimit-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        nodeA = startNode(url);
+        nodeB = startNode(url);
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodeA.getBean(JdbcTemplate.class).execute("SHUTDOWN");
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    void loginLimitIsSharedBetweenNodes() {
+        RateLimitingService a = nodeA.getBean(RateLimitingService.class);
+        RateLimitingService b = nodeB.getBean(RateLimitingService.class);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue((i % 2 == 0 ? a : b).checkLoginAttempt("203.0.113.7").isAllowed(), "attempt " + (i + 1));
+        }
+
+        assertFalse(a.checkLoginAttempt("203.0.113.7").isAllowed());
+        assertFalse(b.checkLoginAttempt("203.0.113.7").isAllowed());
+        assertTrue(b.checkLoginAttempt("203.0.113.8").isAllowed());
+    }
+
+    @Test
+    void concurrentRequestsOnBothNodesNeverExceedTheLimit() throws Exception {
+        RateLimitingService a = nodeA.getBean(RateLimitingService.class);
+        RateLimitingService b = nodeB.getBean(RateLimitingService.class);
+        int threads = 8;
+        int attemptsPerThread = 10;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                RateLimitingService node = t % 2 == 0 ? a : b;
+                results.add(executor.submit((Callable<Integer>) () -> {
+                    start.await();
+                    int allowed = 0;
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        if (node.checkForgotPasswordLimit("user@example.com", 3, 15).isAllowed()) {
+                            allowed++;
+                        }
+                    }
+                    return allowed;
+                }));
+            }
+            start.countDown();
+
+            int allowed = 0;
+            for (Future<Integer> result : results) {
+                allowed += result.get();
+            }
+            assertEquals(3, allowed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void asyncProxiesShareTheSameBuckets() throws Exception {
+        JdbcBucketProxyManager proxyManager = nodeA.getBean(JdbcBucketProxyManager.class);
+        BucketConfiguration configuration = BucketConfiguration.builder()
+                .addLimit(Bandwidth.classic(2, Refill.intervally(2, Duration.ofMinutes(1))))
+                .build();
+        AsyncBucketProxy async = proxyManager.asAsync().builder().build("async-key", configuration);
+
+        assertTrue(async.tryConsume(1).get());
+        assertTrue(nodeB.getBean(JdbcBucketProxyManager.class).builder().build("async-key", configuration).tryConsume(1));
+        assertFalse(async.tryConsume(1).get());
+
+        proxyManager.asAsync().removeProxy("async-key").get();
+        assertTrue(async.tryConsume(1).get());
+    }
+
+    private static AnnotationConfigApplicationContext startNode(String url) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+                "app.rate-limit.mode", "distributed",
+                "test.datasource.url", url)));
+        context.register(NodeConfig.class);
+        context.refresh();
+        return context;
+    }
+
+    @Configuration
+    @Import({CacheConfig.class, RateLimitConfig.class, RateLimitingService.class})
+    static class NodeConfig {
+
+        @Bean
+        DataSource dataSource(Environment environment) {
+            DriverManagerDataSource dataSource = new DriverManagerDataSource(environment.getRequiredProperty("test.datasource.url"), "sa", "");
+            new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+            return dataSource;
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.model.Media;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Une demande de déclinaison n'attend pas la production ; seul un original qu'ImageIO ne sait pas lire (ou trop
+ * grand) est retenu comme non déclinable, une erreur passagère laisse la demande suivante réessayer.
+ */
+class ImageVariantServiceTest {
+
+    private final AtomicInteger generations = new AtomicInteger();
+    // Résultats successifs du générateur : future à rendre, ou exception à lever
+    private final Deque<Object> outcomes = new ArrayDeque<>();
+    private Path stored;
+    private ImageVariantService service;
+    private Media media;
+
+    @BeforeEach
+    void setUp() {
+        ImageVariantGenerator generator = new ImageVariantGenerator(null, 1, 0.8f) {
+            @Override
+            @SuppressWarnings("unchecked")
+            public CompletableFuture<Path> generate(String fileName, ImageVariant variant, String variantName) throws IOException {
+                generations.incrementAndGet();
+                Object outcome = outcomes.poll();
+                if (outcome instanceof IOException e) {
+                    throw e;
+                }
+                return outcome == null ? new CompletableFuture<>() : (CompletableFuture<Path>) outcome;
+            }
+        };
+        FileStorageService storage = new FileStorageService(null, true) {
+            @Override
+            public Path findVariant(String fileName, String variantName) {
+                return stored;
+            }
+        };
+        service = new ImageVariantService(generator, storage, 100, 24);
+        media = new Media();
+        media.setFileName("photo.jpg");
+        media.setContentType("image/jpeg");
+    }
+
+    @Test
+    void requestDoesNotWaitForProduction() {
+        CompletableFuture<Path> production = new CompletableFuture<>();
+        outcomes.add(production);
+
+        assertNull(service.variant(media, ImageVariant.THUMB));
+        assertNull(service.variant(media, ImageVariant.THUMB));
+        assertEquals(1, generations.get()); // Demandes simultanées : une seule production
+
+        stored = Path.of("thumb.jpg");
+        production.complete(stored);
+        assertSame(stored, service.variant(media, ImageVariant.THUMB));
+        assertEquals(1, generations.get());
+    }
+
+    @Test
+    void transientFailureIsRetried() {
+        outcomes.add(CompletableFuture.failedFuture(new IOException("disk hiccup")));
+        outcomes.add(new IOException("thrown by the proxy"));
+
+        assertNull(service.variant(media, ImageVariant.THUMB));
+        assertNull(service.variant(media, ImageVariant.THUMB));
+        assertNull(service.variant(media, ImageVariant.THUMB));
+
+        assertEquals(3, generations.get());
+    }
+
+    @Test
+    void missingOriginalIsRetried() {
+        outcomes.add(CompletableFuture.completedFuture(null));
+
+        assertNull(service.variant(media, ImageVariant.THUMB));
+        assertNull(service.variant(media, ImageVariant.THUMB));
+
+        assertEquals(2, generations.get());
+    }
+
+    @Test
+    void undecodableOriginalIsNotDecodedAgain() {
+        // Exception levée par la méthode @Async, enveloppée comme le fait le proxy
+        outcomes.add(CompletableFuture.failedFuture(new CompletionException(
+                new ImageVariantGenerator.UndecodableImageException("no ImageIO reader for photo.jpg"))));
+
+        assertNull(service.variant(media, ImageVariant.THUMB));
+        assertNull(service.variant(media, ImageVariant.SMALL));
+        service.prepare(media);
+
+        assertEquals(1, generations.get());
+    }
+}
@@ -0,0 +1,92 @@
+package com.mediatower.backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Couche JPA de l'application sur une base H2 en mémoire propre à chaque contexte : entités, repositories,
+ * transactions et schema.sql (exécuté après Hibernate, comme spring.jpa.defer-datasource-initialization).
+ * Les statistiques Hibernate sont activées pour compter les requêtes ; un MeterRegistry en mémoire est fourni.
+ */
+@Configuration
+@EnableTransactionManagement
+@EnableJpaRepositories(basePackages = "com.mediatower.backend.repository")
+class JpaTestConfig {
+
+    /**
+     * Contexte contenant cette configuration et les classes données (services sous test...).
+     */
+    static AnnotationConfigApplicationContext start(Class<?>... componentClasses) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.register(JpaTestConfig.class);
+        if (componentClasses.length > 0) {
+            context.register(componentClasses);
+        }
+        context.refresh();
+        return context;
+    }
+
+    static Statistics statistics(AnnotationConfigApplicationContext context) {
+        return context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Bean
+    DataSource dataSource() {
+        return new DriverManagerDataSource("jdbc:h2:mem:jpa-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    @Bean
+    LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setPackagesToScan("com.mediatower.backend.model");
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        // Nommage de Spring Boot (orderDate -> order_date), comme l'application
+        factory.setJpaPropertyMap(Map.of(
+                AvailableSettings.PHYSICAL_NAMING_STRATEGY, CamelCaseToUnderscoresNamingStrategy.class.getName(),
+                AvailableSettings.IMPLICIT_NAMING_STRATEGY, SpringImplicitNamingStrategy.class.getName(),
+                AvailableSettings.HBM2DDL_AUTO, "create-drop",
+                AvailableSettings.GENERATE_STATISTICS, "true"));
+        return factory;
+    }
+
+    @Bean
+    PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory, DataSource dataSource) {
+        // Le schéma Hibernate existe dès que la fabrique est construite : on complète avec schema.sql
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        return new JpaTransactionManager(entityManagerFactory);
+    }
+
+    @Bean
+    MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    @Bean
+    JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+}
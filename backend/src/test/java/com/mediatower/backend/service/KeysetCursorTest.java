@@ -0,0 +1,79 @@
+package com.mediatower.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeysetCursorTest {
+
+    @Test
+    void cursorRoundTripsTimestampAndId() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123_456_000);
+
+        KeysetCursor cursor = KeysetCursor.decode("orders", KeysetCursor.encode("orders", timestamp, 42));
+
+        assertEquals(timestamp, cursor.timestamp());
+        assertEquals(42, cursor.id());
+    }
+
+    @Test
+    void idOnlyCursorStartsFromTheFirstTimestamp() {
+        KeysetCursor cursor = KeysetCursor.decode("products", KeysetCursor.encode("products", 7));
+
+        assertEquals(KeysetCursor.FIRST_TIMESTAMP, cursor.timestamp());
+        assertEquals(7, cursor.id());
+    }
+
+    @Test
+    void missingCursorIsTheFirstPage() {
+        for (String cursor : new String[]{null, "", "  "}) {
+            KeysetCursor first = KeysetCursor.decode("users", cursor);
+
+            assertEquals(KeysetCursor.FIRST_TIMESTAMP, first.timestamp());
+            assertEquals(KeysetCursor.FIRST_ID, first.id());
+        }
+    }
+
+    @Test
+    void cursorFromAnotherListingIsRejected() {
+        String ordersCursor = KeysetCursor.encode("orders", LocalDateTime.of(2024, 1, 1, 0, 0), 10);
+
+        assertBadRequest("audit-logs", ordersCursor);
+        assertBadRequest("order", ordersCursor);
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        assertBadRequest("orders", "not base64 !");
+        assertBadRequest("orders", "%%%");
+        assertBadRequest("orders", encodeRaw("orders|2024-01-01T00:00"));
+        assertBadRequest("orders", encodeRaw("orders|yesterday|10"));
+        assertBadRequest("orders", encodeRaw("orders||ten"));
+        assertBadRequest("orders", encodeRaw("orders||10|extra"));
+    }
+
+    @Test
+    void pageSizeDefaultsAndIsCapped() {
+        assertEquals(KeysetCursor.DEFAULT_SIZE, KeysetCursor.pageSize(null));
+        assertEquals(KeysetCursor.DEFAULT_SIZE, KeysetCursor.pageSize(0));
+        assertEquals(KeysetCursor.DEFAULT_SIZE, KeysetCursor.pageSize(-5));
+        assertEquals(35, KeysetCursor.pageSize(35));
+        assertEquals(KeysetCursor.MAX_SIZE, KeysetCursor.pageSize(10_000));
+    }
+
+    private static void assertBadRequest(String scope, String cursor) {
+        ResponseStatusException error = assertThrows(ResponseStatusException.class, () -> KeysetCursor.decode(scope, cursor));
+        assertEquals(HttpStatus.BAD_REQUEST, error.getStatusCode());
+    }
+
+    private static String encodeRaw(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
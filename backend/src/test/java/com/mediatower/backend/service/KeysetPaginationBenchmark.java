@@ -0,0 +1,111 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.model.AuditLog;
+import com.mediatower.backend.repository.AuditLogRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Journal d'audit : page 1 et page 10 000 (20 lignes) en OFFSET + COUNT (getAuditLogs) et par curseur
+ * (getAuditLogsAfterCursor, index idx_audit_logs_timestamp_id). Les deux variantes doivent rendre les mêmes lignes.
+ * <p>
+ * Lancement : {@code mvn test -Dtest=KeysetPaginationBenchmark -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class KeysetPaginationBenchmark {
+
+    private static final int ROWS = 300_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int ROUNDS = 50;
+    // Départage des dates égales, comme le curseur
+    private static final Sort BY_ID = Sort.by(Sort.Direction.DESC, "id");
+
+    private static AnnotationConfigApplicationContext context;
+    private static AuditLogRepository auditLogs;
+    private static TransactionTemplate readOnly;
+
+    @BeforeAll
+    static void seed() {
+        context = JpaTestConfig.start();
+        auditLogs = context.getBean(AuditLogRepository.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+
+        // Trois entrées par date, une date toutes les 30 s : les pages coupent des égalités
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Object[]{"LOGIN_SUCCESS", Timestamp.valueOf(start.plusSeconds(i / 3 * 30L))});
+        }
+        context.getBean(JdbcTemplate.class).batchUpdate("INSERT INTO audit_logs (action, timestamp) VALUES (?, ?)", rows);
+    }
+
+    @AfterAll
+    static void close() {
+        context.close();
+    }
+
+    @Test
+    void compareOffsetAndKeysetPages() {
+        for (int pass = 0; pass < 2; pass++) { // le premier passage sert de chauffe
+            for (int page : new int[]{0, 9_999}) {
+                // Curseur de la page : dernière ligne de la page précédente, lue hors mesure
+                KeysetCursor position = page == 0
+                        ? KeysetCursor.decode("audit-logs", null)
+                        : cursorBefore(page);
+
+                Measure offset = measure(() -> {
+                    Page<AuditLog> result = auditLogs.findAllByOrderByTimestampDesc(PageRequest.of(page, PAGE_SIZE, BY_ID));
+                    result.getTotalElements();
+                    return ids(result.getContent());
+                });
+                Measure keyset = measure(() -> ids(auditLogs.findBefore(position.timestamp(), position.id(),
+                        PageRequest.of(0, PAGE_SIZE + 1)).subList(0, PAGE_SIZE)));
+
+                if (pass == 1) {
+                    System.out.printf("page %,6d   OFFSET + COUNT %7.2f ms   keyset %5.2f ms%n",
+                            page + 1, offset.millis(), keyset.millis());
+                }
+                assertEquals(offset.ids(), keyset.ids());
+            }
+        }
+    }
+
+    private static KeysetCursor cursorBefore(int page) {
+        AuditLog last = auditLogs.findAllByOrderByTimestampDesc(PageRequest.of(page * PAGE_SIZE - 1, 1, BY_ID)).getContent().get(0);
+        return KeysetCursor.decode("audit-logs", KeysetCursor.encode("audit-logs", last.getTimestamp(), last.getId()));
+    }
+
+    private static Measure measure(Supplier<List<Long>> fetch) {
+        List<Long> ids = null;
+        long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            ids = readOnly.execute(status -> fetch.get());
+        }
+        return new Measure((System.nanoTime() - start) / 1e6 / ROUNDS, ids);
+    }
+
+    private static List<Long> ids(List<AuditLog> logs) {
+        return logs.stream().map(AuditLog::getId).toList();
+    }
+
+    private record Measure(double millis, List<Long> ids) {
+    }
+}
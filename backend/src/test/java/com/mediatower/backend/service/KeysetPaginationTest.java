@@ -0,0 +1,245 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.dto.AuditLogDto;
+import com.mediatower.backend.dto.CursorPage;
+import com.mediatower.backend.dto.OrderDto;
+import com.mediatower.backend.dto.ProductDto;
+import com.mediatower.backend.model.Category;
+import com.mediatower.backend.model.Order;
+import com.mediatower.backend.model.OrderStatus;
+import com.mediatower.backend.model.Product;
+import com.mediatower.backend.model.User;
+import com.mediatower.backend.repository.CategoryRepository;
+import com.mediatower.backend.repository.OrderRepository;
+import com.mediatower.backend.repository.ProductRepository;
+import com.mediatower.backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Parcours complet des listes /scroll page par page : chaque ligne apparaît une fois, dans l'ordre
+ * (clé de tri, id) décroissant, y compris quand plusieurs lignes partagent la même date.
+ */
+class KeysetPaginationTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+    private AnnotationConfigApplicationContext context;
+    private TransactionTemplate transaction;
+    private JdbcTemplate jdbc;
+    private OrderService orderService;
+    private AuditLogService auditLogService;
+    private ProductService productService;
+    private User alice;
+    private User bob;
+
+    @BeforeEach
+    void setUp() {
+        context = JpaTestConfig.start(AuditLogService.class, AuditLogWriter.class);
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        jdbc = context.getBean(JdbcTemplate.class);
+        auditLogService = context.getBean(AuditLogService.class);
+        // Seules les dépendances des listes par curseur sont fournies
+        orderService = new OrderService(context.getBean(OrderRepository.class), null, null, null, null, null, null);
+        productService = new ProductService(context.getBean(ProductRepository.class), null, null, null, null, null, null,
+                null, null, null, null, null, null, null, null);
+        alice = user("alice@example.com", "Alice");
+        bob = user("bob@example.com", "Bob");
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void ordersSharingADateArePagedByIdWithoutDuplicatesOrGaps() {
+        // 25 commandes sur 3 dates seulement : chaque frontière de page tombe au milieu d'une égalité
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            created.add(order(i % 2 == 0 ? alice : bob, BASE.plusMinutes(i % 3)));
+        }
+        List<Long> expected = expectedOrder(created, id -> BASE.plusMinutes(created.indexOf(id) % 3));
+
+        List<Long> walked = walk(cursor -> inTransaction(() -> orderService.getOrdersAfterCursor(null, cursor, 4, false)),
+                OrderDto::getId);
+
+        assertEquals(expected, walked);
+    }
+
+    @Test
+    void rowsInsertedDuringTheWalkDoNotShiftPages() {
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            created.add(order(alice, BASE.plusMinutes(i % 2)));
+        }
+        CursorPage<OrderDto> first = inTransaction(() -> orderService.getOrdersAfterCursor(null, null, 3, false));
+        List<Long> walked = new ArrayList<>(first.getContent().stream().map(OrderDto::getId).toList());
+
+        // Plus récentes que tout ce qui a été lu : un OFFSET décalerait la suite d'autant de lignes
+        order(alice, BASE.plusMinutes(5));
+        order(bob, BASE.plusMinutes(1));
+
+        walked.addAll(walk(first.getNextCursor(),
+                cursor -> inTransaction(() -> orderService.getOrdersAfterCursor(null, cursor, 3, false)), OrderDto::getId));
+        assertEquals(expectedOrder(created, id -> BASE.plusMinutes(created.indexOf(id) % 2)), walked);
+    }
+
+    @Test
+    void orderSearchFiltersEveryPageAndCountsOnlyWithTotal() {
+        for (int i = 0; i < 9; i++) {
+            order(i % 3 == 0 ? alice : bob, BASE);
+        }
+
+        CursorPage<OrderDto> withoutTotal = inTransaction(() -> orderService.getOrdersAfterCursor("alice", null, 2, false));
+        CursorPage<OrderDto> withTotal = inTransaction(() -> orderService.getOrdersAfterCursor("alice", null, 2, true));
+        List<Long> walked = walk(cursor -> inTransaction(() -> orderService.getOrdersAfterCursor("alice", cursor, 2, false)),
+                OrderDto::getId);
+
+        assertNull(withoutTotal.getTotalElements());
+        assertEquals(3L, withTotal.getTotalElements());
+        assertEquals(2, withTotal.getContent().size());
+        assertEquals(3, walked.size());
+        walked.forEach(id -> assertEquals(alice.getEmail(), inTransaction(() ->
+                context.getBean(OrderRepository.class).findById(id).orElseThrow().getUser().getEmail())));
+    }
+
+    @Test
+    void auditLogsSharingATimestampArePagedById() {
+        // Inséré en SQL : @CreationTimestamp remplacerait la date choisie
+        for (int i = 0; i < 23; i++) {
+            jdbc.update("INSERT INTO audit_logs (user_id, action, timestamp) VALUES (?, 'LOGIN_SUCCESS', ?)",
+                    alice.getId(), Timestamp.valueOf(BASE.plusSeconds(i % 4)));
+        }
+        Map<Long, LocalDateTime> timestamps = new HashMap<>();
+        jdbc.query("SELECT id, timestamp FROM audit_logs",
+                rs -> { timestamps.put(rs.getLong("id"), rs.getTimestamp("timestamp").toLocalDateTime()); });
+
+        List<Long> walked = walk(cursor -> auditLogService.getAuditLogsAfterCursor(cursor, 5, false), AuditLogDto::getId);
+
+        assertEquals(expectedOrder(new ArrayList<>(timestamps.keySet()), timestamps::get), walked);
+        assertEquals(23L, auditLogService.getAuditLogsAfterCursor(null, 5, true).getTotalElements());
+        assertNull(auditLogService.getAuditLogsAfterCursor(null, 5, false).getTotalElements());
+    }
+
+    @Test
+    void cursorOfAnotherListingIsRejected() {
+        order(alice, BASE);
+        order(alice, BASE);
+        String ordersCursor = inTransaction(() -> orderService.getOrdersAfterCursor(null, null, 1, false)).getNextCursor();
+
+        ResponseStatusException error = assertThrows(ResponseStatusException.class,
+                () -> auditLogService.getAuditLogsAfterCursor(ordersCursor, 5, false));
+
+        assertEquals(HttpStatus.BAD_REQUEST, error.getStatusCode());
+    }
+
+    @Test
+    void productsArePagedByIdWithFiltersAndTotal() {
+        List<Long> inCategory = new ArrayList<>();
+        transaction.executeWithoutResult(status -> {
+            CategoryRepository categories = context.getBean(CategoryRepository.class);
+            Category books = category(categories, "Books");
+            Category music = category(categories, "Music");
+            for (int i = 0; i < 14; i++) {
+                Product product = new Product();
+                product.setNames(Map.of("en", "Product " + i));
+                product.setPrice(BigDecimal.TEN);
+                product.setStock(i % 2 == 0 ? 0 : 20);
+                product.setCategory(i % 3 == 0 ? music : books);
+                Long id = context.getBean(ProductRepository.class).save(product).getId();
+                if (i % 3 != 0) {
+                    inCategory.add(id);
+                }
+            }
+        });
+        Long booksId = jdbc.queryForObject("SELECT category_id FROM products WHERE id = ?", Long.class, inCategory.get(0));
+
+        List<Long> walked = walk(cursor -> inTransaction(() ->
+                productService.getProductsAfterCursor(null, booksId, "all", cursor, 3, false)), ProductDto::getId);
+        CursorPage<ProductDto> outOfStock = inTransaction(() ->
+                productService.getProductsAfterCursor(null, booksId, "outofstock", null, 100, true));
+
+        assertEquals(inCategory.stream().sorted(Comparator.reverseOrder()).toList(), walked);
+        // Produits pairs de la catégorie : stock 0
+        assertEquals(inCategory.size() / 2, outOfStock.getContent().size());
+        assertEquals((long) outOfStock.getContent().size(), outOfStock.getTotalElements());
+        assertNull(outOfStock.getNextCursor());
+    }
+
+    /**
+     * Ids de toutes les pages, du premier appel (curseur absent) à la page sans curseur suivant.
+     */
+    private <T> List<Long> walk(Function<String, CursorPage<T>> fetch, Function<T, Long> id) {
+        return walk(null, fetch, id);
+    }
+
+    private <T> List<Long> walk(String cursor, Function<String, CursorPage<T>> fetch, Function<T, Long> id) {
+        List<Long> ids = new ArrayList<>();
+        for (int pages = 0; pages < 100; pages++) {
+            CursorPage<T> page = fetch.apply(cursor);
+            page.getContent().forEach(row -> ids.add(id.apply(row)));
+            cursor = page.getNextCursor();
+            if (cursor == null) {
+                return ids;
+            }
+            assertEquals(page.getSize(), page.getContent().size(), "only the last page may be short");
+        }
+        throw new AssertionError("pagination did not end");
+    }
+
+    private static List<Long> expectedOrder(List<Long> ids, Function<Long, LocalDateTime> key) {
+        return ids.stream()
+                .sorted(Comparator.<Long, LocalDateTime>comparing(key).thenComparing(Comparator.naturalOrder()).reversed())
+                .toList();
+    }
+
+    private <T> T inTransaction(Supplier<T> work) {
+        return transaction.execute(status -> work.get());
+    }
+
+    private User user(String email, String firstName) {
+        User user = new User();
+        user.setEmail(email);
+        user.setFirstName(firstName);
+        user.setPassword("secret");
+        return inTransaction(() -> context.getBean(UserRepository.class).save(user));
+    }
+
+    private Long order(User user, LocalDateTime orderDate) {
+        Order order = new Order();
+        order.setUser(user);
+        order.setOrderDate(orderDate);
+        order.setStatus(OrderStatus.CONFIRMED);
+        order.setTotalAmount(BigDecimal.TEN);
+        return inTransaction(() -> context.getBean(OrderRepository.class).save(order).getId());
+    }
+
+    private static Category category(CategoryRepository categories, String name) {
+        Category category = new Category();
+        category.setNames(Map.of("en", name));
+        return categories.save(category);
+    }
+}
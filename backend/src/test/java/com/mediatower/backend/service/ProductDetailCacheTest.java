@@ -0,0 +1,161 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.config.CacheConfig;
+import com.mediatower.backend.dto.ProductDto;
+import com.mediatower.backend.model.Category;
+import com.mediatower.backend.model.Product;
+import com.mediatower.backend.repository.CategoryRepository;
+import com.mediatower.backend.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Après le commit d'une modification, aucune lecture ne renvoie l'ancienne fiche, même si une lecture
+ * concurrente a rechargé l'état précédent dans le cache pendant la transaction.
+ */
+class ProductDetailCacheTest {
+
+    private AnnotationConfigApplicationContext context;
+    private ProductDetailCache cache;
+    private ProductRepository products;
+    private CategoryRepository categories;
+    private TransactionTemplate transaction;
+    private Long productId;
+    private Long categoryId;
+
+    @BeforeEach
+    void setUp() {
+        context = JpaTestConfig.start(CacheConfig.class, ProductDetailCache.class);
+        cache = context.getBean(ProductDetailCache.class);
+        products = context.getBean(ProductRepository.class);
+        categories = context.getBean(CategoryRepository.class);
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        transaction.executeWithoutResult(status -> {
+            Category category = new Category();
+            category.setNames(Map.of("en", "Books"));
+            categoryId = categories.save(category).getId();
+
+            Product product = new Product();
+            product.setNames(Map.of("en", "Product"));
+            product.setPrice(BigDecimal.ZERO);
+            product.setStock(1);
+            product.setCategory(category);
+            productId = products.save(product).getId();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void readDuringTransactionDoesNotSurviveCommit() {
+        assertEquals(0, read().getPrice().intValue());
+
+        transaction.executeWithoutResult(status -> {
+            setPrice(42);
+            products.flush();
+            cache.evictAfterCommit(productId);
+            // Lecture concurrente avant le commit : recharge l'ancien état commité et le remet en cache
+            ProductDto concurrent = CompletableFuture.supplyAsync(this::read).join();
+            assertEquals(0, concurrent.getPrice().intValue());
+        });
+
+        assertEquals(42, read().getPrice().intValue());
+        assertEquals(42, readAll().getPrice().intValue());
+    }
+
+    @Test
+    void categoryRenameIsVisibleAfterCommit() {
+        assertEquals("Books", read().getCategoryName());
+
+        transaction.executeWithoutResult(status -> {
+            Category category = categories.findById(categoryId).orElseThrow();
+            category.setNames(new HashMap<>(Map.of("en", "E-books")));
+            categories.flush();
+            cache.evictCategoryAfterCommit(categoryId);
+            assertEquals("Books", CompletableFuture.supplyAsync(this::read).join().getCategoryName());
+        });
+
+        assertEquals("E-books", read().getCategoryName());
+    }
+
+    @Test
+    void everyCommitIsVisibleToTheNextReadUnderConcurrentReaders() throws Exception {
+        int readers = 6;
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        try {
+            for (int r = 0; r < readers; r++) {
+                boolean bulk = r % 2 == 0;
+                executor.submit(() -> {
+                    while (running.get()) {
+                        if (bulk) {
+                            readAll();
+                        } else {
+                            read();
+                        }
+                    }
+                });
+            }
+
+            for (int price = 1; price <= 300; price++) {
+                int committed = price;
+                transaction.executeWithoutResult(status -> {
+                    setPrice(committed);
+                    cache.evictAfterCommit(productId);
+                });
+
+                assertEquals(committed, read().getPrice().intValue(), "get after commit " + committed);
+                assertEquals(committed, readAll().getPrice().intValue(), "getAll after commit " + committed);
+            }
+        } finally {
+            running.set(false);
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private void setPrice(int price) {
+        Product product = products.findById(productId).orElseThrow();
+        product.setPrice(BigDecimal.valueOf(price));
+    }
+
+    private ProductDto read() {
+        return cache.get(productId, id -> products.findById(id).map(ProductDetailCacheTest::toDto)).orElseThrow();
+    }
+
+    private ProductDto readAll() {
+        return cache.getAll(List.of(productId), ids -> products.findAllForCatalogByIdIn(ids).stream()
+                .map(ProductDetailCacheTest::toDto)
+                .toList()).get(0);
+    }
+
+    private static ProductDto toDto(Product product) {
+        ProductDto dto = new ProductDto();
+        dto.setId(product.getId());
+        dto.setPrice(product.getPrice());
+        dto.setNames(product.getNames());
+        dto.setCategoryId(product.getCategory().getId());
+        dto.setCategoryName(product.getCategory().getNames().get("en"));
+        return dto;
+    }
+}
@@ -0,0 +1,333 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.model.Category;
+import com.mediatower.backend.model.Product;
+import com.mediatower.backend.model.Tag;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Index de facettes comparé à un filtre naïf sur l'état attendu du catalogue : mêmes ids dans le même ordre,
+ * même total et mêmes nombres pour chaque valeur de chaque facette, après des suites aléatoires de
+ * créations, mises à jour, suppressions de produits et de tags, y compris pendant une reconstruction.
+ */
+class ProductFacetIndexTest {
+
+    private static final List<BigDecimal> PRICE_BOUNDS = List.of(
+            new BigDecimal("10"), new BigDecimal("25"), new BigDecimal("50"), new BigDecimal("100"));
+    private static final List<String> STOCK_LABELS = List.of("instock", "lowstock", "outofstock");
+    private static final List<String> PRICE_LABELS = List.of("0-10", "10-25", "25-50", "50-100", "100+");
+    private static final Integer[] STOCKS = {null, -1, 0, 1, 10, 11, 50};
+    private static final String[] PRICES = {null, "0", "9.99", "10", "24.99", "25", "49.50", "50", "99.99", "100", "250"};
+    private static final int CATEGORIES = 5;
+    private static final int TAGS = 6;
+
+    private JdbcTemplate jdbc;
+    // Action exécutée juste avant la requête dont le SQL commence par la clé
+    private final Map<String, Runnable> beforeQuery = new HashMap<>();
+    private ProductFacetIndex index;
+    // État attendu, tenu en parallèle de la base et de l'index
+    private final Map<Long, ProductState> catalog = new TreeMap<>();
+    private long nextId = 1;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:facets-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        // Colonnes lues par l'index seulement
+        jdbc.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, category_id BIGINT, stock INT, price DECIMAL(10, 2))");
+        jdbc.execute("CREATE TABLE product_tags (product_id BIGINT, tag_id BIGINT)");
+
+        JdbcTemplate interceptingJdbc = new JdbcTemplate(dataSource) {
+            @Override
+            public void query(String sql, RowCallbackHandler handler) {
+                beforeQuery.entrySet().stream()
+                        .filter(entry -> sql.startsWith(entry.getKey()))
+                        .findFirst()
+                        .ifPresent(entry -> beforeQuery.remove(entry.getKey()).run());
+                super.query(sql, handler);
+            }
+        };
+        index = new ProductFacetIndex(interceptingJdbc, PRICE_BOUNDS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("SHUTDOWN");
+    }
+
+    @Test
+    void randomUpdatesMatchANaiveFilter() {
+        for (long seed = 1; seed <= 4; seed++) {
+            Random random = new Random(seed);
+            for (int i = 0; i < 40; i++) {
+                create(random);
+            }
+            index.rebuild();
+            assertMatchesNaiveFilter(random);
+
+            for (int step = 0; step < 300; step++) {
+                randomChange(random);
+                if (step % 10 == 0) {
+                    assertMatchesNaiveFilter(random);
+                }
+                if (step % 75 == 74) {
+                    // Changements commités avant et entre les deux lectures de la reconstruction : rejoués
+                    beforeQuery.put("SELECT id, category_id", () -> randomChanges(random, 5));
+                    beforeQuery.put("SELECT product_id, tag_id", () -> {
+                        update(random, catalog.keySet().iterator().next());
+                        randomChanges(random, 5);
+                    });
+                    index.rebuild();
+                    assertMatchesNaiveFilter(random);
+                }
+            }
+            index.rebuild();
+            assertMatchesNaiveFilter(random);
+        }
+    }
+
+    @Test
+    void updateCommittedDuringRebuildIsReplayed() {
+        long product = put(new ProductState(1L, Set.of(1L), 5, new BigDecimal("12")));
+        put(new ProductState(1L, Set.of(), 20, new BigDecimal("30")));
+        // Produits déjà lus (catégorie 1), tags pas encore
+        beforeQuery.put("SELECT product_id, tag_id", () ->
+                put(product, new ProductState(2L, Set.of(2L), 0, new BigDecimal("120"))));
+
+        index.rebuild();
+
+        ProductFacetIndex.Result all = index.query(new ProductFacetIndex.Selection(null, null, null, null), 0, 10);
+        assertEquals(Map.of("1", 1L, "2", 1L), all.facets().get(ProductFacetIndex.CATEGORY));
+        assertEquals(Map.of("2", 1L), all.facets().get(ProductFacetIndex.TAG));
+        assertEquals(1L, all.facets().get(ProductFacetIndex.STOCK).get("outofstock"));
+        assertEquals(1L, all.facets().get(ProductFacetIndex.PRICE).get("100+"));
+        assertMatchesNaiveFilter(new Random(0));
+    }
+
+    private void randomChanges(Random random, int count) {
+        for (int i = 0; i < count; i++) {
+            randomChange(random);
+        }
+    }
+
+    private void randomChange(Random random) {
+        int action = random.nextInt(20);
+        if (catalog.isEmpty() || action < 6) {
+            create(random);
+        } else if (action < 15) {
+            update(random, randomProduct(random));
+        } else if (action < 19) {
+            long productId = randomProduct(random);
+            catalog.remove(productId);
+            jdbc.update("DELETE FROM product_tags WHERE product_id = ?", productId);
+            jdbc.update("DELETE FROM products WHERE id = ?", productId);
+            index.removeAfterCommit(productId);
+        } else {
+            long tagId = 1 + random.nextInt(TAGS);
+            catalog.replaceAll((id, state) -> state.withoutTag(tagId));
+            jdbc.update("DELETE FROM product_tags WHERE tag_id = ?", tagId);
+            index.removeTagAfterCommit(tagId);
+        }
+    }
+
+    private void create(Random random) {
+        put(randomState(random));
+    }
+
+    private void update(Random random, long productId) {
+        put(productId, randomState(random));
+    }
+
+    private long put(ProductState state) {
+        long productId = nextId++;
+        jdbc.update("INSERT INTO products (id) VALUES (?)", productId);
+        put(productId, state);
+        return productId;
+    }
+
+    private void put(long productId, ProductState state) {
+        catalog.put(productId, state);
+        jdbc.update("UPDATE products SET category_id = ?, stock = ?, price = ? WHERE id = ?",
+                state.categoryId(), state.stock(), state.price(), productId);
+        jdbc.update("DELETE FROM product_tags WHERE product_id = ?", productId);
+        state.tagIds().forEach(tagId ->
+                jdbc.update("INSERT INTO product_tags (product_id, tag_id) VALUES (?, ?)", productId, tagId));
+        index.indexAfterCommit(entity(productId, state));
+    }
+
+    private long randomProduct(Random random) {
+        List<Long> ids = new ArrayList<>(catalog.keySet());
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    private static ProductState randomState(Random random) {
+        Long categoryId = random.nextInt(8) == 0 ? null : 1L + random.nextInt(CATEGORIES);
+        Set<Long> tagIds = new HashSet<>();
+        for (int i = random.nextInt(4); i > 0; i--) {
+            tagIds.add(1L + random.nextInt(TAGS));
+        }
+        String price = PRICES[random.nextInt(PRICES.length)];
+        return new ProductState(categoryId, tagIds, STOCKS[random.nextInt(STOCKS.length)],
+                price == null ? null : new BigDecimal(price));
+    }
+
+    private static Product entity(long productId, ProductState state) {
+        Product product = new Product();
+        product.setId(productId);
+        if (state.categoryId() != null) {
+            Category category = new Category();
+            category.setId(state.categoryId());
+            product.setCategory(category);
+        }
+        for (Long tagId : state.tagIds()) {
+            Tag tag = new Tag();
+            tag.setId(tagId);
+            product.getTags().add(tag);
+        }
+        product.setStock(state.stock());
+        product.setPrice(state.price());
+        return product;
+    }
+
+    private void assertMatchesNaiveFilter(Random random) {
+        for (int i = 0; i < 25; i++) {
+            ProductFacetIndex.Selection selection = new ProductFacetIndex.Selection(
+                    randomSubset(random, List.of(1L, 2L, 3L, 4L, 5L, 99L)),
+                    randomSubset(random, List.of(1L, 2L, 3L, 4L, 5L, 6L, 99L)),
+                    randomSubset(random, List.of("instock", "lowstock", "outofstock", "unknown")),
+                    randomSubset(random, List.of("0-10", "10-25", "25-50", "50-100", "100+", "5-6")));
+            int offset = random.nextInt(3) == 0 ? random.nextInt(20) : 0;
+            int limit = 1 + random.nextInt(30);
+
+            ProductFacetIndex.Result actual = index.query(selection, offset, limit);
+            ProductFacetIndex.Result expected = naiveQuery(selection, offset, limit);
+
+            assertEquals(expected.productIds(), actual.productIds(), () -> "ids for " + selection);
+            assertEquals(expected.total(), actual.total(), () -> "total for " + selection);
+            assertEquals(expected.facets(), actual.facets(), () -> "facet counts for " + selection);
+        }
+    }
+
+    private ProductFacetIndex.Result naiveQuery(ProductFacetIndex.Selection selection, int offset, int limit) {
+        List<Long> matching = catalog.entrySet().stream()
+                .filter(entry -> matches(entry.getValue(), selection, -1))
+                .map(Map.Entry::getKey)
+                .sorted(Comparator.reverseOrder())
+                .toList();
+
+        // Catégories et tags : valeurs portées par au moins un produit
+        Map<String, Long> categories = new TreeMap<>();
+        Map<String, Long> tags = new TreeMap<>();
+        catalog.values().forEach(state -> {
+            if (state.categoryId() != null) {
+                categories.put(state.categoryId().toString(), 0L);
+            }
+            state.tagIds().forEach(tagId -> tags.put(tagId.toString(), 0L));
+        });
+        Map<String, Long> stock = labels(STOCK_LABELS);
+        Map<String, Long> prices = labels(PRICE_LABELS);
+        for (ProductState state : catalog.values()) {
+            if (matches(state, selection, 0) && state.categoryId() != null) {
+                categories.merge(state.categoryId().toString(), 1L, Long::sum);
+            }
+            if (matches(state, selection, 1)) {
+                state.tagIds().forEach(tagId -> tags.merge(tagId.toString(), 1L, Long::sum));
+            }
+            if (matches(state, selection, 2) && state.stockLabel() != null) {
+                stock.merge(state.stockLabel(), 1L, Long::sum);
+            }
+            if (matches(state, selection, 3) && state.priceLabel() != null) {
+                prices.merge(state.priceLabel(), 1L, Long::sum);
+            }
+        }
+        return new ProductFacetIndex.Result(
+                matching.stream().skip(offset).limit(limit).toList(), matching.size(),
+                Map.of(ProductFacetIndex.CATEGORY, categories, ProductFacetIndex.TAG, tags,
+                        ProductFacetIndex.STOCK, stock, ProductFacetIndex.PRICE, prices));
+    }
+
+    // Filtres de toutes les facettes sauf celle d'indice 'skipped' (CATEGORY, TAG, STOCK, PRICE)
+    private static boolean matches(ProductState state, ProductFacetIndex.Selection selection, int skipped) {
+        return (skipped == 0 || accepts(selection.categoryIds(), state.categoryId()))
+                && (skipped == 1 || selection.tagIds() == null || selection.tagIds().isEmpty()
+                        || state.tagIds().stream().anyMatch(selection.tagIds()::contains))
+                && (skipped == 2 || accepts(selection.stockBuckets(), state.stockLabel()))
+                && (skipped == 3 || accepts(selection.priceBands(), state.priceLabel()));
+    }
+
+    private static <T> boolean accepts(Set<T> selected, T value) {
+        return selected == null || selected.isEmpty() || (value != null && selected.contains(value));
+    }
+
+    private static Map<String, Long> labels(List<String> labels) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        labels.forEach(label -> counts.put(label, 0L));
+        return counts;
+    }
+
+    // null une fois sur quatre, vide une fois sur quatre
+    private static <T> Set<T> randomSubset(Random random, List<T> values) {
+        int kind = random.nextInt(4);
+        if (kind == 0) {
+            return null;
+        }
+        Set<T> subset = new HashSet<>();
+        if (kind > 1) {
+            for (T value : values) {
+                if (random.nextInt(3) == 0) {
+                    subset.add(value);
+                }
+            }
+        }
+        return subset;
+    }
+
+    private record ProductState(Long categoryId, Set<Long> tagIds, Integer stock, BigDecimal price) {
+
+        ProductState withoutTag(long tagId) {
+            Set<Long> remaining = new HashSet<>(tagIds);
+            remaining.remove(tagId);
+            return new ProductState(categoryId, remaining, stock, price);
+        }
+
+        // Mêmes seuils que le filtre stockStatus du catalogue
+        String stockLabel() {
+            if (stock == null || stock < 0) {
+                return null;
+            }
+            return stock > 10 ? "instock" : stock > 0 ? "lowstock" : "outofstock";
+        }
+
+        String priceLabel() {
+            if (price == null) {
+                return null;
+            }
+            int band = 0;
+            while (band < PRICE_BOUNDS.size() && price.compareTo(PRICE_BOUNDS.get(band)) >= 0) {
+                band++;
+            }
+            return PRICE_LABELS.get(band);
+        }
+    }
+}
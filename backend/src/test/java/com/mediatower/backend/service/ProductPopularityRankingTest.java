@@ -0,0 +1,137 @@
+package com.mediatower.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Événements commités pendant une reconstruction : comptés une seule fois, qu'ils soient commités avant
+ * ou après la lecture de leur ligne par les requêtes de reconstruction.
+ */
+class ProductPopularityRankingTest {
+
+    private static final long A = 1, B = 2, C = 3, D = 4, E = 5;
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbc;
+    // Actions exécutées juste avant / juste après la requête dont le SQL commence par la clé
+    private final Map<String, Runnable> beforeQuery = new HashMap<>();
+    private final Map<String, Runnable> afterQuery = new HashMap<>();
+    private ProductPopularityRanking ranking;
+    private long nextId = 100;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:popularity-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        // Colonnes lues par le classement seulement
+        jdbc.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, order_date TIMESTAMP NOT NULL, status VARCHAR(20) NOT NULL)");
+        jdbc.execute("CREATE TABLE order_items (id BIGINT PRIMARY KEY, order_id BIGINT NOT NULL, product_id BIGINT, quantity INT NOT NULL)");
+        jdbc.execute("CREATE TABLE user_product_access (id BIGINT PRIMARY KEY, product_id BIGINT NOT NULL, " +
+                "download_count INT NOT NULL, last_download_at TIMESTAMP)");
+
+        JdbcTemplate interceptingJdbc = new JdbcTemplate(dataSource) {
+            @Override
+            public void query(String sql, RowCallbackHandler handler, Object... args) {
+                hook(beforeQuery, sql);
+                super.query(sql, handler, args);
+                hook(afterQuery, sql);
+            }
+        };
+        // Ventes et téléchargements au même poids, décroissance négligeable sur la durée du test
+        ranking = new ProductPopularityRanking(interceptingJdbc, 10, 7, 60, 1.0, 2.0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("SHUTDOWN");
+    }
+
+    @Test
+    void eventsCommittedDuringRebuildAreCountedOnce() {
+        long existingAccess = insertAccess(C, 2);
+        insertSale(B, 3);
+        insertSale(D, 7);
+        ranking.rebuild();
+        assertEquals(List.of(D, C, B), ranking.top(10));
+
+        // Commités avant la lecture de leur ligne : déjà dans le résultat des requêtes
+        beforeQuery.put("SELECT oi.id", () -> confirmSale(A, 2));
+        beforeQuery.put("SELECT id", () -> download(existingAccess, C));
+        // Commité après la lecture : absent du résultat, doit être rejoué
+        afterQuery.put("SELECT oi.id", () -> confirmSale(E, 8));
+
+        ranking.rebuild();
+
+        // E 8, D 7, C 3 téléchargements x 2 = 6, B 3, A 2
+        assertEquals(List.of(E, D, C, B, A), ranking.top(10));
+    }
+
+    @Test
+    void eventsOutsideRebuildAreAppliedOnce() {
+        ranking.rebuild();
+        long access = insertAccess(C, 0);
+
+        confirmSale(A, 2);
+        confirmSale(B, 3);
+        download(access, C);
+        download(access, C);
+
+        // C 2 téléchargements x 2 = 4, B 3, A 2
+        assertEquals(List.of(C, B, A), ranking.top(10));
+        ranking.rebuild();
+        assertEquals(List.of(C, B, A), ranking.top(10));
+    }
+
+    private void hook(Map<String, Runnable> hooks, String sql) {
+        hooks.entrySet().stream()
+                .filter(entry -> sql.startsWith(entry.getKey()))
+                .findFirst()
+                .ifPresent(entry -> hooks.remove(entry.getKey()).run());
+    }
+
+    // Confirmation de commande (hors transaction : l'événement est appliqué tout de suite, comme après commit)
+    private void confirmSale(long productId, int quantity) {
+        long orderItemId = insertSale(productId, quantity);
+        ranking.recordSaleAfterCommit(orderItemId, productId, quantity);
+    }
+
+    private void download(long accessId, long productId) {
+        jdbc.update("UPDATE user_product_access SET download_count = download_count + 1, last_download_at = ? WHERE id = ?",
+                now(), accessId);
+        int downloadCount = jdbc.queryForObject("SELECT download_count FROM user_product_access WHERE id = ?", Integer.class, accessId);
+        ranking.recordDownloadAfterCommit(accessId, productId, downloadCount);
+    }
+
+    private long insertSale(long productId, int quantity) {
+        long orderId = nextId++;
+        long orderItemId = nextId++;
+        jdbc.update("INSERT INTO orders (id, order_date, status) VALUES (?, ?, 'CONFIRMED')", orderId, now());
+        jdbc.update("INSERT INTO order_items (id, order_id, product_id, quantity) VALUES (?, ?, ?, ?)",
+                orderItemId, orderId, productId, quantity);
+        return orderItemId;
+    }
+
+    private long insertAccess(long productId, int downloadCount) {
+        long accessId = nextId++;
+        jdbc.update("INSERT INTO user_product_access (id, product_id, download_count, last_download_at) VALUES (?, ?, ?, ?)",
+                accessId, productId, downloadCount, now());
+        return accessId;
+    }
+
+    private static Timestamp now() {
+        return new Timestamp(System.currentTimeMillis());
+    }
+}
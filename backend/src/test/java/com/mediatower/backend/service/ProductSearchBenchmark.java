@@ -0,0 +1,119 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.repository.ProductRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recherche de produits : {@link ProductSearchIndex} contre la requête LIKE de ProductRepository.findIdsWithFilters,
+ * sur 100 000 produits en H2 (noms et descriptions en/fr). Le vocabulaire est volontairement réduit : chaque terme
+ * correspond à des dizaines de milliers de produits, le pire cas pour l'index. Fautes de frappe, mots sans accent et
+ * mots dans le désordre ne trouvent rien avec LIKE.
+ * <p>
+ * Lancement : {@code mvn test -Dtest=ProductSearchBenchmark -Dbenchmark=true}
+ * (nombre de produits : {@code -Dbenchmark.products=<n>})
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProductSearchBenchmark {
+
+    private static final int PRODUCTS = Integer.getInteger("benchmark.products", 100_000);
+    private static final int CATEGORIES = 20;
+    private static final int LIMIT = 50;
+    private static final int ROUNDS = 5;
+    private static final String[] VOCABULARY = {
+            "casque", "audio", "guitare", "acoustique", "appareil", "photo", "objectif", "clavier", "souris",
+            "ecran", "enceinte", "micro", "studio", "livre", "cuisine", "roman", "éditeur", "carte", "graphique",
+            "wireless", "headphones", "camera", "lens", "keyboard", "speaker"};
+    private static final String[] QUERIES = {
+            "casque", "appareil photo", "gitare", "wirless headphones", "editeur"};
+
+    private static AnnotationConfigApplicationContext context;
+    private static ProductRepository productRepository;
+    private static ProductSearchIndex index;
+
+    @BeforeAll
+    static void seed() {
+        context = JpaTestConfig.start();
+        productRepository = context.getBean(ProductRepository.class);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+
+        Random random = new Random(42);
+        // La requête du catalogue joint la catégorie : chaque produit en a une
+        for (long id = 1; id <= CATEGORIES; id++) {
+            jdbc.update("INSERT INTO categories (id) VALUES (?)", id);
+        }
+        List<Object[]> products = new ArrayList<>();
+        List<Object[]> names = new ArrayList<>();
+        List<Object[]> descriptions = new ArrayList<>();
+        for (long id = 1; id <= PRODUCTS; id++) {
+            products.add(new Object[]{id, 1 + random.nextInt(CATEGORIES), BigDecimal.valueOf(5 + random.nextInt(200)),
+                    random.nextInt(50)});
+            names.add(new Object[]{id, "fr", words(random, 3)});
+            names.add(new Object[]{id, "en", words(random, 3)});
+            descriptions.add(new Object[]{id, "fr", words(random, 12)});
+        }
+        jdbc.batchUpdate("INSERT INTO products (id, category_id, price, stock) VALUES (?, ?, ?, ?)", products);
+        jdbc.batchUpdate("INSERT INTO product_names (product_id, language_code, name) VALUES (?, ?, ?)", names);
+        jdbc.batchUpdate("INSERT INTO product_descriptions (product_id, language_code, description) VALUES (?, ?, ?)", descriptions);
+
+        index = new ProductSearchIndex(jdbc);
+        long start = System.currentTimeMillis();
+        index.rebuild();
+        System.out.printf("Index built for %d products in %d ms%n", PRODUCTS, System.currentTimeMillis() - start);
+    }
+
+    @AfterAll
+    static void close() {
+        context.close();
+    }
+
+    @Test
+    void compareWithLikeQuery() {
+        for (int pass = 0; pass < 2; pass++) { // le premier passage sert de chauffe
+            for (String query : QUERIES) {
+                Measure indexed = measure(() -> index.search(query, null, null, null, LIMIT));
+                Measure like = measure(() -> productRepository.findIdsWithFilters(query, null, null,
+                        PageRequest.of(0, LIMIT, Sort.by(Sort.Direction.DESC, "id"))).getContent());
+                if (pass == 1) {
+                    System.out.printf("%-22s index %6.1f ms (%2d hits)   LIKE %6.1f ms (%2d hits)%n",
+                            query, indexed.millis, indexed.hits, like.millis, like.hits);
+                    assertTrue(indexed.hits > 0, query);
+                }
+            }
+        }
+    }
+
+    private static Measure measure(Supplier<List<Long>> search) {
+        int hits = 0;
+        long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            hits = search.get().size();
+        }
+        return new Measure((System.nanoTime() - start) / 1e6 / ROUNDS, hits);
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(i == 0 ? "" : " ").append(VOCABULARY[random.nextInt(VOCABULARY.length)]);
+        }
+        return text.toString();
+    }
+
+    private record Measure(double millis, int hits) {
+    }
+}
@@ -0,0 +1,225 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.model.Category;
+import com.mediatower.backend.model.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSearchIndexTest {
+
+    private JdbcTemplate jdbc;
+    // Action exécutée juste avant la requête dont le SQL commence par la clé
+    private final Map<String, Runnable> beforeQuery = new HashMap<>();
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:search-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        // Colonnes lues par l'index seulement
+        jdbc.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, category_id BIGINT, price DECIMAL(10, 2))");
+        jdbc.execute("CREATE TABLE product_names (product_id BIGINT, language_code VARCHAR(10), name VARCHAR(255))");
+        jdbc.execute("CREATE TABLE product_descriptions (product_id BIGINT, language_code VARCHAR(10), description VARCHAR(1000))");
+
+        JdbcTemplate interceptingJdbc = new JdbcTemplate(dataSource) {
+            @Override
+            public void query(String sql, RowCallbackHandler handler) {
+                beforeQuery.entrySet().stream()
+                        .filter(entry -> sql.startsWith(entry.getKey()))
+                        .findFirst()
+                        .ifPresent(entry -> beforeQuery.remove(entry.getKey()).run());
+                super.query(sql, handler);
+            }
+        };
+        index = new ProductSearchIndex(interceptingJdbc);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("SHUTDOWN");
+    }
+
+    @Test
+    void lastWordMatchesByPrefixAndWordsTolerateTypos() {
+        index.rebuild();
+        index.indexAfterCommit(product(1, 1, 50, "Casque audio sans fil", null));
+        index.indexAfterCommit(product(2, 1, 30, "Guitare acoustique", null));
+        index.indexAfterCommit(product(3, 1, 20, "Wireless headphones", null));
+
+        assertEquals(List.of(1L), search("casq"));
+        assertEquals(List.of(2L), search("gitare"));
+        assertEquals(List.of(3L), search("wirless headphnes"));
+        // Le préfixe ne vaut que pour le dernier mot, et chaque mot doit correspondre
+        assertEquals(List.of(), search("casq audio"));
+        assertEquals(List.of(), search("casque guitare"));
+        // Accents et casse ignorés
+        assertEquals(List.of(2L), search("GUITÂRE"));
+    }
+
+    @Test
+    void resultsAreRankedByBm25WithNamesWeightedOverDescriptions() {
+        index.rebuild();
+        index.indexAfterCommit(product(1, 1, 10, "Lampe de bureau", "Éclairage pour un casque de chantier"));
+        index.indexAfterCommit(product(2, 1, 10, "Casque de chantier", "Protection"));
+        index.indexAfterCommit(product(3, 1, 10, "Casque", null));
+        index.indexAfterCommit(product(4, 1, 10, "Casque audio Bluetooth avec réduction de bruit active et micro", null));
+
+        // Nom court qui ne parle que du terme, puis noms plus longs, puis mention dans la description
+        assertEquals(List.of(3L, 2L, 4L, 1L), search("casque"));
+    }
+
+    @Test
+    void filtersApplyToTextAndBrowseQueries() {
+        index.rebuild();
+        index.indexAfterCommit(product(1, 1, 10, "Livre de cuisine", null));
+        index.indexAfterCommit(product(2, 2, 25, "Livre audio", null));
+        index.indexAfterCommit(product(3, 2, 40, "Livre photo", null));
+        index.indexAfterCommit(product(4, 2, 60, "Casque", null));
+
+        assertEquals(List.of(2L, 3L), sorted(index.search("livre", 2L, null, null, 10)));
+        assertEquals(List.of(2L), index.search("livre", null, new BigDecimal("20"), new BigDecimal("30"), 10));
+        // Sans texte : produits filtrés, les plus récemment indexés d'abord
+        assertEquals(List.of(4L, 3L), index.search(null, 2L, new BigDecimal("30"), null, 10));
+        assertEquals(List.of(4L, 3L), index.search("", null, null, null, 2));
+    }
+
+    @Test
+    void removedAndUpdatedProductsAreNoLongerFound() {
+        index.rebuild();
+        index.indexAfterCommit(product(1, 1, 10, "Guitare électrique", null));
+        index.indexAfterCommit(product(2, 1, 10, "Guitare classique", null));
+
+        index.indexAfterCommit(product(1, 1, 10, "Basse électrique", null));
+        index.removeAfterCommit(2L);
+
+        assertEquals(List.of(), search("guitare"));
+        assertEquals(List.of(1L), search("basse"));
+        assertEquals(List.of(1L), search("electrique"));
+    }
+
+    @Test
+    void deadPostingsAreCountedOncePerRemovedEntry() {
+        index.rebuild();
+        index.indexAfterCommit(product(1, 1, 10, "alpha beta", null));
+        index.indexAfterCommit(product(2, 1, 10, "alpha", null));
+
+        index.removeAfterCommit(1L);
+
+        // 'beta' n'a plus de document vivant : le terme disparaît avec son entrée ; reste l'entrée morte d'alpha
+        ProductSearchIndex.IndexStats stats = index.stats();
+        assertEquals(1, stats.terms());
+        assertEquals(1, stats.livePostings());
+        assertEquals(1, stats.deadPostings());
+        assertEquals(2, stats.slots());
+
+        index.removeAfterCommit(2L);
+        stats = index.stats();
+        assertEquals(0, stats.terms());
+        assertEquals(0, stats.livePostings());
+        assertEquals(0, stats.deadPostings());
+    }
+
+    @Test
+    void repeatedUpdatesDoNotGrowTheIndex() {
+        index.rebuild();
+        for (long id = 1; id <= 100; id++) {
+            index.indexAfterCommit(product(id, 1, 10, "Produit numero " + id, "Description commune"));
+        }
+
+        for (int round = 0; round < 200; round++) {
+            for (long id = 1; id <= 100; id++) {
+                index.indexAfterCommit(product(id, 1, 10 + round, "Produit numero " + id, "Description commune"));
+            }
+        }
+
+        ProductSearchIndex.IndexStats stats = index.stats();
+        assertEquals(100, stats.liveDocs());
+        // Compacté au plus tard quand les documents retirés atteignent COMPACTION_MIN_DEAD (1 000)
+        assertTrue(stats.slots() < 100 + 1_000, stats.toString());
+        assertTrue(stats.deadPostings() < 1_000 + 4 * 100, stats.toString());
+        assertEquals(100, index.search("produit", null, null, null, 1_000).size());
+        assertEquals(List.of(42L), search("numero 42"));
+        // Après renumérotation, l'ordre de récence est conservé
+        assertEquals(List.of(100L, 99L), index.search(null, null, null, null, 2));
+    }
+
+    @Test
+    void productsWithoutTextDoNotKeepDeadSlots() {
+        index.rebuild();
+        for (int round = 0; round < 3_000; round++) {
+            index.indexAfterCommit(product(1, 1, round, null, null));
+        }
+
+        assertTrue(index.stats().slots() <= 1_001, index.stats().toString());
+        assertEquals(List.of(1L), index.search(null, null, null, null, 10));
+    }
+
+    @Test
+    void updatesCommittedDuringRebuildAreReplayed() {
+        insert(1, "Casque audio");
+        insert(2, "Guitare classique");
+        // Commités pendant la construction : le premier après la lecture des noms (l'index construit a l'ancien nom),
+        // le second avant (déjà lu), le troisième supprime un produit déjà lu
+        beforeQuery.put("SELECT product_id, language_code, description", () -> {
+            jdbc.update("UPDATE product_names SET name = 'Clavier mecanique' WHERE product_id = 1");
+            index.indexAfterCommit(product(1, 1, 10, "Clavier mecanique", null));
+            index.removeAfterCommit(2L);
+        });
+        beforeQuery.put("SELECT product_id, language_code, name", () -> {
+            insert(3, "Micro studio");
+            index.indexAfterCommit(product(3, 1, 10, "Micro studio", null));
+        });
+
+        index.rebuild();
+
+        assertTrue(index.isReady());
+        assertEquals(List.of(), search("casque"));
+        assertEquals(List.of(1L), search("clavier"));
+        assertEquals(List.of(), search("guitare"));
+        assertEquals(List.of(3L), search("micro"));
+        assertEquals(2, index.stats().liveDocs());
+    }
+
+    private List<Long> search(String query) {
+        return index.search(query, null, null, null, 10);
+    }
+
+    private static List<Long> sorted(List<Long> ids) {
+        return ids.stream().sorted().toList();
+    }
+
+    private void insert(long id, String name) {
+        jdbc.update("INSERT INTO products (id, category_id, price) VALUES (?, 1, 10)", id);
+        jdbc.update("INSERT INTO product_names (product_id, language_code, name) VALUES (?, 'fr', ?)", id, name);
+    }
+
+    private static Product product(long id, long categoryId, int price, String name, String description) {
+        Category category = new Category();
+        category.setId(categoryId);
+        Product product = new Product();
+        product.setId(id);
+        product.setCategory(category);
+        product.setPrice(BigDecimal.valueOf(price));
+        if (name != null) {
+            product.setNames(Map.of("fr", name));
+        }
+        if (description != null) {
+            product.setDescriptions(Map.of("fr", description));
+        }
+        return product;
+    }
+}
@@ -0,0 +1,103 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.config.CacheConfig;
+import com.mediatower.backend.dto.ProductDto;
+import com.mediatower.backend.dto.ProductFacetPage;
+import com.mediatower.backend.model.Product;
+import com.mediatower.backend.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductServiceTest {
+
+    private AnnotationConfigApplicationContext context;
+    private ProductRepository products;
+    private ProductService productService;
+
+    @BeforeEach
+    void setUp() {
+        context = JpaTestConfig.start(CacheConfig.class, ProductDetailCache.class);
+        products = context.getBean(ProductRepository.class);
+        createProducts(3);
+        ProductFacetIndex facetIndex = new ProductFacetIndex(context.getBean(JdbcTemplate.class),
+                List.of(new BigDecimal("10"), new BigDecimal("25")));
+        facetIndex.rebuild();
+        // Seules les dépendances de la recherche à facettes sont fournies
+        productService = new ProductService(products, null, null, null, null, null, null, null, null,
+                context.getBean(ProductDetailCache.class), null, null, null, null, facetIndex);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void facetPageBeyondIntOffsetIsRejected() {
+        // 21 474 837 * 100 dépasse Integer.MAX_VALUE : l'ancien calcul en int donnait un offset négatif (première page)
+        ResponseStatusException error = assertThrows(ResponseStatusException.class,
+                () -> productService.getFacetedProducts(null, null, null, null, 21_474_837, 100));
+
+        assertEquals(HttpStatus.BAD_REQUEST, error.getStatusCode());
+    }
+
+    @Test
+    void facetPagesWithinRangeArePaged() {
+        ProductFacetPage first = productService.getFacetedProducts(null, null, null, null, 0, 2);
+        ProductFacetPage second = productService.getFacetedProducts(null, null, null, null, 1, 2);
+        ProductFacetPage farAway = productService.getFacetedProducts(null, null, null, null, 21_474_836, 100);
+
+        assertEquals(2, first.getContent().size());
+        assertEquals(1, second.getContent().size());
+        assertTrue(farAway.getContent().isEmpty());
+        assertEquals(3, farAway.getTotalElements());
+    }
+
+    @Test
+    void similarProductsAreLimitedAfterDroppingMissingOnes() {
+        List<Long> ids = createProducts(4);
+        // Voisins tirés de l'index : 999 a été supprimé sur un autre nœud
+        ProductSimilarityIndex similarityIndex = new ProductSimilarityIndex(null, 10, 200, 1, 100, 60) {
+            @Override
+            public List<Long> similarTo(Long productId, int limit) {
+                return List.of(999L, ids.get(0), ids.get(1), ids.get(2), ids.get(3)).subList(0, Math.min(limit, 5));
+            }
+        };
+        ProductService service = new ProductService(products, null, null, null, null, null, null, null, null,
+                context.getBean(ProductDetailCache.class), null, similarityIndex, null, null, null);
+
+        List<Long> similar = service.getSimilarProducts(1L).stream().map(ProductDto::getId).toList();
+
+        assertEquals(ids, similar);
+    }
+
+    private List<Long> createProducts(int count) {
+        return new TransactionTemplate(context.getBean(PlatformTransactionManager.class)).execute(status -> {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Product product = new Product();
+                product.setNames(Map.of("en", "Product " + i));
+                product.setPrice(BigDecimal.TEN);
+                product.setStock(1);
+                ids.add(products.save(product).getId());
+            }
+            return ids;
+        });
+    }
+}
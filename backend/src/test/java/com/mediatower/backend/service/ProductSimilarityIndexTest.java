@@ -0,0 +1,216 @@
+package com.mediatower.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSimilarityIndexTest {
+
+    private JdbcTemplate jdbc;
+    // Action exécutée juste avant la requête dont le SQL commence par la clé
+    private final Map<String, Runnable> beforeQuery = new HashMap<>();
+    private JdbcTemplate interceptingJdbc;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:similarity-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        // Colonnes lues par l'index seulement
+        jdbc.execute("CREATE TABLE user_product_access (user_id BIGINT, product_id BIGINT)");
+        jdbc.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, user_id BIGINT, status VARCHAR(20))");
+        jdbc.execute("CREATE TABLE order_items (order_id BIGINT, product_id BIGINT)");
+
+        interceptingJdbc = new JdbcTemplate(dataSource) {
+            @Override
+            public void query(String sql, RowCallbackHandler handler) {
+                beforeQuery.entrySet().stream()
+                        .filter(entry -> sql.startsWith(entry.getKey()))
+                        .findFirst()
+                        .ifPresent(entry -> beforeQuery.remove(entry.getKey()).run());
+                super.query(sql, handler);
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("SHUTDOWN");
+    }
+
+    @Test
+    void neighboursAreRankedByCosineAndTruncatedToTopN() {
+        // n(1) = 3, n(2) = 2, n(3) = 1, n(4) = 2 ; co(1,2) = 2, co(1,3) = 1, co(1,4) = 1
+        access(1, 1, 2, 3);
+        access(2, 1, 2);
+        order(10, 3, "DELIVERED", 1, 4);
+        order(11, 4, "SHIPPED", 4);
+        // Commandes non confirmées : ignorées
+        order(12, 5, "PENDING", 1, 3);
+        order(13, 6, "CANCELLED", 3, 4);
+
+        ProductSimilarityIndex index = index(10, 200);
+        index.rebuild();
+
+        // 2/sqrt(6) = 0.82, 1/sqrt(3) = 0.58, 1/sqrt(6) = 0.41
+        assertTrue(index.isReady());
+        assertEquals(List.of(2L, 3L, 4L), index.similarTo(1L, 10));
+        assertEquals(List.of(2L, 3L), index.similarTo(1L, 2));
+        // Produit 3 : 1/sqrt(2) = 0.71 pour 2, 1/sqrt(3) = 0.58 pour 1
+        assertEquals(List.of(2L, 1L), index.similarTo(3L, 10));
+        assertEquals(List.of(), index.similarTo(99L, 10));
+
+        ProductSimilarityIndex topTwo = index(2, 200);
+        topTwo.rebuild();
+        assertEquals(List.of(2L, 3L), topTwo.similarTo(1L, 10));
+    }
+
+    @Test
+    void oversizedBasketsDoNotCountAsCoPurchases() {
+        access(1, 1, 2, 3, 4);
+        access(2, 5, 6);
+
+        ProductSimilarityIndex index = index(10, 3);
+        index.rebuild();
+
+        assertEquals(List.of(), index.similarTo(1L, 10));
+        assertEquals(List.of(6L), index.similarTo(5L, 10));
+    }
+
+    @Test
+    void productsAlreadyOwnedAreNotCountedAgain() {
+        // co(1,3) = 2 sur n(1) = 3, n(3) = 3 : 0.67 ; co(1,2) = 1 sur n(2) = 1 : 0.58
+        access(1, 1, 2);
+        access(2, 1, 3);
+        access(3, 1, 3);
+        access(4, 3);
+        ProductSimilarityIndex index = index(10, 200);
+        index.rebuild();
+        assertEquals(List.of(3L, 2L), index.similarTo(1L, 10));
+
+        // Livraison rejouée d'un produit déjà possédé : compté deux fois, co(1,2) passerait devant
+        index.recordPurchaseAfterCommit(1L, List.of(1L));
+        index.recordPurchaseAfterCommit(1L, List.of(2L, 1L));
+
+        assertEquals(List.of(3L, 2L), index.similarTo(1L, 10));
+
+        // Nouvel achat : pris en compte aussitôt
+        index.recordPurchaseAfterCommit(4L, List.of(2L));
+        assertEquals(Set.of(1L, 3L), Set.copyOf(index.similarTo(2L, 10)));
+    }
+
+    @Test
+    void purchasesCommittedDuringRebuildAreReplayed() {
+        access(1, 1, 3);
+        access(2, 1, 3);
+        access(3, 2);
+        access(5, 3);
+        ProductSimilarityIndex index = index(10, 200);
+        // Déjà lu par la reconstruction : l'achat rejoué est ignoré (produit possédé)
+        beforeQuery.put("SELECT user_id, product_id FROM user_product_access", () -> {
+            access(3, 1);
+            index.recordPurchaseAfterCommit(3L, List.of(1L));
+        });
+        // Après la lecture des accès : seul le rejeu le fait entrer dans l'index
+        beforeQuery.put("SELECT o.user_id", () -> {
+            access(4, 1, 2);
+            index.recordPurchaseAfterCommit(4L, List.of(1L, 2L));
+        });
+
+        index.rebuild();
+
+        // n(1) = 4, n(2) = 2, n(3) = 3 ; co(1,2) = 2 : 0.71, co(1,3) = 2 : 0.58
+        // Sans le rejeu : co(1,2) = 1 sur n(1) = 3 (0.58) passerait derrière co(1,3) (0.67)
+        assertEquals(List.of(2L, 3L), index.similarTo(1L, 10));
+        assertEquals(List.of(1L), index.similarTo(2L, 10));
+    }
+
+    @Test
+    void deletedProductsAreNoLongerNeighbours() {
+        access(1, 1, 2, 3);
+        access(2, 1, 3);
+        access(3, 3, 4);
+        access(4, 4);
+        ProductSimilarityIndex index = index(10, 200);
+        index.rebuild();
+        // 2/sqrt(6) = 0.82, 1/sqrt(3) = 0.58, 1/sqrt(6) = 0.41
+        assertEquals(List.of(1L, 2L, 4L), index.similarTo(3L, 10));
+
+        index.removeAfterCommit(1L);
+
+        assertEquals(List.of(), index.similarTo(1L, 10));
+        assertEquals(List.of(2L, 4L), index.similarTo(3L, 10));
+        assertEquals(List.of(3L), index.similarTo(2L, 10));
+        // Le produit supprimé reste dans le panier du client 1 : un nouvel achat n'en fait pas un voisin
+        index.recordPurchaseAfterCommit(1L, List.of(5L));
+        assertEquals(List.of(2L, 3L), index.similarTo(5L, 10));
+    }
+
+    @Test
+    void deletionDuringRebuildIsReplayed() {
+        access(1, 1, 2);
+        access(2, 2, 3);
+        ProductSimilarityIndex index = index(10, 200);
+        // Lignes déjà lues quand la suppression est commitée
+        beforeQuery.put("SELECT o.user_id", () -> index.removeAfterCommit(1L));
+
+        index.rebuild();
+
+        assertEquals(List.of(), index.similarTo(1L, 10));
+        assertEquals(List.of(3L), index.similarTo(2L, 10));
+    }
+
+    @Test
+    void fallbackIsCachedUntilTheCatalogChanges() {
+        ProductSimilarityIndex index = index(10, 200);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(List.of(7L, 8L), index.fallbackFor(1L, id -> { loads.incrementAndGet(); return List.of(7L, 8L); }));
+        assertEquals(List.of(7L, 8L), index.fallbackFor(1L, id -> { loads.incrementAndGet(); return List.of(); }));
+        assertEquals(1, loads.get());
+
+        index.invalidateFallbacksAfterCommit();
+        assertEquals(List.of(9L), index.fallbackFor(1L, id -> { loads.incrementAndGet(); return List.of(9L); }));
+        assertEquals(2, loads.get());
+
+        // Catalogue modifié pendant la lecture : le résultat sert la requête mais n'est pas gardé
+        index.invalidateFallbacksAfterCommit();
+        assertEquals(List.of(7L), index.fallbackFor(1L, id -> {
+            loads.incrementAndGet();
+            index.invalidateFallbacksAfterCommit();
+            return List.of(7L);
+        }));
+        assertEquals(List.of(8L), index.fallbackFor(1L, id -> { loads.incrementAndGet(); return List.of(8L); }));
+        assertEquals(4, loads.get());
+    }
+
+    private ProductSimilarityIndex index(int neighbours, int maxBasketSize) {
+        return new ProductSimilarityIndex(interceptingJdbc, neighbours, maxBasketSize, 1, 100, 60);
+    }
+
+    private void access(long userId, long... productIds) {
+        for (long productId : productIds) {
+            jdbc.update("INSERT INTO user_product_access (user_id, product_id) VALUES (?, ?)", userId, productId);
+        }
+    }
+
+    private void order(long orderId, long userId, String status, long... productIds) {
+        jdbc.update("INSERT INTO orders (id, user_id, status) VALUES (?, ?, ?)", orderId, userId, status);
+        for (long productId : productIds) {
+            jdbc.update("INSERT INTO order_items (order_id, product_id) VALUES (?, ?)", orderId, productId);
+        }
+    }
+}
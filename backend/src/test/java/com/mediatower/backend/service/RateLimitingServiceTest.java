@@ -0,0 +1,105 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.config.CacheConfig;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.ResolvableType;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitingServiceTest {
+
+    private static final long MAX_KEYS = 10_000;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    /**
+     * Mode local : aucun ProxyManager dans le contexte.
+     */
+    private RateLimitingService localService() {
+        ObjectProvider<ProxyManager<String>> noProxyManager = new DefaultListableBeanFactory()
+                .getBeanProvider(ResolvableType.forClassWithGenerics(ProxyManager.class, String.class));
+        return new RateLimitingService(new CacheConfig().cacheManager(100, 30), meterRegistry,
+                noProxyManager, MAX_KEYS, 30);
+    }
+
+    @Test
+    void loginBucketsStayBoundedUnderIpRotation() throws Exception {
+        RateLimitingService service = localService();
+        int distinctIps = 2_000_000;
+        long heapAfterWarmup = 0;
+
+        for (int i = 0; i < distinctIps; i++) {
+            assertTrue(service.checkLoginAttempt(ip(i)).isAllowed());
+            if ((i + 1) % 250_000 == 0) {
+                assertTrue(awaitLoginKeysAtMost(MAX_KEYS), "login buckets above the cap after " + (i + 1) + " IPs");
+                if (i + 1 == 500_000) {
+                    heapAfterWarmup = usedHeapAfterGc();
+                }
+            }
+        }
+        long heapGrowth = usedHeapAfterGc() - heapAfterWarmup;
+
+        // 1,5 million d'IP de plus ne doivent pas coûter plus qu'une fraction de la taille du store plein (~4 Mo)
+        assertTrue(heapGrowth < 16L * 1024 * 1024, "heap grew by " + heapGrowth + " bytes");
+    }
+
+    @Test
+    void loginLimitStillAppliesToTrackedIp() {
+        RateLimitingService service = localService();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(service.checkLoginAttempt("10.0.0.1").isAllowed());
+        }
+
+        RateLimitingService.RateLimitResult blocked = service.checkLoginAttempt("10.0.0.1");
+
+        assertFalse(blocked.isAllowed());
+        assertTrue(blocked.getSecondsRemaining() > 0);
+    }
+
+    @Test
+    void forgotPasswordLimitHoldsUnderConcurrency() throws Exception {
+        RateLimitingService service = localService();
+
+        int accepted = AttemptCounterTest.hammer(
+                () -> service.checkForgotPasswordLimit("user@example.com", 5, 15).isAllowed(), 16, 20);
+
+        assertEquals(5, accepted);
+        RateLimitingService.RateLimitResult blocked = service.checkForgotPasswordLimit("user@example.com", 5, 15);
+        assertFalse(blocked.isAllowed());
+        assertTrue(blocked.getSecondsRemaining() > 14 * 60, "remaining " + blocked.getSecondsRemaining());
+        assertTrue(service.checkForgotPasswordLimit("other@example.com", 5, 15).isAllowed());
+    }
+
+    // 10.0.0.0/8 : 16 millions d'adresses distinctes
+    private static String ip(int i) {
+        return "10." + ((i >>> 16) & 0xff) + "." + ((i >>> 8) & 0xff) + "." + (i & 0xff);
+    }
+
+    // L'éviction Caffeine est asynchrone : on laisse la maintenance se terminer avant de lire la taille
+    private boolean awaitLoginKeysAtMost(long maxKeys) throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            if (meterRegistry.get("cache.size").tag("cache", "rateLimit.loginAttempts").gauge().value() <= maxKeys) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return false;
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,307 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.dto.UploadSessionDto;
+import com.mediatower.backend.dto.UploadSessionRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResumableUploadServiceTest {
+
+    private static final int CHUNK_SIZE = 1024;
+    // Dix morceaux pleins et un dernier morceau court
+    private static final int FILE_SIZE = 10 * CHUNK_SIZE + 300;
+
+    private Path incoming;
+    private ResumableUploadService uploads;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        incoming = Files.createTempDirectory("resumable-uploads");
+        uploads = new ResumableUploadService(incoming.toString(), CHUNK_SIZE, 1 << 20, 1440);
+        content = new byte[FILE_SIZE];
+        new Random(7).nextBytes(content);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(incoming);
+    }
+
+    @Test
+    void chunksSentOutOfOrderInParallelAssembleTheFile() throws Exception {
+        String uploadId = open("alice", FILE_SIZE, sha256Hex(content)).getUploadId();
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, new Random(3));
+
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> writes = new ArrayList<>();
+        for (int index : order) {
+            writes.add(clients.submit(() -> {
+                start.await();
+                return writeChunk("alice", uploadId, index, checksum(chunk(index)));
+            }));
+        }
+        start.countDown();
+        for (Future<Long> write : writes) {
+            write.get();
+        }
+        clients.shutdown();
+
+        UploadSessionDto status = uploads.status("alice", uploadId);
+        assertEquals(FILE_SIZE, status.getOffset());
+        assertEquals(List.of(), status.getMissingChunks());
+
+        ResumableUploadService.CompletedUpload completed = uploads.complete("alice", uploadId);
+        assertArrayEquals(content, Files.readAllBytes(completed.file()));
+        assertEquals("video.mp4", completed.originalName());
+        assertEquals(FILE_SIZE, completed.size());
+        assertNotFound(() -> uploads.status("alice", uploadId));
+    }
+
+    @Test
+    void chunkStillBeingWrittenBlocksItsRetryAndCompletion() throws Exception {
+        String uploadId = open("alice", CHUNK_SIZE, null).getUploadId();
+        byte[] chunk = chunk(0);
+        CountDownLatch halfSent = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        // Corps livré en deux fois : la seconde moitié attend le feu vert du test
+        InputStream slowBody = new ByteArrayInputStream(chunk) {
+            @Override
+            public synchronized int read(byte[] buffer, int offset, int length) {
+                if (pos == chunk.length / 2) {
+                    halfSent.countDown();
+                    try {
+                        resume.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.read(buffer, offset, pos < chunk.length / 2 ? Math.min(length, chunk.length / 2 - pos) : length);
+            }
+        };
+        ExecutorService client = Executors.newSingleThreadExecutor();
+        Future<Long> slow = client.submit(() -> uploads.writeChunk("alice", uploadId, 0, CHUNK_SIZE, null, slowBody));
+        halfSent.await();
+
+        assertStatus(HttpStatus.CONFLICT, () -> writeChunk("alice", uploadId, 0, null));
+        assertStatus(HttpStatus.CONFLICT, () -> uploads.complete("alice", uploadId));
+
+        resume.countDown();
+        assertEquals(CHUNK_SIZE, slow.get());
+        client.shutdown();
+        assertArrayEquals(chunk, Files.readAllBytes(uploads.complete("alice", uploadId).file()));
+    }
+
+    @Test
+    void offsetOnlyCoversChunksReceivedWithoutGap() throws Exception {
+        String uploadId = open("alice", FILE_SIZE, null).getUploadId();
+
+        assertEquals(0, writeChunk("alice", uploadId, 2, null));
+        assertEquals(0, writeChunk("alice", uploadId, 10, null));
+        assertEquals(CHUNK_SIZE, writeChunk("alice", uploadId, 0, null));
+        assertEquals(3 * CHUNK_SIZE, writeChunk("alice", uploadId, 1, null));
+
+        UploadSessionDto status = uploads.status("alice", uploadId);
+        assertEquals(3 * CHUNK_SIZE, status.getOffset());
+        assertEquals(List.of(3, 4, 5, 6, 7, 8, 9), status.getMissingChunks());
+        assertStatus(HttpStatus.CONFLICT, () -> uploads.complete("alice", uploadId));
+    }
+
+    @Test
+    void shortOrOversizedChunkIsRejectedAndNotCounted() throws Exception {
+        String uploadId = open("alice", FILE_SIZE, null).getUploadId();
+        byte[] first = chunk(0);
+
+        // Connexion coupée : moins d'octets que le Content-Length annoncé
+        assertStatus(HttpStatus.BAD_REQUEST, () -> uploads.writeChunk("alice", uploadId, 0, CHUNK_SIZE, null,
+                new ByteArrayInputStream(first, 0, 600)));
+        // Corps plus long que le Content-Length
+        assertStatus(HttpStatus.BAD_REQUEST, () -> uploads.writeChunk("alice", uploadId, 0, CHUNK_SIZE, null,
+                new ByteArrayInputStream(Arrays.copyOf(first, CHUNK_SIZE + 1))));
+        // Content-Length différent de la taille du morceau, absent, offset hors grille
+        assertStatus(HttpStatus.BAD_REQUEST, () -> uploads.writeChunk("alice", uploadId, 0, 600, null, stream(first)));
+        assertStatus(HttpStatus.BAD_REQUEST, () -> uploads.writeChunk("alice", uploadId, 10L * CHUNK_SIZE, CHUNK_SIZE, null, stream(first)));
+        assertStatus(HttpStatus.LENGTH_REQUIRED, () -> uploads.writeChunk("alice", uploadId, 0, -1, null, stream(first)));
+        assertStatus(HttpStatus.BAD_REQUEST, () -> uploads.writeChunk("alice", uploadId, 100, CHUNK_SIZE, null, stream(first)));
+        assertStatus(HttpStatus.BAD_REQUEST, () -> uploads.writeChunk("alice", uploadId, FILE_SIZE, CHUNK_SIZE, null, stream(first)));
+        assertEquals(0, uploads.status("alice", uploadId).getOffset());
+        assertTrue(uploads.status("alice", uploadId).getMissingChunks().contains(0));
+
+        // Réessai du morceau entier : compté
+        assertEquals(CHUNK_SIZE, writeChunk("alice", uploadId, 0, null));
+    }
+
+    @Test
+    void chunkWithBadChecksumIsRejectedAndNotCounted() throws Exception {
+        String uploadId = open("alice", FILE_SIZE, null).getUploadId();
+
+        assertStatus(HttpStatus.BAD_REQUEST, () -> writeChunk("alice", uploadId, 0, checksum(chunk(1))));
+        assertStatus(HttpStatus.BAD_REQUEST, () -> writeChunk("alice", uploadId, 0, "md5 " + checksum(chunk(0)).substring(7)));
+        assertStatus(HttpStatus.BAD_REQUEST, () -> writeChunk("alice", uploadId, 0, "sha256 %%%"));
+        assertEquals(0, uploads.status("alice", uploadId).getOffset());
+
+        assertEquals(CHUNK_SIZE, writeChunk("alice", uploadId, 0, checksum(chunk(0))));
+    }
+
+    @Test
+    void fileWithBadChecksumIsDiscardedOnCompletion() throws Exception {
+        byte[] other = content.clone();
+        other[5] ^= 1;
+        String uploadId = open("alice", FILE_SIZE, sha256Hex(other)).getUploadId();
+        for (int i = 0; i < 11; i++) {
+            writeChunk("alice", uploadId, i, null);
+        }
+
+        assertStatus(HttpStatus.BAD_REQUEST, () -> uploads.complete("alice", uploadId));
+
+        assertNotFound(() -> uploads.status("alice", uploadId));
+        assertFalse(Files.exists(partFile(uploadId)));
+    }
+
+    @Test
+    void anotherUsersUploadIsNotFound() throws Exception {
+        String uploadId = open("alice", FILE_SIZE, null).getUploadId();
+
+        assertNotFound(() -> uploads.status("mallory", uploadId));
+        assertNotFound(() -> writeChunk("mallory", uploadId, 0, null));
+        assertNotFound(() -> uploads.complete("mallory", uploadId));
+        assertNotFound(() -> uploads.abort("mallory", uploadId));
+        assertNotFound(() -> uploads.status("alice", "unknown"));
+
+        // La session de son propriétaire n'est pas touchée
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10), uploads.status("alice", uploadId).getMissingChunks());
+        uploads.abort("alice", uploadId);
+        assertNotFound(() -> uploads.status("alice", uploadId));
+        assertFalse(Files.exists(partFile(uploadId)));
+    }
+
+    @Test
+    void invalidSessionsAreRejected() {
+        assertStatus(HttpStatus.BAD_REQUEST, () -> open("alice", 0, null));
+        assertStatus(HttpStatus.BAD_REQUEST, () -> open("alice", (1 << 20) + 1, null));
+        assertStatus(HttpStatus.BAD_REQUEST, () -> open("alice", FILE_SIZE, "abc"));
+
+        UploadSessionRequest request = new UploadSessionRequest();
+        request.setFileName("../etc/passwd");
+        request.setSize(FILE_SIZE);
+        assertStatus(HttpStatus.BAD_REQUEST, () -> uploads.create("alice", request));
+    }
+
+    @Test
+    void purgeRemovesInactiveSessionsAndOldOrphans() throws Exception {
+        String active = open("alice", FILE_SIZE, null).getUploadId();
+        Path oldOrphan = Files.write(incoming.resolve(UUID.randomUUID() + ".part"), new byte[10]);
+        Files.setLastModifiedTime(oldOrphan, FileTime.from(Instant.now().minus(2, ChronoUnit.DAYS)));
+        Path recentOrphan = Files.write(incoming.resolve(UUID.randomUUID() + ".part"), new byte[10]);
+        Path unrelated = Files.write(incoming.resolve("notes.txt"), new byte[10]);
+        Files.setLastModifiedTime(unrelated, FileTime.from(Instant.now().minus(2, ChronoUnit.DAYS)));
+
+        uploads.purgeExpired();
+
+        assertEquals(0, uploads.status("alice", active).getOffset());
+        assertTrue(Files.exists(partFile(active)));
+        assertFalse(Files.exists(oldOrphan));
+        assertTrue(Files.exists(recentOrphan));
+        assertTrue(Files.exists(unrelated));
+
+        // Durée de vie nulle : toute session sans activité depuis l'instant présent expire
+        ResumableUploadService expiring = new ResumableUploadService(incoming.resolve("expiring").toString(),
+                CHUNK_SIZE, 1 << 20, 0);
+        UploadSessionRequest request = new UploadSessionRequest();
+        request.setFileName("video.mp4");
+        request.setSize(FILE_SIZE);
+        String expired = expiring.create("alice", request).getUploadId();
+        Thread.sleep(5);
+
+        expiring.purgeExpired();
+
+        assertNotFound(() -> expiring.status("alice", expired));
+        assertFalse(Files.exists(incoming.resolve("expiring").resolve(expired + ".part")));
+    }
+
+    private UploadSessionDto open(String owner, long size, String sha256) {
+        UploadSessionRequest request = new UploadSessionRequest();
+        request.setFileName("video.mp4");
+        request.setSize(size);
+        request.setSha256(sha256);
+        return uploads.create(owner, request);
+    }
+
+    private long writeChunk(String owner, String uploadId, int index, String checksum) throws Exception {
+        byte[] chunk = chunk(index);
+        return uploads.writeChunk(owner, uploadId, (long) index * CHUNK_SIZE, chunk.length, checksum, stream(chunk));
+    }
+
+    private byte[] chunk(int index) {
+        return Arrays.copyOfRange(content, index * CHUNK_SIZE, Math.min(FILE_SIZE, (index + 1) * CHUNK_SIZE));
+    }
+
+    private Path partFile(String uploadId) {
+        return incoming.resolve(uploadId + ".part");
+    }
+
+    // Lecture par petits blocs, comme un corps de requête reçu en plusieurs paquets
+    private static InputStream stream(byte[] bytes) {
+        return new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] buffer, int offset, int length) {
+                return super.read(buffer, offset, Math.min(length, 100));
+            }
+        };
+    }
+
+    private static String checksum(byte[] bytes) throws Exception {
+        return "sha256 " + Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+
+    private static String sha256Hex(byte[] bytes) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+
+    private static void assertNotFound(Executable call) {
+        assertStatus(HttpStatus.NOT_FOUND, call);
+    }
+
+    private static void assertStatus(HttpStatus status, Executable call) {
+        ResponseStatusException error = assertThrows(ResponseStatusException.class, call);
+        assertEquals(status, error.getStatusCode());
+    }
+}
@@ -0,0 +1,136 @@
+package com.mediatower.backend.service;
+
+import com.mediatower.backend.dto.ProductDto;
+import com.mediatower.backend.dto.SelectionRow;
+import com.mediatower.backend.dto.ServiceDto;
+import com.mediatower.backend.model.Product;
+import com.mediatower.backend.model.Service;
+import com.mediatower.backend.repository.ProductRepository;
+import com.mediatower.backend.repository.ServiceRepository;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Listes de sélection (promotions, packs) : une seule requête de projection, sans entité chargée,
+ * regroupée en un élément par id avec tous ses noms.
+ */
+class SelectionListTest {
+
+    private AnnotationConfigApplicationContext context;
+    private TransactionTemplate readOnly;
+    private ProductService productService;
+    private ServiceService serviceService;
+
+    @BeforeEach
+    void setUp() {
+        context = JpaTestConfig.start();
+        ProductRepository products = context.getBean(ProductRepository.class);
+        ServiceRepository services = context.getBean(ServiceRepository.class);
+        // Seules les dépendances des listes de sélection sont fournies
+        productService = new ProductService(products, null, null, null, null, null, null, null,
+                null, null, null, null, null, null, null);
+        serviceService = new ServiceService(services, null, null, null, null, null);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            products.save(product(Map.of("en", "Camera", "fr", "Appareil photo"), "499.00"));
+            products.save(product(Map.of(), "5.00"));
+            products.save(product(Map.of("fr", "Objectif"), "199.90"));
+            services.save(service(Map.of("en", "Photo shoot", "fr", "Séance photo"), "150.00"));
+            services.save(service(Map.of(), "80.00"));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void productSelectionIsOneProjectionQuery() {
+        Statistics statistics = JpaTestConfig.statistics(context);
+        statistics.clear();
+
+        List<ProductDto> selection = readOnly.execute(status -> productService.getAllProductsForSelection());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(3, selection.size());
+        assertEquals(Map.of("en", "Camera", "fr", "Appareil photo"), selection.get(0).getNames());
+        assertEquals(new BigDecimal("499.00"), selection.get(0).getPrice());
+        // Produit sans nom : présent une fois, avec une map vide
+        assertEquals(Map.of(), selection.get(1).getNames());
+        assertEquals(new BigDecimal("5.00"), selection.get(1).getPrice());
+        assertEquals(Map.of("fr", "Objectif"), selection.get(2).getNames());
+        assertEquals(selection.stream().map(ProductDto::getId).sorted().toList(),
+                selection.stream().map(ProductDto::getId).toList());
+    }
+
+    @Test
+    void serviceSelectionIsOneProjectionQuery() {
+        Statistics statistics = JpaTestConfig.statistics(context);
+        statistics.clear();
+
+        List<ServiceDto> selection = readOnly.execute(status -> serviceService.getAllServicesForSelection());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(2, selection.size());
+        assertEquals(Map.of("en", "Photo shoot", "fr", "Séance photo"), selection.get(0).getNames());
+        assertEquals(Map.of(), selection.get(1).getNames());
+        assertEquals(new BigDecimal("80.00"), selection.get(1).getPrice());
+    }
+
+    @Test
+    void rowsAreGroupedByIdInRowOrder() {
+        Stream<SelectionRow> rows = Stream.of(
+                new SelectionRow(9L, "en", "Nine", BigDecimal.ONE),
+                new SelectionRow(9L, "fr", "Neuf", BigDecimal.ONE),
+                new SelectionRow(4L, null, null, BigDecimal.TEN),
+                new SelectionRow(7L, "fr", "Sept", BigDecimal.ZERO));
+
+        List<ProductDto> items = SelectionAssembler.assemble(rows, row -> {
+            ProductDto dto = new ProductDto();
+            dto.setId(row.id());
+            dto.setNames(new HashMap<>());
+            dto.setPrice(row.price());
+            return dto;
+        }, ProductDto::getNames);
+
+        assertEquals(List.of(9L, 4L, 7L), items.stream().map(ProductDto::getId).toList());
+        assertEquals(Map.of("en", "Nine", "fr", "Neuf"), items.get(0).getNames());
+        assertEquals(Map.of(), items.get(1).getNames());
+        assertEquals(BigDecimal.TEN, items.get(1).getPrice());
+        assertEquals(Map.of("fr", "Sept"), items.get(2).getNames());
+    }
+
+    private static Product product(Map<String, String> names, String price) {
+        Product product = new Product();
+        product.setNames(new HashMap<>(names));
+        product.setPrice(new BigDecimal(price));
+        product.setStock(1);
+        return product;
+    }
+
+    private static Service service(Map<String, String> names, String price) {
+        Service service = new Service();
+        service.setNames(new HashMap<>(names));
+        service.setPrice(new BigDecimal(price));
+        return service;
+    }
+}
@@ -0,0 +1,56 @@
+package com.mediatower.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextAnalyzerTest {
+
+    @Test
+    void foldsCaseAccentsAndLigatures() {
+        assertEquals("editeur", TextAnalyzer.fold("Éditeur"));
+        assertEquals("coeur a l'ouvrage", TextAnalyzer.fold("Cœur à l'ouvrage"));
+        assertEquals("aesthetic strasse", TextAnalyzer.fold("Æsthetic Straße"));
+        assertEquals("noel naive", TextAnalyzer.fold("NOËL naïve"));
+    }
+
+    @Test
+    void dropsStopWordsAndSeparators() {
+        assertEquals(List.of("casque", "audio", "sans", "fil", "30", "euros"),
+                TextAnalyzer.tokens("Le casque audio, sans-fil à 30 euros !"));
+        assertEquals(List.of("guide", "cuisine", "italienne"), TextAnalyzer.tokens("Guide de la cuisine italienne"));
+        assertEquals(List.of("art", "war"), TextAnalyzer.tokens("The Art of War"));
+        assertEquals(List.of("avion"), TextAnalyzer.tokens("l'avion"));
+        assertTrue(TextAnalyzer.tokens(null).isEmpty());
+        assertTrue(TextAnalyzer.tokens("  de la  ").isEmpty());
+    }
+
+    @Test
+    void tokensKeepDuplicatesButQueryTokensDoNot() {
+        assertEquals(List.of("photo", "appareil", "photo"), TextAnalyzer.tokens("photo appareil photo"));
+        assertEquals(List.of("photo", "appareil"), TextAnalyzer.queryTokens("Photo appareil PHOTO"));
+    }
+
+    @Test
+    void editDistanceCountsSubstitutionsInsertionsDeletionsAndTranspositions() {
+        assertEquals(0, TextAnalyzer.boundedEditDistance("guitare", "guitare", 2));
+        assertEquals(1, TextAnalyzer.boundedEditDistance("gitare", "guitare", 2));
+        assertEquals(1, TextAnalyzer.boundedEditDistance("guitarre", "guitare", 2));
+        assertEquals(1, TextAnalyzer.boundedEditDistance("guitere", "guitare", 2));
+        assertEquals(1, TextAnalyzer.boundedEditDistance("giutare", "guitare", 2));
+        assertEquals(2, TextAnalyzer.boundedEditDistance("wirless", "wireles", 2));
+    }
+
+    @Test
+    void editDistanceStopsAtTheBound() {
+        // Au-delà de la borne, le résultat est bound + 1, quelle que soit la distance réelle
+        assertEquals(2, TextAnalyzer.boundedEditDistance("casque", "clavier", 1));
+        assertEquals(3, TextAnalyzer.boundedEditDistance("casque", "clavier", 2));
+        // Écart de longueur supérieur à la borne : refusé sans calcul
+        assertEquals(2, TextAnalyzer.boundedEditDistance("cas", "casque", 1));
+        assertEquals(1, TextAnalyzer.boundedEditDistance("", "a", 1));
+    }
+}